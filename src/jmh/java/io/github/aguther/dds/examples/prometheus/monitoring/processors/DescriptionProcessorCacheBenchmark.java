@@ -0,0 +1,178 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.examples.prometheus.monitoring.processors;
+
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import com.rti.dds.subscription.InstanceStateKind;
+import com.rti.dds.subscription.SampleInfo;
+import idl.DDSMonitoring.BuiltinTopicKey_t;
+import idl.rti.dds.monitoring.DataWriterDescription;
+import java.util.HashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for the description cache under concurrent update and lookup load.
+ * <p>
+ * One thread updates the descriptions (alternating between alive and disposed instances) while three threads look
+ * them up like the metrics processors do. The 'legacy' group uses a cache with a single lock for updates and lookups
+ * the way it was done before, the other group uses the DescriptionProcessorCache.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DescriptionProcessorCacheBenchmark {
+
+  @Param({"64", "4096"})
+  private int entities;
+
+  private DescriptionProcessorCache cache;
+  private LegacyDescriptionProcessorCache legacyCache;
+
+  private DataWriterDescription[] samples;
+  private SampleInfo[] aliveInfos;
+  private SampleInfo[] disposedInfos;
+  private BuiltinTopicKey_t[] keys;
+
+  private int updateIndex;
+
+  @Setup
+  public void setUp() {
+    cache = new DescriptionProcessorCache();
+    legacyCache = new LegacyDescriptionProcessorCache();
+
+    samples = new DataWriterDescription[entities];
+    aliveInfos = new SampleInfo[entities];
+    disposedInfos = new SampleInfo[entities];
+    keys = new BuiltinTopicKey_t[entities];
+
+    for (int i = 0; i < entities; i++) {
+      samples[i] = new DataWriterDescription();
+      samples[i].entity_key.value[0] = i;
+      // lookups use separate key objects to not benefit from identity checks
+      keys[i] = new BuiltinTopicKey_t();
+      keys[i].value[0] = i;
+
+      InstanceHandle_t instanceHandle = new InstanceHandle_t();
+      instanceHandle.value[0] = (byte) i;
+      instanceHandle.value[1] = (byte) (i >> 8);
+
+      aliveInfos[i] = new SampleInfo();
+      aliveInfos[i].instance_handle.copy_from(instanceHandle);
+      aliveInfos[i].instance_state = InstanceStateKind.ALIVE_INSTANCE_STATE;
+      aliveInfos[i].valid_data = true;
+
+      disposedInfos[i] = new SampleInfo();
+      disposedInfos[i].instance_handle.copy_from(instanceHandle);
+      disposedInfos[i].instance_state = InstanceStateKind.NOT_ALIVE_DISPOSED_INSTANCE_STATE;
+      disposedInfos[i].valid_data = false;
+
+      cache.process(samples[i], aliveInfos[i]);
+      legacyCache.process(samples[i], aliveInfos[i]);
+    }
+  }
+
+  @Benchmark
+  @Group("concurrent")
+  @GroupThreads(1)
+  public void concurrentUpdate() {
+    int index = nextUpdateIndex();
+    cache.process(samples[index], disposedInfos[index]);
+    cache.process(samples[index], aliveInfos[index]);
+  }
+
+  @Benchmark
+  @Group("concurrent")
+  @GroupThreads(3)
+  public DataWriterDescription concurrentLookup() {
+    return cache.getDataWriterDescription(keys[ThreadLocalRandom.current().nextInt(entities)]);
+  }
+
+  @Benchmark
+  @Group("legacy")
+  @GroupThreads(1)
+  public void legacyUpdate() {
+    int index = nextUpdateIndex();
+    legacyCache.process(samples[index], disposedInfos[index]);
+    legacyCache.process(samples[index], aliveInfos[index]);
+  }
+
+  @Benchmark
+  @Group("legacy")
+  @GroupThreads(3)
+  public DataWriterDescription legacyLookup() {
+    return legacyCache.getDataWriterDescription(keys[ThreadLocalRandom.current().nextInt(entities)]);
+  }
+
+  private int nextUpdateIndex() {
+    // only called by the single update thread of a group
+    int index = updateIndex;
+    updateIndex = index + 1 == entities ? 0 : index + 1;
+    return index;
+  }
+
+  private static class LegacyDescriptionProcessorCache {
+
+    private final HashMap<BuiltinTopicKey_t, DataWriterDescription> store = new HashMap<>();
+    private final HashMap<InstanceHandle_t, BuiltinTopicKey_t> mapping = new HashMap<>();
+
+    synchronized void process(
+      DataWriterDescription sample,
+      SampleInfo info
+    ) {
+      if (info.instance_state == InstanceStateKind.ALIVE_INSTANCE_STATE && info.valid_data) {
+        store.putIfAbsent(sample.entity_key, sample);
+        mapping.putIfAbsent(info.instance_handle, sample.entity_key);
+      } else {
+        BuiltinTopicKey_t key = mapping.remove(info.instance_handle);
+        if (key != null) {
+          store.remove(key);
+        }
+      }
+    }
+
+    synchronized DataWriterDescription getDataWriterDescription(
+      BuiltinTopicKey_t key
+    ) {
+      return store.get(key);
+    }
+  }
+}
@@ -0,0 +1,231 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.examples.prometheus.routing.processors;
+
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import com.rti.dds.subscription.InstanceStateKind;
+import com.rti.dds.subscription.SampleInfo;
+import idl.RTI.RoutingService.Monitoring.RouteConfig;
+import idl.RTI.RoutingService.Monitoring.RouteEvent;
+import idl.RTI.RoutingService.Monitoring.RoutePeriodic;
+import idl.RTI.Service.Monitoring.Config;
+import idl.RTI.Service.Monitoring.Event;
+import idl.RTI.Service.Monitoring.Periodic;
+import idl.RTI.Service.Monitoring.ResourceGuid;
+import idl.RTI.Service.Monitoring.ResourceKind;
+import io.github.aguther.dds.examples.prometheus.routing.util.ResourceIdMatcher;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Gauge;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for processing periodic samples of routes.
+ * <p>
+ * The periodic samples of all routes are processed round robin after their config and event have been received. The
+ * 'legacy' benchmark looks up config and event, checks the kinds and resolves the children of the gauges for every
+ * sample the way it was done before, the other benchmark uses the PeriodicProcessor with its joined resources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PeriodicProcessorBenchmark {
+
+  @Param({"100000"})
+  private int routes;
+
+  private ConfigEventProcessorCache cache;
+  private PeriodicProcessor periodicProcessor;
+  private LegacyPeriodicProcessor legacyPeriodicProcessor;
+
+  private Periodic[] samples;
+  private SampleInfo[] infos;
+
+  private int index;
+
+  @Setup
+  public void setUp() {
+    cache = new ConfigEventProcessorCache();
+    periodicProcessor = new PeriodicProcessor(cache);
+    legacyPeriodicProcessor = new LegacyPeriodicProcessor(cache);
+
+    samples = new Periodic[routes];
+    infos = new SampleInfo[routes];
+
+    for (int i = 0; i < routes; i++) {
+      ResourceGuid resourceGuid = new ResourceGuid();
+      resourceGuid.value[0] = (byte) i;
+      resourceGuid.value[1] = (byte) (i >> 8);
+      resourceGuid.value[2] = (byte) (i >> 16);
+
+      InstanceHandle_t instanceHandle = new InstanceHandle_t();
+      instanceHandle.value[0] = (byte) i;
+      instanceHandle.value[1] = (byte) (i >> 8);
+      instanceHandle.value[2] = (byte) (i >> 16);
+
+      infos[i] = new SampleInfo();
+      infos[i].instance_handle.copy_from(instanceHandle);
+      infos[i].instance_state = InstanceStateKind.ALIVE_INSTANCE_STATE;
+      infos[i].valid_data = true;
+
+      // config and event of the route
+      Config config = new Config();
+      config.object_guid.copy_from(resourceGuid);
+      config.value._d = ResourceKind.ROUTING_ROUTE;
+      config.value.routing_route.resource_id = String.format(
+        "/routing_services/Service/domain_routes/DomainRoute/sessions/Session/routes/Route%d", i);
+      cache.process(config, infos[i]);
+
+      Event event = new Event();
+      event.object_guid.copy_from(resourceGuid);
+      event.value._d = ResourceKind.ROUTING_ROUTE;
+      cache.process(event, infos[i]);
+
+      // periodic sample of the route
+      samples[i] = new Periodic();
+      samples[i].object_guid.copy_from(resourceGuid);
+      samples[i].value._d = ResourceKind.ROUTING_ROUTE;
+      samples[i].value.routing_route.in_samples_per_sec.publication_period_metrics.mean = i;
+    }
+
+    // process all samples once, so only updates are measured
+    for (int i = 0; i < routes; i++) {
+      periodicProcessor.process(samples[i], infos[i]);
+      legacyPeriodicProcessor.process(samples[i], infos[i]);
+    }
+  }
+
+  @Benchmark
+  public void joined() {
+    int i = nextIndex();
+    periodicProcessor.process(samples[i], infos[i]);
+  }
+
+  @Benchmark
+  public void legacy() {
+    int i = nextIndex();
+    legacyPeriodicProcessor.process(samples[i], infos[i]);
+  }
+
+  private int nextIndex() {
+    int i = index;
+    index = i + 1 == routes ? 0 : i + 1;
+    return i;
+  }
+
+  private static class LegacyPeriodicProcessor {
+
+    private static final String[] LABEL_NAMES = {"routing_service", "domain_route", "session", "route"};
+
+    private final ConfigEventProcessorCache cache;
+    private final HashMap<InstanceHandle_t, ResourceGuid> resourceGuids = new HashMap<>();
+    private final HashMap<InstanceHandle_t, String[]> labelValues = new HashMap<>();
+    private final Gauge[] gauges;
+
+    LegacyPeriodicProcessor(
+      ConfigEventProcessorCache cache
+    ) {
+      this.cache = cache;
+      // the gauges are registered with a separate registry, as the names are used by the PeriodicProcessor
+      CollectorRegistry registry = new CollectorRegistry();
+      gauges = new Gauge[6];
+      for (int i = 0; i < gauges.length; i++) {
+        gauges[i] = Gauge.build()
+          .name("legacy_route_gauge_" + i)
+          .labelNames(LABEL_NAMES)
+          .help("legacy_route_gauge_" + i)
+          .register(registry);
+      }
+    }
+
+    void process(
+      Periodic sample,
+      SampleInfo info
+    ) {
+      resourceGuids.putIfAbsent(info.instance_handle, sample.object_guid);
+
+      Config config = cache.getConfig(sample.object_guid);
+      if (config == null) {
+        return;
+      }
+      Event event = cache.getEvent(sample.object_guid);
+      if (event == null) {
+        return;
+      }
+
+      // every kind is checked in sequence
+      for (ResourceKind resourceKind : new ResourceKind[]{
+        ResourceKind.ROUTING_SERVICE,
+        ResourceKind.ROUTING_DOMAIN_ROUTE,
+        ResourceKind.ROUTING_SESSION,
+        ResourceKind.ROUTING_AUTO_ROUTE,
+        ResourceKind.ROUTING_ROUTE,
+        ResourceKind.ROUTING_INPUT,
+        ResourceKind.ROUTING_OUTPUT}) {
+        if (resourceKind.equals(sample.value._d) && ResourceKind.ROUTING_ROUTE.equals(resourceKind)) {
+          processRoute(info.instance_handle, config.value.routing_route, event.value.routing_route,
+            sample.value.routing_route);
+        }
+      }
+    }
+
+    private void processRoute(
+      InstanceHandle_t instanceHandle,
+      RouteConfig config,
+      RouteEvent event,
+      RoutePeriodic periodic
+    ) {
+      if (!labelValues.containsKey(instanceHandle)) {
+        Matcher matcher = ResourceIdMatcher.get(config.resource_id);
+        matcher.matches();
+        labelValues.put(instanceHandle, new String[]{
+          matcher.group(1), matcher.group(2), matcher.group(3), matcher.group(4)});
+      }
+      String[] routeLabelValues = labelValues.get(instanceHandle);
+
+      gauges[0].labels(routeLabelValues).set(event.state.value());
+      gauges[1].labels(routeLabelValues).set(periodic.in_samples_per_sec.publication_period_metrics.mean);
+      gauges[2].labels(routeLabelValues).set(periodic.in_bytes_per_sec.publication_period_metrics.mean);
+      gauges[3].labels(routeLabelValues).set(periodic.out_samples_per_sec.publication_period_metrics.mean);
+      gauges[4].labels(routeLabelValues).set(periodic.out_bytes_per_sec.publication_period_metrics.mean);
+      gauges[5].labels(routeLabelValues).set(periodic.latency_millisec.publication_period_metrics.mean);
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.routing.dynamic;
+
+import io.github.aguther.dds.routing.dynamic.observer.Direction;
+import io.github.aguther.dds.routing.dynamic.observer.Session;
+import io.github.aguther.dds.routing.dynamic.observer.TopicRoute;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for the rendering of session and topic route configurations.
+ * <p>
+ * The 'legacy' benchmarks render the configuration the way it was done before (String.replaceAll and String.format),
+ * the other benchmarks use the ConfigurationFilterProvider with precompiled patterns and templates. Both look up the
+ * matching configuration of the topic, so only the rendering differs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigurationRenderingBenchmark {
+
+  private static final String TRANSFORMATION_REGEX = "^(.*)$";
+  private static final String TRANSFORMATION_REPLACEMENT = "Transformed/$1";
+
+  @Param({"OUT", "IN"})
+  private Direction direction;
+
+  private ConfigurationFilterProvider configurationFilterProvider;
+  private Session session;
+  private TopicRoute topicRoute;
+
+  @Setup
+  public void setUp() {
+    Properties properties = new Properties();
+    properties.setProperty("configuration.domain_route_name", "Default");
+    properties.setProperty("configuration.shape.allow_topic_name_filter", "Square|Circle|Triangle");
+    properties.setProperty("configuration.shape.qos.topic_route", "<route_types>true</route_types>");
+    properties.setProperty("configuration.shape.qos.input", "<creation_mode>IMMEDIATE</creation_mode>");
+    properties.setProperty("configuration.shape.qos.output", "<creation_mode>IMMEDIATE</creation_mode>");
+    properties.setProperty("configuration.shape.partition.transformation.regex", TRANSFORMATION_REGEX);
+    properties.setProperty("configuration.shape.partition.transformation.replacement", TRANSFORMATION_REPLACEMENT);
+
+    configurationFilterProvider = new ConfigurationFilterProvider(properties);
+    session = new Session(direction, "Square", "A");
+    topicRoute = new TopicRoute(direction, "Square", "ShapeType");
+  }
+
+  @Benchmark
+  public String sessionConfiguration() {
+    return configurationFilterProvider.getSessionConfiguration(session);
+  }
+
+  @Benchmark
+  public String sessionConfigurationLegacy() {
+    Configuration configuration = configurationFilterProvider.getMatchingConfiguration(session.getTopic());
+
+    String publisherPartition = session.getPartition();
+    String subscriberPartition = session.getPartition();
+
+    String transformedPartition = session.getPartition().replaceAll(
+      configuration.getPartitionTransformationRegex(),
+      configuration.getPartitionTransformationReplacement()
+    );
+    if (session.getDirection() == Direction.OUT) {
+      subscriberPartition = transformedPartition;
+    } else {
+      publisherPartition = transformedPartition;
+    }
+
+    return String.format(
+      "<session name=\"%1$s\" enabled=\"true\"><publisher_qos><partition><name><element>%2$s</element></name></partition></publisher_qos><subscriber_qos><partition><name><element>%3$s</element></name></partition></subscriber_qos></session>",
+      String.format(
+        "%s(%s)-%s",
+        session.getTopic(),
+        session.getPartition(),
+        session.getDirection()
+      ),
+      publisherPartition,
+      subscriberPartition
+    );
+  }
+
+  @Benchmark
+  public String topicRouteConfiguration() {
+    return configurationFilterProvider.getTopicRouteConfiguration(session, topicRoute);
+  }
+
+  @Benchmark
+  public String topicRouteConfigurationLegacy() {
+    Configuration configuration = configurationFilterProvider.getMatchingConfiguration(session.getTopic());
+
+    return String.format(
+      "<topic_route name=\"%1$s\" enabled=\"true\">%5$s<input participant=\"%2$d\"><topic_name>%3$s</topic_name><registered_type_name>%4$s</registered_type_name>%6$s</input><output><topic_name>%3$s</topic_name><registered_type_name>%4$s</registered_type_name>%7$s</output></topic_route>",
+      topicRoute.getDirection().toString(),
+      topicRoute.getDirection() == Direction.OUT ? 1 : 2,
+      session.getTopic(),
+      topicRoute.getType(),
+      configuration.getQosTopicRoute(),
+      configuration.getQosInput(),
+      configuration.getQosOutput()
+    );
+  }
+}
@@ -0,0 +1,339 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.routing.dynamic.observer;
+
+import com.rti.dds.domain.DomainParticipant;
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import com.rti.dds.publication.builtin.PublicationBuiltinTopicData;
+import com.rti.dds.subscription.builtin.SubscriptionBuiltinTopicData;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for the path from discovery of publications and subscriptions to the invocation of the listeners of the
+ * DynamicPartitionObserver.
+ * <p>
+ * The observer is driven with synthetic built-in topic data, a filter that allows everything and a listener that only
+ * counts invocations, so no domain participant or routing service is needed. Every endpoint has its own topic, which
+ * makes the number of expected listener invocations deterministic.
+ */
+public class DynamicPartitionObserverBenchmark {
+
+  /**
+   * Measures the time to process a discovery burst until all listener invocations were received.
+   */
+  @State(Scope.Thread)
+  public static class BurstState {
+
+    @Param({"1000", "10000"})
+    private int endpoints;
+
+    @Param({"1", "4"})
+    private int partitions;
+
+    @Param({"0", "50"})
+    private int churnPercent;
+
+    @Param({"1", "4"})
+    private int lanes;
+
+    private SyntheticEndpoints syntheticEndpoints;
+    private CountingListener listener;
+    private DynamicPartitionObserver dynamicPartitionObserver;
+    private int churnedEndpoints;
+    private int expectedInvocations;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+      syntheticEndpoints = new SyntheticEndpoints(endpoints, partitions);
+      listener = new CountingListener();
+      churnedEndpoints = endpoints * churnPercent / 100;
+      // discovery: session + topic route per partition, churn: deletion and creation again
+      expectedInvocations = 2 * partitions * endpoints + 4 * partitions * churnedEndpoints;
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+      dynamicPartitionObserver = createDynamicPartitionObserver(lanes, listener);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() {
+      dynamicPartitionObserver.close();
+    }
+  }
+
+  /**
+   * Measures the latency of a single discovery and loss until the listener invocations were received.
+   */
+  @State(Scope.Thread)
+  public static class RoundTripState {
+
+    @Param({"1", "4"})
+    private int partitions;
+
+    @Param({"1", "4"})
+    private int lanes;
+
+    private SyntheticEndpoints syntheticEndpoints;
+    private CountingListener listener;
+    private DynamicPartitionObserver dynamicPartitionObserver;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+      syntheticEndpoints = new SyntheticEndpoints(2, partitions);
+      listener = new CountingListener();
+      dynamicPartitionObserver = createDynamicPartitionObserver(lanes, listener);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+      dynamicPartitionObserver.close();
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 5)
+  @Measurement(iterations = 10)
+  @Fork(1)
+  public void burst(
+    final BurstState state
+  ) throws InterruptedException {
+    CountDownLatch latch = state.listener.expect(state.expectedInvocations);
+
+    // discover all endpoints
+    for (int i = 0; i < state.endpoints; i++) {
+      state.syntheticEndpoints.discover(state.dynamicPartitionObserver, i);
+    }
+    // lose and discover endpoints again
+    for (int i = 0; i < state.churnedEndpoints; i++) {
+      state.syntheticEndpoints.lose(state.dynamicPartitionObserver, i);
+    }
+    for (int i = 0; i < state.churnedEndpoints; i++) {
+      state.syntheticEndpoints.discover(state.dynamicPartitionObserver, i);
+    }
+
+    latch.await();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @Warmup(iterations = 3, time = 2)
+  @Measurement(iterations = 5, time = 2)
+  @Fork(1)
+  public void roundTrip(
+    final RoundTripState state
+  ) throws InterruptedException {
+    // discover publication and subscription
+    CountDownLatch latch = state.listener.expect(4 * state.partitions);
+    state.syntheticEndpoints.discover(state.dynamicPartitionObserver, 0);
+    state.syntheticEndpoints.discover(state.dynamicPartitionObserver, 1);
+    latch.await();
+
+    // lose publication and subscription
+    latch = state.listener.expect(4 * state.partitions);
+    state.syntheticEndpoints.lose(state.dynamicPartitionObserver, 0);
+    state.syntheticEndpoints.lose(state.dynamicPartitionObserver, 1);
+    latch.await();
+  }
+
+  private static DynamicPartitionObserver createDynamicPartitionObserver(
+    final int lanes,
+    final CountingListener listener
+  ) {
+    DynamicPartitionObserver dynamicPartitionObserver = new DynamicPartitionObserver(lanes);
+    dynamicPartitionObserver.addFilter(new AllowAllFilter());
+    dynamicPartitionObserver.addListener(listener);
+    return dynamicPartitionObserver;
+  }
+
+  /**
+   * Synthetic publications (even index) and subscriptions (odd index), each with its own topic.
+   */
+  private static class SyntheticEndpoints {
+
+    private final InstanceHandle_t[] instanceHandles;
+    private final PublicationBuiltinTopicData[] publications;
+    private final SubscriptionBuiltinTopicData[] subscriptions;
+
+    private SyntheticEndpoints(
+      final int endpoints,
+      final int partitions
+    ) {
+      instanceHandles = new InstanceHandle_t[endpoints];
+      publications = new PublicationBuiltinTopicData[endpoints];
+      subscriptions = new SubscriptionBuiltinTopicData[endpoints];
+
+      for (int i = 0; i < endpoints; i++) {
+        instanceHandles[i] = createInstanceHandle(i);
+        if (i % 2 == 0) {
+          PublicationBuiltinTopicData data = new PublicationBuiltinTopicData();
+          data.topic_name = "Topic" + i;
+          data.type_name = "Type";
+          for (int j = 0; j < partitions; j++) {
+            data.partition.name.add("Partition" + j);
+          }
+          publications[i] = data;
+        } else {
+          SubscriptionBuiltinTopicData data = new SubscriptionBuiltinTopicData();
+          data.topic_name = "Topic" + i;
+          data.type_name = "Type";
+          for (int j = 0; j < partitions; j++) {
+            data.partition.name.add("Partition" + j);
+          }
+          subscriptions[i] = data;
+        }
+      }
+    }
+
+    private void discover(
+      final DynamicPartitionObserver dynamicPartitionObserver,
+      final int index
+    ) {
+      if (publications[index] != null) {
+        dynamicPartitionObserver.publicationDiscovered(null, instanceHandles[index], publications[index]);
+      } else {
+        dynamicPartitionObserver.subscriptionDiscovered(null, instanceHandles[index], subscriptions[index]);
+      }
+    }
+
+    private void lose(
+      final DynamicPartitionObserver dynamicPartitionObserver,
+      final int index
+    ) {
+      if (publications[index] != null) {
+        dynamicPartitionObserver.publicationLost(null, instanceHandles[index], publications[index]);
+      } else {
+        dynamicPartitionObserver.subscriptionLost(null, instanceHandles[index], subscriptions[index]);
+      }
+    }
+
+    private static InstanceHandle_t createInstanceHandle(
+      final int index
+    ) {
+      InstanceHandle_t instanceHandle = new InstanceHandle_t();
+      instanceHandle.value[0] = (byte) (index >>> 24);
+      instanceHandle.value[1] = (byte) (index >>> 16);
+      instanceHandle.value[2] = (byte) (index >>> 8);
+      instanceHandle.value[3] = (byte) index;
+      instanceHandle.length = instanceHandle.value.length;
+      instanceHandle.isValid = true;
+      return instanceHandle;
+    }
+  }
+
+  /**
+   * Filter that does not ignore anything.
+   */
+  private static class AllowAllFilter implements DynamicPartitionObserverFilter {
+
+    @Override
+    public boolean ignorePublication(
+      final DomainParticipant domainParticipant,
+      final InstanceHandle_t instanceHandle,
+      final PublicationBuiltinTopicData data
+    ) {
+      return false;
+    }
+
+    @Override
+    public boolean ignoreSubscription(
+      final DomainParticipant domainParticipant,
+      final InstanceHandle_t instanceHandle,
+      final SubscriptionBuiltinTopicData data
+    ) {
+      return false;
+    }
+
+    @Override
+    public boolean ignorePartition(
+      final String topicName,
+      final String partition
+    ) {
+      return false;
+    }
+  }
+
+  /**
+   * Listener that counts down a latch on every invocation.
+   */
+  private static class CountingListener implements DynamicPartitionObserverListener {
+
+    private volatile CountDownLatch latch = new CountDownLatch(0);
+
+    private CountDownLatch expect(
+      final int invocations
+    ) {
+      latch = new CountDownLatch(invocations);
+      return latch;
+    }
+
+    @Override
+    public void createSession(
+      final Session session
+    ) {
+      latch.countDown();
+    }
+
+    @Override
+    public void deleteSession(
+      final Session session
+    ) {
+      latch.countDown();
+    }
+
+    @Override
+    public void createTopicRoute(
+      final Session session,
+      final TopicRoute topicRoute
+    ) {
+      latch.countDown();
+    }
+
+    @Override
+    public void deleteTopicRoute(
+      final Session session,
+      final TopicRoute topicRoute
+    ) {
+      latch.countDown();
+    }
+  }
+}
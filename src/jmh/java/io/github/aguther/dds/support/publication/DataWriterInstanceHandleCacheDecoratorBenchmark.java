@@ -0,0 +1,137 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.support.publication;
+
+import com.rti.dds.domain.DomainParticipant;
+import com.rti.dds.domain.DomainParticipantFactory;
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import com.rti.dds.infrastructure.StatusKind;
+import com.rti.dds.publication.DataWriter;
+import com.rti.dds.publication.Publisher;
+import com.rti.dds.topic.Topic;
+import idl.ShapeTypeExtended;
+import idl.ShapeTypeExtendedTypeSupport;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for writes of ShapeTypeExtended samples with {@link InstanceHandle_t#HANDLE_NIL}.
+ * <p>
+ * The 'uncached' benchmark writes to the data writer directly, so the instance is looked up natively on every write.
+ * The 'cached' benchmark writes through the DataWriterInstanceHandleCacheDecorator keyed by the color. The data writer
+ * uses the default QoS on an otherwise unused domain and has no matching readers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataWriterInstanceHandleCacheDecoratorBenchmark {
+
+  private static final int DOMAIN_ID = 231;
+
+  @Param({"16", "1024"})
+  private int instances;
+
+  private DomainParticipant domainParticipant;
+  private DataWriter dataWriter;
+  private DataWriter cachedDataWriter;
+
+  private ShapeTypeExtended[] samples;
+  private int index;
+
+  @Setup
+  public void setUp() {
+    // create participant, topic and data writer with default qos
+    domainParticipant = DomainParticipantFactory.get_instance().create_participant(
+      DOMAIN_ID,
+      DomainParticipantFactory.PARTICIPANT_QOS_DEFAULT,
+      null,
+      StatusKind.STATUS_MASK_NONE
+    );
+    ShapeTypeExtendedTypeSupport.register_type(domainParticipant, ShapeTypeExtendedTypeSupport.get_type_name());
+    Topic topic = domainParticipant.create_topic(
+      "Square",
+      ShapeTypeExtendedTypeSupport.get_type_name(),
+      DomainParticipant.TOPIC_QOS_DEFAULT,
+      null,
+      StatusKind.STATUS_MASK_NONE
+    );
+    dataWriter = domainParticipant.create_datawriter(
+      topic,
+      Publisher.DATAWRITER_QOS_DEFAULT,
+      null,
+      StatusKind.STATUS_MASK_NONE
+    );
+    cachedDataWriter = new DataWriterInstanceHandleCacheDecorator(
+      dataWriter,
+      sample -> ((ShapeTypeExtended) sample).color,
+      instances
+    );
+
+    // create one sample per instance
+    samples = new ShapeTypeExtended[instances];
+    for (int i = 0; i < instances; i++) {
+      samples[i] = new ShapeTypeExtended();
+      samples[i].color = "COLOR_" + i;
+      samples[i].shapesize = 30;
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    domainParticipant.delete_contained_entities();
+    DomainParticipantFactory.get_instance().delete_participant(domainParticipant);
+  }
+
+  @Benchmark
+  public void uncached() {
+    dataWriter.write_untyped(nextSample(), InstanceHandle_t.HANDLE_NIL);
+  }
+
+  @Benchmark
+  public void cached() {
+    cachedDataWriter.write_untyped(nextSample(), InstanceHandle_t.HANDLE_NIL);
+  }
+
+  private ShapeTypeExtended nextSample() {
+    ShapeTypeExtended sample = samples[index];
+    index = index + 1 == instances ? 0 : index + 1;
+    sample.x = index;
+    return sample;
+  }
+}
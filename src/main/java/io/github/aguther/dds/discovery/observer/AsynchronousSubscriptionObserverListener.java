@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.discovery.observer;
+
+import com.rti.dds.domain.DomainParticipant;
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import com.rti.dds.subscription.builtin.SubscriptionBuiltinTopicData;
+import io.github.aguther.dds.util.AsynchronousListener;
+
+/**
+ * This class decouples a subscription observer listener from the observer, so a slow listener does not stall discovery.
+ * Notifications of the same subscription are coalesced by instance handle when the queue is full, see {@link
+ * AsynchronousListener}.
+ * <p>
+ * Instance handle and data are copied before being queued, because the observer may reuse them after the invocation.
+ */
+public class AsynchronousSubscriptionObserverListener
+  extends AsynchronousListener<SubscriptionObserverListener>
+  implements SubscriptionObserverListener {
+
+  /**
+   * Instantiates a new asynchronous subscription observer listener.
+   *
+   * @param listener listener to invoke asynchronously
+   * @param capacity number of queued notifications from which on notifications are coalesced
+   */
+  public AsynchronousSubscriptionObserverListener(
+    final SubscriptionObserverListener listener,
+    final int capacity
+  ) {
+    super(listener, capacity);
+  }
+
+  @Override
+  public void subscriptionDiscovered(
+    final DomainParticipant domainParticipant,
+    final InstanceHandle_t instanceHandle,
+    final SubscriptionBuiltinTopicData data
+  ) {
+    InstanceHandle_t instanceHandleCopy = new InstanceHandle_t(instanceHandle);
+    SubscriptionBuiltinTopicData dataCopy = copy(data);
+    dispatch(
+      instanceHandleCopy,
+      NotificationKind.CREATION,
+      listener -> listener.subscriptionDiscovered(domainParticipant, instanceHandleCopy, dataCopy)
+    );
+  }
+
+  @Override
+  public void subscriptionModified(
+    final DomainParticipant domainParticipant,
+    final InstanceHandle_t instanceHandle,
+    final SubscriptionBuiltinTopicData data
+  ) {
+    InstanceHandle_t instanceHandleCopy = new InstanceHandle_t(instanceHandle);
+    SubscriptionBuiltinTopicData dataCopy = copy(data);
+    dispatch(
+      instanceHandleCopy,
+      NotificationKind.MODIFICATION,
+      listener -> listener.subscriptionModified(domainParticipant, instanceHandleCopy, dataCopy)
+    );
+  }
+
+  @Override
+  public void subscriptionLost(
+    final DomainParticipant domainParticipant,
+    final InstanceHandle_t instanceHandle,
+    final SubscriptionBuiltinTopicData data
+  ) {
+    InstanceHandle_t instanceHandleCopy = new InstanceHandle_t(instanceHandle);
+    SubscriptionBuiltinTopicData dataCopy = copy(data);
+    dispatch(
+      instanceHandleCopy,
+      NotificationKind.DELETION,
+      listener -> listener.subscriptionLost(domainParticipant, instanceHandleCopy, dataCopy)
+    );
+  }
+
+  private static SubscriptionBuiltinTopicData copy(
+    final SubscriptionBuiltinTopicData data
+  ) {
+    if (data == null) {
+      return null;
+    }
+    SubscriptionBuiltinTopicData result = new SubscriptionBuiltinTopicData();
+    result.copy_from(data);
+    return result;
+  }
+}
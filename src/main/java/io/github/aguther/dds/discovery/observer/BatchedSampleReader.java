@@ -0,0 +1,248 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.discovery.observer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.rti.dds.infrastructure.Copyable;
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import com.rti.dds.infrastructure.RETCODE_ERROR;
+import com.rti.dds.infrastructure.RETCODE_NO_DATA;
+import com.rti.dds.subscription.DataReader;
+import com.rti.dds.subscription.InstanceStateKind;
+import com.rti.dds.subscription.SampleInfo;
+import com.rti.dds.subscription.SampleInfoSeq;
+import com.rti.dds.subscription.SampleStateKind;
+import com.rti.dds.subscription.ViewStateKind;
+import com.rti.dds.util.LoanableSequence;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * This class reads the samples of a built-in topic in batches with loaned sequences for the publication and the
+ * subscription observer.
+ * <p>
+ * The sample cache is updated while holding its lock, the listeners are invoked afterwards for the whole batch. The
+ * loaned samples are only valid during the invocation. An instance that is lost before it has been cached (it was
+ * never alive for the observer) is unknown to the listeners, hence they are not informed about it.
+ *
+ * @param <T> type of the samples
+ * @param <L> type of the listeners
+ */
+class BatchedSampleReader<T extends Copyable, L> {
+
+  private static final Logger LOGGER = LogManager.getLogger(BatchedSampleReader.class);
+
+  /**
+   * Logs a notification before it is added to the batch.
+   *
+   * @param <T> type of the samples
+   */
+  @FunctionalInterface
+  interface NotificationLogger<T> {
+
+    void log(
+      final NotificationBatch.Kind kind,
+      final SampleInfo sampleInfo,
+      final T sample
+    );
+  }
+
+  /**
+   * Invokes a listener for a notification.
+   *
+   * @param <T> type of the samples
+   * @param <L> type of the listeners
+   */
+  @FunctionalInterface
+  interface ListenerInvoker<T, L> {
+
+    void invoke(
+      final L listener,
+      final NotificationBatch.Kind kind,
+      final InstanceHandle_t instanceHandle,
+      final T sample
+    );
+  }
+
+  private final DataReader dataReader;
+  private final SampleCache<T> sampleCache;
+  private final Supplier<T> sampleFactory;
+  private final Supplier<L[]> receivers;
+  private final NotificationLogger<T> notificationLogger;
+  private final ListenerInvoker<T, L> listenerInvoker;
+  private final int batchSize;
+  private final LoanableSequence loanedSamples;
+  private final SampleInfoSeq loanedSampleInfos;
+  private final NotificationBatch<T> notifications;
+
+  /**
+   * Instantiates a new batched sample reader.
+   *
+   * @param dataReader         data reader of the built-in topic
+   * @param loanedSamples      sequence of the sample type used for loans
+   * @param sampleCache        sample cache (its lock is held while it is updated)
+   * @param sampleFactory      creates a sample to copy a loaned sample into when it is kept by the cache
+   * @param receivers          returns the listeners to inform (invoked while holding the lock of the cache)
+   * @param notificationLogger logs a notification
+   * @param listenerInvoker    invokes a listener for a notification
+   * @param batchSize          maximum number of samples read at once
+   */
+  BatchedSampleReader(
+    final DataReader dataReader,
+    final LoanableSequence loanedSamples,
+    final SampleCache<T> sampleCache,
+    final Supplier<T> sampleFactory,
+    final Supplier<L[]> receivers,
+    final NotificationLogger<T> notificationLogger,
+    final ListenerInvoker<T, L> listenerInvoker,
+    final int batchSize
+  ) {
+    checkNotNull(dataReader, "Data reader must not be null");
+    checkNotNull(loanedSamples, "Sequence must not be null");
+    checkNotNull(sampleCache, "Sample cache must not be null");
+    checkNotNull(sampleFactory, "Sample factory must not be null");
+    checkNotNull(receivers, "Receivers must not be null");
+    checkNotNull(notificationLogger, "Notification logger must not be null");
+    checkNotNull(listenerInvoker, "Listener invoker must not be null");
+    checkArgument(batchSize > 0, "Batch size is expected > 0");
+
+    this.dataReader = dataReader;
+    this.loanedSamples = loanedSamples;
+    this.sampleCache = sampleCache;
+    this.sampleFactory = sampleFactory;
+    this.receivers = receivers;
+    this.notificationLogger = notificationLogger;
+    this.listenerInvoker = listenerInvoker;
+    this.batchSize = batchSize;
+    loanedSampleInfos = new SampleInfoSeq();
+    notifications = new NotificationBatch<>(batchSize);
+  }
+
+  /**
+   * Reads the available samples in batches until no more samples are available.
+   */
+  @SuppressWarnings("unchecked")
+  void read() {
+    do {
+      try {
+        // read next batch of samples not read yet
+        dataReader.read_untyped(
+          loanedSamples,
+          loanedSampleInfos,
+          batchSize,
+          SampleStateKind.NOT_READ_SAMPLE_STATE,
+          ViewStateKind.ANY_VIEW_STATE,
+          InstanceStateKind.ANY_INSTANCE_STATE
+        );
+      } catch (RETCODE_NO_DATA noData) {
+        LOGGER.trace("No more data available to read");
+        return;
+      } catch (RETCODE_ERROR error) {
+        LOGGER.error("Error reading samples; {}", error);
+        return;
+      }
+
+      try {
+        // update cache and collect notifications
+        L[] listeners;
+        synchronized (sampleCache) {
+          for (int i = 0; i < loanedSamples.size(); i++) {
+            collectNotification(
+              (T) loanedSamples.get(i),
+              (SampleInfo) loanedSampleInfos.get(i)
+            );
+          }
+          listeners = receivers.get();
+        }
+
+        // call listeners without holding the lock
+        deliverNotifications(listeners);
+      } finally {
+        notifications.clear();
+        dataReader.return_loan_untyped(loanedSamples, loanedSampleInfos);
+      }
+    } while (true);
+  }
+
+  /**
+   * Updates the cache with a loaned sample and adds the resulting notification to the batch.
+   *
+   * @param sample     loaned sample
+   * @param sampleInfo loaned sample info
+   */
+  private void collectNotification(
+    final T sample,
+    final SampleInfo sampleInfo
+  ) {
+    if (sampleInfo.valid_data) {
+      // the loaned instance handle is reused, hence listeners and cache get a copy
+      InstanceHandle_t instanceHandle = new InstanceHandle_t(sampleInfo.instance_handle);
+
+      // decide if the entity was modified or discovered
+      NotificationBatch.Kind kind = sampleCache.containsKey(instanceHandle)
+        ? NotificationBatch.Kind.MODIFIED : NotificationBatch.Kind.DISCOVERED;
+
+      // cache sample for the lost event (a loaned sample must be copied when it is kept)
+      T data = sample;
+      if (sampleCache.retainsSamples()) {
+        data = sampleFactory.get();
+        data.copy_from(sample);
+      }
+      sampleCache.put(instanceHandle, data);
+
+      // add notification
+      notificationLogger.log(kind, sampleInfo, data);
+      notifications.add(kind, instanceHandle, data);
+    } else if (sampleInfo.instance_state != InstanceStateKind.ALIVE_INSTANCE_STATE) {
+      // get sample from cached data
+      T data = sampleCache.remove(sampleInfo.instance_handle);
+      if (data == null) {
+        return;
+      }
+
+      // add notification
+      notificationLogger.log(NotificationBatch.Kind.LOST, sampleInfo, data);
+      notifications.add(NotificationBatch.Kind.LOST, new InstanceHandle_t(sampleInfo.instance_handle), data);
+    }
+  }
+
+  /**
+   * Informs the listeners about the collected notifications.
+   *
+   * @param listeners listeners to inform
+   */
+  private void deliverNotifications(
+    final L[] listeners
+  ) {
+    for (int i = 0; i < notifications.size(); i++) {
+      for (L listener : listeners) {
+        listenerInvoker.invoke(listener, notifications.kind(i), notifications.instanceHandle(i), notifications.sample(i));
+      }
+    }
+  }
+}
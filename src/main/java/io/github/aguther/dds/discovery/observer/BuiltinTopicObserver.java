@@ -38,18 +38,27 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
  * This class allows the observation of a built-in topic. Built-in topics are used to track discovery information like
  * domain participants, publications and subscriptions.
+ * <p>
+ * Triggers of the middleware are coalesced: while reading is scheduled but not yet started, further triggers are only
+ * counted because the scheduled run reads their samples as well. The flag is reset before reading starts, hence
+ * samples arriving during a run always schedule another one.
  */
 class BuiltinTopicObserver extends DataReaderAdapter implements Closeable, Runnable {
 
   private static final Logger LOGGER = LogManager.getLogger(BuiltinTopicObserver.class);
 
   private final ExecutorService executorService;
+  private final AtomicBoolean scheduled;
+  private final AtomicLong triggerCount;
+  private final AtomicLong coalescedTriggerCount;
 
   protected final DomainParticipant domainParticipant;
   protected final DataReader dataReader;
@@ -75,17 +84,22 @@ class BuiltinTopicObserver extends DataReaderAdapter implements Closeable, Runna
     dataReader = domainParticipant.get_builtin_subscriber().lookup_datareader(topicName);
     checkNotNull(dataReader, "Failed to get data reader for topic '%s'", topicName);
 
-    // set listener on data reader so we get the data
-    dataReader.set_listener(this, StatusKind.DATA_AVAILABLE_STATUS);
+    // create flag and counters for coalescing triggers
+    scheduled = new AtomicBoolean();
+    triggerCount = new AtomicLong();
+    coalescedTriggerCount = new AtomicLong();
 
-    // create executor as single thread
+    // create executor as single thread (at most one run is queued while another one is in progress)
     executorService = new ThreadPoolExecutor(
       1,
       1,
       0L,
       TimeUnit.MILLISECONDS,
-      new ArrayBlockingQueue<>(2)
+      new ArrayBlockingQueue<>(1)
     );
+
+    // set listener on data reader so we get the data
+    dataReader.set_listener(this, StatusKind.DATA_AVAILABLE_STATUS);
   }
 
   /**
@@ -113,15 +127,50 @@ class BuiltinTopicObserver extends DataReaderAdapter implements Closeable, Runna
     // now we need to inform our listeners that something new has been discovered
     LOGGER.trace("Method 'on_data_available' invoked.");
 
+    triggerCount.incrementAndGet();
+
+    // schedule reading unless it is already scheduled and not yet started
+    if (!scheduled.compareAndSet(false, true)) {
+      coalescedTriggerCount.incrementAndGet();
+      return;
+    }
+
     // trigger to read samples
     try {
-      executorService.submit(this);
+      executorService.execute(this::readAvailableSamples);
     } catch (RejectedExecutionException ex) {
-      // this exception can be ignored: it's enough to have at most 2 executions
-      // in the queue to read all samples, therefore, more will be rejected
+      // only happens when the observer has been closed meanwhile
+      LOGGER.trace("Observer has been closed, ignoring trigger");
     }
   }
 
+  /**
+   * Returns the number of triggers received from the middleware.
+   *
+   * @return number of triggers
+   */
+  public long getTriggerCount() {
+    return triggerCount.get();
+  }
+
+  /**
+   * Returns the number of triggers that have been coalesced with an already scheduled run.
+   *
+   * @return number of coalesced triggers
+   */
+  public long getCoalescedTriggerCount() {
+    return coalescedTriggerCount.get();
+  }
+
+  /**
+   * Resets the scheduled flag and reads the available samples.
+   */
+  private void readAvailableSamples() {
+    // reset before reading, samples arriving from now on need another run
+    scheduled.set(false);
+    run();
+  }
+
   @Override
   public void run() {
     // override this method to read data
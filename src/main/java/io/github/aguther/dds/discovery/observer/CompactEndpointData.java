@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.discovery.observer;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.rti.dds.infrastructure.BuiltinTopicKey_t;
+import com.rti.dds.infrastructure.StringSeq;
+import com.rti.dds.publication.builtin.PublicationBuiltinTopicData;
+import com.rti.dds.subscription.builtin.SubscriptionBuiltinTopicData;
+
+/**
+ * Compact representation of a publication or subscription that only contains topic name, type name, partitions and
+ * participant key.
+ * <p>
+ * Names are interned because many endpoints share the same topic, type and partitions.
+ */
+final class CompactEndpointData {
+
+  private static final Interner<String> STRING_INTERNER = Interners.newWeakInterner();
+  private static final String[] NO_PARTITIONS = new String[0];
+
+  private final String topicName;
+  private final String typeName;
+  private final String[] partitions;
+  private final int[] participantKey;
+
+  private CompactEndpointData(
+    final String topicName,
+    final String typeName,
+    final StringSeq partitions,
+    final BuiltinTopicKey_t participantKey
+  ) {
+    this.topicName = intern(topicName);
+    this.typeName = intern(typeName);
+    this.partitions = toArray(partitions);
+    this.participantKey = participantKey.value.clone();
+  }
+
+  /**
+   * Creates the compact data of a publication.
+   *
+   * @param data publication data
+   * @return compact data
+   */
+  static CompactEndpointData of(
+    final PublicationBuiltinTopicData data
+  ) {
+    return new CompactEndpointData(data.topic_name, data.type_name, data.partition.name, data.participant_key);
+  }
+
+  /**
+   * Creates the compact data of a subscription.
+   *
+   * @param data subscription data
+   * @return compact data
+   */
+  static CompactEndpointData of(
+    final SubscriptionBuiltinTopicData data
+  ) {
+    return new CompactEndpointData(data.topic_name, data.type_name, data.partition.name, data.participant_key);
+  }
+
+  /**
+   * Recreates publication data with the fields of the compact data.
+   *
+   * @return publication data
+   */
+  PublicationBuiltinTopicData toPublicationBuiltinTopicData() {
+    PublicationBuiltinTopicData data = new PublicationBuiltinTopicData();
+    data.topic_name = topicName;
+    data.type_name = typeName;
+    copyPartitions(data.partition.name);
+    copyParticipantKey(data.participant_key);
+    return data;
+  }
+
+  /**
+   * Recreates subscription data with the fields of the compact data.
+   *
+   * @return subscription data
+   */
+  SubscriptionBuiltinTopicData toSubscriptionBuiltinTopicData() {
+    SubscriptionBuiltinTopicData data = new SubscriptionBuiltinTopicData();
+    data.topic_name = topicName;
+    data.type_name = typeName;
+    copyPartitions(data.partition.name);
+    copyParticipantKey(data.participant_key);
+    return data;
+  }
+
+  private void copyPartitions(
+    final StringSeq target
+  ) {
+    for (String partition : partitions) {
+      target.add(partition);
+    }
+  }
+
+  private void copyParticipantKey(
+    final BuiltinTopicKey_t target
+  ) {
+    System.arraycopy(participantKey, 0, target.value, 0, participantKey.length);
+  }
+
+  private static String[] toArray(
+    final StringSeq stringSeq
+  ) {
+    if (stringSeq.isEmpty()) {
+      return NO_PARTITIONS;
+    }
+    String[] result = new String[stringSeq.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = intern((String) stringSeq.get(i));
+    }
+    return result;
+  }
+
+  private static String intern(
+    final String value
+  ) {
+    return value != null ? STRING_INTERNER.intern(value) : null;
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.discovery.observer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import io.github.aguther.dds.util.InstanceHandleMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Sample cache that only keeps the fields of the samples listeners typically need (see {@link CompactEndpointData}).
+ * <p>
+ * The compact data is stored in an {@link InstanceHandleMap}, so the memory needed grows only by a few small objects
+ * per endpoint. Samples are recreated from the compact data when they are requested; all other fields of these samples
+ * have their default values.
+ *
+ * @param <T> type of the samples
+ */
+class CompactSampleCache<T> implements SampleCache<T> {
+
+  private final InstanceHandleMap<CompactEndpointData> samples;
+  private final Function<T, CompactEndpointData> compactor;
+  private final Function<CompactEndpointData, T> expander;
+
+  /**
+   * Instantiates a new compact sample cache.
+   *
+   * @param compactor function to create the compact data of a sample
+   * @param expander  function to recreate a sample from the compact data
+   */
+  CompactSampleCache(
+    final Function<T, CompactEndpointData> compactor,
+    final Function<CompactEndpointData, T> expander
+  ) {
+    checkNotNull(compactor, "Compactor must not be null");
+    checkNotNull(expander, "Expander must not be null");
+
+    samples = new InstanceHandleMap<>();
+    this.compactor = compactor;
+    this.expander = expander;
+  }
+
+  @Override
+  public boolean containsKey(
+    final InstanceHandle_t instanceHandle
+  ) {
+    return samples.containsKey(instanceHandle);
+  }
+
+  @Override
+  public boolean retainsSamples() {
+    return false;
+  }
+
+  @Override
+  public void put(
+    final InstanceHandle_t instanceHandle,
+    final T sample
+  ) {
+    samples.put(instanceHandle, compactor.apply(sample));
+  }
+
+  @Override
+  public T remove(
+    final InstanceHandle_t instanceHandle
+  ) {
+    CompactEndpointData data = samples.remove(instanceHandle);
+    return data != null ? expander.apply(data) : null;
+  }
+
+  @Override
+  public void forEach(
+    final BiConsumer<InstanceHandle_t, T> action
+  ) {
+    samples.forEach((instanceHandle, data) -> action.accept(instanceHandle, expander.apply(data)));
+  }
+
+  @Override
+  public void clear() {
+    samples.clear();
+  }
+}
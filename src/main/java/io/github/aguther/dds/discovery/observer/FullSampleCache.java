@@ -0,0 +1,86 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.discovery.observer;
+
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Sample cache that keeps the complete samples.
+ *
+ * @param <T> type of the samples
+ */
+class FullSampleCache<T> implements SampleCache<T> {
+
+  private final Map<InstanceHandle_t, T> samples;
+
+  /**
+   * Instantiates a new full sample cache.
+   */
+  FullSampleCache() {
+    samples = new HashMap<>();
+  }
+
+  @Override
+  public boolean containsKey(
+    final InstanceHandle_t instanceHandle
+  ) {
+    return samples.containsKey(instanceHandle);
+  }
+
+  @Override
+  public boolean retainsSamples() {
+    return true;
+  }
+
+  @Override
+  public void put(
+    final InstanceHandle_t instanceHandle,
+    final T sample
+  ) {
+    samples.put(instanceHandle, sample);
+  }
+
+  @Override
+  public T remove(
+    final InstanceHandle_t instanceHandle
+  ) {
+    return samples.remove(instanceHandle);
+  }
+
+  @Override
+  public void forEach(
+    final BiConsumer<InstanceHandle_t, T> action
+  ) {
+    samples.forEach(action);
+  }
+
+  @Override
+  public void clear() {
+    samples.clear();
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.discovery.observer;
+
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import java.util.Arrays;
+
+/**
+ * This class collects the notifications of a batch of samples, so listeners can be invoked after the lock protecting
+ * the sample cache and the listeners has been released.
+ * <p>
+ * The arrays are kept and grown on demand, hence no objects are allocated per notification once the batch reached the
+ * size of the largest batch read.
+ *
+ * @param <T> type of the samples
+ */
+class NotificationBatch<T> {
+
+  /**
+   * Kind of a notification.
+   */
+  enum Kind {
+    DISCOVERED,
+    MODIFIED,
+    LOST
+  }
+
+  private Kind[] kinds;
+  private InstanceHandle_t[] instanceHandles;
+  private Object[] samples;
+  private int size;
+
+  /**
+   * Instantiates a new notification batch.
+   *
+   * @param capacity initial capacity
+   */
+  NotificationBatch(
+    final int capacity
+  ) {
+    kinds = new Kind[Math.max(1, capacity)];
+    instanceHandles = new InstanceHandle_t[kinds.length];
+    samples = new Object[kinds.length];
+  }
+
+  /**
+   * Adds a notification.
+   *
+   * @param kind           kind of the notification
+   * @param instanceHandle instance handle
+   * @param sample         sample
+   */
+  void add(
+    final Kind kind,
+    final InstanceHandle_t instanceHandle,
+    final T sample
+  ) {
+    if (size == kinds.length) {
+      kinds = Arrays.copyOf(kinds, size << 1);
+      instanceHandles = Arrays.copyOf(instanceHandles, size << 1);
+      samples = Arrays.copyOf(samples, size << 1);
+    }
+    kinds[size] = kind;
+    instanceHandles[size] = instanceHandle;
+    samples[size] = sample;
+    size++;
+  }
+
+  /**
+   * Returns the number of notifications.
+   *
+   * @return number of notifications
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the kind of a notification.
+   *
+   * @param index index of the notification
+   * @return kind of the notification
+   */
+  Kind kind(
+    final int index
+  ) {
+    return kinds[index];
+  }
+
+  /**
+   * Returns the instance handle of a notification.
+   *
+   * @param index index of the notification
+   * @return instance handle
+   */
+  InstanceHandle_t instanceHandle(
+    final int index
+  ) {
+    return instanceHandles[index];
+  }
+
+  /**
+   * Returns the sample of a notification.
+   *
+   * @param index index of the notification
+   * @return sample
+   */
+  @SuppressWarnings("unchecked")
+  T sample(
+    final int index
+  ) {
+    return (T) samples[index];
+  }
+
+  /**
+   * Removes all notifications and releases the references to instance handles and samples.
+   */
+  void clear() {
+    Arrays.fill(instanceHandles, 0, size, null);
+    Arrays.fill(samples, 0, size, null);
+    size = 0;
+  }
+}
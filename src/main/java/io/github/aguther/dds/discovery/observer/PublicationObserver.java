@@ -24,6 +24,7 @@
 
 package io.github.aguther.dds.discovery.observer;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.rti.dds.domain.DomainParticipant;
@@ -31,26 +32,30 @@ import com.rti.dds.infrastructure.InstanceHandle_t;
 import com.rti.dds.infrastructure.RETCODE_ERROR;
 import com.rti.dds.infrastructure.RETCODE_NO_DATA;
 import com.rti.dds.publication.builtin.PublicationBuiltinTopicData;
+import com.rti.dds.publication.builtin.PublicationBuiltinTopicDataSeq;
 import com.rti.dds.publication.builtin.PublicationBuiltinTopicDataTypeSupport;
 import com.rti.dds.subscription.InstanceStateKind;
 import com.rti.dds.subscription.SampleInfo;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
  * This class implements an observer for publications.
+ * <p>
+ * Listeners are invoked without holding a lock, hence listeners can be added or removed while others are invoked. To
+ * prevent a slow listener from stalling discovery, it can be decoupled with {@link AsynchronousPublicationObserverListener}.
+ * <p>
+ * A publication that is lost before it has been discovered is not reported to the listeners.
  */
 public class PublicationObserver extends BuiltinTopicObserver {
 
   private static final Logger LOGGER = LogManager.getLogger(PublicationObserver.class);
 
-  private final Map<InstanceHandle_t, PublicationBuiltinTopicData> sampleCache;
+  private final SampleCache<PublicationBuiltinTopicData> sampleCache;
   private final Set<PublicationObserverListener> listeners;
+  private final BatchedSampleReader<PublicationBuiltinTopicData, PublicationObserverListener> batchedSampleReader;
 
   /**
    * Instantiates a new Publication observer.
@@ -59,15 +64,71 @@ public class PublicationObserver extends BuiltinTopicObserver {
    */
   public PublicationObserver(
     final DomainParticipant domainParticipant
+  ) {
+    this(domainParticipant, false);
+  }
+
+  /**
+   * Instantiates a new Publication observer.
+   * <p>
+   * The compact sample cache only keeps topic name, type name, partitions and participant key of each publication,
+   * which reduces the memory needed with many endpoints considerably. In this case the data provided when a
+   * publication is lost or when already read samples are delivered to a new listener only contains these fields.
+   *
+   * @param domainParticipant  the domain participant (that is not yet enabled)
+   * @param compactSampleCache true to use the compact sample cache
+   */
+  public PublicationObserver(
+    final DomainParticipant domainParticipant,
+    final boolean compactSampleCache
+  ) {
+    this(domainParticipant, compactSampleCache, 0);
+  }
+
+  /**
+   * Instantiates a new Publication observer.
+   * <p>
+   * With a batch size greater than 0, samples are read in batches of at most this size with loaned sequences and the
+   * listeners are invoked for the whole batch after the internal lock has been released. The samples provided to the
+   * listeners in this mode are only valid during the invocation, hence listeners must copy the fields they need.
+   *
+   * @param domainParticipant  the domain participant (that is not yet enabled)
+   * @param compactSampleCache true to use the compact sample cache
+   * @param batchSize          maximum number of samples read at once, 0 to read sample by sample
+   */
+  public PublicationObserver(
+    final DomainParticipant domainParticipant,
+    final boolean compactSampleCache,
+    final int batchSize
   ) {
     // create the parent observer with the built-in publication topic
     super(domainParticipant, PublicationBuiltinTopicDataTypeSupport.PUBLICATION_TOPIC_NAME);
 
     // initialize sample cache
-    sampleCache = new HashMap<>();
+    if (compactSampleCache) {
+      sampleCache = new CompactSampleCache<>(
+        CompactEndpointData::of,
+        CompactEndpointData::toPublicationBuiltinTopicData
+      );
+    } else {
+      sampleCache = new FullSampleCache<>();
+    }
 
-    // create set for listeners with lock
-    listeners = new HashSet<>();
+    // create set for listeners that can be modified while listeners are invoked
+    listeners = new CopyOnWriteArraySet<>();
+
+    // create the reader for batches (it reuses its containers)
+    checkArgument(batchSize >= 0, "Batch size is expected >= 0");
+    batchedSampleReader = batchSize == 0 ? null : new BatchedSampleReader<>(
+      dataReader,
+      new PublicationBuiltinTopicDataSeq(),
+      sampleCache,
+      PublicationBuiltinTopicData::new,
+      () -> listeners.toArray(new PublicationObserverListener[0]),
+      this::logNotification,
+      this::invokeListener,
+      batchSize
+    );
   }
 
   @Override
@@ -99,23 +160,21 @@ public class PublicationObserver extends BuiltinTopicObserver {
   ) {
     checkNotNull(listener, "Listener must not be null");
 
-    synchronized (listeners) {
+    synchronized (sampleCache) {
       listeners.add(listener);
 
       if (deliverReadSamples) {
-        for (Entry<InstanceHandle_t, PublicationBuiltinTopicData> entry : sampleCache.entrySet()) {
-          listener.publicationDiscovered(
-            domainParticipant,
-            entry.getKey(),
-            entry.getValue()
-          );
-        }
+        sampleCache.forEach((instanceHandle, sample) -> listener.publicationDiscovered(
+          domainParticipant,
+          instanceHandle,
+          sample
+        ));
       }
     }
   }
 
   /**
-   * Remove listener.
+   * Remove listener. Notifications already in progress may still be delivered to the listener.
    *
    * @param listener the listener
    */
@@ -123,13 +182,22 @@ public class PublicationObserver extends BuiltinTopicObserver {
     final PublicationObserverListener listener
   ) {
     checkNotNull(listener, "Listener must not be null");
-    synchronized (listeners) {
-      listeners.remove(listener);
-    }
+    listeners.remove(listener);
   }
 
   @Override
   public void run() {
+    if (batchedSampleReader != null) {
+      batchedSampleReader.read();
+    } else {
+      readSamples();
+    }
+  }
+
+  /**
+   * Reads and processes the available samples one by one.
+   */
+  private void readSamples() {
     do {
       try {
         // create data containers
@@ -139,27 +207,38 @@ public class PublicationObserver extends BuiltinTopicObserver {
         // read next sample
         dataReader.read_next_sample_untyped(sample, sampleInfo);
 
-        synchronized (listeners) {
+        // update cache and determine listeners to inform
+        PublicationObserverListener[] receivers;
+        boolean discovered;
+        synchronized (sampleCache) {
           if (sampleInfo.valid_data) {
             // decide if publication was modified or discovered
-            boolean discovered = !sampleCache.containsKey(sampleInfo.instance_handle);
+            discovered = !sampleCache.containsKey(sampleInfo.instance_handle);
 
             // cache sample for the lost event
             sampleCache.put(sampleInfo.instance_handle, sample);
-
-            // call listeners
-            if (discovered) {
-              invokePublicationDiscovered(sample, sampleInfo);
-            } else {
-              invokePublicationModified(sample, sampleInfo);
-            }
           } else if (sampleInfo.instance_state != InstanceStateKind.ALIVE_INSTANCE_STATE) {
             // get sample from cached data
             sample = sampleCache.remove(sampleInfo.instance_handle);
+            discovered = false;
 
-            // call listeners
-            invokePublicationLost(sample, sampleInfo);
+            // an instance that was never alive is unknown to the listeners
+            if (sample == null) {
+              continue;
+            }
+          } else {
+            continue;
           }
+          receivers = listeners.toArray(new PublicationObserverListener[0]);
+        }
+
+        // call listeners without holding the lock
+        if (!sampleInfo.valid_data) {
+          invokePublicationLost(receivers, sample, sampleInfo);
+        } else if (discovered) {
+          invokePublicationDiscovered(receivers, sample, sampleInfo);
+        } else {
+          invokePublicationModified(receivers, sample, sampleInfo);
         }
       } catch (RETCODE_NO_DATA noData) {
         LOGGER.trace("No more data available to read");
@@ -171,78 +250,127 @@ public class PublicationObserver extends BuiltinTopicObserver {
     } while (true);
   }
 
+  /**
+   * Informs a listener about a notification of a batch.
+   *
+   * @param listener       listener to inform
+   * @param kind           kind of the notification
+   * @param instanceHandle instance handle
+   * @param sample         publication data
+   */
+  private void invokeListener(
+    final PublicationObserverListener listener,
+    final NotificationBatch.Kind kind,
+    final InstanceHandle_t instanceHandle,
+    final PublicationBuiltinTopicData sample
+  ) {
+    switch (kind) {
+      case DISCOVERED:
+        listener.publicationDiscovered(domainParticipant, instanceHandle, sample);
+        break;
+      case MODIFIED:
+        listener.publicationModified(domainParticipant, instanceHandle, sample);
+        break;
+      case LOST:
+        listener.publicationLost(domainParticipant, instanceHandle, sample);
+        break;
+      default:
+        break;
+    }
+  }
+
   /**
    * Informs the listeners about the discovery of a publication.
    *
+   * @param receivers  listeners to inform
    * @param sample     publication data
    * @param sampleInfo publication info
    */
   private void invokePublicationDiscovered(
+    PublicationObserverListener[] receivers,
     PublicationBuiltinTopicData sample,
     SampleInfo sampleInfo
   ) {
-    synchronized (listeners) {
-      // log information
-      logListenerInvocation("publicationDiscovered", sampleInfo, sample);
+    // log information
+    logListenerInvocation("publicationDiscovered", sampleInfo, sample);
 
-      // iterate over listeners and invoke them
-      for (PublicationObserverListener listener : listeners) {
-        listener.publicationDiscovered(
-          domainParticipant,
-          sampleInfo.instance_handle,
-          sample
-        );
-      }
+    // iterate over listeners and invoke them
+    for (PublicationObserverListener listener : receivers) {
+      listener.publicationDiscovered(
+        domainParticipant,
+        sampleInfo.instance_handle,
+        sample
+      );
     }
   }
 
   /**
    * Informs the listeners about the modification of a publication.
    *
+   * @param receivers  listeners to inform
    * @param sample     publication data
    * @param sampleInfo publication info
    */
   private void invokePublicationModified(
+    PublicationObserverListener[] receivers,
     PublicationBuiltinTopicData sample,
     SampleInfo sampleInfo
   ) {
-    synchronized (listeners) {
-      // log information
-      logListenerInvocation("publicationModified", sampleInfo, sample);
+    // log information
+    logListenerInvocation("publicationModified", sampleInfo, sample);
 
-      // iterate over listeners and invoke them
-      for (PublicationObserverListener listener : listeners) {
-        listener.publicationModified(
-          domainParticipant,
-          sampleInfo.instance_handle,
-          sample
-        );
-      }
+    // iterate over listeners and invoke them
+    for (PublicationObserverListener listener : receivers) {
+      listener.publicationModified(
+        domainParticipant,
+        sampleInfo.instance_handle,
+        sample
+      );
     }
   }
 
   /**
    * Informs the listeners about the loss of a publication.
    *
+   * @param receivers  listeners to inform
    * @param sample     publication data
    * @param sampleInfo publication info
    */
   private void invokePublicationLost(
+    PublicationObserverListener[] receivers,
     PublicationBuiltinTopicData sample,
     SampleInfo sampleInfo
   ) {
-    synchronized (listeners) {
-      // log information
-      logListenerInvocation("publicationLost", sampleInfo, sample);
+    // log information
+    logListenerInvocation("publicationLost", sampleInfo, sample);
 
-      // iterate over listeners and invoke them
-      for (PublicationObserverListener listener : listeners) {
-        listener.publicationLost(
-          domainParticipant,
-          sampleInfo.instance_handle,
-          sample
-        );
-      }
+    // iterate over listeners and invoke them
+    for (PublicationObserverListener listener : receivers) {
+      listener.publicationLost(
+        domainParticipant,
+        sampleInfo.instance_handle,
+        sample
+      );
+    }
+  }
+
+  private void logNotification(
+    NotificationBatch.Kind kind,
+    SampleInfo sampleInfo,
+    PublicationBuiltinTopicData sample
+  ) {
+    switch (kind) {
+      case DISCOVERED:
+        logListenerInvocation("publicationDiscovered", sampleInfo, sample);
+        break;
+      case MODIFIED:
+        logListenerInvocation("publicationModified", sampleInfo, sample);
+        break;
+      case LOST:
+        logListenerInvocation("publicationLost", sampleInfo, sample);
+        break;
+      default:
+        break;
     }
   }
 
@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.discovery.observer;
+
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import java.util.function.BiConsumer;
+
+/**
+ * Cache of the samples of a built-in topic that is used to deliver already read samples and the data of lost
+ * instances.
+ *
+ * @param <T> type of the samples
+ */
+interface SampleCache<T> {
+
+  /**
+   * Returns if a sample is cached for the instance handle.
+   *
+   * @param instanceHandle instance handle
+   * @return true if a sample is cached, false if not
+   */
+  boolean containsKey(
+    final InstanceHandle_t instanceHandle
+  );
+
+  /**
+   * Returns if the cache keeps a reference to the samples put, hence a loaned sample must be copied before.
+   *
+   * @return true if references are kept, false if only the fields needed are extracted
+   */
+  boolean retainsSamples();
+
+  /**
+   * Caches the sample of an instance handle.
+   *
+   * @param instanceHandle instance handle
+   * @param sample         sample
+   */
+  void put(
+    final InstanceHandle_t instanceHandle,
+    final T sample
+  );
+
+  /**
+   * Removes the sample of an instance handle.
+   *
+   * @param instanceHandle instance handle
+   * @return sample if cached, otherwise null
+   */
+  T remove(
+    final InstanceHandle_t instanceHandle
+  );
+
+  /**
+   * Invokes the action for all cached samples.
+   *
+   * @param action action to invoke
+   */
+  void forEach(
+    final BiConsumer<InstanceHandle_t, T> action
+  );
+
+  /**
+   * Removes all cached samples.
+   */
+  void clear();
+}
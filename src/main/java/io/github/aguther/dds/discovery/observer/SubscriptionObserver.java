@@ -24,6 +24,7 @@
 
 package io.github.aguther.dds.discovery.observer;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.rti.dds.domain.DomainParticipant;
@@ -33,24 +34,28 @@ import com.rti.dds.infrastructure.RETCODE_NO_DATA;
 import com.rti.dds.subscription.InstanceStateKind;
 import com.rti.dds.subscription.SampleInfo;
 import com.rti.dds.subscription.builtin.SubscriptionBuiltinTopicData;
+import com.rti.dds.subscription.builtin.SubscriptionBuiltinTopicDataSeq;
 import com.rti.dds.subscription.builtin.SubscriptionBuiltinTopicDataTypeSupport;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
  * This class implements an observer for subscriptions.
+ * <p>
+ * Listeners are invoked without holding a lock, hence listeners can be added or removed while others are invoked. To
+ * prevent a slow listener from stalling discovery, it can be decoupled with {@link AsynchronousSubscriptionObserverListener}.
+ * <p>
+ * A subscription that is lost before it has been discovered is not reported to the listeners.
  */
 public class SubscriptionObserver extends BuiltinTopicObserver {
 
   private static final Logger LOGGER = LogManager.getLogger(SubscriptionObserver.class);
 
-  private final Map<InstanceHandle_t, SubscriptionBuiltinTopicData> sampleCache;
+  private final SampleCache<SubscriptionBuiltinTopicData> sampleCache;
   private final Set<SubscriptionObserverListener> listeners;
+  private final BatchedSampleReader<SubscriptionBuiltinTopicData, SubscriptionObserverListener> batchedSampleReader;
 
   /**
    * Creates a new observer for subscriptions.
@@ -59,15 +64,71 @@ public class SubscriptionObserver extends BuiltinTopicObserver {
    */
   public SubscriptionObserver(
     final DomainParticipant domainParticipant
+  ) {
+    this(domainParticipant, false);
+  }
+
+  /**
+   * Creates a new observer for subscriptions.
+   * <p>
+   * The compact sample cache only keeps topic name, type name, partitions and participant key of each subscription,
+   * which reduces the memory needed with many endpoints considerably. In this case the data provided when a
+   * subscription is lost or when already read samples are delivered to a new listener only contains these fields.
+   *
+   * @param domainParticipant  the domain participant (that is not yet enabled)
+   * @param compactSampleCache true to use the compact sample cache
+   */
+  public SubscriptionObserver(
+    final DomainParticipant domainParticipant,
+    final boolean compactSampleCache
+  ) {
+    this(domainParticipant, compactSampleCache, 0);
+  }
+
+  /**
+   * Creates a new observer for subscriptions.
+   * <p>
+   * With a batch size greater than 0, samples are read in batches of at most this size with loaned sequences and the
+   * listeners are invoked for the whole batch after the internal lock has been released. The samples provided to the
+   * listeners in this mode are only valid during the invocation, hence listeners must copy the fields they need.
+   *
+   * @param domainParticipant  the domain participant (that is not yet enabled)
+   * @param compactSampleCache true to use the compact sample cache
+   * @param batchSize          maximum number of samples read at once, 0 to read sample by sample
+   */
+  public SubscriptionObserver(
+    final DomainParticipant domainParticipant,
+    final boolean compactSampleCache,
+    final int batchSize
   ) {
     // create the parent observer with the built-in subscription topic
     super(domainParticipant, SubscriptionBuiltinTopicDataTypeSupport.SUBSCRIPTION_TOPIC_NAME);
 
     // initialize sample cache
-    sampleCache = new HashMap<>();
+    if (compactSampleCache) {
+      sampleCache = new CompactSampleCache<>(
+        CompactEndpointData::of,
+        CompactEndpointData::toSubscriptionBuiltinTopicData
+      );
+    } else {
+      sampleCache = new FullSampleCache<>();
+    }
 
-    // create set for listeners with lock
-    listeners = new HashSet<>();
+    // create set for listeners that can be modified while listeners are invoked
+    listeners = new CopyOnWriteArraySet<>();
+
+    // create the reader for batches (it reuses its containers)
+    checkArgument(batchSize >= 0, "Batch size is expected >= 0");
+    batchedSampleReader = batchSize == 0 ? null : new BatchedSampleReader<>(
+      dataReader,
+      new SubscriptionBuiltinTopicDataSeq(),
+      sampleCache,
+      SubscriptionBuiltinTopicData::new,
+      () -> listeners.toArray(new SubscriptionObserverListener[0]),
+      this::logNotification,
+      this::invokeListener,
+      batchSize
+    );
   }
 
   @Override
@@ -99,23 +160,21 @@ public class SubscriptionObserver extends BuiltinTopicObserver {
   ) {
     checkNotNull(listener, "Listener must not be null");
 
-    synchronized (listeners) {
+    synchronized (sampleCache) {
       listeners.add(listener);
 
       if (deliverReadSamples) {
-        for (Entry<InstanceHandle_t, SubscriptionBuiltinTopicData> entry : sampleCache.entrySet()) {
-          listener.subscriptionDiscovered(
-            domainParticipant,
-            entry.getKey(),
-            entry.getValue()
-          );
-        }
+        sampleCache.forEach((instanceHandle, sample) -> listener.subscriptionDiscovered(
+          domainParticipant,
+          instanceHandle,
+          sample
+        ));
       }
     }
   }
 
   /**
-   * Remove listener.
+   * Remove listener. Notifications already in progress may still be delivered to the listener.
    *
    * @param listener the listener
    */
@@ -123,13 +182,22 @@ public class SubscriptionObserver extends BuiltinTopicObserver {
     final SubscriptionObserverListener listener
   ) {
     checkNotNull(listener, "Listener must not be null");
-    synchronized (listeners) {
-      listeners.remove(listener);
-    }
+    listeners.remove(listener);
   }
 
   @Override
   public void run() {
+    if (batchedSampleReader != null) {
+      batchedSampleReader.read();
+    } else {
+      readSamples();
+    }
+  }
+
+  /**
+   * Reads and processes the available samples one by one.
+   */
+  private void readSamples() {
     do {
       try {
         // create data containers
@@ -139,27 +207,38 @@ public class SubscriptionObserver extends BuiltinTopicObserver {
         // read next sample
         dataReader.read_next_sample_untyped(sample, sampleInfo);
 
-        synchronized (listeners) {
+        // update cache and determine listeners to inform
+        SubscriptionObserverListener[] receivers;
+        boolean discovered;
+        synchronized (sampleCache) {
           if (sampleInfo.valid_data) {
             // decide if subscription was modified or discovered
-            boolean discovered = !sampleCache.containsKey(sampleInfo.instance_handle);
+            discovered = !sampleCache.containsKey(sampleInfo.instance_handle);
 
             // cache sample for the lost event
             sampleCache.put(sampleInfo.instance_handle, sample);
-
-            // call listeners
-            if (discovered) {
-              invokeSubscriptionDiscovered(sample, sampleInfo);
-            } else {
-              invokeSubscriptionModified(sample, sampleInfo);
-            }
           } else if (sampleInfo.instance_state != InstanceStateKind.ALIVE_INSTANCE_STATE) {
             // get sample from cached data
             sample = sampleCache.remove(sampleInfo.instance_handle);
+            discovered = false;
 
-            // call listeners
-            invokeSubscriptionLost(sample, sampleInfo);
+            // an instance that was never alive is unknown to the listeners
+            if (sample == null) {
+              continue;
+            }
+          } else {
+            continue;
           }
+          receivers = listeners.toArray(new SubscriptionObserverListener[0]);
+        }
+
+        // call listeners without holding the lock
+        if (!sampleInfo.valid_data) {
+          invokeSubscriptionLost(receivers, sample, sampleInfo);
+        } else if (discovered) {
+          invokeSubscriptionDiscovered(receivers, sample, sampleInfo);
+        } else {
+          invokeSubscriptionModified(receivers, sample, sampleInfo);
         }
       } catch (RETCODE_NO_DATA noData) {
         LOGGER.trace("No more data available to read");
@@ -171,78 +250,127 @@ public class SubscriptionObserver extends BuiltinTopicObserver {
     } while (true);
   }
 
+  /**
+   * Informs a listener about a notification of a batch.
+   *
+   * @param listener       listener to inform
+   * @param kind           kind of the notification
+   * @param instanceHandle instance handle
+   * @param sample         subscription data
+   */
+  private void invokeListener(
+    final SubscriptionObserverListener listener,
+    final NotificationBatch.Kind kind,
+    final InstanceHandle_t instanceHandle,
+    final SubscriptionBuiltinTopicData sample
+  ) {
+    switch (kind) {
+      case DISCOVERED:
+        listener.subscriptionDiscovered(domainParticipant, instanceHandle, sample);
+        break;
+      case MODIFIED:
+        listener.subscriptionModified(domainParticipant, instanceHandle, sample);
+        break;
+      case LOST:
+        listener.subscriptionLost(domainParticipant, instanceHandle, sample);
+        break;
+      default:
+        break;
+    }
+  }
+
   /**
    * Informs the listeners about the discovery of a subscription.
    *
+   * @param receivers  listeners to inform
    * @param sample     subscription data
    * @param sampleInfo subscription info
    */
   private void invokeSubscriptionDiscovered(
+    SubscriptionObserverListener[] receivers,
     SubscriptionBuiltinTopicData sample,
     SampleInfo sampleInfo
   ) {
-    synchronized (listeners) {
-      // log information
-      logListenerInvocation("subscriptionDiscovered", sampleInfo, sample);
+    // log information
+    logListenerInvocation("subscriptionDiscovered", sampleInfo, sample);
 
-      // iterate over listeners and invoke them
-      for (SubscriptionObserverListener listener : listeners) {
-        listener.subscriptionDiscovered(
-          domainParticipant,
-          sampleInfo.instance_handle,
-          sample
-        );
-      }
+    // iterate over listeners and invoke them
+    for (SubscriptionObserverListener listener : receivers) {
+      listener.subscriptionDiscovered(
+        domainParticipant,
+        sampleInfo.instance_handle,
+        sample
+      );
     }
   }
 
   /**
    * Informs the listeners about the modification of a subscription.
    *
+   * @param receivers  listeners to inform
    * @param sample     subscription data
    * @param sampleInfo subscription info
    */
   private void invokeSubscriptionModified(
+    SubscriptionObserverListener[] receivers,
     SubscriptionBuiltinTopicData sample,
     SampleInfo sampleInfo
   ) {
-    synchronized (listeners) {
-      // log information
-      logListenerInvocation("subscriptionModified", sampleInfo, sample);
+    // log information
+    logListenerInvocation("subscriptionModified", sampleInfo, sample);
 
-      // iterate over listeners and invoke them
-      for (SubscriptionObserverListener listener : listeners) {
-        listener.subscriptionModified(
-          domainParticipant,
-          sampleInfo.instance_handle,
-          sample
-        );
-      }
+    // iterate over listeners and invoke them
+    for (SubscriptionObserverListener listener : receivers) {
+      listener.subscriptionModified(
+        domainParticipant,
+        sampleInfo.instance_handle,
+        sample
+      );
     }
   }
 
   /**
    * Informs the listeners about the loss of a subscription.
    *
+   * @param receivers  listeners to inform
    * @param sample     subscription data
    * @param sampleInfo subscription info
    */
   private void invokeSubscriptionLost(
+    SubscriptionObserverListener[] receivers,
     SubscriptionBuiltinTopicData sample,
     SampleInfo sampleInfo
   ) {
-    synchronized (listeners) {
-      // log information
-      logListenerInvocation("subscriptionLost", sampleInfo, sample);
+    // log information
+    logListenerInvocation("subscriptionLost", sampleInfo, sample);
 
-      // iterate over listeners and invoke them
-      for (SubscriptionObserverListener listener : listeners) {
-        listener.subscriptionLost(
-          domainParticipant,
-          sampleInfo.instance_handle,
-          sample
-        );
-      }
+    // iterate over listeners and invoke them
+    for (SubscriptionObserverListener listener : receivers) {
+      listener.subscriptionLost(
+        domainParticipant,
+        sampleInfo.instance_handle,
+        sample
+      );
+    }
+  }
+
+  private void logNotification(
+    NotificationBatch.Kind kind,
+    SampleInfo sampleInfo,
+    SubscriptionBuiltinTopicData sample
+  ) {
+    switch (kind) {
+      case DISCOVERED:
+        logListenerInvocation("subscriptionDiscovered", sampleInfo, sample);
+        break;
+      case MODIFIED:
+        logListenerInvocation("subscriptionModified", sampleInfo, sample);
+        break;
+      case LOST:
+        logListenerInvocation("subscriptionLost", sampleInfo, sample);
+        break;
+      default:
+        break;
     }
   }
 
@@ -25,109 +25,85 @@
 package io.github.aguther.dds.examples.prometheus.monitoring;
 
 import com.google.common.util.concurrent.AbstractIdleService;
-import com.rti.dds.domain.DomainParticipant;
 import com.rti.dds.domain.DomainParticipantFactory;
-import com.rti.dds.subscription.InstanceStateKind;
-import com.rti.dds.subscription.ReadConditionParams;
-import com.rti.dds.subscription.SampleStateKind;
-import com.rti.dds.subscription.StreamKind;
-import com.rti.dds.subscription.ViewStateKind;
-import idl.rti.dds.monitoring.DataReaderDescription;
-import idl.rti.dds.monitoring.DataReaderDescriptionSeq;
 import idl.rti.dds.monitoring.DataReaderDescriptionTypeSupport;
-import idl.rti.dds.monitoring.DataReaderEntityMatchedPublicationStatistics;
-import idl.rti.dds.monitoring.DataReaderEntityMatchedPublicationStatisticsSeq;
 import idl.rti.dds.monitoring.DataReaderEntityMatchedPublicationStatisticsTypeSupport;
-import idl.rti.dds.monitoring.DataReaderEntityStatistics;
-import idl.rti.dds.monitoring.DataReaderEntityStatisticsSeq;
 import idl.rti.dds.monitoring.DataReaderEntityStatisticsTypeSupport;
-import idl.rti.dds.monitoring.DataWriterDescription;
-import idl.rti.dds.monitoring.DataWriterDescriptionSeq;
 import idl.rti.dds.monitoring.DataWriterDescriptionTypeSupport;
-import idl.rti.dds.monitoring.DataWriterEntityMatchedSubscriptionStatistics;
-import idl.rti.dds.monitoring.DataWriterEntityMatchedSubscriptionStatisticsSeq;
 import idl.rti.dds.monitoring.DataWriterEntityMatchedSubscriptionStatisticsTypeSupport;
-import idl.rti.dds.monitoring.DataWriterEntityMatchedSubscriptionWithLocatorStatistics;
-import idl.rti.dds.monitoring.DataWriterEntityMatchedSubscriptionWithLocatorStatisticsSeq;
 import idl.rti.dds.monitoring.DataWriterEntityMatchedSubscriptionWithLocatorStatisticsTypeSupport;
-import idl.rti.dds.monitoring.DataWriterEntityStatistics;
-import idl.rti.dds.monitoring.DataWriterEntityStatisticsSeq;
 import idl.rti.dds.monitoring.DataWriterEntityStatisticsTypeSupport;
-import idl.rti.dds.monitoring.DomainParticipantDescription;
-import idl.rti.dds.monitoring.DomainParticipantDescriptionSeq;
 import idl.rti.dds.monitoring.DomainParticipantDescriptionTypeSupport;
-import idl.rti.dds.monitoring.DomainParticipantEntityStatistics;
-import idl.rti.dds.monitoring.DomainParticipantEntityStatisticsSeq;
 import idl.rti.dds.monitoring.DomainParticipantEntityStatisticsTypeSupport;
-import idl.rti.dds.monitoring.PublisherDescription;
-import idl.rti.dds.monitoring.PublisherDescriptionSeq;
 import idl.rti.dds.monitoring.PublisherDescriptionTypeSupport;
-import idl.rti.dds.monitoring.SubscriberDescription;
-import idl.rti.dds.monitoring.SubscriberDescriptionSeq;
 import idl.rti.dds.monitoring.SubscriberDescriptionTypeSupport;
-import idl.rti.dds.monitoring.TopicDescription;
-import idl.rti.dds.monitoring.TopicDescriptionSeq;
 import idl.rti.dds.monitoring.TopicDescriptionTypeSupport;
-import idl.rti.dds.monitoring.TopicEntityStatistics;
-import idl.rti.dds.monitoring.TopicEntityStatisticsSeq;
 import idl.rti.dds.monitoring.TopicEntityStatisticsTypeSupport;
-import io.github.aguther.dds.examples.prometheus.monitoring.processors.DataReaderMatchedPublicationMetricsProcessor;
-import io.github.aguther.dds.examples.prometheus.monitoring.processors.DataReaderMetricsProcessor;
-import io.github.aguther.dds.examples.prometheus.monitoring.processors.DataWriterMatchedSubscriptionMetricsProcessor;
-import io.github.aguther.dds.examples.prometheus.monitoring.processors.DataWriterMatchedSubscriptionWithLocatorMetricsProcessor;
-import io.github.aguther.dds.examples.prometheus.monitoring.processors.DataWriterMetricsProcessor;
-import io.github.aguther.dds.examples.prometheus.monitoring.processors.DescriptionProcessorCache;
-import io.github.aguther.dds.examples.prometheus.monitoring.processors.DomainParticipantMetricProcessor;
-import io.github.aguther.dds.examples.prometheus.monitoring.processors.TopicMetricsProcessor;
+import io.github.aguther.dds.examples.prometheus.monitoring.exposition.ExpositionServer;
+import io.github.aguther.dds.examples.prometheus.monitoring.exposition.StreamingCollector;
+import io.github.aguther.dds.examples.prometheus.monitoring.processors.MergingCollector;
 import io.github.aguther.dds.logging.Slf4jDdsLogger;
-import io.github.aguther.dds.support.subscription.DataReaderWatcher;
-import io.github.aguther.dds.support.subscription.OnDataAvailableListener;
-import io.github.aguther.dds.support.subscription.SampleTaker;
-import io.github.aguther.dds.support.subscription.SampleWithInfoCopier;
-import io.prometheus.client.exporter.HTTPServer;
+import io.prometheus.client.CollectorRegistry;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 public class Collector extends AbstractIdleService {
 
   private static final Logger LOGGER = LogManager.getLogger(Collector.class);
+  private static final String PROPERTY_PORT = "monitoring.port";
+  private static final int DEFAULT_PORT = 9102;
+  private static final String PROPERTY_TIME_TO_LIVE_SECONDS = "monitoring.time_to_live_seconds";
+  private static final long DEFAULT_TIME_TO_LIVE_SECONDS = 300;
 
   private static Collector serviceInstance;
 
-  private DomainParticipant domainParticipant;
-
-  private HTTPServer httpServer;
-
-  private DataReaderWatcher dataReaderWatcherDomainParticipantEntityStatistics;
-
-  private DataReaderWatcher dataReaderWatcherDomainParticipantDescription;
-  private DataReaderWatcher dataReaderWatcherTopicDescription;
-  private DataReaderWatcher dataReaderWatcherPublisherDescription;
-  private DataReaderWatcher dataReaderWatcherDataWriterDescription;
-  private DataReaderWatcher dataReaderWatcherSubscriberDescription;
-  private DataReaderWatcher dataReaderWatcherDataReaderDescription;
-
-  private DescriptionProcessorCache descriptionProcessorCache;
-  private DomainParticipantMetricProcessor domainParticipantMetricProcessor;
-
-  private DataReaderWatcher dataReaderWatcherTopicEntityStatistics;
-  private TopicMetricsProcessor topicMetricsProcessor;
-
-  private DataReaderWatcher dataReaderWatcherDataReaderEntityStatistics;
-  private DataReaderMetricsProcessor dataReaderMetricsProcessor;
-
-  private DataReaderWatcher dataReaderWatcherDataReaderEntityMatchedPublicationStatistics;
-  private DataReaderMatchedPublicationMetricsProcessor dataReaderMatchedPublicationMetricsProcessor;
-
-  private DataReaderWatcher dataReaderWatcherDataWriterEntityStatistics;
-  private DataWriterMetricsProcessor dataWriterMetricsProcessor;
-
-  private DataReaderWatcher dataReaderWatcherDataWriterEntityMatchedSubscriptionStatistics;
-  private DataWriterMatchedSubscriptionMetricsProcessor dataWriterMatchedSubscriptionMetricsProcessor;
+  private final List<Integer> domainIds;
+  private final int port;
+  private final long timeToLive;
+  private final TimeUnit timeUnit;
+  private final List<MonitoringShard> shards;
+
+  private ExpositionServer expositionServer;
+
+  /**
+   * Instantiates a new collector.
+   *
+   * @param domainIds domain ids to monitor with one shard each, or empty to use the domain id of the configuration
+   */
+  public Collector(
+    final List<Integer> domainIds
+  ) {
+    this(domainIds, DEFAULT_PORT, DEFAULT_TIME_TO_LIVE_SECONDS, TimeUnit.SECONDS);
+  }
 
-  private DataReaderWatcher dataReaderWatcherDataWriterEntityMatchedSubscriptionWithLocatorStatistics;
-  private DataWriterMatchedSubscriptionWithLocatorMetricsProcessor dataWriterMatchedSubscriptionWithLocatorMetricsProcessor;
+  /**
+   * Instantiates a new collector.
+   *
+   * @param domainIds  domain ids to monitor with one shard each, or empty to use the domain id of the configuration
+   * @param port       port of the exposition server
+   * @param timeToLive time after which instances that have not been updated are evicted
+   * @param timeUnit   unit of the time to live
+   */
+  public Collector(
+    final List<Integer> domainIds,
+    final int port,
+    final long timeToLive,
+    final TimeUnit timeUnit
+  ) {
+    this.domainIds = new ArrayList<>(domainIds);
+    this.port = port;
+    this.timeToLive = timeToLive;
+    this.timeUnit = timeUnit;
+    shards = new ArrayList<>();
+  }
 
   public static void main(
     final String[] args
@@ -135,8 +111,18 @@ public class Collector extends AbstractIdleService {
     // register shutdown hook
     registerShutdownHook();
 
+    // the arguments are the domain ids to monitor
+    List<Integer> domainIds = new ArrayList<>();
+    for (String arg : args) {
+      domainIds.add(Integer.parseInt(arg));
+    }
+
+    // the port and the time to live of the instances can be configured with system properties
+    int port = Integer.getInteger(PROPERTY_PORT, DEFAULT_PORT);
+    long timeToLiveSeconds = Long.getLong(PROPERTY_TIME_TO_LIVE_SECONDS, DEFAULT_TIME_TO_LIVE_SECONDS);
+
     // create service
-    serviceInstance = new Collector();
+    serviceInstance = new Collector(domainIds, port, timeToLiveSeconds, TimeUnit.SECONDS);
 
     // start the service
     serviceInstance.startAsync();
@@ -163,43 +149,18 @@ public class Collector extends AbstractIdleService {
   }
 
   @Override
-  protected void startUp() throws IOException {
+  protected void startUp() throws IOException, InterruptedException, ExecutionException {
     // log service start
     LOGGER.info("Service is starting");
 
-    // start http server
-    httpServer = new HTTPServer(9102);
-
-    // create description processor cache
-    descriptionProcessorCache = new DescriptionProcessorCache();
-
-    // create metrics processors
-    domainParticipantMetricProcessor = new DomainParticipantMetricProcessor(
-      descriptionProcessorCache);
-
-    topicMetricsProcessor = new TopicMetricsProcessor(
-      descriptionProcessorCache);
-
-    dataReaderMetricsProcessor = new DataReaderMetricsProcessor(
-      descriptionProcessorCache);
-
-    dataReaderMatchedPublicationMetricsProcessor = new DataReaderMatchedPublicationMetricsProcessor(
-      descriptionProcessorCache);
-
-    dataWriterMetricsProcessor = new DataWriterMetricsProcessor(
-      descriptionProcessorCache);
-
-    dataWriterMatchedSubscriptionMetricsProcessor = new DataWriterMatchedSubscriptionMetricsProcessor(
-      descriptionProcessorCache);
-
-    dataWriterMatchedSubscriptionWithLocatorMetricsProcessor = new DataWriterMatchedSubscriptionWithLocatorMetricsProcessor(
-      descriptionProcessorCache);
+    // start exposition server
+    expositionServer = new ExpositionServer(port, CollectorRegistry.defaultRegistry, true);
 
     // startup DDS
     startupDds();
 
-    // start publishing
-    startSubscription();
+    // start the shards
+    startShards();
 
     // log service start
     LOGGER.info("Service start finished");
@@ -210,8 +171,8 @@ public class Collector extends AbstractIdleService {
     // log service start
     LOGGER.info("Service is shutting down");
 
-    // stop publish
-    stopSubscription();
+    // stop the shards
+    stopShards();
 
     // shutdown DDS
     shutdownDds();
@@ -294,200 +255,62 @@ public class Collector extends AbstractIdleService {
       DataWriterEntityMatchedSubscriptionWithLocatorStatisticsTypeSupport.get_type_name()
     );
 
-    // create participant from config
-    domainParticipant = DomainParticipantFactory.get_instance().create_participant_from_config(
-      "DomainParticipantLibrary::PrometheusMonitoringCollector"
-    );
-  }
-
-  private void startSubscription() {
-    // start subscription
-    ReadConditionParams readConditionParams = new ReadConditionParams();
-    readConditionParams.stream_kinds = StreamKind.LIVE_STREAM;
-    readConditionParams.instance_states = InstanceStateKind.ANY_INSTANCE_STATE;
-    readConditionParams.view_states = ViewStateKind.ANY_VIEW_STATE;
-    readConditionParams.sample_states = SampleStateKind.NOT_READ_SAMPLE_STATE;
-
-    dataReaderWatcherDomainParticipantDescription = new DataReaderWatcher<>(
-      domainParticipant.lookup_datareader_by_name("Subscriber::DomainParticipantDescription"),
-      readConditionParams,
-      new SampleTaker<>(new DomainParticipantDescriptionSeq()),
-      new SampleWithInfoCopier<>(DomainParticipantDescription.class,
-        (OnDataAvailableListener<DomainParticipantDescription>) (dataReader, sample, info) ->
-          descriptionProcessorCache.process(sample, info)
-      )
-    );
-    dataReaderWatcherTopicDescription = new DataReaderWatcher<>(
-      domainParticipant.lookup_datareader_by_name("Subscriber::TopicDescription"),
-      readConditionParams,
-      new SampleTaker<>(new TopicDescriptionSeq()),
-      new SampleWithInfoCopier<>(TopicDescription.class,
-        (OnDataAvailableListener<TopicDescription>) (dataReader, sample, info) ->
-          descriptionProcessorCache.process(sample, info)
-      )
-    );
-    dataReaderWatcherPublisherDescription = new DataReaderWatcher<>(
-      domainParticipant.lookup_datareader_by_name("Subscriber::PublisherDescription"),
-      readConditionParams,
-      new SampleTaker<>(new PublisherDescriptionSeq()),
-      new SampleWithInfoCopier<>(PublisherDescription.class,
-        (OnDataAvailableListener<PublisherDescription>) (dataReader, sample, info) ->
-          descriptionProcessorCache.process(sample, info)
-      )
-    );
-    dataReaderWatcherDataWriterDescription = new DataReaderWatcher<>(
-      domainParticipant.lookup_datareader_by_name("Subscriber::DataWriterDescription"),
-      readConditionParams,
-      new SampleTaker<>(new DataWriterDescriptionSeq()),
-      new SampleWithInfoCopier<>(DataWriterDescription.class,
-        (OnDataAvailableListener<DataWriterDescription>) (dataReader, sample, info) ->
-          descriptionProcessorCache.process(sample, info)
-      )
-    );
-    dataReaderWatcherSubscriberDescription = new DataReaderWatcher<>(
-      domainParticipant.lookup_datareader_by_name("Subscriber::SubscriberDescription"),
-      readConditionParams,
-      new SampleTaker<>(new SubscriberDescriptionSeq()),
-      new SampleWithInfoCopier<>(SubscriberDescription.class,
-        (OnDataAvailableListener<SubscriberDescription>) (dataReader, sample, info) ->
-          descriptionProcessorCache.process(sample, info)
-      )
-    );
-    dataReaderWatcherDataReaderDescription = new DataReaderWatcher<>(
-      domainParticipant.lookup_datareader_by_name("Subscriber::DataReaderDescription"),
-      readConditionParams,
-      new SampleTaker<>(new DataReaderDescriptionSeq()),
-      new SampleWithInfoCopier<>(DataReaderDescription.class,
-        (OnDataAvailableListener<DataReaderDescription>) (dataReader, sample, info) ->
-          descriptionProcessorCache.process(sample, info)
-      )
-    );
-
-    dataReaderWatcherDomainParticipantEntityStatistics = new DataReaderWatcher<>(
-      domainParticipant.lookup_datareader_by_name("Subscriber::DomainParticipantEntityStatistics"),
-      readConditionParams,
-      new SampleTaker<>(new DomainParticipantEntityStatisticsSeq()),
-      (OnDataAvailableListener<DomainParticipantEntityStatistics>) (dataReader, sample, info) ->
-        domainParticipantMetricProcessor.process(sample, info)
-    );
-    dataReaderWatcherTopicEntityStatistics = new DataReaderWatcher<>(
-      domainParticipant.lookup_datareader_by_name("Subscriber::TopicEntityStatistics"),
-      readConditionParams,
-      new SampleTaker<>(new TopicEntityStatisticsSeq()),
-      (OnDataAvailableListener<TopicEntityStatistics>) (dataReader, sample, info) ->
-        topicMetricsProcessor.process(sample, info)
-    );
-    dataReaderWatcherDataReaderEntityStatistics = new DataReaderWatcher<>(
-      domainParticipant.lookup_datareader_by_name("Subscriber::DataReaderEntityStatistics"),
-      readConditionParams,
-      new SampleTaker<>(new DataReaderEntityStatisticsSeq()),
-      (OnDataAvailableListener<DataReaderEntityStatistics>) (dataReader, sample, info) ->
-        dataReaderMetricsProcessor.process(sample, info)
-    );
-    dataReaderWatcherDataReaderEntityMatchedPublicationStatistics = new DataReaderWatcher<>(
-      domainParticipant.lookup_datareader_by_name("Subscriber::DataReaderEntityMatchedPublicationStatistics"),
-      readConditionParams,
-      new SampleTaker<>(new DataReaderEntityMatchedPublicationStatisticsSeq()),
-      (OnDataAvailableListener<DataReaderEntityMatchedPublicationStatistics>) (dataReader, sample, info) ->
-        dataReaderMatchedPublicationMetricsProcessor.process(sample, info)
-    );
-    dataReaderWatcherDataWriterEntityStatistics = new DataReaderWatcher<>(
-      domainParticipant.lookup_datareader_by_name("Subscriber::DataWriterEntityStatistics"),
-      readConditionParams,
-      new SampleTaker<>(new DataWriterEntityStatisticsSeq()),
-      (OnDataAvailableListener<DataWriterEntityStatistics>) (dataReader, sample, info) ->
-        dataWriterMetricsProcessor.process(sample, info)
-    );
-    dataReaderWatcherDataWriterEntityMatchedSubscriptionStatistics = new DataReaderWatcher<>(
-      domainParticipant.lookup_datareader_by_name("Subscriber::DataWriterEntityMatchedSubscriptionStatistics"),
-      readConditionParams,
-      new SampleTaker<>(new DataWriterEntityMatchedSubscriptionStatisticsSeq()),
-      (OnDataAvailableListener<DataWriterEntityMatchedSubscriptionStatistics>) (dataReader, sample, info) ->
-        dataWriterMatchedSubscriptionMetricsProcessor.process(sample, info)
-    );
-    dataReaderWatcherDataWriterEntityMatchedSubscriptionWithLocatorStatistics = new DataReaderWatcher<>(
-      domainParticipant
-        .lookup_datareader_by_name("Subscriber::DataWriterEntityMatchedSubscriptionWithLocatorStatistics"),
-      readConditionParams,
-      new SampleTaker<>(new DataWriterEntityMatchedSubscriptionWithLocatorStatisticsSeq()),
-      (OnDataAvailableListener<DataWriterEntityMatchedSubscriptionWithLocatorStatistics>) (dataReader, sample, info) ->
-        dataWriterMatchedSubscriptionWithLocatorMetricsProcessor.process(sample, info)
-    );
   }
 
-  private void stopSubscription() {
-    if (dataReaderWatcherDomainParticipantDescription != null) {
-      dataReaderWatcherDomainParticipantDescription.close();
-      dataReaderWatcherDomainParticipantDescription = null;
-    }
-    if (dataReaderWatcherTopicDescription != null) {
-      dataReaderWatcherTopicDescription.close();
-      dataReaderWatcherTopicDescription = null;
-    }
-    if (dataReaderWatcherPublisherDescription != null) {
-      dataReaderWatcherPublisherDescription.close();
-      dataReaderWatcherPublisherDescription = null;
-    }
-    if (dataReaderWatcherDataWriterDescription != null) {
-      dataReaderWatcherDataWriterDescription.close();
-      dataReaderWatcherDataWriterDescription = null;
-    }
-    if (dataReaderWatcherSubscriberDescription != null) {
-      dataReaderWatcherSubscriberDescription.close();
-      dataReaderWatcherSubscriberDescription = null;
-    }
-    if (dataReaderWatcherDataReaderDescription != null) {
-      dataReaderWatcherDataReaderDescription.close();
-      dataReaderWatcherDataReaderDescription = null;
+  private void startShards() throws InterruptedException, ExecutionException {
+    // one shard per domain, or a single one for the domain of the configuration
+    if (domainIds.isEmpty()) {
+      shards.add(new MonitoringShard(null, timeToLive, timeUnit));
+    } else {
+      for (Integer domainId : domainIds) {
+        shards.add(new MonitoringShard(domainId, timeToLive, timeUnit));
+      }
     }
 
-    if (dataReaderWatcherDomainParticipantEntityStatistics != null) {
-      dataReaderWatcherDomainParticipantEntityStatistics.close();
-      dataReaderWatcherDomainParticipantEntityStatistics = null;
-    }
-    if (dataReaderWatcherTopicEntityStatistics != null) {
-      dataReaderWatcherTopicEntityStatistics.close();
-      dataReaderWatcherTopicEntityStatistics = null;
-    }
-    if (dataReaderWatcherDataReaderEntityStatistics != null) {
-      dataReaderWatcherDataReaderEntityStatistics.close();
-      dataReaderWatcherDataReaderEntityStatistics = null;
-    }
-    if (dataReaderWatcherDataReaderEntityMatchedPublicationStatistics != null) {
-      dataReaderWatcherDataReaderEntityMatchedPublicationStatistics.close();
-      dataReaderWatcherDataReaderEntityMatchedPublicationStatistics = null;
-    }
-    if (dataReaderWatcherDataWriterEntityStatistics != null) {
-      dataReaderWatcherDataWriterEntityStatistics.close();
-      dataReaderWatcherDataWriterEntityStatistics = null;
+    // start the shards in parallel, as creating a participant and its readers takes most of the start-up time
+    ExecutorService executorService = Executors.newFixedThreadPool(shards.size());
+    try {
+      List<Future<?>> futures = new ArrayList<>(shards.size());
+      for (MonitoringShard shard : shards) {
+        futures.add(executorService.submit(shard::start));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executorService.shutdown();
     }
-    if (dataReaderWatcherDataWriterEntityMatchedSubscriptionStatistics != null) {
-      dataReaderWatcherDataWriterEntityMatchedSubscriptionStatistics.close();
-      dataReaderWatcherDataWriterEntityMatchedSubscriptionStatistics = null;
+
+    // expose the collectors of the same processor of all shards as one, so every metric family is exposed once
+    List<List<StreamingCollector>> collectorsByProcessor = new ArrayList<>();
+    for (MonitoringShard shard : shards) {
+      List<StreamingCollector> collectors = shard.getCollectors();
+      for (int i = 0; i < collectors.size(); i++) {
+        if (collectorsByProcessor.size() == i) {
+          collectorsByProcessor.add(new ArrayList<>());
+        }
+        collectorsByProcessor.get(i).add(collectors.get(i));
+      }
     }
-    if (dataReaderWatcherDataWriterEntityMatchedSubscriptionWithLocatorStatistics != null) {
-      dataReaderWatcherDataWriterEntityMatchedSubscriptionWithLocatorStatistics.close();
-      dataReaderWatcherDataWriterEntityMatchedSubscriptionWithLocatorStatistics = null;
+    for (List<StreamingCollector> collectors : collectorsByProcessor) {
+      expositionServer.register(new MergingCollector(collectors));
     }
+  }
 
-    if (descriptionProcessorCache != null) {
-      descriptionProcessorCache = null;
+  private void stopShards() {
+    if (expositionServer != null) {
+      expositionServer.close();
+      expositionServer = null;
     }
 
-    if (httpServer != null) {
-      httpServer.stop();
-      httpServer = null;
+    // stop the shards and delete their domain participants
+    for (MonitoringShard shard : shards) {
+      shard.close();
     }
+    shards.clear();
   }
 
   private void shutdownDds() {
-    // delete domain participant
-    if (domainParticipant != null) {
-      domainParticipant.delete_contained_entities();
-      DomainParticipantFactory.get_instance().delete_participant(domainParticipant);
-      domainParticipant = null;
-    }
-
     // finalize factory
     DomainParticipantFactory.finalize_instance();
   }
@@ -0,0 +1,335 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.examples.prometheus.monitoring;
+
+import com.rti.dds.domain.DomainParticipant;
+import com.rti.dds.domain.DomainParticipantConfigParams_t;
+import com.rti.dds.domain.DomainParticipantFactory;
+import com.rti.dds.subscription.InstanceStateKind;
+import com.rti.dds.subscription.ReadConditionParams;
+import com.rti.dds.subscription.SampleStateKind;
+import com.rti.dds.subscription.StreamKind;
+import com.rti.dds.subscription.ViewStateKind;
+import idl.rti.dds.monitoring.DataReaderDescription;
+import idl.rti.dds.monitoring.DataReaderDescriptionSeq;
+import idl.rti.dds.monitoring.DataReaderEntityMatchedPublicationStatistics;
+import idl.rti.dds.monitoring.DataReaderEntityMatchedPublicationStatisticsSeq;
+import idl.rti.dds.monitoring.DataReaderEntityStatistics;
+import idl.rti.dds.monitoring.DataReaderEntityStatisticsSeq;
+import idl.rti.dds.monitoring.DataWriterDescription;
+import idl.rti.dds.monitoring.DataWriterDescriptionSeq;
+import idl.rti.dds.monitoring.DataWriterEntityMatchedSubscriptionStatistics;
+import idl.rti.dds.monitoring.DataWriterEntityMatchedSubscriptionStatisticsSeq;
+import idl.rti.dds.monitoring.DataWriterEntityMatchedSubscriptionWithLocatorStatistics;
+import idl.rti.dds.monitoring.DataWriterEntityMatchedSubscriptionWithLocatorStatisticsSeq;
+import idl.rti.dds.monitoring.DataWriterEntityStatistics;
+import idl.rti.dds.monitoring.DataWriterEntityStatisticsSeq;
+import idl.rti.dds.monitoring.DomainParticipantDescription;
+import idl.rti.dds.monitoring.DomainParticipantDescriptionSeq;
+import idl.rti.dds.monitoring.DomainParticipantEntityStatistics;
+import idl.rti.dds.monitoring.DomainParticipantEntityStatisticsSeq;
+import idl.rti.dds.monitoring.PublisherDescription;
+import idl.rti.dds.monitoring.PublisherDescriptionSeq;
+import idl.rti.dds.monitoring.SubscriberDescription;
+import idl.rti.dds.monitoring.SubscriberDescriptionSeq;
+import idl.rti.dds.monitoring.TopicDescription;
+import idl.rti.dds.monitoring.TopicDescriptionSeq;
+import idl.rti.dds.monitoring.TopicEntityStatistics;
+import idl.rti.dds.monitoring.TopicEntityStatisticsSeq;
+import io.github.aguther.dds.examples.prometheus.monitoring.exposition.StreamingCollector;
+import io.github.aguther.dds.examples.prometheus.monitoring.processors.DataReaderMatchedPublicationMetricsProcessor;
+import io.github.aguther.dds.examples.prometheus.monitoring.processors.DataReaderMetricsProcessor;
+import io.github.aguther.dds.examples.prometheus.monitoring.processors.DataWriterMatchedSubscriptionMetricsProcessor;
+import io.github.aguther.dds.examples.prometheus.monitoring.processors.DataWriterMatchedSubscriptionWithLocatorMetricsProcessor;
+import io.github.aguther.dds.examples.prometheus.monitoring.processors.DataWriterMetricsProcessor;
+import io.github.aguther.dds.examples.prometheus.monitoring.processors.DescriptionProcessorCache;
+import io.github.aguther.dds.examples.prometheus.monitoring.processors.DomainParticipantMetricProcessor;
+import io.github.aguther.dds.examples.prometheus.monitoring.processors.TopicMetricsProcessor;
+import io.github.aguther.dds.support.subscription.MultiplexingDataReaderWatcher;
+import io.github.aguther.dds.support.subscription.OnDataAvailableListener;
+import io.github.aguther.dds.support.subscription.SampleTaker;
+import io.github.aguther.dds.support.subscription.SampleWithInfoCopier;
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Monitoring of one domain, with its own domain participant, data reader watcher and processors.
+ * <p>
+ * The types of the monitoring topics must have been registered before a shard is started.
+ */
+class MonitoringShard implements Closeable {
+
+  private static final String PARTICIPANT_CONFIG = "DomainParticipantLibrary::PrometheusMonitoringCollector";
+  private static final int WORKER_COUNT = 2;
+
+  private final Integer domainId;
+  private final long timeToLive;
+  private final TimeUnit timeUnit;
+
+  private DomainParticipant domainParticipant;
+  private MultiplexingDataReaderWatcher dataReaderWatcher;
+
+  private DescriptionProcessorCache descriptionProcessorCache;
+  private DomainParticipantMetricProcessor domainParticipantMetricProcessor;
+  private TopicMetricsProcessor topicMetricsProcessor;
+  private DataReaderMetricsProcessor dataReaderMetricsProcessor;
+  private DataReaderMatchedPublicationMetricsProcessor dataReaderMatchedPublicationMetricsProcessor;
+  private DataWriterMetricsProcessor dataWriterMetricsProcessor;
+  private DataWriterMatchedSubscriptionMetricsProcessor dataWriterMatchedSubscriptionMetricsProcessor;
+  private DataWriterMatchedSubscriptionWithLocatorMetricsProcessor dataWriterMatchedSubscriptionWithLocatorMetricsProcessor;
+
+  /**
+   * Instantiates a new shard.
+   *
+   * @param domainId   domain id of the participant, or null to use the domain id of the configuration
+   * @param timeToLive time after which instances that have not been updated are evicted
+   * @param timeUnit   unit of the time to live
+   */
+  MonitoringShard(
+    Integer domainId,
+    long timeToLive,
+    TimeUnit timeUnit
+  ) {
+    this.domainId = domainId;
+    this.timeToLive = timeToLive;
+    this.timeUnit = timeUnit;
+  }
+
+  /**
+   * Creates the processors and the domain participant and starts to process the monitoring data.
+   */
+  void start() {
+    // create description processor cache
+    descriptionProcessorCache = new DescriptionProcessorCache();
+
+    // create metrics processors
+    domainParticipantMetricProcessor = new DomainParticipantMetricProcessor(
+      descriptionProcessorCache,
+      timeToLive,
+      timeUnit);
+
+    topicMetricsProcessor = new TopicMetricsProcessor(
+      descriptionProcessorCache,
+      timeToLive,
+      timeUnit);
+
+    dataReaderMetricsProcessor = new DataReaderMetricsProcessor(
+      descriptionProcessorCache,
+      timeToLive,
+      timeUnit);
+
+    dataReaderMatchedPublicationMetricsProcessor = new DataReaderMatchedPublicationMetricsProcessor(
+      descriptionProcessorCache,
+      timeToLive,
+      timeUnit);
+
+    dataWriterMetricsProcessor = new DataWriterMetricsProcessor(
+      descriptionProcessorCache,
+      timeToLive,
+      timeUnit);
+
+    dataWriterMatchedSubscriptionMetricsProcessor = new DataWriterMatchedSubscriptionMetricsProcessor(
+      descriptionProcessorCache,
+      timeToLive,
+      timeUnit);
+
+    dataWriterMatchedSubscriptionWithLocatorMetricsProcessor = new DataWriterMatchedSubscriptionWithLocatorMetricsProcessor(
+      descriptionProcessorCache,
+      timeToLive,
+      timeUnit);
+
+    // create participant from config, the domain id of the shard overrides the one of the config
+    if (domainId == null) {
+      domainParticipant = DomainParticipantFactory.get_instance().create_participant_from_config(
+        PARTICIPANT_CONFIG
+      );
+    } else {
+      DomainParticipantConfigParams_t configParams = new DomainParticipantConfigParams_t();
+      configParams.domain_id = domainId;
+      domainParticipant = DomainParticipantFactory.get_instance().create_participant_from_config_w_params(
+        PARTICIPANT_CONFIG,
+        configParams
+      );
+    }
+
+    // start subscription
+    startSubscription();
+  }
+
+  /**
+   * Returns the collectors of the processors, the order is the same for all shards.
+   *
+   * @return collectors
+   */
+  List<StreamingCollector> getCollectors() {
+    return Arrays.asList(
+      domainParticipantMetricProcessor.getCollector(),
+      topicMetricsProcessor.getCollector(),
+      dataReaderMetricsProcessor.getCollector(),
+      dataReaderMatchedPublicationMetricsProcessor.getCollector(),
+      dataWriterMetricsProcessor.getCollector(),
+      dataWriterMatchedSubscriptionMetricsProcessor.getCollector(),
+      dataWriterMatchedSubscriptionWithLocatorMetricsProcessor.getCollector()
+    );
+  }
+
+  /**
+   * Stops to process the monitoring data and deletes the domain participant.
+   */
+  @Override
+  public void close() {
+    if (dataReaderWatcher != null) {
+      dataReaderWatcher.close();
+      dataReaderWatcher = null;
+    }
+
+    if (domainParticipant != null) {
+      domainParticipant.delete_contained_entities();
+      DomainParticipantFactory.get_instance().delete_participant(domainParticipant);
+      domainParticipant = null;
+    }
+
+    descriptionProcessorCache = null;
+  }
+
+  private void startSubscription() {
+    ReadConditionParams readConditionParams = new ReadConditionParams();
+    readConditionParams.stream_kinds = StreamKind.LIVE_STREAM;
+    readConditionParams.instance_states = InstanceStateKind.ANY_INSTANCE_STATE;
+    readConditionParams.view_states = ViewStateKind.ANY_VIEW_STATE;
+    readConditionParams.sample_states = SampleStateKind.NOT_READ_SAMPLE_STATE;
+
+    // watch all data readers of the shard with a single wait set
+    dataReaderWatcher = new MultiplexingDataReaderWatcher(WORKER_COUNT);
+
+    dataReaderWatcher.watch(
+      domainParticipant.lookup_datareader_by_name("Subscriber::DomainParticipantDescription"),
+      readConditionParams,
+      new SampleTaker<>(new DomainParticipantDescriptionSeq()),
+      new SampleWithInfoCopier<>(DomainParticipantDescription.class,
+        (OnDataAvailableListener<DomainParticipantDescription>) (dataReader, sample, info) ->
+          descriptionProcessorCache.process(sample, info)
+      )
+    );
+    dataReaderWatcher.watch(
+      domainParticipant.lookup_datareader_by_name("Subscriber::TopicDescription"),
+      readConditionParams,
+      new SampleTaker<>(new TopicDescriptionSeq()),
+      new SampleWithInfoCopier<>(TopicDescription.class,
+        (OnDataAvailableListener<TopicDescription>) (dataReader, sample, info) ->
+          descriptionProcessorCache.process(sample, info)
+      )
+    );
+    dataReaderWatcher.watch(
+      domainParticipant.lookup_datareader_by_name("Subscriber::PublisherDescription"),
+      readConditionParams,
+      new SampleTaker<>(new PublisherDescriptionSeq()),
+      new SampleWithInfoCopier<>(PublisherDescription.class,
+        (OnDataAvailableListener<PublisherDescription>) (dataReader, sample, info) ->
+          descriptionProcessorCache.process(sample, info)
+      )
+    );
+    dataReaderWatcher.watch(
+      domainParticipant.lookup_datareader_by_name("Subscriber::DataWriterDescription"),
+      readConditionParams,
+      new SampleTaker<>(new DataWriterDescriptionSeq()),
+      new SampleWithInfoCopier<>(DataWriterDescription.class,
+        (OnDataAvailableListener<DataWriterDescription>) (dataReader, sample, info) ->
+          descriptionProcessorCache.process(sample, info)
+      )
+    );
+    dataReaderWatcher.watch(
+      domainParticipant.lookup_datareader_by_name("Subscriber::SubscriberDescription"),
+      readConditionParams,
+      new SampleTaker<>(new SubscriberDescriptionSeq()),
+      new SampleWithInfoCopier<>(SubscriberDescription.class,
+        (OnDataAvailableListener<SubscriberDescription>) (dataReader, sample, info) ->
+          descriptionProcessorCache.process(sample, info)
+      )
+    );
+    dataReaderWatcher.watch(
+      domainParticipant.lookup_datareader_by_name("Subscriber::DataReaderDescription"),
+      readConditionParams,
+      new SampleTaker<>(new DataReaderDescriptionSeq()),
+      new SampleWithInfoCopier<>(DataReaderDescription.class,
+        (OnDataAvailableListener<DataReaderDescription>) (dataReader, sample, info) ->
+          descriptionProcessorCache.process(sample, info)
+      )
+    );
+
+    dataReaderWatcher.watch(
+      domainParticipant.lookup_datareader_by_name("Subscriber::DomainParticipantEntityStatistics"),
+      readConditionParams,
+      new SampleTaker<>(new DomainParticipantEntityStatisticsSeq()),
+      (OnDataAvailableListener<DomainParticipantEntityStatistics>) (dataReader, sample, info) ->
+        domainParticipantMetricProcessor.process(sample, info)
+    );
+    dataReaderWatcher.watch(
+      domainParticipant.lookup_datareader_by_name("Subscriber::TopicEntityStatistics"),
+      readConditionParams,
+      new SampleTaker<>(new TopicEntityStatisticsSeq()),
+      (OnDataAvailableListener<TopicEntityStatistics>) (dataReader, sample, info) ->
+        topicMetricsProcessor.process(sample, info)
+    );
+    dataReaderWatcher.watch(
+      domainParticipant.lookup_datareader_by_name("Subscriber::DataReaderEntityStatistics"),
+      readConditionParams,
+      new SampleTaker<>(new DataReaderEntityStatisticsSeq()),
+      (OnDataAvailableListener<DataReaderEntityStatistics>) (dataReader, sample, info) ->
+        dataReaderMetricsProcessor.process(sample, info)
+    );
+    dataReaderWatcher.watch(
+      domainParticipant.lookup_datareader_by_name("Subscriber::DataReaderEntityMatchedPublicationStatistics"),
+      readConditionParams,
+      new SampleTaker<>(new DataReaderEntityMatchedPublicationStatisticsSeq()),
+      (OnDataAvailableListener<DataReaderEntityMatchedPublicationStatistics>) (dataReader, sample, info) ->
+        dataReaderMatchedPublicationMetricsProcessor.process(sample, info)
+    );
+    dataReaderWatcher.watch(
+      domainParticipant.lookup_datareader_by_name("Subscriber::DataWriterEntityStatistics"),
+      readConditionParams,
+      new SampleTaker<>(new DataWriterEntityStatisticsSeq()),
+      (OnDataAvailableListener<DataWriterEntityStatistics>) (dataReader, sample, info) ->
+        dataWriterMetricsProcessor.process(sample, info)
+    );
+    dataReaderWatcher.watch(
+      domainParticipant.lookup_datareader_by_name("Subscriber::DataWriterEntityMatchedSubscriptionStatistics"),
+      readConditionParams,
+      new SampleTaker<>(new DataWriterEntityMatchedSubscriptionStatisticsSeq()),
+      (OnDataAvailableListener<DataWriterEntityMatchedSubscriptionStatistics>) (dataReader, sample, info) ->
+        dataWriterMatchedSubscriptionMetricsProcessor.process(sample, info)
+    );
+    dataReaderWatcher.watch(
+      domainParticipant
+        .lookup_datareader_by_name("Subscriber::DataWriterEntityMatchedSubscriptionWithLocatorStatistics"),
+      readConditionParams,
+      new SampleTaker<>(new DataWriterEntityMatchedSubscriptionWithLocatorStatisticsSeq()),
+      (OnDataAvailableListener<DataWriterEntityMatchedSubscriptionWithLocatorStatistics>) (dataReader, sample, info) ->
+        dataWriterMatchedSubscriptionWithLocatorMetricsProcessor.process(sample, info)
+    );
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.examples.prometheus.monitoring.exposition;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Filter applied while metrics are written, so only the families and samples requested by a scrape are rendered.
+ * <p>
+ * The filter is created from the query of the scrape request:
+ * <ul>
+ * <li>{@code name[]=<name>} includes families with this name</li>
+ * <li>{@code prefix=<prefix>} includes families whose name starts with the prefix</li>
+ * <li>{@code label=<name>=<value>} includes only samples with this label value</li>
+ * </ul>
+ * Names and prefixes are combined with or, labels with and. Without parameters everything is included.
+ */
+public class ExpositionFilter {
+
+  private static final ExpositionFilter INCLUDE_ALL = new ExpositionFilter(
+    Collections.emptySet(),
+    Collections.emptyList(),
+    Collections.emptyList(),
+    Collections.emptyList()
+  );
+
+  private final Set<String> names;
+  private final List<String> prefixes;
+  private final List<String> labelNames;
+  private final List<String> labelValues;
+
+  private ExpositionFilter(
+    final Set<String> names,
+    final List<String> prefixes,
+    final List<String> labelNames,
+    final List<String> labelValues
+  ) {
+    this.names = names;
+    this.prefixes = prefixes;
+    this.labelNames = labelNames;
+    this.labelValues = labelValues;
+  }
+
+  /**
+   * Returns a filter that includes everything.
+   *
+   * @return filter
+   */
+  public static ExpositionFilter includeAll() {
+    return INCLUDE_ALL;
+  }
+
+  /**
+   * Creates a filter from the query of a request.
+   *
+   * @param query raw query (may be null)
+   * @return filter
+   */
+  public static ExpositionFilter fromQuery(
+    final String query
+  ) {
+    if (query == null || query.isEmpty()) {
+      return INCLUDE_ALL;
+    }
+
+    Set<String> names = new HashSet<>();
+    List<String> prefixes = new ArrayList<>();
+    List<String> labelNames = new ArrayList<>();
+    List<String> labelValues = new ArrayList<>();
+
+    for (String parameter : query.split("&")) {
+      int separator = parameter.indexOf('=');
+      if (separator < 0) {
+        continue;
+      }
+      String key = decode(parameter.substring(0, separator));
+      String value = decode(parameter.substring(separator + 1));
+
+      switch (key) {
+        case "name[]":
+          names.add(value);
+          break;
+        case "prefix":
+          prefixes.add(value);
+          break;
+        case "label":
+          int labelSeparator = value.indexOf('=');
+          if (labelSeparator > 0) {
+            labelNames.add(value.substring(0, labelSeparator));
+            labelValues.add(value.substring(labelSeparator + 1));
+          }
+          break;
+        default:
+          break;
+      }
+    }
+
+    return new ExpositionFilter(names, prefixes, labelNames, labelValues);
+  }
+
+  /**
+   * Returns if a metric family is included.
+   *
+   * @param name name of the family
+   * @return true if included, false if not
+   */
+  public boolean includesFamily(
+    final String name
+  ) {
+    if (names.isEmpty() && prefixes.isEmpty()) {
+      return true;
+    }
+    if (names.contains(name)) {
+      return true;
+    }
+    for (String prefix : prefixes) {
+      if (name.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns if the filter restricts samples by labels.
+   *
+   * @return true if labels are filtered, false if not
+   */
+  public boolean filtersLabels() {
+    return !labelNames.isEmpty();
+  }
+
+  /**
+   * Returns if a sample is included.
+   *
+   * @param sampleLabelNames  label names of the sample
+   * @param sampleLabelValues label values of the sample
+   * @return true if included, false if not
+   */
+  public boolean includesSample(
+    final List<String> sampleLabelNames,
+    final String[] sampleLabelValues
+  ) {
+    for (int i = 0; i < labelNames.size(); i++) {
+      int index = sampleLabelNames.indexOf(labelNames.get(i));
+      if (index < 0 || !labelValues.get(i).equals(sampleLabelValues[index])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String decode(
+    final String value
+  ) {
+    try {
+      return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException ex) {
+      return value;
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.examples.prometheus.monitoring.exposition;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.prometheus.client.Collector.MetricFamilySamples;
+import io.prometheus.client.CollectorRegistry;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * This class implements an HTTP server that exposes metrics for Prometheus.
+ * <p>
+ * In contrast to the HTTP server of the Prometheus client, streaming collectors are written directly from their store
+ * into one reused buffer, the metric families of the registry are written into the same buffer. Requests are handled
+ * by a single thread. The OpenMetrics format is used when accepted by the client, the response is compressed with gzip
+ * when enabled and accepted. See {@link ExpositionFilter} for the filtering supported.
+ */
+public class ExpositionServer implements Closeable {
+
+  private static final Logger LOGGER = LogManager.getLogger(ExpositionServer.class);
+
+  private static final String CONTENT_TYPE_TEXT = "text/plain; version=0.0.4; charset=utf-8";
+  private static final String CONTENT_TYPE_OPEN_METRICS
+    = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+  private static final int INITIAL_BUFFER_CAPACITY = 1 << 20;
+
+  private final HttpServer httpServer;
+  private final ExecutorService executorService;
+  private final CollectorRegistry registry;
+  private final List<StreamingCollector> streamingCollectors;
+  private final ExpositionWriter writer;
+  private final boolean gzip;
+
+  /**
+   * Instantiates and starts a new exposition server.
+   *
+   * @param port     port to listen on
+   * @param registry registry with the regular collectors
+   * @param gzip     true to compress responses when accepted by the client
+   * @throws IOException if the server could not be started
+   */
+  public ExpositionServer(
+    final int port,
+    final CollectorRegistry registry,
+    final boolean gzip
+  ) throws IOException {
+    checkNotNull(registry, "Registry must not be null");
+
+    this.registry = registry;
+    this.gzip = gzip;
+    streamingCollectors = new CopyOnWriteArrayList<>();
+    writer = new ExpositionWriter(INITIAL_BUFFER_CAPACITY);
+
+    // a single thread, so the buffer of the writer can be reused
+    executorService = Executors.newSingleThreadExecutor();
+
+    httpServer = HttpServer.create(new InetSocketAddress(port), 3);
+    httpServer.createContext("/", this::handle);
+    httpServer.createContext("/metrics", this::handle);
+    httpServer.setExecutor(executorService);
+    httpServer.start();
+  }
+
+  /**
+   * Stops the server.
+   */
+  @Override
+  public void close() {
+    httpServer.stop(0);
+    executorService.shutdownNow();
+  }
+
+  /**
+   * Registers a streaming collector (it must not be registered with the registry as well).
+   *
+   * @param streamingCollector streaming collector
+   */
+  public void register(
+    final StreamingCollector streamingCollector
+  ) {
+    checkNotNull(streamingCollector, "Streaming collector must not be null");
+    streamingCollectors.add(streamingCollector);
+  }
+
+  private void handle(
+    final HttpExchange exchange
+  ) throws IOException {
+    boolean headersSent = false;
+    try {
+      // determine format and encoding
+      String accept = exchange.getRequestHeaders().getFirst("Accept");
+      boolean openMetrics = accept != null && accept.contains("application/openmetrics-text");
+      String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+      boolean compress = gzip && acceptEncoding != null && acceptEncoding.contains("gzip");
+
+      // write metrics
+      writer.reset(ExpositionFilter.fromQuery(exchange.getRequestURI().getRawQuery()), openMetrics);
+      for (StreamingCollector streamingCollector : streamingCollectors) {
+        streamingCollector.write(writer);
+      }
+      Enumeration<MetricFamilySamples> metricFamilySamples = registry.metricFamilySamples();
+      while (metricFamilySamples.hasMoreElements()) {
+        writer.write(metricFamilySamples.nextElement());
+      }
+      ByteBuffer buffer = writer.finish();
+
+      // send response
+      exchange.getResponseHeaders().set("Content-Type", openMetrics ? CONTENT_TYPE_OPEN_METRICS : CONTENT_TYPE_TEXT);
+      headersSent = true;
+      if ("HEAD".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(200, -1);
+      } else if (compress) {
+        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream outputStream = new GZIPOutputStream(exchange.getResponseBody())) {
+          Channels.newChannel(outputStream).write(buffer);
+        }
+      } else {
+        exchange.sendResponseHeaders(200, buffer.remaining());
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+          Channels.newChannel(outputStream).write(buffer);
+        }
+      }
+    } catch (RuntimeException ex) {
+      LOGGER.error("Error writing metrics; {}", ex.getMessage(), ex);
+      // a status can only be sent before the response was started
+      if (!headersSent) {
+        exchange.sendResponseHeaders(500, -1);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+}
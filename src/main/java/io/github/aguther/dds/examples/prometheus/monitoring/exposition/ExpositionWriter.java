@@ -0,0 +1,399 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.examples.prometheus.monitoring.exposition;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.prometheus.client.Collector.MetricFamilySamples;
+import io.prometheus.client.Collector.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * This class writes metrics in the Prometheus text format (version 0.0.4) or the OpenMetrics text format (version
+ * 1.0.0) directly into a direct byte buffer that is reused for every scrape and grown on demand.
+ * <p>
+ * Strings are encoded without creating intermediate strings, integral values are written without formatting them as
+ * string first. This class is not thread-safe.
+ * <p>
+ * Like the TextFormat of the Prometheus client, samples specific to OpenMetrics ('_created', '_gcount' and '_gsum')
+ * are written as separate gauge families at the end of a scrape in the text format.
+ */
+public class ExpositionWriter {
+
+  private ByteBuffer buffer;
+  private final byte[] digits;
+  private ExpositionFilter filter;
+  private final Map<String, MetricFamilySamples> deferredFamilies;
+  private boolean openMetrics;
+  private boolean familyIncluded;
+  private String familyName;
+  private String familyHelp;
+
+  /**
+   * Instantiates a new exposition writer.
+   *
+   * @param initialCapacity initial capacity of the buffer in bytes
+   */
+  public ExpositionWriter(
+    final int initialCapacity
+  ) {
+    checkArgument(initialCapacity > 0, "Initial capacity is expected > 0");
+    buffer = ByteBuffer.allocateDirect(initialCapacity);
+    digits = new byte[20];
+    filter = ExpositionFilter.includeAll();
+    deferredFamilies = new TreeMap<>();
+  }
+
+  /**
+   * Clears the buffer to write a new scrape.
+   *
+   * @param filter      filter to apply
+   * @param openMetrics true to write the OpenMetrics format, false for the text format
+   */
+  public void reset(
+    final ExpositionFilter filter,
+    final boolean openMetrics
+  ) {
+    checkNotNull(filter, "Filter must not be null");
+    this.filter = filter;
+    this.openMetrics = openMetrics;
+    familyIncluded = false;
+    deferredFamilies.clear();
+    buffer.clear();
+  }
+
+  /**
+   * Returns the filter applied.
+   *
+   * @return filter
+   */
+  public ExpositionFilter getFilter() {
+    return filter;
+  }
+
+  /**
+   * Starts a metric family and writes help and type when it is included by the filter.
+   *
+   * @param name name of the family
+   * @param help help of the family
+   * @param type type of the family
+   * @return true if the family is included, false if it is skipped
+   */
+  public boolean family(
+    final String name,
+    final String help,
+    final Type type
+  ) {
+    familyIncluded = filter.includesFamily(name);
+    if (!familyIncluded) {
+      return false;
+    }
+    familyName = name;
+    familyHelp = help;
+    putFamily(name, help, type);
+    return true;
+  }
+
+  /**
+   * Writes a sample of the current family, when the family and the sample are included by the filter.
+   *
+   * @param name        name of the sample
+   * @param labelNames  label names
+   * @param labelValues label values
+   * @param value       value
+   */
+  public void sample(
+    final String name,
+    final List<String> labelNames,
+    final String[] labelValues,
+    final double value
+  ) {
+    if (!familyIncluded || (filter.filtersLabels() && !filter.includesSample(labelNames, labelValues))) {
+      return;
+    }
+
+    // samples specific to OpenMetrics are written as separate gauges in the text format
+    if (!openMetrics && isOpenMetricsSample(name)) {
+      deferredFamilies
+        .computeIfAbsent(name, key -> new MetricFamilySamples(key, Type.GAUGE, familyHelp, new ArrayList<>()))
+        .samples.add(new MetricFamilySamples.Sample(name, labelNames, Arrays.asList(labelValues.clone()), value));
+      return;
+    }
+
+    putSample(name, labelNames, labelValues, value);
+  }
+
+  /**
+   * Writes metric families created by a regular collector.
+   *
+   * @param metricFamilySamples metric families
+   */
+  public void write(
+    final MetricFamilySamples metricFamilySamples
+  ) {
+    if (!family(metricFamilySamples.name, metricFamilySamples.help, metricFamilySamples.type)) {
+      return;
+    }
+    for (MetricFamilySamples.Sample sample : metricFamilySamples.samples) {
+      sample(sample.name, sample.labelNames, sample.labelValues.toArray(new String[0]), sample.value);
+    }
+  }
+
+  /**
+   * Finishes the scrape and returns the buffer ready to be read.
+   *
+   * @return buffer with the written metrics
+   */
+  public ByteBuffer finish() {
+    // the samples were already filtered with their family
+    for (MetricFamilySamples deferredFamily : deferredFamilies.values()) {
+      putFamily(deferredFamily.name, deferredFamily.help, deferredFamily.type);
+      for (MetricFamilySamples.Sample sample : deferredFamily.samples) {
+        putSample(sample.name, sample.labelNames, sample.labelValues.toArray(new String[0]), sample.value);
+      }
+    }
+    deferredFamilies.clear();
+
+    if (openMetrics) {
+      putAscii("# EOF\n");
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private boolean isOpenMetricsSample(
+    final String name
+  ) {
+    // the sample name must be the family name with the suffix (checked without concatenating)
+    return name.startsWith(familyName)
+      && (hasSuffix(name, "_created") || hasSuffix(name, "_gcount") || hasSuffix(name, "_gsum"));
+  }
+
+  private boolean hasSuffix(
+    final String name,
+    final String suffix
+  ) {
+    return name.length() == familyName.length() + suffix.length() && name.endsWith(suffix);
+  }
+
+  private void putFamily(
+    final String name,
+    final String help,
+    final Type type
+  ) {
+    // the text format expects the sample name of counters and infos in help and type
+    String headerName = name;
+    if (!openMetrics && type == Type.COUNTER) {
+      headerName = name + "_total";
+    } else if (!openMetrics && type == Type.INFO) {
+      headerName = name + "_info";
+    }
+
+    putAscii("# HELP ");
+    putString(headerName);
+    putByte(' ');
+    putEscaped(help, openMetrics);
+    putByte('\n');
+
+    putAscii("# TYPE ");
+    putString(headerName);
+    putByte(' ');
+    putAscii(typeName(type));
+    putByte('\n');
+  }
+
+  private void putSample(
+    final String name,
+    final List<String> labelNames,
+    final String[] labelValues,
+    final double value
+  ) {
+    putString(name);
+    if (!labelNames.isEmpty()) {
+      putByte('{');
+      for (int i = 0; i < labelNames.size(); i++) {
+        if (i > 0) {
+          putByte(',');
+        }
+        putString(labelNames.get(i));
+        putAscii("=\"");
+        putEscaped(labelValues[i], true);
+        putByte('"');
+      }
+      putByte('}');
+    }
+    putByte(' ');
+    putDouble(value);
+    putByte('\n');
+  }
+
+  private String typeName(
+    final Type type
+  ) {
+    switch (type) {
+      case COUNTER:
+        return "counter";
+      case GAUGE:
+        return "gauge";
+      case SUMMARY:
+        return "summary";
+      case HISTOGRAM:
+        return "histogram";
+      case GAUGE_HISTOGRAM:
+        return openMetrics ? "gaugehistogram" : "histogram";
+      case STATE_SET:
+        return openMetrics ? "stateset" : "gauge";
+      case INFO:
+        return openMetrics ? "info" : "gauge";
+      default:
+        return openMetrics ? "unknown" : "untyped";
+    }
+  }
+
+  private void putDouble(
+    final double value
+  ) {
+    if (Double.isNaN(value)) {
+      putAscii("NaN");
+    } else if (value == Double.POSITIVE_INFINITY) {
+      putAscii("+Inf");
+    } else if (value == Double.NEGATIVE_INFINITY) {
+      putAscii("-Inf");
+    } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+      putLong((long) value);
+    } else {
+      putAscii(Double.toString(value));
+    }
+  }
+
+  private void putLong(
+    final long value
+  ) {
+    long remaining = Math.abs(value);
+    int position = digits.length;
+    do {
+      digits[--position] = (byte) ('0' + remaining % 10);
+      remaining /= 10;
+    } while (remaining != 0);
+
+    ensureCapacity(digits.length - position + 1);
+    if (value < 0) {
+      buffer.put((byte) '-');
+    }
+    buffer.put(digits, position, digits.length - position);
+  }
+
+  private void putEscaped(
+    final String value,
+    final boolean escapeQuotes
+  ) {
+    if (value == null) {
+      return;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\\') {
+        putAscii("\\\\");
+      } else if (c == '\n') {
+        putAscii("\\n");
+      } else if (c == '"' && escapeQuotes) {
+        putAscii("\\\"");
+      } else if (c < 0x80) {
+        putByte(c);
+      } else {
+        // encode remaining characters (including surrogate pairs) at once
+        putString(value.substring(i), escapeQuotes);
+        return;
+      }
+    }
+  }
+
+  private void putString(
+    final String value
+  ) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c >= 0x80) {
+        byte[] bytes = value.substring(i).getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(bytes.length);
+        buffer.put(bytes);
+        return;
+      }
+      putByte(c);
+    }
+  }
+
+  private void putString(
+    final String value,
+    final boolean escapeQuotes
+  ) {
+    String escaped = value.replace("\\", "\\\\").replace("\n", "\\n");
+    if (escapeQuotes) {
+      escaped = escaped.replace("\"", "\\\"");
+    }
+    byte[] bytes = escaped.getBytes(StandardCharsets.UTF_8);
+    ensureCapacity(bytes.length);
+    buffer.put(bytes);
+  }
+
+  private void putAscii(
+    final String value
+  ) {
+    ensureCapacity(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      buffer.put((byte) value.charAt(i));
+    }
+  }
+
+  private void putByte(
+    final int value
+  ) {
+    ensureCapacity(1);
+    buffer.put((byte) value);
+  }
+
+  private void ensureCapacity(
+    final int length
+  ) {
+    if (buffer.remaining() >= length) {
+      return;
+    }
+    int capacity = buffer.capacity();
+    while (capacity - buffer.position() < length) {
+      capacity <<= 1;
+    }
+    ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+    buffer.flip();
+    grown.put(buffer);
+    buffer = grown;
+  }
+}
@@ -29,379 +29,243 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 import com.rti.dds.subscription.InstanceStateKind;
 import com.rti.dds.subscription.SampleInfo;
+import idl.DDSMonitoring.BuiltinTopicKey_t;
 import idl.rti.dds.monitoring.DataReaderDescription;
 import idl.rti.dds.monitoring.DataReaderEntityMatchedPublicationStatistics;
 import idl.rti.dds.monitoring.DomainParticipantDescription;
 import idl.rti.dds.monitoring.SubscriberDescription;
+import io.github.aguther.dds.examples.prometheus.monitoring.exposition.StreamingCollector;
 import io.github.aguther.dds.util.BuiltinTopicHelper;
-import io.prometheus.client.Gauge;
-import java.util.HashMap;
+import io.github.aguther.dds.util.SequenceNumberHelper;
+import java.util.concurrent.TimeUnit;
 
 public class DataReaderMatchedPublicationMetricsProcessor {
 
-  private final DescriptionProcessorCache descriptionProcessorCache;
-  private final HashMap<InstanceHandle_t, String[]> instanceHandleHashMap;
+  private static final String PROCESSOR_NAME = "data_reader_matched_publication";
 
-  private final Gauge dataReaderProtocolStatusReceivedSampleCount;
-  private final Gauge dataReaderProtocolStatusReceivedSampleBytes;
-  private final Gauge dataReaderProtocolStatusDuplicateSampleCount;
-  private final Gauge dataReaderProtocolStatusDuplicateSampleBytes;
-  private final Gauge dataReaderProtocolStatusFilteredSampleCount;
-  private final Gauge dataReaderProtocolStatusFilteredSampleBytes;
-  private final Gauge dataReaderProtocolStatusReceivedHeartbeatCount;
-  private final Gauge dataReaderProtocolStatusReceivedHeartbeatBytes;
-  private final Gauge dataReaderProtocolStatusSentAckCount;
-  private final Gauge dataReaderProtocolStatusSentAckBytes;
-  private final Gauge dataReaderProtocolStatusSentNackCount;
-  private final Gauge dataReaderProtocolStatusSentNackBytes;
-  private final Gauge dataReaderProtocolStatusReceivedGapCount;
-  private final Gauge dataReaderProtocolStatusReceivedGapBytes;
-  private final Gauge dataReaderProtocolStatusRejectedSampleCount;
-  private final Gauge dataReaderProtocolStatusFirstAvailableSampleSequenceNumberHigh;
-  private final Gauge dataReaderProtocolStatusFirstAvailableSampleSequenceNumberLow;
-  private final Gauge dataReaderProtocolStatusLastAvailableSampleSequenceNumberHigh;
-  private final Gauge dataReaderProtocolStatusLastAvailableSampleSequenceNumberLow;
-  private final Gauge dataReaderProtocolStatusLastCommittedSampleSequenceNumberHigh;
-  private final Gauge dataReaderProtocolStatusLastCommittedSampleSequenceNumberLow;
-  private final Gauge dataReaderProtocolStatusUncommittedSampleCount;
+  private final DescriptionProcessorCache descriptionProcessorCache;
+  private final LatestValuesCollector collector;
+  private final PendingStatistics<DataReaderEntityMatchedPublicationStatistics> pendingStatistics;
 
   public DataReaderMatchedPublicationMetricsProcessor(
     DescriptionProcessorCache descriptionProcessorCache
+  ) {
+    this(descriptionProcessorCache, LatestValuesCollector.DEFAULT_TIME_TO_LIVE_SECONDS, TimeUnit.SECONDS);
+  }
+
+  public DataReaderMatchedPublicationMetricsProcessor(
+    DescriptionProcessorCache descriptionProcessorCache,
+    long timeToLive,
+    TimeUnit timeUnit
   ) {
     checkNotNull(descriptionProcessorCache);
     this.descriptionProcessorCache = descriptionProcessorCache;
-    instanceHandleHashMap = new HashMap<>();
+    pendingStatistics = new PendingStatistics<>(
+      PROCESSOR_NAME,
+      DataReaderEntityMatchedPublicationStatistics.class
+    );
 
-    dataReaderProtocolStatusReceivedSampleCount = Gauge.build()
-      .name(
+    collector = new LatestValuesCollector(PROCESSOR_NAME, getLabelNames(), timeToLive, timeUnit)
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_received_sample_count",
         "dds_data_reader_matched_publication_protocol_status_received_sample_count")
-      .labelNames(getLabelNames())
-      .help("dds_data_reader_matched_publication_protocol_status_received_sample_count")
-      .register();
-
-    dataReaderProtocolStatusReceivedSampleBytes = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_received_sample_bytes",
         "dds_data_reader_matched_publication_protocol_status_received_sample_bytes")
-      .labelNames(getLabelNames())
-      .help("dds_data_reader_matched_publication_protocol_status_received_sample_bytes")
-      .register();
-
-    dataReaderProtocolStatusDuplicateSampleCount = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_duplicate_sample_count",
         "dds_data_reader_matched_publication_protocol_status_duplicate_sample_count")
-      .labelNames(getLabelNames())
-      .help("dds_data_reader_matched_publication_protocol_status_duplicate_sample_count")
-      .register();
-
-    dataReaderProtocolStatusDuplicateSampleBytes = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_duplicate_sample_bytes",
         "dds_data_reader_matched_publication_protocol_status_duplicate_sample_bytes")
-      .labelNames(getLabelNames())
-      .help("dds_data_reader_matched_publication_protocol_status_duplicate_sample_bytes")
-      .register();
-
-    dataReaderProtocolStatusFilteredSampleCount = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_filtered_sample_count",
         "dds_data_reader_matched_publication_protocol_status_filtered_sample_count")
-      .labelNames(getLabelNames())
-      .help("dds_data_reader_matched_publication_protocol_status_filtered_sample_count")
-      .register();
-
-    dataReaderProtocolStatusFilteredSampleBytes = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_filtered_sample_bytes",
         "dds_data_reader_matched_publication_protocol_status_filtered_sample_bytes")
-      .labelNames(getLabelNames())
-      .help("dds_data_reader_matched_publication_protocol_status_filtered_sample_bytes")
-      .register();
-
-    dataReaderProtocolStatusReceivedHeartbeatCount = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_received_heartbeat_count",
         "dds_data_reader_matched_publication_protocol_status_received_heartbeat_count")
-      .labelNames(getLabelNames())
-      .help("dds_data_reader_matched_publication_protocol_status_received_heartbeat_count")
-      .register();
-
-    dataReaderProtocolStatusReceivedHeartbeatBytes = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_received_heartbeat_bytes",
         "dds_data_reader_matched_publication_protocol_status_received_heartbeat_bytes")
-      .labelNames(getLabelNames())
-      .help("dds_data_reader_matched_publication_protocol_status_received_heartbeat_bytes")
-      .register();
-
-    dataReaderProtocolStatusSentAckCount = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_sent_ack_count",
         "dds_data_reader_matched_publication_protocol_status_sent_ack_count")
-      .labelNames(getLabelNames())
-      .help("dds_data_reader_matched_publication_protocol_status_sent_ack_count")
-      .register();
-
-    dataReaderProtocolStatusSentAckBytes = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_sent_ack_bytes",
         "dds_data_reader_matched_publication_protocol_status_sent_ack_bytes")
-      .labelNames(getLabelNames())
-      .help("dds_data_reader_matched_publication_protocol_status_sent_ack_bytes")
-      .register();
-
-    dataReaderProtocolStatusSentNackCount = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_sent_nack_count",
         "dds_data_reader_matched_publication_protocol_status_sent_nack_count")
-      .labelNames(getLabelNames())
-      .help("dds_data_reader_matched_publication_protocol_status_sent_nack_count")
-      .register();
-
-    dataReaderProtocolStatusSentNackBytes = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_sent_nack_bytes",
         "dds_data_reader_matched_publication_protocol_status_sent_nack_bytes")
-      .labelNames(getLabelNames())
-      .help("dds_data_reader_matched_publication_protocol_status_sent_nack_bytes")
-      .register();
-
-    dataReaderProtocolStatusReceivedGapCount = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_received_gap_count",
         "dds_data_reader_matched_publication_protocol_status_received_gap_count")
-      .labelNames(getLabelNames())
-      .help("dds_data_reader_matched_publication_protocol_status_received_gap_count")
-      .register();
-
-    dataReaderProtocolStatusReceivedGapBytes = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_received_gap_bytes",
         "dds_data_reader_matched_publication_protocol_status_received_gap_bytes")
-      .labelNames(getLabelNames())
-      .help("dds_data_reader_matched_publication_protocol_status_received_gap_bytes")
-      .register();
-
-    dataReaderProtocolStatusRejectedSampleCount = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_rejected_sample_count",
         "dds_data_reader_matched_publication_protocol_status_rejected_sample_count")
-      .labelNames(getLabelNames())
-      .help("dds_data_reader_matched_publication_protocol_status_rejected_sample_count")
-      .register();
-
-    dataReaderProtocolStatusFirstAvailableSampleSequenceNumberHigh = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_first_available_sample_sequence_number_high",
         "dds_data_reader_matched_publication_protocol_status_first_available_sample_sequence_number_high")
-      .labelNames(getLabelNames())
-      .help(
-        "dds_data_reader_matched_publication_protocol_status_first_available_sample_sequence_number_high")
-      .register();
-
-    dataReaderProtocolStatusFirstAvailableSampleSequenceNumberLow = Gauge.build()
-      .name(
-        "dds_data_reader_matched_publication_protocol_status_first_available_sample_sequence_number_low")
-      .labelNames(getLabelNames())
-      .help(
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_first_available_sample_sequence_number_low",
         "dds_data_reader_matched_publication_protocol_status_first_available_sample_sequence_number_low")
-      .register();
-
-    dataReaderProtocolStatusLastAvailableSampleSequenceNumberHigh = Gauge.build()
-      .name(
-        "dds_data_reader_matched_publication_protocol_status_last_available_sample_sequence_number_high")
-      .labelNames(getLabelNames())
-      .help(
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_last_available_sample_sequence_number_high",
         "dds_data_reader_matched_publication_protocol_status_last_available_sample_sequence_number_high")
-      .register();
-
-    dataReaderProtocolStatusLastAvailableSampleSequenceNumberLow = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_last_available_sample_sequence_number_low",
         "dds_data_reader_matched_publication_protocol_status_last_available_sample_sequence_number_low")
-      .labelNames(getLabelNames())
-      .help(
-        "dds_data_reader_matched_publication_protocol_status_last_available_sample_sequence_number_low")
-      .register();
-
-    dataReaderProtocolStatusLastCommittedSampleSequenceNumberHigh = Gauge.build()
-      .name(
-        "dds_data_reader_matched_publication_protocol_status_last_committed_sample_sequence_number_high")
-      .labelNames(getLabelNames())
-      .help(
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_last_committed_sample_sequence_number_high",
         "dds_data_reader_matched_publication_protocol_status_last_committed_sample_sequence_number_high")
-      .register();
-
-    dataReaderProtocolStatusLastCommittedSampleSequenceNumberLow = Gauge.build()
-      .name(
-        "dds_data_reader_matched_publication_protocol_status_last_committed_sample_sequence_number_low")
-      .labelNames(getLabelNames())
-      .help(
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_last_committed_sample_sequence_number_low",
         "dds_data_reader_matched_publication_protocol_status_last_committed_sample_sequence_number_low")
-      .register();
-
-    dataReaderProtocolStatusUncommittedSampleCount = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_uncommitted_sample_count",
         "dds_data_reader_matched_publication_protocol_status_uncommitted_sample_count")
-      .labelNames(getLabelNames())
-      .help("dds_data_reader_matched_publication_protocol_status_uncommitted_sample_count")
-      .register();
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_first_available_sample_sequence_number",
+        "dds_data_reader_matched_publication_protocol_status_first_available_sample_sequence_number")
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_last_available_sample_sequence_number",
+        "dds_data_reader_matched_publication_protocol_status_last_available_sample_sequence_number")
+      .gauge(
+        "dds_data_reader_matched_publication_protocol_status_last_committed_sample_sequence_number",
+        "dds_data_reader_matched_publication_protocol_status_last_committed_sample_sequence_number");
+
+    // process pending statistics when the description they are missing becomes available
+    descriptionProcessorCache.addListener(this::processPending);
+
+    // expire pending statistics on scrape, so they are also dropped when no samples arrive
+    collector.setScrapeListener(this::expirePending);
+  }
+
+  public StreamingCollector getCollector() {
+    return collector;
   }
 
-  public void process(
+  public synchronized void process(
     DataReaderEntityMatchedPublicationStatistics sample,
     SampleInfo info
   ) {
-    // variables
-    DataReaderDescription dataReaderDescription;
-    SubscriberDescription subscriberDescription = null;
-    DomainParticipantDescription domainParticipantDescription = null;
-
-    // try to get descriptions
-    dataReaderDescription = descriptionProcessorCache
-      .getDataReaderDescription(sample.datareader_key);
-
-    if (dataReaderDescription != null) {
-      subscriberDescription = descriptionProcessorCache
-        .getSubscriberDescription(dataReaderDescription.subscriber_entity_key);
-    }
-    if ((dataReaderDescription != null)
-      && (subscriberDescription != null)) {
-      domainParticipantDescription = descriptionProcessorCache
-        .getDomainParticipantDescription(subscriberDescription.participant_entity_key);
-    }
-
     if ((info.instance_state == InstanceStateKind.ALIVE_INSTANCE_STATE)
-      && (info.valid_data)
-      && (dataReaderDescription != null)
-      && (subscriberDescription != null)
-      && (domainParticipantDescription != null)) {
-      // add / update values
-      addUpdateGaugesForLabel(
-        info.instance_handle,
-        sample,
-        domainParticipantDescription,
-        subscriberDescription,
-        dataReaderDescription
-      );
+      && (info.valid_data)) {
+      // add / update values or keep the sample until the missing description is available
+      BuiltinTopicKey_t missingKey = addUpdateValues(info.instance_handle, sample);
+      if (missingKey == null) {
+        pendingStatistics.remove(info.instance_handle);
+      } else {
+        removeValues(info.instance_handle);
+        pendingStatistics.add(info.instance_handle, sample, missingKey);
+      }
     } else {
       // remove values
-      removeLabelsFromGauges(info.instance_handle);
+      pendingStatistics.remove(info.instance_handle);
+      removeValues(info.instance_handle);
     }
   }
 
-  private void addUpdateGaugesForLabel(
+  private synchronized void processPending(
+    BuiltinTopicKey_t key
+  ) {
+    pendingStatistics.retry(key, this::addUpdateValues);
+  }
+
+  private synchronized void expirePending() {
+    pendingStatistics.expire();
+  }
+
+  private BuiltinTopicKey_t addUpdateValues(
     InstanceHandle_t instanceHandle,
-    DataReaderEntityMatchedPublicationStatistics sample,
-    DomainParticipantDescription domainParticipantDescription,
-    SubscriberDescription subscriberDescription,
-    DataReaderDescription dataReaderDescription
+    DataReaderEntityMatchedPublicationStatistics sample
   ) {
-    // put instance handle to hash map if not present
-    instanceHandleHashMap.putIfAbsent(
+    // get the version of every description before the description, so labels of a concurrently changed description
+    // are resolved again
+    long labelVersion = descriptionProcessorCache.getDataReaderDescriptionVersion(sample.datareader_key);
+    final DataReaderDescription dataReaderDescription = descriptionProcessorCache
+      .getDataReaderDescription(sample.datareader_key);
+    if (dataReaderDescription == null) {
+      return sample.datareader_key;
+    }
+    labelVersion = Math.max(
+      labelVersion,
+      descriptionProcessorCache.getSubscriberDescriptionVersion(dataReaderDescription.subscriber_entity_key));
+    final SubscriberDescription subscriberDescription = descriptionProcessorCache
+      .getSubscriberDescription(dataReaderDescription.subscriber_entity_key);
+    if (subscriberDescription == null) {
+      return dataReaderDescription.subscriber_entity_key;
+    }
+    labelVersion = Math.max(
+      labelVersion,
+      descriptionProcessorCache.getDomainParticipantDescriptionVersion(subscriberDescription.participant_entity_key));
+    final DomainParticipantDescription domainParticipantDescription = descriptionProcessorCache
+      .getDomainParticipantDescription(subscriberDescription.participant_entity_key);
+    if (domainParticipantDescription == null) {
+      return subscriberDescription.participant_entity_key;
+    }
+
+    // update values
+    collector.update(
       instanceHandle,
-      getLabelValues(
+      labelVersion,
+      () -> getLabelValues(
         domainParticipantDescription,
         subscriberDescription,
         dataReaderDescription,
         sample
-      )
+      ),
+      values -> {
+        // order equals the order the gauges have been added
+        int i = 0;
+        values[i++] = sample.datareader_protocol_status.status.received_sample_count;
+        values[i++] = sample.datareader_protocol_status.status.received_sample_bytes;
+        values[i++] = sample.datareader_protocol_status.status.duplicate_sample_count;
+        values[i++] = sample.datareader_protocol_status.status.duplicate_sample_bytes;
+        values[i++] = sample.datareader_protocol_status.status.filtered_sample_count;
+        values[i++] = sample.datareader_protocol_status.status.filtered_sample_bytes;
+        values[i++] = sample.datareader_protocol_status.status.received_heartbeat_count;
+        values[i++] = sample.datareader_protocol_status.status.received_heartbeat_bytes;
+        values[i++] = sample.datareader_protocol_status.status.sent_ack_count;
+        values[i++] = sample.datareader_protocol_status.status.sent_ack_bytes;
+        values[i++] = sample.datareader_protocol_status.status.sent_nack_count;
+        values[i++] = sample.datareader_protocol_status.status.sent_nack_bytes;
+        values[i++] = sample.datareader_protocol_status.status.received_gap_count;
+        values[i++] = sample.datareader_protocol_status.status.received_gap_bytes;
+        values[i++] = sample.datareader_protocol_status.status.rejected_sample_count;
+        values[i++] = sample.datareader_protocol_status.status.first_available_sample_sequence_number.high;
+        values[i++] = sample.datareader_protocol_status.status.first_available_sample_sequence_number.low;
+        values[i++] = sample.datareader_protocol_status.status.last_available_sample_sequence_number.high;
+        values[i++] = sample.datareader_protocol_status.status.last_available_sample_sequence_number.low;
+        values[i++] = sample.datareader_protocol_status.status.last_committed_sample_sequence_number.high;
+        values[i++] = sample.datareader_protocol_status.status.last_committed_sample_sequence_number.low;
+        values[i++] = sample.datareader_protocol_status.status.uncommitted_sample_count;
+        values[i++] = SequenceNumberHelper.toLong(
+          sample.datareader_protocol_status.status.first_available_sample_sequence_number.high,
+          sample.datareader_protocol_status.status.first_available_sample_sequence_number.low);
+        values[i++] = SequenceNumberHelper.toLong(
+          sample.datareader_protocol_status.status.last_available_sample_sequence_number.high,
+          sample.datareader_protocol_status.status.last_available_sample_sequence_number.low);
+        values[i++] = SequenceNumberHelper.toLong(
+          sample.datareader_protocol_status.status.last_committed_sample_sequence_number.high,
+          sample.datareader_protocol_status.status.last_committed_sample_sequence_number.low);
+      }
     );
-
-    // get label values once to improve performance
-    final String[] labelValues = instanceHandleHashMap.get(instanceHandle);
-
-    // update gauges
-    dataReaderProtocolStatusReceivedSampleCount.labels(labelValues).set(
-      sample.datareader_protocol_status.status.received_sample_count);
-
-    dataReaderProtocolStatusReceivedSampleBytes.labels(labelValues).set(
-      sample.datareader_protocol_status.status.received_sample_bytes);
-
-    dataReaderProtocolStatusDuplicateSampleCount.labels(labelValues).set(
-      sample.datareader_protocol_status.status.duplicate_sample_count);
-
-    dataReaderProtocolStatusDuplicateSampleBytes.labels(labelValues).set(
-      sample.datareader_protocol_status.status.duplicate_sample_bytes);
-
-    dataReaderProtocolStatusFilteredSampleCount.labels(labelValues).set(
-      sample.datareader_protocol_status.status.filtered_sample_count);
-
-    dataReaderProtocolStatusFilteredSampleBytes.labels(labelValues).set(
-      sample.datareader_protocol_status.status.filtered_sample_bytes);
-
-    dataReaderProtocolStatusReceivedHeartbeatCount.labels(labelValues).set(
-      sample.datareader_protocol_status.status.received_heartbeat_count);
-
-    dataReaderProtocolStatusReceivedHeartbeatBytes.labels(labelValues).set(
-      sample.datareader_protocol_status.status.received_heartbeat_bytes);
-
-    dataReaderProtocolStatusSentAckCount.labels(labelValues).set(
-      sample.datareader_protocol_status.status.sent_ack_count);
-
-    dataReaderProtocolStatusSentAckBytes.labels(labelValues).set(
-      sample.datareader_protocol_status.status.sent_ack_bytes);
-
-    dataReaderProtocolStatusSentNackCount.labels(labelValues).set(
-      sample.datareader_protocol_status.status.sent_nack_count);
-
-    dataReaderProtocolStatusSentNackBytes.labels(labelValues).set(
-      sample.datareader_protocol_status.status.sent_nack_bytes);
-
-    dataReaderProtocolStatusReceivedGapCount.labels(labelValues).set(
-      sample.datareader_protocol_status.status.received_gap_count);
-
-    dataReaderProtocolStatusReceivedGapBytes.labels(labelValues).set(
-      sample.datareader_protocol_status.status.received_gap_bytes);
-
-    dataReaderProtocolStatusRejectedSampleCount.labels(labelValues).set(
-      sample.datareader_protocol_status.status.rejected_sample_count);
-
-    dataReaderProtocolStatusFirstAvailableSampleSequenceNumberHigh.labels(labelValues).set(
-      sample.datareader_protocol_status.status.first_available_sample_sequence_number.high);
-
-    dataReaderProtocolStatusFirstAvailableSampleSequenceNumberLow.labels(labelValues).set(
-      sample.datareader_protocol_status.status.first_available_sample_sequence_number.low);
-
-    dataReaderProtocolStatusLastAvailableSampleSequenceNumberHigh.labels(labelValues).set(
-      sample.datareader_protocol_status.status.last_available_sample_sequence_number.high);
-
-    dataReaderProtocolStatusLastAvailableSampleSequenceNumberLow.labels(labelValues).set(
-      sample.datareader_protocol_status.status.last_available_sample_sequence_number.low);
-
-    dataReaderProtocolStatusLastCommittedSampleSequenceNumberHigh.labels(labelValues).set(
-      sample.datareader_protocol_status.status.last_committed_sample_sequence_number.high);
-
-    dataReaderProtocolStatusLastCommittedSampleSequenceNumberLow.labels(labelValues).set(
-      sample.datareader_protocol_status.status.last_committed_sample_sequence_number.low);
-
-    dataReaderProtocolStatusUncommittedSampleCount.labels(labelValues).set(
-      sample.datareader_protocol_status.status.uncommitted_sample_count);
-
+    return null;
   }
 
-  private void removeLabelsFromGauges(
+  private void removeValues(
     InstanceHandle_t instanceHandle
   ) {
-    // check if remove is necessary
-    if (!instanceHandleHashMap.containsKey(instanceHandle)) {
-      return;
-    }
-
-    // get label values
-    final String[] labelValues = instanceHandleHashMap.get(instanceHandle);
-
-    // remove labels
-    dataReaderProtocolStatusReceivedSampleCount.remove(labelValues);
-    dataReaderProtocolStatusReceivedSampleBytes.remove(labelValues);
-    dataReaderProtocolStatusDuplicateSampleCount.remove(labelValues);
-    dataReaderProtocolStatusDuplicateSampleBytes.remove(labelValues);
-    dataReaderProtocolStatusFilteredSampleCount.remove(labelValues);
-    dataReaderProtocolStatusFilteredSampleBytes.remove(labelValues);
-    dataReaderProtocolStatusReceivedHeartbeatCount.remove(labelValues);
-    dataReaderProtocolStatusReceivedHeartbeatBytes.remove(labelValues);
-    dataReaderProtocolStatusSentAckCount.remove(labelValues);
-    dataReaderProtocolStatusSentAckBytes.remove(labelValues);
-    dataReaderProtocolStatusSentNackCount.remove(labelValues);
-    dataReaderProtocolStatusSentNackBytes.remove(labelValues);
-    dataReaderProtocolStatusReceivedGapCount.remove(labelValues);
-    dataReaderProtocolStatusReceivedGapBytes.remove(labelValues);
-    dataReaderProtocolStatusRejectedSampleCount.remove(labelValues);
-    dataReaderProtocolStatusFirstAvailableSampleSequenceNumberHigh.remove(labelValues);
-    dataReaderProtocolStatusFirstAvailableSampleSequenceNumberLow.remove(labelValues);
-    dataReaderProtocolStatusLastAvailableSampleSequenceNumberHigh.remove(labelValues);
-    dataReaderProtocolStatusLastAvailableSampleSequenceNumberLow.remove(labelValues);
-    dataReaderProtocolStatusLastCommittedSampleSequenceNumberHigh.remove(labelValues);
-    dataReaderProtocolStatusLastCommittedSampleSequenceNumberLow.remove(labelValues);
-    dataReaderProtocolStatusUncommittedSampleCount.remove(labelValues);
-
-    // remove instance from hash map
-    instanceHandleHashMap.remove(instanceHandle);
+    collector.remove(instanceHandle);
   }
 
   private String[] getLabelNames() {
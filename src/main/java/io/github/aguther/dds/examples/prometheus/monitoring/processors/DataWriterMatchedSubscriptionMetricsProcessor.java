@@ -29,482 +29,282 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 import com.rti.dds.subscription.InstanceStateKind;
 import com.rti.dds.subscription.SampleInfo;
+import idl.DDSMonitoring.BuiltinTopicKey_t;
 import idl.rti.dds.monitoring.DataWriterDescription;
 import idl.rti.dds.monitoring.DataWriterEntityMatchedSubscriptionStatistics;
 import idl.rti.dds.monitoring.DomainParticipantDescription;
 import idl.rti.dds.monitoring.PublisherDescription;
+import io.github.aguther.dds.examples.prometheus.monitoring.exposition.StreamingCollector;
 import io.github.aguther.dds.util.BuiltinTopicHelper;
-import io.prometheus.client.Gauge;
-import java.util.HashMap;
+import io.github.aguther.dds.util.SequenceNumberHelper;
+import java.util.concurrent.TimeUnit;
 
 public class DataWriterMatchedSubscriptionMetricsProcessor {
 
-  private final DescriptionProcessorCache descriptionProcessorCache;
-  private final HashMap<InstanceHandle_t, String[]> instanceHandleHashMap;
+  private static final String PROCESSOR_NAME = "data_writer_matched_subscription";
 
-  private final Gauge dataWriterProtocolStatusPushedSampleCount;
-  private final Gauge dataWriterProtocolStatusPushedSampleBytes;
-  private final Gauge dataWriterProtocolStatusFilteredSampleCount;
-  private final Gauge dataWriterProtocolStatusFilteredSampleBytes;
-  private final Gauge dataWriterProtocolStatusSentHeartbeatCount;
-  private final Gauge dataWriterProtocolStatusSentHeartbeatBytes;
-  private final Gauge dataWriterProtocolStatusPulledSampleCount;
-  private final Gauge dataWriterProtocolStatusPulledSampleBytes;
-  private final Gauge dataWriterProtocolStatusReceivedAckCount;
-  private final Gauge dataWriterProtocolStatusReceivedAckBytes;
-  private final Gauge dataWriterProtocolStatusReceivedNackCount;
-  private final Gauge dataWriterProtocolStatusReceivedNackBytes;
-  private final Gauge dataWriterProtocolStatusSentGapCount;
-  private final Gauge dataWriterProtocolStatusSentGapBytes;
-  private final Gauge dataWriterProtocolStatusRejectedSampleCount;
-  private final Gauge dataWriterProtocolStatusSendWindowSize;
-  private final Gauge dataWriterProtocolStatusFirstAvailableSequenceNumberHigh;
-  private final Gauge dataWriterProtocolStatusFirstAvailableSequenceNumberLow;
-  private final Gauge dataWriterProtocolStatusLastAvailableSequenceNumberHigh;
-  private final Gauge dataWriterProtocolStatusLastAvailableSequenceNumberLow;
-  private final Gauge dataWriterProtocolStatusFirstUnacknowledgedSampleSequenceNumberHigh;
-  private final Gauge dataWriterProtocolStatusFirstUnacknowledgedSampleSequenceNumberLow;
-  private final Gauge dataWriterProtocolStatusFirstAvailableSampleVirtualSequenceNumberHigh;
-  private final Gauge dataWriterProtocolStatusFirstAvailableSampleVirtualSequenceNumberLow;
-  private final Gauge dataWriterProtocolStatusLastAvailableSampleVirtualSequenceNumberHigh;
-  private final Gauge dataWriterProtocolStatusLastAvailableSampleVirtualSequenceNumberLow;
-  private final Gauge dataWriterProtocolStatusFirstUnacknowledgedSampleVirtualSequenceNumberHigh;
-  private final Gauge dataWriterProtocolStatusFirstUnacknowledgedSampleVirtualSequenceNumberLow;
-  private final Gauge dataWriterProtocolStatusFirstUnelapsedKeepDurationSampleSequenceNumberHigh;
-  private final Gauge dataWriterProtocolStatusFirstUnelapsedKeepDurationSampleSequenceNumberLow;
+  private final DescriptionProcessorCache descriptionProcessorCache;
+  private final LatestValuesCollector collector;
+  private final PendingStatistics<DataWriterEntityMatchedSubscriptionStatistics> pendingStatistics;
 
   public DataWriterMatchedSubscriptionMetricsProcessor(
     DescriptionProcessorCache descriptionProcessorCache
+  ) {
+    this(descriptionProcessorCache, LatestValuesCollector.DEFAULT_TIME_TO_LIVE_SECONDS, TimeUnit.SECONDS);
+  }
+
+  public DataWriterMatchedSubscriptionMetricsProcessor(
+    DescriptionProcessorCache descriptionProcessorCache,
+    long timeToLive,
+    TimeUnit timeUnit
   ) {
     checkNotNull(descriptionProcessorCache);
     this.descriptionProcessorCache = descriptionProcessorCache;
-    instanceHandleHashMap = new HashMap<>();
+    pendingStatistics = new PendingStatistics<>(
+      PROCESSOR_NAME,
+      DataWriterEntityMatchedSubscriptionStatistics.class
+    );
 
-    dataWriterProtocolStatusPushedSampleCount = Gauge.build()
-      .name(
+    collector = new LatestValuesCollector(PROCESSOR_NAME, getLabelNames(), timeToLive, timeUnit)
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_pushed_sample_count",
         "dds_data_writer_matched_subscription_protocol_status_pushed_sample_count")
-      .labelNames(getLabelNames())
-      .help("dds_data_writer_matched_subscription_protocol_status_pushed_sample_count")
-      .register();
-
-    dataWriterProtocolStatusPushedSampleBytes = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_pushed_sample_bytes",
         "dds_data_writer_matched_subscription_protocol_status_pushed_sample_bytes")
-      .labelNames(getLabelNames())
-      .help("dds_data_writer_matched_subscription_protocol_status_pushed_sample_bytes")
-      .register();
-
-    dataWriterProtocolStatusFilteredSampleCount = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_filtered_sample_count",
         "dds_data_writer_matched_subscription_protocol_status_filtered_sample_count")
-      .labelNames(getLabelNames())
-      .help("dds_data_writer_matched_subscription_protocol_status_filtered_sample_count")
-      .register();
-
-    dataWriterProtocolStatusFilteredSampleBytes = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_filtered_sample_bytes",
         "dds_data_writer_matched_subscription_protocol_status_filtered_sample_bytes")
-      .labelNames(getLabelNames())
-      .help("dds_data_writer_matched_subscription_protocol_status_filtered_sample_bytes")
-      .register();
-
-    dataWriterProtocolStatusSentHeartbeatCount = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_sent_heartbeat_count",
         "dds_data_writer_matched_subscription_protocol_status_sent_heartbeat_count")
-      .labelNames(getLabelNames())
-      .help("dds_data_writer_matched_subscription_protocol_status_sent_heartbeat_count")
-      .register();
-
-    dataWriterProtocolStatusSentHeartbeatBytes = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_sent_heartbeat_bytes",
         "dds_data_writer_matched_subscription_protocol_status_sent_heartbeat_bytes")
-      .labelNames(getLabelNames())
-      .help("dds_data_writer_matched_subscription_protocol_status_sent_heartbeat_bytes")
-      .register();
-
-    dataWriterProtocolStatusPulledSampleCount = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_pulled_sample_count",
         "dds_data_writer_matched_subscription_protocol_status_pulled_sample_count")
-      .labelNames(getLabelNames())
-      .help("dds_data_writer_matched_subscription_protocol_status_pulled_sample_count")
-      .register();
-
-    dataWriterProtocolStatusPulledSampleBytes = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_pulled_sample_bytes",
         "dds_data_writer_matched_subscription_protocol_status_pulled_sample_bytes")
-      .labelNames(getLabelNames())
-      .help("dds_data_writer_matched_subscription_protocol_status_pulled_sample_bytes")
-      .register();
-
-    dataWriterProtocolStatusReceivedAckCount = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_received_ack_count",
         "dds_data_writer_matched_subscription_protocol_status_received_ack_count")
-      .labelNames(getLabelNames())
-      .help("dds_data_writer_matched_subscription_protocol_status_received_ack_count")
-      .register();
-
-    dataWriterProtocolStatusReceivedAckBytes = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_received_ack_bytes",
         "dds_data_writer_matched_subscription_protocol_status_received_ack_bytes")
-      .labelNames(getLabelNames())
-      .help("dds_data_writer_matched_subscription_protocol_status_received_ack_bytes")
-      .register();
-
-    dataWriterProtocolStatusReceivedNackCount = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_received_nack_count",
         "dds_data_writer_matched_subscription_protocol_status_received_nack_count")
-      .labelNames(getLabelNames())
-      .help("dds_data_writer_matched_subscription_protocol_status_received_nack_count")
-      .register();
-
-    dataWriterProtocolStatusReceivedNackBytes = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_received_nack_bytes",
         "dds_data_writer_matched_subscription_protocol_status_received_nack_bytes")
-      .labelNames(getLabelNames())
-      .help("dds_data_writer_matched_subscription_protocol_status_received_nack_bytes")
-      .register();
-
-    dataWriterProtocolStatusSentGapCount = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_sent_gap_count",
         "dds_data_writer_matched_subscription_protocol_status_sent_gap_count")
-      .labelNames(getLabelNames())
-      .help("dds_data_writer_matched_subscription_protocol_status_sent_gap_count")
-      .register();
-
-    dataWriterProtocolStatusSentGapBytes = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_sent_gap_bytes",
         "dds_data_writer_matched_subscription_protocol_status_sent_gap_bytes")
-      .labelNames(getLabelNames())
-      .help("dds_data_writer_matched_subscription_protocol_status_sent_gap_bytes")
-      .register();
-
-    dataWriterProtocolStatusRejectedSampleCount = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_rejected_sample_count",
         "dds_data_writer_matched_subscription_protocol_status_rejected_sample_count")
-      .labelNames(getLabelNames())
-      .help("dds_data_writer_matched_subscription_protocol_status_rejected_sample_count")
-      .register();
-
-    dataWriterProtocolStatusSendWindowSize = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_send_window_size",
         "dds_data_writer_matched_subscription_protocol_status_send_window_size")
-      .labelNames(getLabelNames())
-      .help("dds_data_writer_matched_subscription_protocol_status_send_window_size")
-      .register();
-
-    dataWriterProtocolStatusFirstAvailableSequenceNumberHigh = Gauge.build()
-      .name(
-        "dds_data_writer_matched_subscription_protocol_status_first_available_sequence_number_high")
-      .labelNames(getLabelNames())
-      .help(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_first_available_sequence_number_high",
         "dds_data_writer_matched_subscription_protocol_status_first_available_sequence_number_high")
-      .register();
-
-    dataWriterProtocolStatusFirstAvailableSequenceNumberLow = Gauge.build()
-      .name(
-        "dds_data_writer_matched_subscription_protocol_status_first_available_sequence_number_low")
-      .labelNames(getLabelNames())
-      .help(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_first_available_sequence_number_low",
         "dds_data_writer_matched_subscription_protocol_status_first_available_sequence_number_low")
-      .register();
-
-    dataWriterProtocolStatusLastAvailableSequenceNumberHigh = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_last_available_sequence_number_high",
         "dds_data_writer_matched_subscription_protocol_status_last_available_sequence_number_high")
-      .labelNames(getLabelNames())
-      .help(
-        "dds_data_writer_matched_subscription_protocol_status_last_available_sequence_number_high")
-      .register();
-
-    dataWriterProtocolStatusLastAvailableSequenceNumberLow = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_last_available_sequence_number_low",
         "dds_data_writer_matched_subscription_protocol_status_last_available_sequence_number_low")
-      .labelNames(getLabelNames())
-      .help(
-        "dds_data_writer_matched_subscription_protocol_status_last_available_sequence_number_low")
-      .register();
-
-    dataWriterProtocolStatusFirstUnacknowledgedSampleSequenceNumberHigh = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_first_unacknowledged_sample_sequence_number_high",
         "dds_data_writer_matched_subscription_protocol_status_first_unacknowledged_sample_sequence_number_high")
-      .labelNames(getLabelNames())
-      .help(
-        "dds_data_writer_matched_subscription_protocol_status_first_unacknowledged_sample_sequence_number_high")
-      .register();
-
-    dataWriterProtocolStatusFirstUnacknowledgedSampleSequenceNumberLow = Gauge.build()
-      .name(
-        "dds_data_writer_matched_subscription_protocol_status_first_unacknowledged_sample_sequence_number_low")
-      .labelNames(getLabelNames())
-      .help(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_first_unacknowledged_sample_sequence_number_low",
         "dds_data_writer_matched_subscription_protocol_status_first_unacknowledged_sample_sequence_number_low")
-      .register();
-
-    dataWriterProtocolStatusFirstAvailableSampleVirtualSequenceNumberHigh = Gauge.build()
-      .name(
-        "dds_data_writer_matched_subscription_protocol_status_first_available_sample_virtual_sequence_number_high")
-      .labelNames(getLabelNames())
-      .help(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_first_available_sample_virtual_sequence_number_high",
         "dds_data_writer_matched_subscription_protocol_status_first_available_sample_virtual_sequence_number_high")
-      .register();
-
-    dataWriterProtocolStatusFirstAvailableSampleVirtualSequenceNumberLow = Gauge.build()
-      .name(
-        "dds_data_writer_matched_subscription_protocol_status_first_available_sample_virtual_sequence_number_low")
-      .labelNames(getLabelNames())
-      .help(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_first_available_sample_virtual_sequence_number_low",
         "dds_data_writer_matched_subscription_protocol_status_first_available_sample_virtual_sequence_number_low")
-      .register();
-
-    dataWriterProtocolStatusLastAvailableSampleVirtualSequenceNumberHigh = Gauge.build()
-      .name(
-        "dds_data_writer_matched_subscription_protocol_status_last_available_sample_virtual_sequence_number_high")
-      .labelNames(getLabelNames())
-      .help(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_last_available_sample_virtual_sequence_number_high",
         "dds_data_writer_matched_subscription_protocol_status_last_available_sample_virtual_sequence_number_high")
-      .register();
-
-    dataWriterProtocolStatusLastAvailableSampleVirtualSequenceNumberLow = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_last_available_sample_virtual_sequence_number_low",
         "dds_data_writer_matched_subscription_protocol_status_last_available_sample_virtual_sequence_number_low")
-      .labelNames(getLabelNames())
-      .help(
-        "dds_data_writer_matched_subscription_protocol_status_last_available_sample_virtual_sequence_number_low")
-      .register();
-
-    dataWriterProtocolStatusFirstUnacknowledgedSampleVirtualSequenceNumberHigh = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_first_unacknowledged_sample_virtual_sequence_number_high",
         "dds_data_writer_matched_subscription_protocol_status_first_unacknowledged_sample_virtual_sequence_number_high")
-      .labelNames(getLabelNames())
-      .help(
-        "dds_data_writer_matched_subscription_protocol_status_first_unacknowledged_sample_virtual_sequence_number_high")
-      .register();
-
-    dataWriterProtocolStatusFirstUnacknowledgedSampleVirtualSequenceNumberLow = Gauge.build()
-      .name(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_first_unacknowledged_sample_virtual_sequence_number_low",
         "dds_data_writer_matched_subscription_protocol_status_first_unacknowledged_sample_virtual_sequence_number_low")
-      .labelNames(getLabelNames())
-      .help(
-        "dds_data_writer_matched_subscription_protocol_status_first_unacknowledged_sample_virtual_sequence_number_low")
-      .register();
-
-    dataWriterProtocolStatusFirstUnelapsedKeepDurationSampleSequenceNumberHigh = Gauge.build()
-      .name(
-        "dds_data_writer_matched_subscription_protocol_status_first_unelapsed_keep_duration_sample_sequence_number_high")
-      .labelNames(getLabelNames())
-      .help(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_first_unelapsed_keep_duration_sample_sequence_number_high",
         "dds_data_writer_matched_subscription_protocol_status_first_unelapsed_keep_duration_sample_sequence_number_high")
-      .register();
-
-    dataWriterProtocolStatusFirstUnelapsedKeepDurationSampleSequenceNumberLow = Gauge.build()
-      .name(
-        "dds_data_writer_matched_subscription_protocol_status_first_unelapsed_keep_duration_sample_sequence_number_low")
-      .labelNames(getLabelNames())
-      .help(
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_first_unelapsed_keep_duration_sample_sequence_number_low",
         "dds_data_writer_matched_subscription_protocol_status_first_unelapsed_keep_duration_sample_sequence_number_low")
-      .register();
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_first_available_sequence_number",
+        "dds_data_writer_matched_subscription_protocol_status_first_available_sequence_number")
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_last_available_sequence_number",
+        "dds_data_writer_matched_subscription_protocol_status_last_available_sequence_number")
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_first_unacknowledged_sample_sequence_number",
+        "dds_data_writer_matched_subscription_protocol_status_first_unacknowledged_sample_sequence_number")
+      .gauge(
+        "dds_data_writer_matched_subscription_protocol_status_unacknowledged_sample_backlog",
+        "dds_data_writer_matched_subscription_protocol_status_unacknowledged_sample_backlog");
+
+    // process pending statistics when the description they are missing becomes available
+    descriptionProcessorCache.addListener(this::processPending);
+
+    // expire pending statistics on scrape, so they are also dropped when no samples arrive
+    collector.setScrapeListener(this::expirePending);
+  }
+
+  public StreamingCollector getCollector() {
+    return collector;
   }
 
-  public void process(
+  public synchronized void process(
     DataWriterEntityMatchedSubscriptionStatistics sample,
     SampleInfo info
   ) {
-    // variables
-    DataWriterDescription dataWriterDescription;
-    PublisherDescription publisherDescription = null;
-    DomainParticipantDescription domainParticipantDescription = null;
-
-    // try to get descriptions
-    dataWriterDescription = descriptionProcessorCache
-      .getDataWriterDescription(sample.datawriter_key);
-
-    if (dataWriterDescription != null) {
-      publisherDescription = descriptionProcessorCache
-        .getPublisherDescription(dataWriterDescription.publisher_entity_key);
-    }
-    if ((dataWriterDescription != null)
-      && (publisherDescription != null)) {
-      domainParticipantDescription = descriptionProcessorCache
-        .getDomainParticipantDescription(publisherDescription.participant_entity_key);
-    }
-
     if ((info.instance_state == InstanceStateKind.ALIVE_INSTANCE_STATE)
-      && (info.valid_data)
-      && (dataWriterDescription != null)
-      && (publisherDescription != null)
-      && (domainParticipantDescription != null)) {
-      // add / update values
-      addUpdateGaugesForLabel(
-        info.instance_handle,
-        sample,
-        domainParticipantDescription,
-        publisherDescription,
-        dataWriterDescription
-      );
+      && (info.valid_data)) {
+      // add / update values or keep the sample until the missing description is available
+      BuiltinTopicKey_t missingKey = addUpdateValues(info.instance_handle, sample);
+      if (missingKey == null) {
+        pendingStatistics.remove(info.instance_handle);
+      } else {
+        removeValues(info.instance_handle);
+        pendingStatistics.add(info.instance_handle, sample, missingKey);
+      }
     } else {
       // remove values
-      removeLabelsFromGauges(info.instance_handle);
+      pendingStatistics.remove(info.instance_handle);
+      removeValues(info.instance_handle);
     }
   }
 
-  private void addUpdateGaugesForLabel(
+  private synchronized void processPending(
+    BuiltinTopicKey_t key
+  ) {
+    pendingStatistics.retry(key, this::addUpdateValues);
+  }
+
+  private synchronized void expirePending() {
+    pendingStatistics.expire();
+  }
+
+  private BuiltinTopicKey_t addUpdateValues(
     InstanceHandle_t instanceHandle,
-    DataWriterEntityMatchedSubscriptionStatistics sample,
-    DomainParticipantDescription domainParticipantDescription,
-    PublisherDescription publisherDescription,
-    DataWriterDescription dataWriterDescription
+    DataWriterEntityMatchedSubscriptionStatistics sample
   ) {
-    // put instance handle to hash map if not present
-    instanceHandleHashMap.putIfAbsent(
+    // get the version of every description before the description, so labels of a concurrently changed description
+    // are resolved again
+    long labelVersion = descriptionProcessorCache.getDataWriterDescriptionVersion(sample.datawriter_key);
+    final DataWriterDescription dataWriterDescription = descriptionProcessorCache
+      .getDataWriterDescription(sample.datawriter_key);
+    if (dataWriterDescription == null) {
+      return sample.datawriter_key;
+    }
+    labelVersion = Math.max(
+      labelVersion,
+      descriptionProcessorCache.getPublisherDescriptionVersion(dataWriterDescription.publisher_entity_key));
+    final PublisherDescription publisherDescription = descriptionProcessorCache
+      .getPublisherDescription(dataWriterDescription.publisher_entity_key);
+    if (publisherDescription == null) {
+      return dataWriterDescription.publisher_entity_key;
+    }
+    labelVersion = Math.max(
+      labelVersion,
+      descriptionProcessorCache.getDomainParticipantDescriptionVersion(publisherDescription.participant_entity_key));
+    final DomainParticipantDescription domainParticipantDescription = descriptionProcessorCache
+      .getDomainParticipantDescription(publisherDescription.participant_entity_key);
+    if (domainParticipantDescription == null) {
+      return publisherDescription.participant_entity_key;
+    }
+
+    // update values
+    collector.update(
       instanceHandle,
-      getLabelValues(
+      labelVersion,
+      () -> getLabelValues(
         domainParticipantDescription,
         publisherDescription,
         dataWriterDescription,
         sample
-      )
+      ),
+      values -> {
+        // order equals the order the gauges have been added
+        int i = 0;
+        values[i++] = sample.datawriter_protocol_status.status.pushed_sample_count;
+        values[i++] = sample.datawriter_protocol_status.status.pushed_sample_bytes;
+        values[i++] = sample.datawriter_protocol_status.status.filtered_sample_count;
+        values[i++] = sample.datawriter_protocol_status.status.filtered_sample_bytes;
+        values[i++] = sample.datawriter_protocol_status.status.sent_heartbeat_count;
+        values[i++] = sample.datawriter_protocol_status.status.sent_heartbeat_bytes;
+        values[i++] = sample.datawriter_protocol_status.status.pulled_sample_count;
+        values[i++] = sample.datawriter_protocol_status.status.pulled_sample_bytes;
+        values[i++] = sample.datawriter_protocol_status.status.received_ack_count;
+        values[i++] = sample.datawriter_protocol_status.status.received_ack_bytes;
+        values[i++] = sample.datawriter_protocol_status.status.received_nack_count;
+        values[i++] = sample.datawriter_protocol_status.status.received_nack_bytes;
+        values[i++] = sample.datawriter_protocol_status.status.sent_gap_count;
+        values[i++] = sample.datawriter_protocol_status.status.sent_gap_bytes;
+        values[i++] = sample.datawriter_protocol_status.status.rejected_sample_count;
+        values[i++] = sample.datawriter_protocol_status.status.send_window_size;
+        values[i++] = sample.datawriter_protocol_status.status.first_available_sequence_number.high;
+        values[i++] = sample.datawriter_protocol_status.status.first_available_sequence_number.low;
+        values[i++] = sample.datawriter_protocol_status.status.last_available_sequence_number.high;
+        values[i++] = sample.datawriter_protocol_status.status.last_available_sequence_number.low;
+        values[i++] = sample.datawriter_protocol_status.status.first_unacknowledged_sample_sequence_number.high;
+        values[i++] = sample.datawriter_protocol_status.status.first_unacknowledged_sample_sequence_number.low;
+        values[i++] = sample.datawriter_protocol_status.status.first_available_sample_virtual_sequence_number.high;
+        values[i++] = sample.datawriter_protocol_status.status.first_available_sample_virtual_sequence_number.low;
+        values[i++] = sample.datawriter_protocol_status.status.last_available_sample_virtual_sequence_number.high;
+        values[i++] = sample.datawriter_protocol_status.status.last_available_sample_virtual_sequence_number.low;
+        values[i++] = sample.datawriter_protocol_status.status.first_unacknowledged_sample_virtual_sequence_number.high;
+        values[i++] = sample.datawriter_protocol_status.status.first_unacknowledged_sample_virtual_sequence_number.low;
+        values[i++] = sample.datawriter_protocol_status.status.first_unelapsed_keep_duration_sample_sequence_number.high;
+        values[i++] = sample.datawriter_protocol_status.status.first_unelapsed_keep_duration_sample_sequence_number.low;
+        long firstAvailableSequenceNumber = SequenceNumberHelper.toLong(
+          sample.datawriter_protocol_status.status.first_available_sequence_number.high,
+          sample.datawriter_protocol_status.status.first_available_sequence_number.low);
+        long lastAvailableSequenceNumber = SequenceNumberHelper.toLong(
+          sample.datawriter_protocol_status.status.last_available_sequence_number.high,
+          sample.datawriter_protocol_status.status.last_available_sequence_number.low);
+        long firstUnacknowledgedSampleSequenceNumber = SequenceNumberHelper.toLong(
+          sample.datawriter_protocol_status.status.first_unacknowledged_sample_sequence_number.high,
+          sample.datawriter_protocol_status.status.first_unacknowledged_sample_sequence_number.low);
+        values[i++] = firstAvailableSequenceNumber;
+        values[i++] = lastAvailableSequenceNumber;
+        values[i++] = firstUnacknowledgedSampleSequenceNumber;
+        values[i++] = Math.max(0, lastAvailableSequenceNumber - firstUnacknowledgedSampleSequenceNumber + 1);
+      }
     );
-
-    // get label values once to improve performance
-    final String[] labelValues = instanceHandleHashMap.get(instanceHandle);
-
-    // update gauges
-    dataWriterProtocolStatusPushedSampleCount.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.pushed_sample_count);
-
-    dataWriterProtocolStatusPushedSampleBytes.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.pushed_sample_bytes);
-
-    dataWriterProtocolStatusFilteredSampleCount.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.filtered_sample_count);
-
-    dataWriterProtocolStatusFilteredSampleBytes.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.filtered_sample_bytes);
-
-    dataWriterProtocolStatusSentHeartbeatCount.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.sent_heartbeat_count);
-
-    dataWriterProtocolStatusSentHeartbeatBytes.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.sent_heartbeat_bytes);
-
-    dataWriterProtocolStatusPulledSampleCount.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.pulled_sample_count);
-
-    dataWriterProtocolStatusPulledSampleBytes.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.pulled_sample_bytes);
-
-    dataWriterProtocolStatusReceivedAckCount.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.received_ack_count);
-
-    dataWriterProtocolStatusReceivedAckBytes.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.received_ack_bytes);
-
-    dataWriterProtocolStatusReceivedNackCount.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.received_nack_count);
-
-    dataWriterProtocolStatusReceivedNackBytes.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.received_nack_bytes);
-
-    dataWriterProtocolStatusSentGapCount.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.sent_gap_count);
-
-    dataWriterProtocolStatusSentGapBytes.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.sent_gap_bytes);
-
-    dataWriterProtocolStatusRejectedSampleCount.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.rejected_sample_count);
-
-    dataWriterProtocolStatusSendWindowSize.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.send_window_size);
-
-    dataWriterProtocolStatusFirstAvailableSequenceNumberHigh.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.first_available_sequence_number.high);
-
-    dataWriterProtocolStatusFirstAvailableSequenceNumberLow.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.first_available_sequence_number.low);
-
-    dataWriterProtocolStatusLastAvailableSequenceNumberHigh.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.last_available_sequence_number.high);
-
-    dataWriterProtocolStatusLastAvailableSequenceNumberLow.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.last_available_sequence_number.low);
-
-    dataWriterProtocolStatusFirstUnacknowledgedSampleSequenceNumberHigh.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.first_unacknowledged_sample_sequence_number.high);
-
-    dataWriterProtocolStatusFirstUnacknowledgedSampleSequenceNumberLow.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.first_unacknowledged_sample_sequence_number.low);
-
-    dataWriterProtocolStatusFirstAvailableSampleVirtualSequenceNumberHigh.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.first_available_sample_virtual_sequence_number.high);
-
-    dataWriterProtocolStatusFirstAvailableSampleVirtualSequenceNumberLow.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.first_available_sample_virtual_sequence_number.low);
-
-    dataWriterProtocolStatusLastAvailableSampleVirtualSequenceNumberHigh.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.last_available_sample_virtual_sequence_number.high);
-
-    dataWriterProtocolStatusLastAvailableSampleVirtualSequenceNumberLow.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.last_available_sample_virtual_sequence_number.low);
-
-    dataWriterProtocolStatusFirstUnacknowledgedSampleVirtualSequenceNumberHigh.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.first_unacknowledged_sample_virtual_sequence_number.high);
-
-    dataWriterProtocolStatusFirstUnacknowledgedSampleVirtualSequenceNumberLow.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.first_unacknowledged_sample_virtual_sequence_number.low);
-
-    dataWriterProtocolStatusFirstUnelapsedKeepDurationSampleSequenceNumberHigh.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.first_unelapsed_keep_duration_sample_sequence_number.high);
-
-    dataWriterProtocolStatusFirstUnelapsedKeepDurationSampleSequenceNumberLow.labels(labelValues).set(
-      sample.datawriter_protocol_status.status.first_unelapsed_keep_duration_sample_sequence_number.low);
+    return null;
   }
 
-  private void removeLabelsFromGauges(
+  private void removeValues(
     InstanceHandle_t instanceHandle
   ) {
-    // check if remove is necessary
-    if (!instanceHandleHashMap.containsKey(instanceHandle)) {
-      return;
-    }
-
-    // get label values
-    final String[] labelValues = instanceHandleHashMap.get(instanceHandle);
-
-    // remove labels
-    dataWriterProtocolStatusPushedSampleCount.remove(labelValues);
-    dataWriterProtocolStatusPushedSampleBytes.remove(labelValues);
-    dataWriterProtocolStatusFilteredSampleCount.remove(labelValues);
-    dataWriterProtocolStatusFilteredSampleBytes.remove(labelValues);
-    dataWriterProtocolStatusSentHeartbeatCount.remove(labelValues);
-    dataWriterProtocolStatusSentHeartbeatBytes.remove(labelValues);
-    dataWriterProtocolStatusPulledSampleCount.remove(labelValues);
-    dataWriterProtocolStatusPulledSampleBytes.remove(labelValues);
-    dataWriterProtocolStatusReceivedAckCount.remove(labelValues);
-    dataWriterProtocolStatusReceivedAckBytes.remove(labelValues);
-    dataWriterProtocolStatusReceivedNackCount.remove(labelValues);
-    dataWriterProtocolStatusReceivedNackBytes.remove(labelValues);
-    dataWriterProtocolStatusSentGapCount.remove(labelValues);
-    dataWriterProtocolStatusSentGapBytes.remove(labelValues);
-    dataWriterProtocolStatusRejectedSampleCount.remove(labelValues);
-    dataWriterProtocolStatusSendWindowSize.remove(labelValues);
-    dataWriterProtocolStatusFirstAvailableSequenceNumberHigh.remove(labelValues);
-    dataWriterProtocolStatusFirstAvailableSequenceNumberLow.remove(labelValues);
-    dataWriterProtocolStatusLastAvailableSequenceNumberHigh.remove(labelValues);
-    dataWriterProtocolStatusLastAvailableSequenceNumberLow.remove(labelValues);
-    dataWriterProtocolStatusFirstUnacknowledgedSampleSequenceNumberHigh.remove(labelValues);
-    dataWriterProtocolStatusFirstUnacknowledgedSampleSequenceNumberLow.remove(labelValues);
-    dataWriterProtocolStatusFirstAvailableSampleVirtualSequenceNumberHigh.remove(labelValues);
-    dataWriterProtocolStatusFirstAvailableSampleVirtualSequenceNumberLow.remove(labelValues);
-    dataWriterProtocolStatusLastAvailableSampleVirtualSequenceNumberHigh.remove(labelValues);
-    dataWriterProtocolStatusLastAvailableSampleVirtualSequenceNumberLow.remove(labelValues);
-    dataWriterProtocolStatusFirstUnacknowledgedSampleVirtualSequenceNumberHigh.remove(labelValues);
-    dataWriterProtocolStatusFirstUnacknowledgedSampleVirtualSequenceNumberLow.remove(labelValues);
-    dataWriterProtocolStatusFirstUnelapsedKeepDurationSampleSequenceNumberHigh.remove(labelValues);
-    dataWriterProtocolStatusFirstUnelapsedKeepDurationSampleSequenceNumberLow.remove(labelValues);
-
-    // remove instance from hash map
-    instanceHandleHashMap.remove(instanceHandle);
+    collector.remove(instanceHandle);
   }
 
   private String[] getLabelNames() {
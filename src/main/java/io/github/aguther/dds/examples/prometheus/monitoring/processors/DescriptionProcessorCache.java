@@ -34,124 +34,134 @@ import idl.rti.dds.monitoring.DomainParticipantDescription;
 import idl.rti.dds.monitoring.PublisherDescription;
 import idl.rti.dds.monitoring.SubscriberDescription;
 import idl.rti.dds.monitoring.TopicDescription;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
+/**
+ * Cache for the description samples of the monitoring library.
+ * <p>
+ * Every entity kind has its own store, updates of a store are serialized by its own lock so that updates of
+ * different entity kinds do not contend with each other. Lookups do not lock at all.
+ * <p>
+ * Every description that is added or changed gets a new version, versions are taken from one counter of the cache
+ * so they are unique and increasing. Label values that have been resolved with older versions of their descriptions
+ * can be detected as outdated, without invalidating the labels of other entities. As versions are increasing, the
+ * labels of several descriptions can be tracked by the greatest of their versions. The version of a missing
+ * description is 0. Listeners are notified with the key of every description that has been added or changed.
+ */
 public class DescriptionProcessorCache {
 
-  private HashMap<BuiltinTopicKey_t, DomainParticipantDescription> domainParticipantDescriptionStore;
-  private HashMap<InstanceHandle_t, BuiltinTopicKey_t> domainParticipantDescriptionMapping;
-
-  private HashMap<BuiltinTopicKey_t, TopicDescription> topicDescriptionStore;
-  private HashMap<InstanceHandle_t, BuiltinTopicKey_t> topicDescriptionMapping;
-
-  private HashMap<BuiltinTopicKey_t, PublisherDescription> publisherDescriptionStore;
-  private HashMap<InstanceHandle_t, BuiltinTopicKey_t> publisherDescriptionMapping;
-
-  private HashMap<BuiltinTopicKey_t, DataWriterDescription> dataWriterDescriptionStore;
-  private HashMap<InstanceHandle_t, BuiltinTopicKey_t> dataWriterDescriptionMapping;
+  private final DescriptionStore<DomainParticipantDescription> domainParticipantDescriptionStore;
+  private final DescriptionStore<TopicDescription> topicDescriptionStore;
+  private final DescriptionStore<PublisherDescription> publisherDescriptionStore;
+  private final DescriptionStore<DataWriterDescription> dataWriterDescriptionStore;
+  private final DescriptionStore<SubscriberDescription> subscriberDescriptionStore;
+  private final DescriptionStore<DataReaderDescription> dataReaderDescriptionStore;
 
-  private HashMap<BuiltinTopicKey_t, SubscriberDescription> subscriberDescriptionStore;
-  private HashMap<InstanceHandle_t, BuiltinTopicKey_t> subscriberDescriptionMapping;
-
-  private HashMap<BuiltinTopicKey_t, DataReaderDescription> dataReaderDescriptionStore;
-  private HashMap<InstanceHandle_t, BuiltinTopicKey_t> dataReaderDescriptionMapping;
+  private final AtomicLong versions;
+  private final CopyOnWriteArrayList<Consumer<BuiltinTopicKey_t>> listeners;
 
   public DescriptionProcessorCache() {
-    domainParticipantDescriptionStore = new HashMap<>();
-    domainParticipantDescriptionMapping = new HashMap<>();
-
-    topicDescriptionStore = new HashMap<>();
-    topicDescriptionMapping = new HashMap<>();
-
-    publisherDescriptionStore = new HashMap<>();
-    publisherDescriptionMapping = new HashMap<>();
-
-    dataWriterDescriptionStore = new HashMap<>();
-    dataWriterDescriptionMapping = new HashMap<>();
+    domainParticipantDescriptionStore = new DescriptionStore<>();
+    topicDescriptionStore = new DescriptionStore<>();
+    publisherDescriptionStore = new DescriptionStore<>();
+    dataWriterDescriptionStore = new DescriptionStore<>();
+    subscriberDescriptionStore = new DescriptionStore<>();
+    dataReaderDescriptionStore = new DescriptionStore<>();
 
-    subscriberDescriptionStore = new HashMap<>();
-    subscriberDescriptionMapping = new HashMap<>();
-
-    dataReaderDescriptionStore = new HashMap<>();
-    dataReaderDescriptionMapping = new HashMap<>();
+    versions = new AtomicLong();
+    listeners = new CopyOnWriteArrayList<>();
   }
 
-  public synchronized void process(
+  public void process(
     DomainParticipantDescription sample,
     SampleInfo info
   ) {
-    process(
+    if (domainParticipantDescriptionStore.process(
       sample,
       info,
-      sample.entity_key,
-      domainParticipantDescriptionStore,
-      domainParticipantDescriptionMapping
-    );
+      sample.entity_key
+    )) {
+      notifyListeners(sample.entity_key);
+    }
   }
 
-  public synchronized void process(
+  public void process(
     TopicDescription sample,
     SampleInfo info
   ) {
-    process(
+    if (topicDescriptionStore.process(
       sample,
       info,
-      sample.entity_key,
-      topicDescriptionStore,
-      topicDescriptionMapping
-    );
+      sample.entity_key
+    )) {
+      notifyListeners(sample.entity_key);
+    }
   }
 
-  public synchronized void process(
+  public void process(
     PublisherDescription sample,
     SampleInfo info
   ) {
-    process(
+    if (publisherDescriptionStore.process(
       sample,
       info,
-      sample.entity_key,
-      publisherDescriptionStore,
-      publisherDescriptionMapping
-    );
+      sample.entity_key
+    )) {
+      notifyListeners(sample.entity_key);
+    }
   }
 
-  public synchronized void process(
+  public void process(
     DataWriterDescription sample,
     SampleInfo info
   ) {
-    process(
+    if (dataWriterDescriptionStore.process(
       sample,
       info,
-      sample.entity_key,
-      dataWriterDescriptionStore,
-      dataWriterDescriptionMapping
-    );
+      sample.entity_key
+    )) {
+      notifyListeners(sample.entity_key);
+    }
   }
 
-  public synchronized void process(
+  public void process(
     SubscriberDescription sample,
     SampleInfo info
   ) {
-    process(
+    if (subscriberDescriptionStore.process(
       sample,
       info,
-      sample.entity_key,
-      subscriberDescriptionStore,
-      subscriberDescriptionMapping
-    );
+      sample.entity_key
+    )) {
+      notifyListeners(sample.entity_key);
+    }
   }
 
-  public synchronized void process(
+  public void process(
     DataReaderDescription sample,
     SampleInfo info
   ) {
-    process(
+    if (dataReaderDescriptionStore.process(
       sample,
       info,
-      sample.entity_key,
-      dataReaderDescriptionStore,
-      dataReaderDescriptionMapping
-    );
+      sample.entity_key
+    )) {
+      notifyListeners(sample.entity_key);
+    }
+  }
+
+  /**
+   * Adds a listener that is invoked with the key of a description whenever it has been added or changed.
+   *
+   * @param listener listener
+   */
+  void addListener(
+    Consumer<BuiltinTopicKey_t> listener
+  ) {
+    listeners.add(listener);
   }
 
   DomainParticipantDescription getDomainParticipantDescription(
@@ -160,55 +170,145 @@ public class DescriptionProcessorCache {
     return domainParticipantDescriptionStore.get(key);
   }
 
+  long getDomainParticipantDescriptionVersion(
+    BuiltinTopicKey_t key
+  ) {
+    return domainParticipantDescriptionStore.getVersion(key);
+  }
+
   TopicDescription getTopicDescription(
     BuiltinTopicKey_t key
   ) {
     return topicDescriptionStore.get(key);
   }
 
+  long getTopicDescriptionVersion(
+    BuiltinTopicKey_t key
+  ) {
+    return topicDescriptionStore.getVersion(key);
+  }
+
   PublisherDescription getPublisherDescription(
     BuiltinTopicKey_t key
   ) {
     return publisherDescriptionStore.get(key);
   }
 
+  long getPublisherDescriptionVersion(
+    BuiltinTopicKey_t key
+  ) {
+    return publisherDescriptionStore.getVersion(key);
+  }
+
   DataWriterDescription getDataWriterDescription(
     BuiltinTopicKey_t key
   ) {
     return dataWriterDescriptionStore.get(key);
   }
 
+  long getDataWriterDescriptionVersion(
+    BuiltinTopicKey_t key
+  ) {
+    return dataWriterDescriptionStore.getVersion(key);
+  }
+
   SubscriberDescription getSubscriberDescription(
     BuiltinTopicKey_t key
   ) {
     return subscriberDescriptionStore.get(key);
   }
 
+  long getSubscriberDescriptionVersion(
+    BuiltinTopicKey_t key
+  ) {
+    return subscriberDescriptionStore.getVersion(key);
+  }
+
   DataReaderDescription getDataReaderDescription(
     BuiltinTopicKey_t key
   ) {
     return dataReaderDescriptionStore.get(key);
   }
 
-  private <T> void process(
-    T sample,
-    SampleInfo info,
-    BuiltinTopicKey_t topicKey,
-    HashMap<BuiltinTopicKey_t, T> store,
-    HashMap<InstanceHandle_t, BuiltinTopicKey_t> mapping
-  ) {
-    // check if sample is alive and contains valid data
-    if (info.instance_state == InstanceStateKind.ALIVE_INSTANCE_STATE && info.valid_data) {
-      // put instance handle to hash map if not present
-      store.putIfAbsent(topicKey, sample);
-      mapping.putIfAbsent(info.instance_handle, topicKey);
-    } else {
-      // get builtin topic key and remove it from the mapping
-      BuiltinTopicKey_t key = mapping.remove(info.instance_handle);
-      // remove the description if necessary
-      if (key != null) {
-        store.remove(key);
+  long getDataReaderDescriptionVersion(
+    BuiltinTopicKey_t key
+  ) {
+    return dataReaderDescriptionStore.getVersion(key);
+  }
+
+  private void notifyListeners(
+    BuiltinTopicKey_t key
+  ) {
+    for (Consumer<BuiltinTopicKey_t> listener : listeners) {
+      listener.accept(key);
+    }
+  }
+
+  private class DescriptionStore<T> {
+
+    private final ConcurrentHashMap<BuiltinTopicKey_t, VersionedDescription<T>> store;
+    private final ConcurrentHashMap<InstanceHandle_t, BuiltinTopicKey_t> mapping;
+
+    DescriptionStore() {
+      store = new ConcurrentHashMap<>();
+      mapping = new ConcurrentHashMap<>();
+    }
+
+    T get(
+      BuiltinTopicKey_t key
+    ) {
+      VersionedDescription<T> versionedDescription = store.get(key);
+      return versionedDescription != null ? versionedDescription.description : null;
+    }
+
+    long getVersion(
+      BuiltinTopicKey_t key
+    ) {
+      VersionedDescription<T> versionedDescription = store.get(key);
+      return versionedDescription != null ? versionedDescription.version : 0;
+    }
+
+    synchronized boolean process(
+      T sample,
+      SampleInfo info,
+      BuiltinTopicKey_t topicKey
+    ) {
+      // check if sample is alive and contains valid data
+      if (info.instance_state == InstanceStateKind.ALIVE_INSTANCE_STATE && info.valid_data) {
+        // put instance handle to mapping if not present, the handle is copied because sample infos are reused
+        if (!mapping.containsKey(info.instance_handle)) {
+          mapping.put(new InstanceHandle_t(info.instance_handle), topicKey);
+        }
+        // put description to store, an equal description is kept to not invalidate any labels
+        VersionedDescription<T> previous = store.get(topicKey);
+        if (previous != null && sample.equals(previous.description)) {
+          return false;
+        }
+        store.put(topicKey, new VersionedDescription<>(sample, versions.incrementAndGet()));
+        return true;
+      } else {
+        // get builtin topic key and remove it from the mapping
+        BuiltinTopicKey_t key = mapping.remove(info.instance_handle);
+        // remove the description if necessary, a removed description is not announced to the listeners
+        if (key != null) {
+          store.remove(key);
+        }
+        return false;
       }
     }
   }
+
+  private static class VersionedDescription<T> {
+
+    private final T description;
+    private final long version;
+
+    VersionedDescription(
+      T description,
+      long version
+    ) {
+      this.description = description;
+      this.version = version;
+    }
+  }
 }
@@ -29,138 +29,146 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 import com.rti.dds.subscription.InstanceStateKind;
 import com.rti.dds.subscription.SampleInfo;
+import idl.DDSMonitoring.BuiltinTopicKey_t;
 import idl.DDSMonitoring.Duration_t;
 import idl.rti.dds.monitoring.DomainParticipantDescription;
 import idl.rti.dds.monitoring.DomainParticipantEntityStatistics;
+import io.github.aguther.dds.examples.prometheus.monitoring.exposition.StreamingCollector;
 import io.github.aguther.dds.util.BuiltinTopicHelper;
-import io.prometheus.client.Gauge;
-import java.util.HashMap;
 import java.util.concurrent.TimeUnit;
 
 public class DomainParticipantMetricProcessor {
 
-  private final DescriptionProcessorCache descriptionProcessorCache;
-  private final HashMap<InstanceHandle_t, String[]> instanceHandleHashMap;
+  private static final String PROCESSOR_NAME = "domain_participant";
 
-  private final Gauge userCpuTime;
-  private final Gauge kernelCpuTime;
-  private final Gauge physicalMemoryBytes;
-  private final Gauge totalMemoryBytes;
-  private final Gauge remoteParticipantCount;
-  private final Gauge remoteWriterCount;
-  private final Gauge remoteReaderCount;
+  private final DescriptionProcessorCache descriptionProcessorCache;
+  private final LatestValuesCollector collector;
+  private final PendingStatistics<DomainParticipantEntityStatistics> pendingStatistics;
 
   public DomainParticipantMetricProcessor(
     DescriptionProcessorCache descriptionProcessorCache
+  ) {
+    this(descriptionProcessorCache, LatestValuesCollector.DEFAULT_TIME_TO_LIVE_SECONDS, TimeUnit.SECONDS);
+  }
+
+  public DomainParticipantMetricProcessor(
+    DescriptionProcessorCache descriptionProcessorCache,
+    long timeToLive,
+    TimeUnit timeUnit
   ) {
     checkNotNull(descriptionProcessorCache);
     this.descriptionProcessorCache = descriptionProcessorCache;
-    instanceHandleHashMap = new HashMap<>();
-
-    userCpuTime = Gauge.build()
-      .name("dds_domain_participant_user_cpu_time_nanoseconds")
-      .labelNames(getLabelNames())
-      .help("dds_domain_participant_user_cpu_time_nanoseconds")
-      .register();
-
-    kernelCpuTime = Gauge.build()
-      .name("dds_domain_participant_kernel_cpu_time_nanoseconds")
-      .labelNames(getLabelNames())
-      .help("dds_domain_participant_kernel_cpu_time_nanoseconds")
-      .register();
-
-    physicalMemoryBytes = Gauge.build()
-      .name("dds_domain_participant_physical_memory_bytes")
-      .labelNames(getLabelNames())
-      .help("dds_domain_participant_physical_memory_bytes")
-      .register();
-
-    totalMemoryBytes = Gauge.build()
-      .name("dds_domain_participant_total_memory_bytes")
-      .labelNames(getLabelNames())
-      .help("dds_domain_participant_total_memory_bytes")
-      .register();
-
-    remoteParticipantCount = Gauge.build()
-      .name("dds_domain_participant_remote_participant_count")
-      .labelNames(getLabelNames())
-      .help("dds_domain_participant_remote_participant_count")
-      .register();
-
-    remoteWriterCount = Gauge.build()
-      .name("dds_domain_participant_remote_writer_count")
-      .labelNames(getLabelNames())
-      .help("dds_domain_participant_remote_writer_count")
-      .register();
-
-    remoteReaderCount = Gauge.build()
-      .name("dds_domain_participant_remote_reader_count")
-      .labelNames(getLabelNames())
-      .help("dds_domain_participant_remote_reader_count")
-      .register();
+    pendingStatistics = new PendingStatistics<>(
+      PROCESSOR_NAME,
+      DomainParticipantEntityStatistics.class
+    );
+
+    collector = new LatestValuesCollector(PROCESSOR_NAME, getLabelNames(), timeToLive, timeUnit)
+      .gauge(
+        "dds_domain_participant_user_cpu_time_nanoseconds",
+        "dds_domain_participant_user_cpu_time_nanoseconds")
+      .gauge(
+        "dds_domain_participant_kernel_cpu_time_nanoseconds",
+        "dds_domain_participant_kernel_cpu_time_nanoseconds")
+      .gauge(
+        "dds_domain_participant_physical_memory_bytes",
+        "dds_domain_participant_physical_memory_bytes")
+      .gauge(
+        "dds_domain_participant_total_memory_bytes",
+        "dds_domain_participant_total_memory_bytes")
+      .gauge(
+        "dds_domain_participant_remote_participant_count",
+        "dds_domain_participant_remote_participant_count")
+      .gauge(
+        "dds_domain_participant_remote_writer_count",
+        "dds_domain_participant_remote_writer_count")
+      .gauge(
+        "dds_domain_participant_remote_reader_count",
+        "dds_domain_participant_remote_reader_count");
+
+    // process pending statistics when the description they are missing becomes available
+    descriptionProcessorCache.addListener(this::processPending);
+
+    // expire pending statistics on scrape, so they are also dropped when no samples arrive
+    collector.setScrapeListener(this::expirePending);
+  }
 
+  public StreamingCollector getCollector() {
+    return collector;
   }
 
-  public void process(
+  public synchronized void process(
     DomainParticipantEntityStatistics sample,
     SampleInfo info
   ) {
     if ((info.instance_state == InstanceStateKind.ALIVE_INSTANCE_STATE)
-      && (info.valid_data)
-      && (descriptionProcessorCache.getDomainParticipantDescription(sample.participant_key) != null)) {
-      // add / update values
-      addUpdateGaugesForLabel(info.instance_handle, sample);
+      && (info.valid_data)) {
+      // add / update values or keep the sample until the missing description is available
+      BuiltinTopicKey_t missingKey = addUpdateValues(info.instance_handle, sample);
+      if (missingKey == null) {
+        pendingStatistics.remove(info.instance_handle);
+      } else {
+        removeValues(info.instance_handle);
+        pendingStatistics.add(info.instance_handle, sample, missingKey);
+      }
     } else {
       // remove values
-      removeLabelsFromGauges(info.instance_handle);
+      pendingStatistics.remove(info.instance_handle);
+      removeValues(info.instance_handle);
     }
   }
 
-  private void addUpdateGaugesForLabel(
+  private synchronized void processPending(
+    BuiltinTopicKey_t key
+  ) {
+    pendingStatistics.retry(key, this::addUpdateValues);
+  }
+
+  private synchronized void expirePending() {
+    pendingStatistics.expire();
+  }
+
+  private BuiltinTopicKey_t addUpdateValues(
     InstanceHandle_t instanceHandle,
     DomainParticipantEntityStatistics sample
   ) {
-    // put instance handle to hash map if not present
-    instanceHandleHashMap.putIfAbsent(
+    // get the version before the description, so labels of a concurrently changed description are resolved again
+    long labelVersion = descriptionProcessorCache.getDomainParticipantDescriptionVersion(sample.participant_key);
+
+    // get description
+    DomainParticipantDescription domainParticipantDescription = descriptionProcessorCache
+      .getDomainParticipantDescription(sample.participant_key);
+    if (domainParticipantDescription == null) {
+      return sample.participant_key;
+    }
+
+    // update values
+    collector.update(
       instanceHandle,
-      getLabelValues(descriptionProcessorCache.getDomainParticipantDescription(sample.participant_key), sample)
+      labelVersion,
+      () -> getLabelValues(
+        domainParticipantDescription,
+        sample
+      ),
+      values -> {
+        // order equals the order the gauges have been added
+        int i = 0;
+        values[i++] = getDurationNanoseconds(sample.process.user_cpu_time);
+        values[i++] = getDurationNanoseconds(sample.process.kernel_cpu_time);
+        values[i++] = sample.process.physical_memory_bytes;
+        values[i++] = sample.process.total_memory_bytes;
+        values[i++] = sample.remoteParticipantCount;
+        values[i++] = sample.remoteWriterCount;
+        values[i++] = sample.remoteReaderCount;
+      }
     );
-
-    // get label values once to improve performance
-    final String[] labelValues = instanceHandleHashMap.get(instanceHandle);
-
-    // update gauges
-    userCpuTime.labels(labelValues).set(getDurationNanoseconds(sample.process.user_cpu_time));
-    kernelCpuTime.labels(labelValues).set(getDurationNanoseconds(sample.process.kernel_cpu_time));
-    physicalMemoryBytes.labels(labelValues).set(sample.process.physical_memory_bytes);
-    totalMemoryBytes.labels(labelValues).set(sample.process.total_memory_bytes);
-    remoteParticipantCount.labels(labelValues).set(sample.remoteParticipantCount);
-    remoteWriterCount.labels(labelValues).set(sample.remoteWriterCount);
-    remoteReaderCount.labels(labelValues).set(sample.remoteReaderCount);
+    return null;
   }
 
-  private void removeLabelsFromGauges(
+  private void removeValues(
     InstanceHandle_t instanceHandle
   ) {
-    // check if remove is necessary
-    if (!instanceHandleHashMap.containsKey(instanceHandle)) {
-      return;
-    }
-
-    // get label values
-    final String[] labelValues = instanceHandleHashMap.get(instanceHandle);
-
-    // remove labels
-    userCpuTime.remove(labelValues);
-    kernelCpuTime.remove(labelValues);
-    physicalMemoryBytes.remove(labelValues);
-    totalMemoryBytes.remove(labelValues);
-    remoteParticipantCount.remove(labelValues);
-    remoteWriterCount.remove(labelValues);
-    remoteReaderCount.remove(labelValues);
-
-    // remove instance from hash map
-    instanceHandleHashMap.remove(instanceHandle);
+    collector.remove(instanceHandle);
   }
 
   private String[] getLabelNames() {
@@ -0,0 +1,607 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.examples.prometheus.monitoring.processors;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import io.github.aguther.dds.examples.prometheus.monitoring.exposition.ExpositionWriter;
+import io.github.aguther.dds.examples.prometheus.monitoring.exposition.StreamingCollector;
+import io.github.aguther.dds.util.InstanceHandleIntMap;
+import io.prometheus.client.Collector;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Collector that keeps the latest values of a set of gauges per instance and creates the metric families only when
+ * they are scraped.
+ * <p>
+ * Every instance gets a dense slot. The values are stored in one primitive column per gauge and the label values in
+ * one column per label, so no objects are kept per instance except the copy of its instance handle. The slots are
+ * looked up with a primitive instance handle map, so they are not boxed. Label values are interned because most of
+ * them (e.g. domain, host or topic) are shared by many instances. Slots of removed instances are reused.
+ * <p>
+ * The label values of an instance are resolved again when they have been resolved with another version of the
+ * descriptions they are derived from, so changed descriptions are reflected in the labels of their instances only.
+ * <p>
+ * Instances that have not been updated for a time to live are evicted, so instances whose dispose has been missed
+ * (e.g. after a restart or a lost sample) do not accumulate. The time of the last update is kept in a column as well,
+ * the column is swept for expired instances at most once per tick when values are updated or collected. A scrape also
+ * runs the scrape listener of the processor before taking the lock, so the processor can expire its own state.
+ * <p>
+ * Besides the gauges, derived values (deltas, rates and smoothed rates of a gauge) can be added. They are computed
+ * when the values of an instance are updated from the previous value and the time elapsed since the previous update,
+ * so they do not need to be computed by every query. A decreasing value is treated like a reset of a counter. Derived
+ * values are NaN until an instance has been updated twice.
+ * <p>
+ * Besides creating the metric families as objects, the collector can write them directly from the columns. In contrast
+ * to {@link #collect()}, the columns are not copied, so the lock is held while the samples are written into the buffer
+ * of the writer and updates wait for it.
+ */
+class LatestValuesCollector extends Collector implements StreamingCollector {
+
+  private static final Interner<String> LABEL_VALUE_INTERNER = Interners.newWeakInterner();
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int NO_SLOT = -1;
+
+  static final long DEFAULT_TIME_TO_LIVE_SECONDS = 300;
+  private static final long TICKS_PER_TIME_TO_LIVE = 60;
+
+  private static final Gauge SERIES = Gauge.build()
+    .name("dds_monitoring_series")
+    .labelNames("processor")
+    .help("Number of series currently exposed.")
+    .register();
+
+  private static final Counter EVICTED_INSTANCES = Counter.build()
+    .name("dds_monitoring_evicted_instances_total")
+    .labelNames("processor")
+    .help("Number of instances evicted because they have not been updated for the time to live.")
+    .register();
+
+  private final List<String> labelNames;
+  private final List<String> names;
+  private final List<String> helps;
+  private final InstanceHandleIntMap slots;
+  private final long timeToLive;
+  private final long tickDuration;
+  private final Gauge.Child series;
+  private final Counter.Child evictedInstances;
+  private final List<Derivation> derivations;
+
+  private InstanceHandle_t[] instanceHandles;
+  private String[][] labelColumns;
+  private long[] labelVersions;
+  private long[] updateTimes;
+  private double[][] valueColumns;
+  private boolean[] occupied;
+  private int[] freeSlots;
+  private int freeSlotCount;
+  private int slotCount;
+  private double[] scratch;
+  private int gaugeCount;
+  private double reportedSeries;
+  private long nextSweepTime;
+  private volatile Runnable scrapeListener;
+
+  LatestValuesCollector(
+    String processor,
+    String[] labelNames
+  ) {
+    this(processor, labelNames, DEFAULT_TIME_TO_LIVE_SECONDS, TimeUnit.SECONDS);
+  }
+
+  LatestValuesCollector(
+    String processor,
+    String[] labelNames,
+    long timeToLive,
+    TimeUnit timeUnit
+  ) {
+    checkNotNull(processor);
+    checkNotNull(labelNames);
+    checkNotNull(timeUnit);
+    this.labelNames = Collections.unmodifiableList(Arrays.asList(labelNames));
+    names = new ArrayList<>();
+    helps = new ArrayList<>();
+    slots = new InstanceHandleIntMap();
+    this.timeToLive = timeUnit.toNanos(timeToLive);
+    tickDuration = Math.max(1, this.timeToLive / TICKS_PER_TIME_TO_LIVE);
+    nextSweepTime = System.nanoTime() + tickDuration;
+    series = SERIES.labels(processor);
+    evictedInstances = EVICTED_INSTANCES.labels(processor);
+    derivations = new ArrayList<>();
+
+    instanceHandles = new InstanceHandle_t[INITIAL_CAPACITY];
+    labelColumns = new String[labelNames.length][INITIAL_CAPACITY];
+    labelVersions = new long[INITIAL_CAPACITY];
+    updateTimes = new long[INITIAL_CAPACITY];
+    valueColumns = new double[0][];
+    occupied = new boolean[INITIAL_CAPACITY];
+    freeSlots = new int[INITIAL_CAPACITY];
+    scratch = new double[0];
+  }
+
+  /**
+   * Adds a gauge, its values are stored at the index equal to the number of gauges added before.
+   *
+   * @param name name of the gauge
+   * @param help help of the gauge
+   * @return this collector
+   */
+  synchronized LatestValuesCollector gauge(
+    String name,
+    String help
+  ) {
+    checkState(derivations.isEmpty(), "Gauges must be added before derived values");
+    addColumn(name, help);
+    gaugeCount++;
+    scratch = new double[gaugeCount];
+    return this;
+  }
+
+  /**
+   * Adds the difference of a gauge to its previous value.
+   *
+   * @param name  name of the derived value
+   * @param help  help of the derived value
+   * @param gauge name of the gauge it is derived from
+   * @return this collector
+   */
+  synchronized LatestValuesCollector delta(
+    String name,
+    String help,
+    String gauge
+  ) {
+    return derive(name, help, gauge, Derivation.Kind.DELTA, 0);
+  }
+
+  /**
+   * Adds the rate per second of a gauge.
+   *
+   * @param name  name of the derived value
+   * @param help  help of the derived value
+   * @param gauge name of the gauge it is derived from
+   * @return this collector
+   */
+  synchronized LatestValuesCollector rate(
+    String name,
+    String help,
+    String gauge
+  ) {
+    return derive(name, help, gauge, Derivation.Kind.RATE, 0);
+  }
+
+  /**
+   * Adds the rate per second of a gauge smoothed by an exponentially weighted moving average.
+   *
+   * @param name         name of the derived value
+   * @param help         help of the derived value
+   * @param gauge        name of the gauge it is derived from
+   * @param timeConstant time after which the weight of a rate has decayed to 1/e
+   * @param timeUnit     unit of the time constant
+   * @return this collector
+   */
+  synchronized LatestValuesCollector smoothedRate(
+    String name,
+    String help,
+    String gauge,
+    long timeConstant,
+    TimeUnit timeUnit
+  ) {
+    checkArgument(timeConstant > 0, "Time constant is expected > 0");
+    return derive(name, help, gauge, Derivation.Kind.SMOOTHED_RATE, timeUnit.toNanos(timeConstant));
+  }
+
+  /**
+   * Sets a listener that is run by every scrape before the lock of the collector is taken, so it may take the lock of
+   * the processor that updates this collector.
+   *
+   * @param scrapeListener listener
+   */
+  void setScrapeListener(
+    Runnable scrapeListener
+  ) {
+    this.scrapeListener = checkNotNull(scrapeListener);
+  }
+
+  /**
+   * Updates the values of an instance.
+   *
+   * @param instanceHandle instance handle
+   * @param labelVersion   version of the descriptions the label values are derived from
+   * @param labelValues    supplier of the label values (only invoked for a new instance or another version)
+   * @param writer         writes the values into the array (in the order the gauges have been added)
+   */
+  synchronized void update(
+    InstanceHandle_t instanceHandle,
+    long labelVersion,
+    Supplier<String[]> labelValues,
+    Consumer<double[]> writer
+  ) {
+    // evict expired instances
+    long now = System.nanoTime();
+    expire(now);
+
+    // get slot of instance or assign a new one
+    int slot = slots.get(instanceHandle, NO_SLOT);
+    if (slot == NO_SLOT) {
+      slot = allocateSlot();
+      slots.put(instanceHandle, slot);
+      // the handle is copied because it may be a loaned one
+      instanceHandles[slot] = new InstanceHandle_t(instanceHandle);
+      setLabelValues(slot, labelVersion, labelValues.get());
+      updateSeries();
+    }
+
+    // resolve label values again if the descriptions have changed
+    if (labelVersions[slot] != labelVersion) {
+      setLabelValues(slot, labelVersion, labelValues.get());
+    }
+
+    // get values, derived values are computed before the previous values are overwritten
+    writer.accept(scratch);
+    derive(slot, now);
+
+    // write values into the columns
+    for (int i = 0; i < scratch.length; i++) {
+      valueColumns[i][slot] = scratch[i];
+    }
+    updateTimes[slot] = now;
+  }
+
+  /**
+   * Removes the values of an instance.
+   *
+   * @param instanceHandle instance handle
+   */
+  synchronized void remove(
+    InstanceHandle_t instanceHandle
+  ) {
+    int slot = slots.remove(instanceHandle, NO_SLOT);
+    if (slot == NO_SLOT) {
+      return;
+    }
+
+    // release instance handle and label values and make slot available again
+    instanceHandles[slot] = null;
+    for (String[] labelColumn : labelColumns) {
+      labelColumn[slot] = null;
+    }
+    occupied[slot] = false;
+    freeSlots[freeSlotCount++] = slot;
+    updateSeries();
+  }
+
+  @Override
+  public List<MetricFamilySamples> collect() {
+    runScrapeListener();
+
+    // copy the columns, so samples are created without holding the lock
+    String[][] labels;
+    double[][] values;
+    boolean[] used;
+    int count;
+    synchronized (this) {
+      expire(System.nanoTime());
+      count = slotCount;
+      labels = new String[labelColumns.length][];
+      for (int i = 0; i < labelColumns.length; i++) {
+        labels[i] = Arrays.copyOf(labelColumns[i], count);
+      }
+      values = new double[valueColumns.length][];
+      for (int i = 0; i < valueColumns.length; i++) {
+        values[i] = Arrays.copyOf(valueColumns[i], count);
+      }
+      used = Arrays.copyOf(occupied, count);
+    }
+
+    // create label values of the used slots once, they are shared by all gauges
+    List<List<String>> labelValues = new ArrayList<>(count);
+    for (int slot = 0; slot < count; slot++) {
+      if (used[slot]) {
+        String[] row = new String[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+          row[i] = labels[i][slot];
+        }
+        labelValues.add(Arrays.asList(row));
+      } else {
+        labelValues.add(null);
+      }
+    }
+
+    // create metric families by iterating the columns
+    List<MetricFamilySamples> metricFamilySamples = new ArrayList<>(names.size());
+    for (int i = 0; i < values.length; i++) {
+      List<MetricFamilySamples.Sample> samples = new ArrayList<>(count);
+      for (int slot = 0; slot < count; slot++) {
+        if (used[slot]) {
+          samples.add(new MetricFamilySamples.Sample(names.get(i), labelNames, labelValues.get(slot), values[i][slot]));
+        }
+      }
+      metricFamilySamples.add(new MetricFamilySamples(names.get(i), Type.GAUGE, helps.get(i), samples));
+    }
+    return metricFamilySamples;
+  }
+
+  /**
+   * Writes the metric families directly from the columns. The lock is held while writing to avoid copying the columns,
+   * this only renders into the buffer of the writer, the response is sent after the lock has been released.
+   *
+   * @param writer writer to write to
+   */
+  @Override
+  public void write(
+    ExpositionWriter writer
+  ) {
+    runScrapeListener();
+
+    synchronized (this) {
+      expire(System.nanoTime());
+
+      for (int i = 0; i < valueColumns.length; i++) {
+        if (writer.family(names.get(i), helps.get(i), Type.GAUGE)) {
+          writeSamples(writer, i);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the names of the gauges and derived values, in the order they have been added.
+   *
+   * @return names
+   */
+  synchronized List<String> getNames() {
+    return Collections.unmodifiableList(new ArrayList<>(names));
+  }
+
+  /**
+   * Returns the help of a gauge or derived value.
+   *
+   * @param index index of the gauge or derived value
+   * @return help
+   */
+  synchronized String getHelp(
+    int index
+  ) {
+    return helps.get(index);
+  }
+
+  /**
+   * Evicts the expired instances, so they are not written by {@link #writeSamples(ExpositionWriter, int)}.
+   */
+  void expire() {
+    runScrapeListener();
+
+    synchronized (this) {
+      expire(System.nanoTime());
+    }
+  }
+
+  /**
+   * Writes the samples of a gauge or derived value without starting its family.
+   *
+   * @param writer writer to write to
+   * @param index  index of the gauge or derived value
+   */
+  synchronized void writeSamples(
+    ExpositionWriter writer,
+    int index
+  ) {
+    String[] row = new String[labelColumns.length];
+    double[] valueColumn = valueColumns[index];
+    for (int slot = 0; slot < slotCount; slot++) {
+      if (occupied[slot]) {
+        for (int j = 0; j < row.length; j++) {
+          row[j] = labelColumns[j][slot];
+        }
+        writer.sample(names.get(index), labelNames, row, valueColumn[slot]);
+      }
+    }
+  }
+
+  private LatestValuesCollector derive(
+    String name,
+    String help,
+    String gauge,
+    Derivation.Kind kind,
+    long timeConstant
+  ) {
+    int source = names.indexOf(gauge);
+    checkArgument(source >= 0 && source < gaugeCount, "Gauge '%s' is unknown", gauge);
+    addColumn(name, help);
+    derivations.add(new Derivation(kind, source, timeConstant));
+    return this;
+  }
+
+  private void derive(
+    int slot,
+    long now
+  ) {
+    boolean first = updateTimes[slot] == 0;
+    long elapsed = now - updateTimes[slot];
+    for (int i = 0; i < derivations.size(); i++) {
+      Derivation derivation = derivations.get(i);
+      double[] column = valueColumns[gaugeCount + i];
+
+      // a new instance has no previous value, an update without elapsed time keeps the previous result
+      if (first) {
+        column[slot] = Double.NaN;
+        continue;
+      }
+      if (elapsed <= 0) {
+        continue;
+      }
+
+      // a decreasing value is a reset, so the value itself is the difference
+      double current = scratch[derivation.source];
+      double previous = valueColumns[derivation.source][slot];
+      double delta = current >= previous ? current - previous : current;
+      double rate = delta * TimeUnit.SECONDS.toNanos(1) / elapsed;
+
+      switch (derivation.kind) {
+        case DELTA:
+          column[slot] = delta;
+          break;
+        case RATE:
+          column[slot] = rate;
+          break;
+        case SMOOTHED_RATE:
+          if (Double.isNaN(column[slot])) {
+            column[slot] = rate;
+          } else {
+            column[slot] += (1 - Math.exp(-(double) elapsed / derivation.timeConstant)) * (rate - column[slot]);
+          }
+          break;
+        default:
+          throw new IllegalStateException("Unknown derivation: " + derivation.kind);
+      }
+    }
+  }
+
+  private void addColumn(
+    String name,
+    String help
+  ) {
+    checkState(slotCount == 0, "Gauges must be added before values are updated");
+    names.add(name);
+    helps.add(help);
+    valueColumns = Arrays.copyOf(valueColumns, names.size());
+    valueColumns[names.size() - 1] = new double[occupied.length];
+  }
+
+  private void runScrapeListener() {
+    Runnable listener = scrapeListener;
+    if (listener != null) {
+      listener.run();
+    }
+  }
+
+  private void expire(
+    long now
+  ) {
+    // sweep at most once per tick, so the columns are not scanned by every update
+    if (now - nextSweepTime < 0) {
+      return;
+    }
+    nextSweepTime = now + tickDuration;
+
+    int expired = 0;
+    for (int slot = 0; slot < slotCount; slot++) {
+      if (occupied[slot] && now - updateTimes[slot] >= timeToLive) {
+        remove(instanceHandles[slot]);
+        expired++;
+      }
+    }
+    if (expired > 0) {
+      evictedInstances.inc(expired);
+    }
+  }
+
+  private void updateSeries() {
+    // the gauge is changed by the difference, so collectors of several processors with the same name add up
+    double current = (double) slots.size() * names.size();
+    series.inc(current - reportedSeries);
+    reportedSeries = current;
+  }
+
+  private int allocateSlot() {
+    // reuse a free slot or append a new one
+    int slot;
+    if (freeSlotCount > 0) {
+      slot = freeSlots[--freeSlotCount];
+    } else {
+      if (slotCount == occupied.length) {
+        grow();
+      }
+      slot = slotCount++;
+    }
+
+    occupied[slot] = true;
+    updateTimes[slot] = 0;
+    return slot;
+  }
+
+  private void setLabelValues(
+    int slot,
+    long labelVersion,
+    String[] labelValues
+  ) {
+    // store interned label values
+    for (int i = 0; i < labelColumns.length; i++) {
+      labelColumns[i][slot] = labelValues[i] != null ? LABEL_VALUE_INTERNER.intern(labelValues[i]) : null;
+    }
+    labelVersions[slot] = labelVersion;
+  }
+
+  private void grow() {
+    int capacity = occupied.length << 1;
+    instanceHandles = Arrays.copyOf(instanceHandles, capacity);
+    for (int i = 0; i < labelColumns.length; i++) {
+      labelColumns[i] = Arrays.copyOf(labelColumns[i], capacity);
+    }
+    for (int i = 0; i < valueColumns.length; i++) {
+      valueColumns[i] = Arrays.copyOf(valueColumns[i], capacity);
+    }
+    labelVersions = Arrays.copyOf(labelVersions, capacity);
+    updateTimes = Arrays.copyOf(updateTimes, capacity);
+    occupied = Arrays.copyOf(occupied, capacity);
+    freeSlots = Arrays.copyOf(freeSlots, capacity);
+  }
+
+  private static class Derivation {
+
+    private enum Kind {
+      DELTA,
+      RATE,
+      SMOOTHED_RATE
+    }
+
+    private final Kind kind;
+    private final int source;
+    private final long timeConstant;
+
+    Derivation(
+      Kind kind,
+      int source,
+      long timeConstant
+    ) {
+      this.kind = kind;
+      this.source = source;
+      this.timeConstant = timeConstant;
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.examples.prometheus.monitoring.processors;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.github.aguther.dds.examples.prometheus.monitoring.exposition.ExpositionWriter;
+import io.github.aguther.dds.examples.prometheus.monitoring.exposition.StreamingCollector;
+import io.prometheus.client.Collector.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming collector that writes the collectors of several processors of the same kind (e.g. of one processor per
+ * domain) as if they were one collector.
+ * <p>
+ * Every metric family is written once with the samples of all collectors, as a family must not be exposed more than
+ * once. The label values of the processors are expected to distinguish their series (e.g. by the domain id).
+ */
+public class MergingCollector implements StreamingCollector {
+
+  private final List<LatestValuesCollector> collectors;
+  private final List<String> names;
+
+  /**
+   * Instantiates a new merging collector.
+   *
+   * @param collectors collectors returned by processors of the same kind
+   */
+  public MergingCollector(
+    List<StreamingCollector> collectors
+  ) {
+    checkNotNull(collectors, "Collectors must not be null");
+    checkArgument(!collectors.isEmpty(), "Collectors must not be empty");
+
+    this.collectors = new ArrayList<>(collectors.size());
+    for (StreamingCollector collector : collectors) {
+      checkArgument(collector instanceof LatestValuesCollector, "Collector of a processor is expected");
+      this.collectors.add((LatestValuesCollector) collector);
+    }
+    names = this.collectors.get(0).getNames();
+    for (LatestValuesCollector collector : this.collectors) {
+      checkArgument(names.equals(collector.getNames()), "Collectors of the same kind are expected");
+    }
+  }
+
+  @Override
+  public void write(
+    ExpositionWriter writer
+  ) {
+    for (LatestValuesCollector collector : collectors) {
+      collector.expire();
+    }
+
+    for (int i = 0; i < names.size(); i++) {
+      if (!writer.family(names.get(i), collectors.get(0).getHelp(i), Type.GAUGE)) {
+        continue;
+      }
+      for (LatestValuesCollector collector : collectors) {
+        collector.writeSamples(writer, i);
+      }
+    }
+  }
+}
@@ -0,0 +1,304 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.examples.prometheus.monitoring.processors;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.esotericsoftware.reflectasm.ConstructorAccess;
+import com.rti.dds.infrastructure.Copyable;
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import idl.DDSMonitoring.BuiltinTopicKey_t;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Buffer for statistics samples that arrived before the descriptions needed to resolve their labels.
+ * <p>
+ * The latest sample of every instance is copied and kept until the descriptions are available. Samples are indexed by
+ * the key of the description they are missing, so when a description arrives only the samples waiting for it are
+ * processed again by {@link #retry(BuiltinTopicKey_t, BiFunction)}. Samples are dropped after a timeout or when the
+ * buffer is full, so neither the time nor the memory a sample can be kept is unbounded. All of these cases are counted
+ * as join metrics, labeled with the name of the processor.
+ * <p>
+ * This class is not thread-safe, it is guarded by the processor using it.
+ *
+ * @param <T> type of the statistics
+ */
+class PendingStatistics<T extends Copyable> {
+
+  static final long DEFAULT_TIMEOUT_SECONDS = 30;
+  static final int DEFAULT_CAPACITY = 10000;
+
+  private static final Counter JOIN_MISSES = Counter.build()
+    .name("dds_monitoring_label_join_misses_total")
+    .labelNames("processor")
+    .help("Number of statistics samples whose descriptions have not been available when they were processed.")
+    .register();
+
+  private static final Counter JOIN_RESOLVED = Counter.build()
+    .name("dds_monitoring_label_join_resolved_total")
+    .labelNames("processor")
+    .help("Number of buffered statistics samples processed after their descriptions became available.")
+    .register();
+
+  private static final Counter JOIN_DROPPED = Counter.build()
+    .name("dds_monitoring_label_join_dropped_total")
+    .labelNames("processor", "reason")
+    .help("Number of buffered statistics samples dropped because their descriptions did not become available.")
+    .register();
+
+  private static final Gauge JOIN_PENDING = Gauge.build()
+    .name("dds_monitoring_label_join_pending_samples")
+    .labelNames("processor")
+    .help("Number of statistics samples currently waiting for their descriptions.")
+    .register();
+
+  private final ConstructorAccess<T> constructorAccess;
+  private final long timeoutNanos;
+  private final int capacity;
+  private final LinkedHashMap<InstanceHandle_t, Pending<T>> pending;
+  private final HashMap<BuiltinTopicKey_t, Set<Pending<T>>> waiting;
+
+  private final Counter.Child misses;
+  private final Counter.Child resolved;
+  private final Counter.Child expired;
+  private final Counter.Child evicted;
+  private final Gauge.Child pendingCount;
+  private int reportedPendingCount;
+
+  PendingStatistics(
+    String processor,
+    Class<T> clazz
+  ) {
+    this(processor, clazz, DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS, DEFAULT_CAPACITY);
+  }
+
+  PendingStatistics(
+    String processor,
+    Class<T> clazz,
+    long timeout,
+    TimeUnit timeUnit,
+    int capacity
+  ) {
+    checkNotNull(processor);
+    checkNotNull(clazz);
+    checkNotNull(timeUnit);
+    checkArgument(timeout >= 0, "Timeout must not be negative");
+    checkArgument(capacity >= 0, "Capacity must not be negative");
+
+    constructorAccess = ConstructorAccess.get(clazz);
+    timeoutNanos = timeUnit.toNanos(timeout);
+    this.capacity = capacity;
+    pending = new LinkedHashMap<>();
+    waiting = new HashMap<>();
+
+    misses = JOIN_MISSES.labels(processor);
+    resolved = JOIN_RESOLVED.labels(processor);
+    expired = JOIN_DROPPED.labels(processor, "expired");
+    evicted = JOIN_DROPPED.labels(processor, "evicted");
+    pendingCount = JOIN_PENDING.labels(processor);
+  }
+
+  /**
+   * Buffers a copy of a sample whose descriptions are not available, replacing an older sample of the instance.
+   *
+   * @param instanceHandle instance handle
+   * @param sample         sample (it is copied, so it may be a loaned sample)
+   * @param missingKey     key of the description that is missing (it is copied, so it may be part of the sample)
+   */
+  void add(
+    InstanceHandle_t instanceHandle,
+    T sample,
+    BuiltinTopicKey_t missingKey
+  ) {
+    misses.inc();
+
+    long now = System.nanoTime();
+    expire(now);
+
+    // reuse the entry of the instance, it is moved to the end to keep the entries ordered by deadline
+    Pending<T> entry = pending.remove(instanceHandle);
+    if (entry != null) {
+      stopWaiting(entry);
+    } else {
+      if (capacity == 0) {
+        evicted.inc();
+        return;
+      }
+      if (pending.size() == capacity) {
+        evictEldest();
+      }
+      entry = new Pending<>(new InstanceHandle_t(instanceHandle), constructorAccess.newInstance());
+    }
+    entry.sample.copy_from(sample);
+    entry.deadline = now + timeoutNanos;
+    pending.put(entry.instanceHandle, entry);
+    startWaiting(entry, missingKey);
+    updatePendingCount();
+  }
+
+  /**
+   * Removes the buffered sample of an instance.
+   *
+   * @param instanceHandle instance handle
+   */
+  void remove(
+    InstanceHandle_t instanceHandle
+  ) {
+    if (pending.isEmpty()) {
+      return;
+    }
+    Pending<T> entry = pending.remove(instanceHandle);
+    if (entry != null) {
+      stopWaiting(entry);
+      updatePendingCount();
+    }
+  }
+
+  /**
+   * Processes the buffered samples waiting for a description again, samples that have been processed are removed.
+   * Samples that are still missing another description wait for that one instead.
+   *
+   * @param key       key of the description that has been added or changed
+   * @param processor processes a sample and returns the key of a missing description or null if all descriptions
+   *                  have been available
+   */
+  void retry(
+    BuiltinTopicKey_t key,
+    BiFunction<InstanceHandle_t, T, BuiltinTopicKey_t> processor
+  ) {
+    if (pending.isEmpty()) {
+      return;
+    }
+
+    long now = System.nanoTime();
+    expire(now);
+
+    Set<Pending<T>> entries = waiting.remove(key);
+    if (entries == null) {
+      return;
+    }
+    for (Pending<T> entry : entries) {
+      entry.missingKey = null;
+      BuiltinTopicKey_t missingKey = processor.apply(entry.instanceHandle, entry.sample);
+      if (missingKey == null) {
+        pending.remove(entry.instanceHandle);
+        resolved.inc();
+      } else {
+        startWaiting(entry, missingKey);
+      }
+    }
+    updatePendingCount();
+  }
+
+  /**
+   * Drops the samples whose timeout elapsed, so they are also dropped when no samples or descriptions arrive.
+   */
+  void expire() {
+    if (pending.isEmpty()) {
+      return;
+    }
+    expire(System.nanoTime());
+  }
+
+  private void expire(
+    long now
+  ) {
+    // entries are ordered by deadline, so only the eldest entries need to be checked
+    Iterator<Pending<T>> iterator = pending.values().iterator();
+    while (iterator.hasNext()) {
+      Pending<T> entry = iterator.next();
+      if (entry.deadline - now > 0) {
+        break;
+      }
+      iterator.remove();
+      stopWaiting(entry);
+      expired.inc();
+    }
+    updatePendingCount();
+  }
+
+  private void updatePendingCount() {
+    // the gauge is changed by the difference, so buffers of several processors with the same name add up
+    pendingCount.inc((double) pending.size() - reportedPendingCount);
+    reportedPendingCount = pending.size();
+  }
+
+  private void evictEldest() {
+    Iterator<Pending<T>> iterator = pending.values().iterator();
+    Pending<T> entry = iterator.next();
+    iterator.remove();
+    stopWaiting(entry);
+    evicted.inc();
+  }
+
+  private void startWaiting(
+    Pending<T> entry,
+    BuiltinTopicKey_t missingKey
+  ) {
+    // the key is copied because it may be part of a loaned sample or of the sample of the entry that is reused
+    BuiltinTopicKey_t key = new BuiltinTopicKey_t();
+    key.copy_from(missingKey);
+    entry.missingKey = key;
+    waiting.computeIfAbsent(key, k -> new HashSet<>()).add(entry);
+  }
+
+  private void stopWaiting(
+    Pending<T> entry
+  ) {
+    if (entry.missingKey == null) {
+      return;
+    }
+    Set<Pending<T>> entries = waiting.get(entry.missingKey);
+    if (entries != null && entries.remove(entry) && entries.isEmpty()) {
+      waiting.remove(entry.missingKey);
+    }
+    entry.missingKey = null;
+  }
+
+  private static class Pending<T> {
+
+    private final InstanceHandle_t instanceHandle;
+    private final T sample;
+    private long deadline;
+    private BuiltinTopicKey_t missingKey;
+
+    Pending(
+      InstanceHandle_t instanceHandle,
+      T sample
+    ) {
+      this.instanceHandle = instanceHandle;
+      this.sample = sample;
+    }
+  }
+}
@@ -29,96 +29,133 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 import com.rti.dds.subscription.InstanceStateKind;
 import com.rti.dds.subscription.SampleInfo;
+import idl.DDSMonitoring.BuiltinTopicKey_t;
 import idl.rti.dds.monitoring.DomainParticipantDescription;
 import idl.rti.dds.monitoring.TopicDescription;
 import idl.rti.dds.monitoring.TopicEntityStatistics;
+import io.github.aguther.dds.examples.prometheus.monitoring.exposition.StreamingCollector;
 import io.github.aguther.dds.util.BuiltinTopicHelper;
-import io.prometheus.client.Gauge;
-import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
 
 public class TopicMetricsProcessor {
 
-  private final DescriptionProcessorCache descriptionProcessorCache;
-  private final HashMap<InstanceHandle_t, String[]> instanceHandleHashMap;
+  private static final String PROCESSOR_NAME = "topic";
 
-  private final Gauge tcSerializedSize;
-  private final Gauge inconsistentTopicStatusTotalCount;
+  private final DescriptionProcessorCache descriptionProcessorCache;
+  private final LatestValuesCollector collector;
+  private final PendingStatistics<TopicEntityStatistics> pendingStatistics;
 
   public TopicMetricsProcessor(
     DescriptionProcessorCache descriptionProcessorCache
+  ) {
+    this(descriptionProcessorCache, LatestValuesCollector.DEFAULT_TIME_TO_LIVE_SECONDS, TimeUnit.SECONDS);
+  }
+
+  public TopicMetricsProcessor(
+    DescriptionProcessorCache descriptionProcessorCache,
+    long timeToLive,
+    TimeUnit timeUnit
   ) {
     checkNotNull(descriptionProcessorCache);
     this.descriptionProcessorCache = descriptionProcessorCache;
-    instanceHandleHashMap = new HashMap<>();
-
-    tcSerializedSize = Gauge.build()
-      .name("dds_topic_type_serialized_size_bytes")
-      .labelNames(getLabelNames())
-      .help("dds_topic_type_serialized_size_bytes")
-      .register();
-
-    inconsistentTopicStatusTotalCount = Gauge.build()
-      .name("dds_topic_inconsistent_topic_status_total_count")
-      .labelNames(getLabelNames())
-      .help("dds_topic_inconsistent_topic_status_total_count")
-      .register();
+    pendingStatistics = new PendingStatistics<>(
+      PROCESSOR_NAME,
+      TopicEntityStatistics.class
+    );
+
+    collector = new LatestValuesCollector(PROCESSOR_NAME, getLabelNames(), timeToLive, timeUnit)
+      .gauge(
+        "dds_topic_type_serialized_size_bytes",
+        "dds_topic_type_serialized_size_bytes")
+      .gauge(
+        "dds_topic_inconsistent_topic_status_total_count",
+        "dds_topic_inconsistent_topic_status_total_count");
+
+    // process pending statistics when the description they are missing becomes available
+    descriptionProcessorCache.addListener(this::processPending);
+
+    // expire pending statistics on scrape, so they are also dropped when no samples arrive
+    collector.setScrapeListener(this::expirePending);
   }
 
-  public void process(
+  public StreamingCollector getCollector() {
+    return collector;
+  }
+
+  public synchronized void process(
     TopicEntityStatistics sample,
     SampleInfo info
   ) {
     if ((info.instance_state == InstanceStateKind.ALIVE_INSTANCE_STATE)
-      && (info.valid_data)
-      && (descriptionProcessorCache.getDomainParticipantDescription(sample.participant_key) != null)
-      && (descriptionProcessorCache.getTopicDescription(sample.topic_key) != null)) {
-      // add / update values
-      addUpdateGaugesForLabel(info.instance_handle, sample);
+      && (info.valid_data)) {
+      // add / update values or keep the sample until the missing description is available
+      BuiltinTopicKey_t missingKey = addUpdateValues(info.instance_handle, sample);
+      if (missingKey == null) {
+        pendingStatistics.remove(info.instance_handle);
+      } else {
+        removeValues(info.instance_handle);
+        pendingStatistics.add(info.instance_handle, sample, missingKey);
+      }
     } else {
       // remove values
-      removeLabelsFromGauges(info.instance_handle);
+      pendingStatistics.remove(info.instance_handle);
+      removeValues(info.instance_handle);
     }
   }
 
-  private void addUpdateGaugesForLabel(
+  private synchronized void processPending(
+    BuiltinTopicKey_t key
+  ) {
+    pendingStatistics.retry(key, this::addUpdateValues);
+  }
+
+  private synchronized void expirePending() {
+    pendingStatistics.expire();
+  }
+
+  private BuiltinTopicKey_t addUpdateValues(
     InstanceHandle_t instanceHandle,
     TopicEntityStatistics sample
   ) {
-    // put instance handle to hash map if not present
-    instanceHandleHashMap.putIfAbsent(
+    // get the versions before the descriptions, so labels of a concurrently changed description are resolved again
+    long labelVersion = Math.max(
+      descriptionProcessorCache.getDomainParticipantDescriptionVersion(sample.participant_key),
+      descriptionProcessorCache.getTopicDescriptionVersion(sample.topic_key));
+
+    // get descriptions
+    DomainParticipantDescription domainParticipantDescription = descriptionProcessorCache
+      .getDomainParticipantDescription(sample.participant_key);
+    TopicDescription topicDescription = descriptionProcessorCache
+      .getTopicDescription(sample.topic_key);
+    if (domainParticipantDescription == null) {
+      return sample.participant_key;
+    }
+    if (topicDescription == null) {
+      return sample.topic_key;
+    }
+
+    // update values
+    collector.update(
       instanceHandle,
-      getLabelValues(
-        descriptionProcessorCache.getDomainParticipantDescription(sample.participant_key),
-        descriptionProcessorCache.getTopicDescription(sample.topic_key)
-      )
+      labelVersion,
+      () -> getLabelValues(
+        domainParticipantDescription,
+        topicDescription
+      ),
+      values -> {
+        // order equals the order the gauges have been added
+        int i = 0;
+        values[i++] = topicDescription.tc_serialized_size;
+        values[i++] = sample.inconsistent_topic_status.status.total_count;
+      }
     );
-
-    // get label values once to improve performance
-    final String[] labelValues = instanceHandleHashMap.get(instanceHandle);
-
-    // update gauges
-    TopicDescription topicDescription = descriptionProcessorCache.getTopicDescription(sample.topic_key);
-    tcSerializedSize.labels(labelValues).set(topicDescription.tc_serialized_size);
-    inconsistentTopicStatusTotalCount.labels(labelValues).set(sample.inconsistent_topic_status.status.total_count);
+    return null;
   }
 
-  private void removeLabelsFromGauges(
+  private void removeValues(
     InstanceHandle_t instanceHandle
   ) {
-    // check if remove is necessary
-    if (!instanceHandleHashMap.containsKey(instanceHandle)) {
-      return;
-    }
-
-    // get label values
-    final String[] labelValues = instanceHandleHashMap.get(instanceHandle);
-
-    // remove labels
-    tcSerializedSize.remove(labelValues);
-    inconsistentTopicStatusTotalCount.remove(labelValues);
-
-    // remove instance from hash map
-    instanceHandleHashMap.remove(instanceHandle);
+    collector.remove(instanceHandle);
   }
 
   private String[] getLabelNames() {
@@ -44,11 +44,14 @@ import idl.RTI.Service.Monitoring.PeriodicTypeSupport;
 import io.github.aguther.dds.examples.prometheus.routing.processors.ConfigEventProcessorCache;
 import io.github.aguther.dds.examples.prometheus.routing.processors.PeriodicProcessor;
 import io.github.aguther.dds.logging.Slf4jDdsLogger;
-import io.github.aguther.dds.support.subscription.DataReaderWatcher;
+import io.github.aguther.dds.support.subscription.MultiplexingDataReaderWatcher;
 import io.github.aguther.dds.support.subscription.SampleTaker;
 import io.github.aguther.dds.support.subscription.SampleWithInfoCopier;
 import io.prometheus.client.exporter.HTTPServer;
 import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -56,28 +59,60 @@ public class Collector extends AbstractIdleService {
 
   private static final Logger LOGGER = LogManager.getLogger(
     Collector.class);
+  private static final int WORKER_COUNT = 1;
+  private static final long EXPIRE_PERIOD_SECONDS = 5;
+  private static final String PROPERTY_TIME_TO_LIVE_SECONDS = "routing.time_to_live_seconds";
 
   private static Collector serviceInstance;
 
+  private final long timeToLive;
+  private final TimeUnit timeUnit;
+
   private DomainParticipant domainParticipant;
 
   private HTTPServer httpServer;
 
-  private DataReaderWatcher<Config> dataReaderWatcherConfig;
-  private DataReaderWatcher<Event> dataReaderWatcherEvent;
-  private DataReaderWatcher<Periodic> dataReaderWatcherPeriodic;
+  private MultiplexingDataReaderWatcher dataReaderWatcher;
+  private ScheduledExecutorService expireExecutorService;
 
   private ConfigEventProcessorCache configEventProcessorCache;
   private PeriodicProcessor periodicProcessor;
 
+  /**
+   * Instantiates a new collector with the default time to live.
+   */
+  public Collector() {
+    this(PeriodicProcessor.DEFAULT_TIME_TO_LIVE_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Instantiates a new collector.
+   *
+   * @param timeToLive time after which instances that have not been updated are evicted
+   * @param timeUnit   unit of the time to live
+   */
+  public Collector(
+    final long timeToLive,
+    final TimeUnit timeUnit
+  ) {
+    this.timeToLive = timeToLive;
+    this.timeUnit = timeUnit;
+  }
+
   public static void main(
     final String[] args
   ) {
     // register shutdown hook
     registerShutdownHook();
 
+    // the time to live of the instances can be configured with a system property
+    long timeToLiveSeconds = Long.getLong(
+      PROPERTY_TIME_TO_LIVE_SECONDS,
+      PeriodicProcessor.DEFAULT_TIME_TO_LIVE_SECONDS
+    );
+
     // create service
-    serviceInstance = new Collector();
+    serviceInstance = new Collector(timeToLiveSeconds, TimeUnit.SECONDS);
 
     // start the service
     serviceInstance.startAsync();
@@ -113,7 +148,7 @@ public class Collector extends AbstractIdleService {
 
     // create metrics processors
     configEventProcessorCache = new ConfigEventProcessorCache();
-    periodicProcessor = new PeriodicProcessor(configEventProcessorCache);
+    periodicProcessor = new PeriodicProcessor(configEventProcessorCache, timeToLive, timeUnit);
 
     // startup DDS
     startupDds();
@@ -179,7 +214,10 @@ public class Collector extends AbstractIdleService {
     readConditionParams.view_states = ViewStateKind.ANY_VIEW_STATE;
     readConditionParams.sample_states = SampleStateKind.NOT_READ_SAMPLE_STATE;
 
-    dataReaderWatcherConfig = new DataReaderWatcher<>(
+    // watch all data readers with a single wait set
+    dataReaderWatcher = new MultiplexingDataReaderWatcher(WORKER_COUNT);
+
+    dataReaderWatcher.<Config>watch(
       domainParticipant.lookup_datareader_by_name("Subscriber::Config"),
       readConditionParams,
       new SampleTaker<>(new ConfigSeq()),
@@ -188,7 +226,7 @@ public class Collector extends AbstractIdleService {
           configEventProcessorCache.process(sample, info)
       )
     );
-    dataReaderWatcherEvent = new DataReaderWatcher<>(
+    dataReaderWatcher.<Event>watch(
       domainParticipant.lookup_datareader_by_name("Subscriber::Event"),
       readConditionParams,
       new SampleTaker<>(new EventSeq()),
@@ -197,29 +235,42 @@ public class Collector extends AbstractIdleService {
           configEventProcessorCache.process(sample, info)
       )
     );
-    dataReaderWatcherPeriodic = new DataReaderWatcher<>(
+    dataReaderWatcher.<Periodic>watch(
       domainParticipant.lookup_datareader_by_name("Subscriber::Periodic"),
       readConditionParams,
       new SampleTaker<>(new PeriodicSeq()),
-      new SampleWithInfoCopier<>(Periodic.class,
-        (dataReader, sample, info) ->
-          periodicProcessor.process(sample, info)
-      )
+      // periodic samples are not kept by the processor, so they are not copied
+      (dataReader, sample, info) ->
+        periodicProcessor.process(sample, info)
+    );
+
+    // evict instances periodically, also when no samples are received anymore
+    expireExecutorService = Executors.newSingleThreadScheduledExecutor();
+    expireExecutorService.scheduleAtFixedRate(
+      this::expirePeriodic,
+      EXPIRE_PERIOD_SECONDS,
+      EXPIRE_PERIOD_SECONDS,
+      TimeUnit.SECONDS
     );
   }
 
-  private void stopSubscription() {
-    if (dataReaderWatcherConfig != null) {
-      dataReaderWatcherConfig.close();
-      dataReaderWatcherConfig = null;
+  private void expirePeriodic() {
+    // an exception would cancel all further runs of the scheduled task, so it is only logged
+    try {
+      periodicProcessor.expire();
+    } catch (RuntimeException ex) {
+      LOGGER.error("Failed to evict expired periodic instances", ex);
     }
-    if (dataReaderWatcherEvent != null) {
-      dataReaderWatcherEvent.close();
-      dataReaderWatcherEvent = null;
+  }
+
+  private void stopSubscription() {
+    if (expireExecutorService != null) {
+      expireExecutorService.shutdownNow();
+      expireExecutorService = null;
     }
-    if (dataReaderWatcherPeriodic != null) {
-      dataReaderWatcherPeriodic.close();
-      dataReaderWatcherPeriodic = null;
+    if (dataReaderWatcher != null) {
+      dataReaderWatcher.close();
+      dataReaderWatcher = null;
     }
 
     if (httpServer != null) {
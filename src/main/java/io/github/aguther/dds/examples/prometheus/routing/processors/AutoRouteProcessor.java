@@ -24,19 +24,16 @@
 
 package io.github.aguther.dds.examples.prometheus.routing.processors;
 
-import com.rti.dds.infrastructure.InstanceHandle_t;
 import idl.RTI.RoutingService.Monitoring.AutoRouteConfig;
 import idl.RTI.RoutingService.Monitoring.AutoRouteEvent;
 import idl.RTI.RoutingService.Monitoring.AutoRoutePeriodic;
+import idl.RTI.Service.Monitoring.Periodic;
 import io.github.aguther.dds.examples.prometheus.routing.util.ResourceIdMatcher;
 import io.prometheus.client.Gauge;
-import java.util.HashMap;
 import java.util.regex.Matcher;
 
 class AutoRouteProcessor {
 
-  private final HashMap<InstanceHandle_t, String[]> instanceHandleHashMap;
-
   private final Gauge ddsRoutingServiceAutoRouteState;
   private final Gauge ddsRoutingServiceAutoRouteInSamplesPerSecond;
   private final Gauge ddsRoutingServiceAutoRouteInBytesPerSecond;
@@ -45,8 +42,6 @@ class AutoRouteProcessor {
   private final Gauge ddsRoutingServiceAutoRouteLatencyMilliseconds;
 
   AutoRouteProcessor() {
-    instanceHandleHashMap = new HashMap<>();
-
     ddsRoutingServiceAutoRouteState = Gauge.build()
       .name("dds_routing_service_auto_route_state")
       .labelNames(getLabelNames())
@@ -82,51 +77,43 @@ class AutoRouteProcessor {
       .register();
   }
 
-  void processAddUpdate(
-    InstanceHandle_t instanceHandle,
+  PeriodicResource bind(
     AutoRouteConfig config,
-    AutoRouteEvent event,
-    AutoRoutePeriodic periodic
+    AutoRouteEvent event
   ) {
-    // put instance handle to hash map if not present
-    instanceHandleHashMap.putIfAbsent(instanceHandle, getLabelValues(config));
+    // resolve the children of the gauges once, so periodic samples are written directly into them
+    final String[] labelValues = getLabelValues(config);
+    final Gauge.Child autoRouteState = ddsRoutingServiceAutoRouteState.labels(labelValues);
+    final Gauge.Child autoRouteInSamplesPerSecond = ddsRoutingServiceAutoRouteInSamplesPerSecond.labels(labelValues);
+    final Gauge.Child autoRouteInBytesPerSecond = ddsRoutingServiceAutoRouteInBytesPerSecond.labels(labelValues);
+    final Gauge.Child autoRouteOutSamplesPerSecond = ddsRoutingServiceAutoRouteOutSamplesPerSecond.labels(labelValues);
+    final Gauge.Child autoRouteOutBytesPerSecond = ddsRoutingServiceAutoRouteOutBytesPerSecond.labels(labelValues);
+    final Gauge.Child autoRouteLatencyMilliseconds = ddsRoutingServiceAutoRouteLatencyMilliseconds.labels(labelValues);
 
-    // get label values once to improve performance
-    final String[] labelValues = instanceHandleHashMap.get(instanceHandle);
+    return new PeriodicResource() {
+      @Override
+      public void update(
+        Periodic sample
+      ) {
+        final AutoRoutePeriodic periodic = sample.value.routing_auto_route;
+        autoRouteState.set(event.state.value());
+        autoRouteInSamplesPerSecond.set(periodic.in_samples_per_sec.publication_period_metrics.mean);
+        autoRouteInBytesPerSecond.set(periodic.in_bytes_per_sec.publication_period_metrics.mean);
+        autoRouteOutSamplesPerSecond.set(periodic.out_samples_per_sec.publication_period_metrics.mean);
+        autoRouteOutBytesPerSecond.set(periodic.out_bytes_per_sec.publication_period_metrics.mean);
+        autoRouteLatencyMilliseconds.set(periodic.latency_millisec.publication_period_metrics.mean);
+      }
 
-    // update gauges
-    ddsRoutingServiceAutoRouteState.labels(labelValues)
-      .set(event.state.value());
-    ddsRoutingServiceAutoRouteInSamplesPerSecond.labels(labelValues)
-      .set(periodic.in_samples_per_sec.publication_period_metrics.mean);
-    ddsRoutingServiceAutoRouteInBytesPerSecond.labels(labelValues)
-      .set(periodic.in_bytes_per_sec.publication_period_metrics.mean);
-    ddsRoutingServiceAutoRouteOutSamplesPerSecond.labels(labelValues)
-      .set(periodic.out_samples_per_sec.publication_period_metrics.mean);
-    ddsRoutingServiceAutoRouteOutBytesPerSecond.labels(labelValues)
-      .set(periodic.out_bytes_per_sec.publication_period_metrics.mean);
-    ddsRoutingServiceAutoRouteLatencyMilliseconds.labels(labelValues)
-      .set(periodic.latency_millisec.publication_period_metrics.mean);
-  }
-
-  void processRemove(
-    InstanceHandle_t instanceHandle
-  ) {
-    // check if remove is necessary
-    if (!instanceHandleHashMap.containsKey(instanceHandle)) {
-      return;
-    }
-
-    // get and remove label values
-    final String[] labelValues = instanceHandleHashMap.remove(instanceHandle);
-
-    // remove labels
-    ddsRoutingServiceAutoRouteState.remove(labelValues);
-    ddsRoutingServiceAutoRouteInSamplesPerSecond.remove(labelValues);
-    ddsRoutingServiceAutoRouteInBytesPerSecond.remove(labelValues);
-    ddsRoutingServiceAutoRouteOutSamplesPerSecond.remove(labelValues);
-    ddsRoutingServiceAutoRouteOutBytesPerSecond.remove(labelValues);
-    ddsRoutingServiceAutoRouteLatencyMilliseconds.remove(labelValues);
+      @Override
+      public void remove() {
+        ddsRoutingServiceAutoRouteState.remove(labelValues);
+        ddsRoutingServiceAutoRouteInSamplesPerSecond.remove(labelValues);
+        ddsRoutingServiceAutoRouteInBytesPerSecond.remove(labelValues);
+        ddsRoutingServiceAutoRouteOutSamplesPerSecond.remove(labelValues);
+        ddsRoutingServiceAutoRouteOutBytesPerSecond.remove(labelValues);
+        ddsRoutingServiceAutoRouteLatencyMilliseconds.remove(labelValues);
+      }
+    };
   }
 
   private String[] getLabelNames() {
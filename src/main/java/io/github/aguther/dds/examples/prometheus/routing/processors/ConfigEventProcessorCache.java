@@ -30,6 +30,9 @@ import idl.RTI.Service.Monitoring.Config;
 import idl.RTI.Service.Monitoring.Event;
 import idl.RTI.Service.Monitoring.ResourceGuid;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -39,10 +42,12 @@ public class ConfigEventProcessorCache {
 
   private HashMap<ResourceGuid, Config> configStore;
   private HashMap<ResourceGuid, Event> eventStore;
+  private List<Consumer<ResourceGuid>> removeListeners;
 
   public ConfigEventProcessorCache() {
     configStore = new HashMap<>();
     eventStore = new HashMap<>();
+    removeListeners = new CopyOnWriteArrayList<>();
   }
 
   public synchronized void process(
@@ -69,6 +74,17 @@ public class ConfigEventProcessorCache {
     );
   }
 
+  /**
+   * Adds a listener that is invoked with the resource guid when a config or an event has been removed.
+   *
+   * @param listener listener
+   */
+  void addRemoveListener(
+    Consumer<ResourceGuid> listener
+  ) {
+    removeListeners.add(listener);
+  }
+
   Config getConfig(
     ResourceGuid key
   ) {
@@ -93,7 +109,11 @@ public class ConfigEventProcessorCache {
       store.putIfAbsent(key, sample);
     } else {
       // remove the description if necessary
-      store.remove(key);
+      if (store.remove(key) != null) {
+        for (Consumer<ResourceGuid> listener : removeListeners) {
+          listener.accept(key);
+        }
+      }
     }
   }
 }
@@ -24,19 +24,16 @@
 
 package io.github.aguther.dds.examples.prometheus.routing.processors;
 
-import com.rti.dds.infrastructure.InstanceHandle_t;
 import idl.RTI.RoutingService.Monitoring.DomainRouteConfig;
 import idl.RTI.RoutingService.Monitoring.DomainRouteEvent;
 import idl.RTI.RoutingService.Monitoring.DomainRoutePeriodic;
+import idl.RTI.Service.Monitoring.Periodic;
 import io.github.aguther.dds.examples.prometheus.routing.util.ResourceIdMatcher;
 import io.prometheus.client.Gauge;
-import java.util.HashMap;
 import java.util.regex.Matcher;
 
 class DomainRouteProcessor {
 
-  private final HashMap<InstanceHandle_t, String[]> instanceHandleHashMap;
-
   private final Gauge ddsRoutingServiceDomainRouteState;
   private final Gauge ddsRoutingServiceDomainRouteInSamplesPerSecond;
   private final Gauge ddsRoutingServiceDomainRouteInBytesPerSecond;
@@ -45,8 +42,6 @@ class DomainRouteProcessor {
   private final Gauge ddsRoutingServiceDomainRouteLatencyMilliseconds;
 
   DomainRouteProcessor() {
-    instanceHandleHashMap = new HashMap<>();
-
     ddsRoutingServiceDomainRouteState = Gauge.build()
       .name("dds_routing_service_domain_route_state")
       .labelNames(getLabelNames())
@@ -82,51 +77,43 @@ class DomainRouteProcessor {
       .register();
   }
 
-  void processAddUpdate(
-    InstanceHandle_t instanceHandle,
+  PeriodicResource bind(
     DomainRouteConfig config,
-    DomainRouteEvent event,
-    DomainRoutePeriodic periodic
+    DomainRouteEvent event
   ) {
-    // put instance handle to hash map if not present
-    instanceHandleHashMap.putIfAbsent(instanceHandle, getLabelValues(config));
+    // resolve the children of the gauges once, so periodic samples are written directly into them
+    final String[] labelValues = getLabelValues(config);
+    final Gauge.Child domainRouteState = ddsRoutingServiceDomainRouteState.labels(labelValues);
+    final Gauge.Child domainRouteInSamplesPerSecond = ddsRoutingServiceDomainRouteInSamplesPerSecond.labels(labelValues);
+    final Gauge.Child domainRouteInBytesPerSecond = ddsRoutingServiceDomainRouteInBytesPerSecond.labels(labelValues);
+    final Gauge.Child domainRouteOutSamplesPerSecond = ddsRoutingServiceDomainRouteOutSamplesPerSecond.labels(labelValues);
+    final Gauge.Child domainRouteOutBytesPerSecond = ddsRoutingServiceDomainRouteOutBytesPerSecond.labels(labelValues);
+    final Gauge.Child domainRouteLatencyMilliseconds = ddsRoutingServiceDomainRouteLatencyMilliseconds.labels(labelValues);
 
-    // get label values once to improve performance
-    final String[] labelValues = instanceHandleHashMap.get(instanceHandle);
+    return new PeriodicResource() {
+      @Override
+      public void update(
+        Periodic sample
+      ) {
+        final DomainRoutePeriodic periodic = sample.value.routing_domain_route;
+        domainRouteState.set(event.state.value());
+        domainRouteInSamplesPerSecond.set(periodic.in_samples_per_sec.publication_period_metrics.mean);
+        domainRouteInBytesPerSecond.set(periodic.in_bytes_per_sec.publication_period_metrics.mean);
+        domainRouteOutSamplesPerSecond.set(periodic.out_samples_per_sec.publication_period_metrics.mean);
+        domainRouteOutBytesPerSecond.set(periodic.out_bytes_per_sec.publication_period_metrics.mean);
+        domainRouteLatencyMilliseconds.set(periodic.latency_millisec.publication_period_metrics.mean);
+      }
 
-    // update gauges
-    ddsRoutingServiceDomainRouteState.labels(labelValues)
-      .set(event.state.value());
-    ddsRoutingServiceDomainRouteInSamplesPerSecond.labels(labelValues)
-      .set(periodic.in_samples_per_sec.publication_period_metrics.mean);
-    ddsRoutingServiceDomainRouteInBytesPerSecond.labels(labelValues)
-      .set(periodic.in_bytes_per_sec.publication_period_metrics.mean);
-    ddsRoutingServiceDomainRouteOutSamplesPerSecond.labels(labelValues)
-      .set(periodic.out_samples_per_sec.publication_period_metrics.mean);
-    ddsRoutingServiceDomainRouteOutBytesPerSecond.labels(labelValues)
-      .set(periodic.out_bytes_per_sec.publication_period_metrics.mean);
-    ddsRoutingServiceDomainRouteLatencyMilliseconds.labels(labelValues)
-      .set(periodic.latency_millisec.publication_period_metrics.mean);
-  }
-
-  void processRemove(
-    InstanceHandle_t instanceHandle
-  ) {
-    // check if remove is necessary
-    if (!instanceHandleHashMap.containsKey(instanceHandle)) {
-      return;
-    }
-
-    // get and remove label values
-    final String[] labelValues = instanceHandleHashMap.remove(instanceHandle);
-
-    // remove labels
-    ddsRoutingServiceDomainRouteState.remove(labelValues);
-    ddsRoutingServiceDomainRouteInSamplesPerSecond.remove(labelValues);
-    ddsRoutingServiceDomainRouteInBytesPerSecond.remove(labelValues);
-    ddsRoutingServiceDomainRouteOutSamplesPerSecond.remove(labelValues);
-    ddsRoutingServiceDomainRouteOutBytesPerSecond.remove(labelValues);
-    ddsRoutingServiceDomainRouteLatencyMilliseconds.remove(labelValues);
+      @Override
+      public void remove() {
+        ddsRoutingServiceDomainRouteState.remove(labelValues);
+        ddsRoutingServiceDomainRouteInSamplesPerSecond.remove(labelValues);
+        ddsRoutingServiceDomainRouteInBytesPerSecond.remove(labelValues);
+        ddsRoutingServiceDomainRouteOutSamplesPerSecond.remove(labelValues);
+        ddsRoutingServiceDomainRouteOutBytesPerSecond.remove(labelValues);
+        ddsRoutingServiceDomainRouteLatencyMilliseconds.remove(labelValues);
+      }
+    };
   }
 
   private String[] getLabelNames() {
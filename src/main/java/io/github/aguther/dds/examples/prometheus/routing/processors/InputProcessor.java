@@ -24,26 +24,21 @@
 
 package io.github.aguther.dds.examples.prometheus.routing.processors;
 
-import com.rti.dds.infrastructure.InstanceHandle_t;
 import idl.RTI.RoutingService.Monitoring.InputConfig;
 import idl.RTI.RoutingService.Monitoring.InputEvent;
 import idl.RTI.RoutingService.Monitoring.InputPeriodic;
+import idl.RTI.Service.Monitoring.Periodic;
 import io.github.aguther.dds.examples.prometheus.routing.util.ResourceIdMatcher;
 import io.prometheus.client.Gauge;
-import java.util.HashMap;
 import java.util.regex.Matcher;
 
 class InputProcessor {
 
-  private final HashMap<InstanceHandle_t, String[]> instanceHandleHashMap;
-
   private final Gauge ddsRoutingServiceInputState;
   private final Gauge ddsRoutingServiceInputSamplesPerSecond;
   private final Gauge ddsRoutingServiceInputBytesPerSecond;
 
   InputProcessor() {
-    instanceHandleHashMap = new HashMap<>();
-
     ddsRoutingServiceInputState = Gauge.build()
       .name("dds_routing_service_input_state")
       .labelNames(getLabelNames())
@@ -62,42 +57,34 @@ class InputProcessor {
       .register();
   }
 
-  void processAddUpdate(
-    InstanceHandle_t instanceHandle,
+  PeriodicResource bind(
     InputConfig config,
-    InputEvent event,
-    InputPeriodic periodic
+    InputEvent event
   ) {
-    // put instance handle to hash map if not present
-    instanceHandleHashMap.putIfAbsent(instanceHandle, getLabelValues(config));
+    // resolve the children of the gauges once, so periodic samples are written directly into them
+    final String[] labelValues = getLabelValues(config);
+    final Gauge.Child inputState = ddsRoutingServiceInputState.labels(labelValues);
+    final Gauge.Child inputSamplesPerSecond = ddsRoutingServiceInputSamplesPerSecond.labels(labelValues);
+    final Gauge.Child inputBytesPerSecond = ddsRoutingServiceInputBytesPerSecond.labels(labelValues);
 
-    // get label values once to improve performance
-    final String[] labelValues = instanceHandleHashMap.get(instanceHandle);
+    return new PeriodicResource() {
+      @Override
+      public void update(
+        Periodic sample
+      ) {
+        final InputPeriodic periodic = sample.value.routing_input;
+        inputState.set(event.state.value());
+        inputSamplesPerSecond.set(periodic.samples_per_sec.publication_period_metrics.mean);
+        inputBytesPerSecond.set(periodic.bytes_per_sec.publication_period_metrics.mean);
+      }
 
-    // update gauges
-    ddsRoutingServiceInputState.labels(labelValues)
-      .set(event.state.value());
-    ddsRoutingServiceInputSamplesPerSecond.labels(labelValues)
-      .set(periodic.samples_per_sec.publication_period_metrics.mean);
-    ddsRoutingServiceInputBytesPerSecond.labels(labelValues)
-      .set(periodic.bytes_per_sec.publication_period_metrics.mean);
-  }
-
-  void processRemove(
-    InstanceHandle_t instanceHandle
-  ) {
-    // check if remove is necessary
-    if (!instanceHandleHashMap.containsKey(instanceHandle)) {
-      return;
-    }
-
-    // get and remove label values
-    final String[] labelValues = instanceHandleHashMap.remove(instanceHandle);
-
-    // remove labels
-    ddsRoutingServiceInputState.remove(labelValues);
-    ddsRoutingServiceInputSamplesPerSecond.remove(labelValues);
-    ddsRoutingServiceInputBytesPerSecond.remove(labelValues);
+      @Override
+      public void remove() {
+        ddsRoutingServiceInputState.remove(labelValues);
+        ddsRoutingServiceInputSamplesPerSecond.remove(labelValues);
+        ddsRoutingServiceInputBytesPerSecond.remove(labelValues);
+      }
+    };
   }
 
   private String[] getLabelNames() {
@@ -24,26 +24,21 @@
 
 package io.github.aguther.dds.examples.prometheus.routing.processors;
 
-import com.rti.dds.infrastructure.InstanceHandle_t;
 import idl.RTI.RoutingService.Monitoring.OutputConfig;
 import idl.RTI.RoutingService.Monitoring.OutputEvent;
 import idl.RTI.RoutingService.Monitoring.OutputPeriodic;
+import idl.RTI.Service.Monitoring.Periodic;
 import io.github.aguther.dds.examples.prometheus.routing.util.ResourceIdMatcher;
 import io.prometheus.client.Gauge;
-import java.util.HashMap;
 import java.util.regex.Matcher;
 
 class OutputProcessor {
 
-  private final HashMap<InstanceHandle_t, String[]> instanceHandleHashMap;
-
   private final Gauge ddsRoutingServiceOutputState;
   private final Gauge ddsRoutingServiceOutputSamplesPerSecond;
   private final Gauge ddsRoutingServiceOutputBytesPerSecond;
 
   OutputProcessor() {
-    instanceHandleHashMap = new HashMap<>();
-
     ddsRoutingServiceOutputState = Gauge.build()
       .name("dds_routing_service_output_state")
       .labelNames(getLabelNames())
@@ -62,42 +57,34 @@ class OutputProcessor {
       .register();
   }
 
-  void processAddUpdate(
-    InstanceHandle_t instanceHandle,
+  PeriodicResource bind(
     OutputConfig config,
-    OutputEvent event,
-    OutputPeriodic periodic
+    OutputEvent event
   ) {
-    // put instance handle to hash map if not present
-    instanceHandleHashMap.putIfAbsent(instanceHandle, getLabelValues(config));
+    // resolve the children of the gauges once, so periodic samples are written directly into them
+    final String[] labelValues = getLabelValues(config);
+    final Gauge.Child outputState = ddsRoutingServiceOutputState.labels(labelValues);
+    final Gauge.Child outputSamplesPerSecond = ddsRoutingServiceOutputSamplesPerSecond.labels(labelValues);
+    final Gauge.Child outputBytesPerSecond = ddsRoutingServiceOutputBytesPerSecond.labels(labelValues);
 
-    // get label values once to improve performance
-    final String[] labelValues = instanceHandleHashMap.get(instanceHandle);
+    return new PeriodicResource() {
+      @Override
+      public void update(
+        Periodic sample
+      ) {
+        final OutputPeriodic periodic = sample.value.routing_output;
+        outputState.set(event.state.value());
+        outputSamplesPerSecond.set(periodic.samples_per_sec.publication_period_metrics.mean);
+        outputBytesPerSecond.set(periodic.bytes_per_sec.publication_period_metrics.mean);
+      }
 
-    // update gauges
-    ddsRoutingServiceOutputState.labels(labelValues)
-      .set(event.state.value());
-    ddsRoutingServiceOutputSamplesPerSecond.labels(labelValues)
-      .set(periodic.samples_per_sec.publication_period_metrics.mean);
-    ddsRoutingServiceOutputBytesPerSecond.labels(labelValues)
-      .set(periodic.bytes_per_sec.publication_period_metrics.mean);
-  }
-
-  void processRemove(
-    InstanceHandle_t instanceHandle
-  ) {
-    // check if remove is necessary
-    if (!instanceHandleHashMap.containsKey(instanceHandle)) {
-      return;
-    }
-
-    // get and remove label values
-    final String[] labelValues = instanceHandleHashMap.remove(instanceHandle);
-
-    // remove labels
-    ddsRoutingServiceOutputState.remove(labelValues);
-    ddsRoutingServiceOutputSamplesPerSecond.remove(labelValues);
-    ddsRoutingServiceOutputBytesPerSecond.remove(labelValues);
+      @Override
+      public void remove() {
+        ddsRoutingServiceOutputState.remove(labelValues);
+        ddsRoutingServiceOutputSamplesPerSecond.remove(labelValues);
+        ddsRoutingServiceOutputBytesPerSecond.remove(labelValues);
+      }
+    };
   }
 
   private String[] getLabelNames() {
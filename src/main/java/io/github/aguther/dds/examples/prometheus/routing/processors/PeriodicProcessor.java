@@ -34,7 +34,11 @@ import idl.RTI.Service.Monitoring.Event;
 import idl.RTI.Service.Monitoring.Periodic;
 import idl.RTI.Service.Monitoring.ResourceGuid;
 import idl.RTI.Service.Monitoring.ResourceKind;
+import io.github.aguther.dds.util.TimingWheel;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
 import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -42,8 +46,17 @@ public class PeriodicProcessor {
 
   private static final Logger LOGGER = LogManager.getLogger(PeriodicProcessor.class);
 
+  public static final long DEFAULT_TIME_TO_LIVE_SECONDS = 300;
+  private static final long TICKS_PER_TIME_TO_LIVE = 60;
+
   private ConfigEventProcessorCache configEventProcessorCache;
-  private HashMap<InstanceHandle_t, ResourceGuid> instanceHandleResourceGuidHashMap;
+  private HashMap<InstanceHandle_t, ResourceState> resourceStates;
+  private HashMap<ResourceGuid, ResourceState> joinedResourceStates;
+  private TimingWheel<InstanceHandle_t> timingWheel;
+  private final long timeToLiveSeconds;
+
+  private final Gauge ddsRoutingServiceMonitoringInstances;
+  private final Counter ddsRoutingServiceMonitoringEvictedInstances;
 
   private RoutingServiceProcessor routingServiceProcessor;
   private DomainRouteProcessor domainRouteProcessor;
@@ -55,12 +68,30 @@ public class PeriodicProcessor {
 
   public PeriodicProcessor(
     ConfigEventProcessorCache configEventProcessorCache
+  ) {
+    this(configEventProcessorCache, DEFAULT_TIME_TO_LIVE_SECONDS, TimeUnit.SECONDS);
+  }
+
+  public PeriodicProcessor(
+    ConfigEventProcessorCache configEventProcessorCache,
+    long timeToLive,
+    TimeUnit timeUnit
   ) {
     // check and store config and event processor cache
     checkNotNull(configEventProcessorCache);
+    checkNotNull(timeUnit);
     this.configEventProcessorCache = configEventProcessorCache;
-    // create hash map to store instance handles to resource guid
-    instanceHandleResourceGuidHashMap = new HashMap<>();
+    // create hash maps to store the state of the resources by instance handle and the joined ones by resource guid
+    resourceStates = new HashMap<>();
+    joinedResourceStates = new HashMap<>();
+    // create timing wheel to evict instances whose dispose has been missed
+    long timeToLiveNanos = timeUnit.toNanos(timeToLive);
+    timingWheel = new TimingWheel<>(
+      timeToLiveNanos,
+      Math.max(1, timeToLiveNanos / TICKS_PER_TIME_TO_LIVE),
+      TimeUnit.NANOSECONDS
+    );
+    timeToLiveSeconds = timeUnit.toSeconds(timeToLive);
     // create processors
     routingServiceProcessor = new RoutingServiceProcessor();
     domainRouteProcessor = new DomainRouteProcessor();
@@ -69,130 +100,175 @@ public class PeriodicProcessor {
     routeProcessor = new RouteProcessor();
     inputProcessor = new InputProcessor();
     outputProcessor = new OutputProcessor();
+    // create metrics of the processor itself
+    ddsRoutingServiceMonitoringInstances = Gauge.build()
+      .name("dds_routing_service_monitoring_instances")
+      .help("Number of periodic instances currently exposed.")
+      .register();
+    ddsRoutingServiceMonitoringEvictedInstances = Counter.build()
+      .name("dds_routing_service_monitoring_evicted_instances_total")
+      .help("Number of periodic instances evicted because they have not been updated for the time to live.")
+      .register();
+    // join resources again when their config or event has been removed
+    configEventProcessorCache.addRemoveListener(this::processConfigEventRemove);
   }
 
-  public void process(
+  public synchronized void process(
     Periodic sample,
     SampleInfo info
   ) {
     if ((info.instance_state == InstanceStateKind.ALIVE_INSTANCE_STATE) && (info.valid_data)) {
       processValid(sample, info);
     } else {
-      processRemove(info);
+      processRemove(info.instance_handle);
     }
+    expire();
+  }
+
+  /**
+   * Evicts the instances that have not been updated for the time to live, e.g. because their dispose was missed.
+   */
+  public synchronized void expire() {
+    int expired = timingWheel.expire(System.nanoTime(), this::processRemove);
+    if (expired > 0) {
+      LOGGER.info("Evicted {} instances that have not been updated for {} seconds", expired, timeToLiveSeconds);
+      ddsRoutingServiceMonitoringEvictedInstances.inc(expired);
+    }
+    ddsRoutingServiceMonitoringInstances.set(timingWheel.size());
   }
 
   private void processValid(
     Periodic sample,
     SampleInfo info
   ) {
-    // add instance to hash map
-    instanceHandleResourceGuidHashMap.putIfAbsent(info.instance_handle, sample.object_guid);
+    // get state of resource, the instance handle and resource guid are copied because they are kept
+    ResourceState resourceState = resourceStates.get(info.instance_handle);
+    if (resourceState == null) {
+      resourceState = new ResourceState(
+        new InstanceHandle_t(info.instance_handle),
+        new ResourceGuid(sample.object_guid)
+      );
+      resourceStates.put(resourceState.instanceHandle, resourceState);
+    }
+
+    // track last update
+    timingWheel.touch(resourceState.instanceHandle, System.nanoTime());
+
+    // join config and event once, until then samples are ignored
+    if (resourceState.resource == null) {
+      resourceState.resource = join(sample);
+      if (resourceState.resource == null) {
+        return;
+      }
+      joinedResourceStates.put(resourceState.resourceGuid, resourceState);
+    }
+
+    // process sample
+    resourceState.resource.update(sample);
+  }
 
+  private PeriodicResource join(
+    Periodic sample
+  ) {
     // get matching config
     Config config = configEventProcessorCache.getConfig(sample.object_guid);
     if (config == null) {
-      return;
+      return null;
     }
 
     // get matching event
     Event event = configEventProcessorCache.getEvent(sample.object_guid);
     if (event == null) {
-      return;
+      return null;
     }
 
-    // process sample
+    // bind to the processor of the kind
     if (ResourceKind.ROUTING_SERVICE.equals(sample.value._d)) {
-      routingServiceProcessor.processAddUpdate(
-        info.instance_handle,
+      return routingServiceProcessor.bind(
         config.value.routing_service,
-        event.value.routing_service,
-        sample.value.routing_service
+        event.value.routing_service
       );
     }
     if (ResourceKind.ROUTING_DOMAIN_ROUTE.equals(sample.value._d)) {
-      domainRouteProcessor.processAddUpdate(
-        info.instance_handle,
+      return domainRouteProcessor.bind(
         config.value.routing_domain_route,
-        event.value.routing_domain_route,
-        sample.value.routing_domain_route
+        event.value.routing_domain_route
       );
     }
     if (ResourceKind.ROUTING_SESSION.equals(sample.value._d)) {
-      sessionProcessor.processAddUpdate(
-        info.instance_handle,
+      return sessionProcessor.bind(
         config.value.routing_session,
-        event.value.routing_session,
-        sample.value.routing_session
+        event.value.routing_session
       );
     }
     if (ResourceKind.ROUTING_AUTO_ROUTE.equals(sample.value._d)) {
-      autoRouteProcessor.processAddUpdate(
-        info.instance_handle,
+      return autoRouteProcessor.bind(
         config.value.routing_auto_route,
-        event.value.routing_auto_route,
-        sample.value.routing_auto_route
+        event.value.routing_auto_route
       );
     }
     if (ResourceKind.ROUTING_ROUTE.equals(sample.value._d)) {
-      routeProcessor.processAddUpdate(
-        info.instance_handle,
+      return routeProcessor.bind(
         config.value.routing_route,
-        event.value.routing_route,
-        sample.value.routing_route
+        event.value.routing_route
       );
     }
     if (ResourceKind.ROUTING_INPUT.equals(sample.value._d)) {
-      inputProcessor.processAddUpdate(
-        info.instance_handle,
+      return inputProcessor.bind(
         config.value.routing_input,
-        event.value.routing_input,
-        sample.value.routing_input
+        event.value.routing_input
       );
     }
     if (ResourceKind.ROUTING_OUTPUT.equals(sample.value._d)) {
-      outputProcessor.processAddUpdate(
-        info.instance_handle,
+      return outputProcessor.bind(
         config.value.routing_output,
-        event.value.routing_output,
-        sample.value.routing_output
+        event.value.routing_output
       );
     }
+    return null;
   }
 
   private void processRemove(
-    SampleInfo info
+    InstanceHandle_t instanceHandle
   ) {
-    // get and remove resource guid
-    ResourceGuid resourceGuid = instanceHandleResourceGuidHashMap.remove(info.instance_handle);
-
-    // get matching config
-    Config config = configEventProcessorCache.getConfig(resourceGuid);
-    if (config == null) {
+    // get and remove state of resource
+    ResourceState resourceState = resourceStates.remove(instanceHandle);
+    timingWheel.remove(instanceHandle);
+    if (resourceState == null || resourceState.resource == null) {
       return;
     }
 
-    // determine type of object and process remove
-    if (ResourceKind.ROUTING_SERVICE.equals(config.value._d)) {
-      routingServiceProcessor.processRemove(info.instance_handle);
-    }
-    if (ResourceKind.ROUTING_DOMAIN_ROUTE.equals(config.value._d)) {
-      domainRouteProcessor.processRemove(info.instance_handle);
-    }
-    if (ResourceKind.ROUTING_SESSION.equals(config.value._d)) {
-      sessionProcessor.processRemove(info.instance_handle);
-    }
-    if (ResourceKind.ROUTING_AUTO_ROUTE.equals(config.value._d)) {
-      autoRouteProcessor.processRemove(info.instance_handle);
-    }
-    if (ResourceKind.ROUTING_ROUTE.equals(config.value._d)) {
-      routeProcessor.processRemove(info.instance_handle);
-    }
-    if (ResourceKind.ROUTING_INPUT.equals(config.value._d)) {
-      inputProcessor.processRemove(info.instance_handle);
+    // remove metrics of resource
+    joinedResourceStates.remove(resourceState.resourceGuid);
+    resourceState.resource.remove();
+  }
+
+  private synchronized void processConfigEventRemove(
+    ResourceGuid resourceGuid
+  ) {
+    // get and remove joined state of resource
+    ResourceState resourceState = joinedResourceStates.remove(resourceGuid);
+    if (resourceState == null) {
+      return;
     }
-    if (ResourceKind.ROUTING_OUTPUT.equals(config.value._d)) {
-      outputProcessor.processRemove(info.instance_handle);
+
+    // remove metrics of resource, it is joined again with the next sample
+    resourceState.resource.remove();
+    resourceState.resource = null;
+  }
+
+  private static class ResourceState {
+
+    private final InstanceHandle_t instanceHandle;
+    private final ResourceGuid resourceGuid;
+    private PeriodicResource resource;
+
+    ResourceState(
+      InstanceHandle_t instanceHandle,
+      ResourceGuid resourceGuid
+    ) {
+      this.instanceHandle = instanceHandle;
+      this.resourceGuid = resourceGuid;
     }
   }
 }
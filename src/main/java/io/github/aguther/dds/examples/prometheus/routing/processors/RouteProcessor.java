@@ -24,19 +24,16 @@
 
 package io.github.aguther.dds.examples.prometheus.routing.processors;
 
-import com.rti.dds.infrastructure.InstanceHandle_t;
 import idl.RTI.RoutingService.Monitoring.RouteConfig;
 import idl.RTI.RoutingService.Monitoring.RouteEvent;
 import idl.RTI.RoutingService.Monitoring.RoutePeriodic;
+import idl.RTI.Service.Monitoring.Periodic;
 import io.github.aguther.dds.examples.prometheus.routing.util.ResourceIdMatcher;
 import io.prometheus.client.Gauge;
-import java.util.HashMap;
 import java.util.regex.Matcher;
 
 class RouteProcessor {
 
-  private final HashMap<InstanceHandle_t, String[]> instanceHandleHashMap;
-
   private final Gauge ddsRoutingServiceRouteState;
   private final Gauge ddsRoutingServiceRouteInSamplesPerSecond;
   private final Gauge ddsRoutingServiceRouteInBytesPerSecond;
@@ -45,8 +42,6 @@ class RouteProcessor {
   private final Gauge ddsRoutingServiceRouteLatencyMilliseconds;
 
   RouteProcessor() {
-    instanceHandleHashMap = new HashMap<>();
-
     ddsRoutingServiceRouteState = Gauge.build()
       .name("dds_routing_service_route_state")
       .labelNames(getLabelNames())
@@ -82,51 +77,43 @@ class RouteProcessor {
       .register();
   }
 
-  void processAddUpdate(
-    InstanceHandle_t instanceHandle,
+  PeriodicResource bind(
     RouteConfig config,
-    RouteEvent event,
-    RoutePeriodic periodic
+    RouteEvent event
   ) {
-    // put instance handle to hash map if not present
-    instanceHandleHashMap.putIfAbsent(instanceHandle, getLabelValues(config));
+    // resolve the children of the gauges once, so periodic samples are written directly into them
+    final String[] labelValues = getLabelValues(config);
+    final Gauge.Child routeState = ddsRoutingServiceRouteState.labels(labelValues);
+    final Gauge.Child routeInSamplesPerSecond = ddsRoutingServiceRouteInSamplesPerSecond.labels(labelValues);
+    final Gauge.Child routeInBytesPerSecond = ddsRoutingServiceRouteInBytesPerSecond.labels(labelValues);
+    final Gauge.Child routeOutSamplesPerSecond = ddsRoutingServiceRouteOutSamplesPerSecond.labels(labelValues);
+    final Gauge.Child routeOutBytesPerSecond = ddsRoutingServiceRouteOutBytesPerSecond.labels(labelValues);
+    final Gauge.Child routeLatencyMilliseconds = ddsRoutingServiceRouteLatencyMilliseconds.labels(labelValues);
 
-    // get label values once to improve performance
-    final String[] labelValues = instanceHandleHashMap.get(instanceHandle);
+    return new PeriodicResource() {
+      @Override
+      public void update(
+        Periodic sample
+      ) {
+        final RoutePeriodic periodic = sample.value.routing_route;
+        routeState.set(event.state.value());
+        routeInSamplesPerSecond.set(periodic.in_samples_per_sec.publication_period_metrics.mean);
+        routeInBytesPerSecond.set(periodic.in_bytes_per_sec.publication_period_metrics.mean);
+        routeOutSamplesPerSecond.set(periodic.out_samples_per_sec.publication_period_metrics.mean);
+        routeOutBytesPerSecond.set(periodic.out_bytes_per_sec.publication_period_metrics.mean);
+        routeLatencyMilliseconds.set(periodic.latency_millisec.publication_period_metrics.mean);
+      }
 
-    // update gauges
-    ddsRoutingServiceRouteState.labels(labelValues)
-      .set(event.state.value());
-    ddsRoutingServiceRouteInSamplesPerSecond.labels(labelValues)
-      .set(periodic.in_samples_per_sec.publication_period_metrics.mean);
-    ddsRoutingServiceRouteInBytesPerSecond.labels(labelValues)
-      .set(periodic.in_bytes_per_sec.publication_period_metrics.mean);
-    ddsRoutingServiceRouteOutSamplesPerSecond.labels(labelValues)
-      .set(periodic.out_samples_per_sec.publication_period_metrics.mean);
-    ddsRoutingServiceRouteOutBytesPerSecond.labels(labelValues)
-      .set(periodic.out_bytes_per_sec.publication_period_metrics.mean);
-    ddsRoutingServiceRouteLatencyMilliseconds.labels(labelValues)
-      .set(periodic.latency_millisec.publication_period_metrics.mean);
-  }
-
-  void processRemove(
-    InstanceHandle_t instanceHandle
-  ) {
-    // check if remove is necessary
-    if (!instanceHandleHashMap.containsKey(instanceHandle)) {
-      return;
-    }
-
-    // get and remove label values
-    final String[] labelValues = instanceHandleHashMap.remove(instanceHandle);
-
-    // remove labels
-    ddsRoutingServiceRouteState.remove(labelValues);
-    ddsRoutingServiceRouteInSamplesPerSecond.remove(labelValues);
-    ddsRoutingServiceRouteInBytesPerSecond.remove(labelValues);
-    ddsRoutingServiceRouteOutSamplesPerSecond.remove(labelValues);
-    ddsRoutingServiceRouteOutBytesPerSecond.remove(labelValues);
-    ddsRoutingServiceRouteLatencyMilliseconds.remove(labelValues);
+      @Override
+      public void remove() {
+        ddsRoutingServiceRouteState.remove(labelValues);
+        ddsRoutingServiceRouteInSamplesPerSecond.remove(labelValues);
+        ddsRoutingServiceRouteInBytesPerSecond.remove(labelValues);
+        ddsRoutingServiceRouteOutSamplesPerSecond.remove(labelValues);
+        ddsRoutingServiceRouteOutBytesPerSecond.remove(labelValues);
+        ddsRoutingServiceRouteLatencyMilliseconds.remove(labelValues);
+      }
+    };
   }
 
   private String[] getLabelNames() {
@@ -24,19 +24,16 @@
 
 package io.github.aguther.dds.examples.prometheus.routing.processors;
 
-import com.rti.dds.infrastructure.InstanceHandle_t;
 import idl.RTI.RoutingService.Monitoring.ServiceConfig;
 import idl.RTI.RoutingService.Monitoring.ServiceEvent;
 import idl.RTI.RoutingService.Monitoring.ServicePeriodic;
+import idl.RTI.Service.Monitoring.Periodic;
 import io.github.aguther.dds.examples.prometheus.routing.util.ResourceIdMatcher;
 import io.prometheus.client.Gauge;
-import java.util.HashMap;
 import java.util.regex.Matcher;
 
 class RoutingServiceProcessor {
 
-  private final HashMap<InstanceHandle_t, String[]> instanceHandleHashMap;
-
   private final Gauge ddsRoutingServiceState;
   private final Gauge ddsRoutingServiceHostTotalMemoryKb;
   private final Gauge ddsRoutingServiceHostTotalSwapMemoryKb;
@@ -50,8 +47,6 @@ class RoutingServiceProcessor {
   private final Gauge ddsRoutingServiceProcessTotalMemoryKb;
 
   RoutingServiceProcessor() {
-    instanceHandleHashMap = new HashMap<>();
-
     ddsRoutingServiceState = Gauge.build()
       .name("dds_routing_service_state")
       .labelNames(getLabelNames())
@@ -115,64 +110,60 @@ class RoutingServiceProcessor {
       .register();
   }
 
-  void processAddUpdate(
-    InstanceHandle_t instanceHandle,
+  PeriodicResource bind(
     ServiceConfig config,
-    ServiceEvent event,
-    ServicePeriodic periodic
+    ServiceEvent event
   ) {
-    // put instance handle to hash map if not present
-    instanceHandleHashMap.putIfAbsent(instanceHandle, getLabelValues(config));
-
-    // get label values once to improve performance
-    final String[] labelValues = instanceHandleHashMap.get(instanceHandle);
-
-    // update gauges
-    ddsRoutingServiceState.labels(labelValues)
-      .set(event.state.value());
-    ddsRoutingServiceHostTotalMemoryKb.labels(labelValues)
-      .set(config.host.total_memory_kb);
-    ddsRoutingServiceHostTotalSwapMemoryKb.labels(labelValues)
-      .set(config.host.total_swap_memory_kb);
-    ddsRoutingServiceHostUptime.labels(labelValues)
-      .set(periodic.host.uptime_sec);
-    ddsRoutingServiceHostCpuUsagePercentage.labels(labelValues)
-      .set(periodic.host.cpu_usage_percentage.publication_period_metrics.mean);
-    ddsRoutingServiceHostFreeMemoryKb.labels(labelValues)
-      .set(periodic.host.free_memory_kb.publication_period_metrics.mean);
-    ddsRoutingServiceHostFreeSwapMemoryKb.labels(labelValues)
-      .set(periodic.host.free_swap_memory_kb.publication_period_metrics.mean);
-    ddsRoutingServiceProcessUptime.labels(labelValues)
-      .set(periodic.process.uptime_sec);
-    ddsRoutingServiceProcessCpuUsagePercentage.labels(labelValues)
-      .set(periodic.process.cpu_usage_percentage.publication_period_metrics.mean);
-    ddsRoutingServiceProcessPhysicalMemoryKb.labels(labelValues)
-      .set(periodic.process.physical_memory_kb.publication_period_metrics.mean);
-    ddsRoutingServiceProcessTotalMemoryKb.labels(labelValues)
-      .set(periodic.process.total_memory_kb.publication_period_metrics.mean);
-  }
+    // resolve the children of the gauges once, so periodic samples are written directly into them
+    final String[] labelValues = getLabelValues(config);
+    final Gauge.Child state = ddsRoutingServiceState.labels(labelValues);
+    final Gauge.Child hostTotalMemoryKb = ddsRoutingServiceHostTotalMemoryKb.labels(labelValues);
+    final Gauge.Child hostTotalSwapMemoryKb = ddsRoutingServiceHostTotalSwapMemoryKb.labels(labelValues);
+    final Gauge.Child hostUptime = ddsRoutingServiceHostUptime.labels(labelValues);
+    final Gauge.Child hostCpuUsagePercentage = ddsRoutingServiceHostCpuUsagePercentage.labels(labelValues);
+    final Gauge.Child hostFreeMemoryKb = ddsRoutingServiceHostFreeMemoryKb.labels(labelValues);
+    final Gauge.Child hostFreeSwapMemoryKb = ddsRoutingServiceHostFreeSwapMemoryKb.labels(labelValues);
+    final Gauge.Child processUptime = ddsRoutingServiceProcessUptime.labels(labelValues);
+    final Gauge.Child processCpuUsagePercentage = ddsRoutingServiceProcessCpuUsagePercentage.labels(labelValues);
+    final Gauge.Child processPhysicalMemoryKb = ddsRoutingServiceProcessPhysicalMemoryKb.labels(labelValues);
+    final Gauge.Child processTotalMemoryKb = ddsRoutingServiceProcessTotalMemoryKb.labels(labelValues);
 
-  void processRemove(
-    InstanceHandle_t instanceHandle
-  ) {
-    // check if remove is necessary
-    if (!instanceHandleHashMap.containsKey(instanceHandle)) {
-      return;
-    }
+    // values of the config do not change
+    hostTotalMemoryKb.set(config.host.total_memory_kb);
+    hostTotalSwapMemoryKb.set(config.host.total_swap_memory_kb);
 
-    // get and remove label values
-    final String[] labelValues = instanceHandleHashMap.remove(instanceHandle);
+    return new PeriodicResource() {
+      @Override
+      public void update(
+        Periodic sample
+      ) {
+        final ServicePeriodic periodic = sample.value.routing_service;
+        state.set(event.state.value());
+        hostUptime.set(periodic.host.uptime_sec);
+        hostCpuUsagePercentage.set(periodic.host.cpu_usage_percentage.publication_period_metrics.mean);
+        hostFreeMemoryKb.set(periodic.host.free_memory_kb.publication_period_metrics.mean);
+        hostFreeSwapMemoryKb.set(periodic.host.free_swap_memory_kb.publication_period_metrics.mean);
+        processUptime.set(periodic.process.uptime_sec);
+        processCpuUsagePercentage.set(periodic.process.cpu_usage_percentage.publication_period_metrics.mean);
+        processPhysicalMemoryKb.set(periodic.process.physical_memory_kb.publication_period_metrics.mean);
+        processTotalMemoryKb.set(periodic.process.total_memory_kb.publication_period_metrics.mean);
+      }
 
-    // remove labels
-    ddsRoutingServiceState.remove(labelValues);
-    ddsRoutingServiceHostTotalMemoryKb.remove(labelValues);
-    ddsRoutingServiceHostTotalSwapMemoryKb.remove(labelValues);
-    ddsRoutingServiceHostCpuUsagePercentage.remove(labelValues);
-    ddsRoutingServiceHostFreeMemoryKb.remove(labelValues);
-    ddsRoutingServiceHostFreeSwapMemoryKb.remove(labelValues);
-    ddsRoutingServiceProcessCpuUsagePercentage.remove(labelValues);
-    ddsRoutingServiceProcessPhysicalMemoryKb.remove(labelValues);
-    ddsRoutingServiceProcessTotalMemoryKb.remove(labelValues);
+      @Override
+      public void remove() {
+        ddsRoutingServiceState.remove(labelValues);
+        ddsRoutingServiceHostTotalMemoryKb.remove(labelValues);
+        ddsRoutingServiceHostTotalSwapMemoryKb.remove(labelValues);
+        ddsRoutingServiceHostUptime.remove(labelValues);
+        ddsRoutingServiceHostCpuUsagePercentage.remove(labelValues);
+        ddsRoutingServiceHostFreeMemoryKb.remove(labelValues);
+        ddsRoutingServiceHostFreeSwapMemoryKb.remove(labelValues);
+        ddsRoutingServiceProcessUptime.remove(labelValues);
+        ddsRoutingServiceProcessCpuUsagePercentage.remove(labelValues);
+        ddsRoutingServiceProcessPhysicalMemoryKb.remove(labelValues);
+        ddsRoutingServiceProcessTotalMemoryKb.remove(labelValues);
+      }
+    };
   }
 
   private String[] getLabelNames() {
@@ -24,19 +24,16 @@
 
 package io.github.aguther.dds.examples.prometheus.routing.processors;
 
-import com.rti.dds.infrastructure.InstanceHandle_t;
 import idl.RTI.RoutingService.Monitoring.SessionConfig;
 import idl.RTI.RoutingService.Monitoring.SessionEvent;
 import idl.RTI.RoutingService.Monitoring.SessionPeriodic;
+import idl.RTI.Service.Monitoring.Periodic;
 import io.github.aguther.dds.examples.prometheus.routing.util.ResourceIdMatcher;
 import io.prometheus.client.Gauge;
-import java.util.HashMap;
 import java.util.regex.Matcher;
 
 class SessionProcessor {
 
-  private final HashMap<InstanceHandle_t, String[]> instanceHandleHashMap;
-
   private final Gauge ddsRoutingServiceSessionState;
   private final Gauge ddsRoutingServiceSessionInSamplesPerSecond;
   private final Gauge ddsRoutingServiceSessionInBytesPerSecond;
@@ -45,8 +42,6 @@ class SessionProcessor {
   private final Gauge ddsRoutingServiceSessionLatencyMilliseconds;
 
   SessionProcessor() {
-    instanceHandleHashMap = new HashMap<>();
-
     ddsRoutingServiceSessionState = Gauge.build()
       .name("dds_routing_service_session_state")
       .labelNames(getLabelNames())
@@ -82,51 +77,43 @@ class SessionProcessor {
       .register();
   }
 
-  void processAddUpdate(
-    InstanceHandle_t instanceHandle,
+  PeriodicResource bind(
     SessionConfig config,
-    SessionEvent event,
-    SessionPeriodic periodic
+    SessionEvent event
   ) {
-    // put instance handle to hash map if not present
-    instanceHandleHashMap.putIfAbsent(instanceHandle, getLabelValues(config));
+    // resolve the children of the gauges once, so periodic samples are written directly into them
+    final String[] labelValues = getLabelValues(config);
+    final Gauge.Child sessionState = ddsRoutingServiceSessionState.labels(labelValues);
+    final Gauge.Child sessionInSamplesPerSecond = ddsRoutingServiceSessionInSamplesPerSecond.labels(labelValues);
+    final Gauge.Child sessionInBytesPerSecond = ddsRoutingServiceSessionInBytesPerSecond.labels(labelValues);
+    final Gauge.Child sessionOutSamplesPerSecond = ddsRoutingServiceSessionOutSamplesPerSecond.labels(labelValues);
+    final Gauge.Child sessionOutBytesPerSecond = ddsRoutingServiceSessionOutBytesPerSecond.labels(labelValues);
+    final Gauge.Child sessionLatencyMilliseconds = ddsRoutingServiceSessionLatencyMilliseconds.labels(labelValues);
 
-    // get label values once to improve performance
-    final String[] labelValues = instanceHandleHashMap.get(instanceHandle);
+    return new PeriodicResource() {
+      @Override
+      public void update(
+        Periodic sample
+      ) {
+        final SessionPeriodic periodic = sample.value.routing_session;
+        sessionState.set(event.state.value());
+        sessionInSamplesPerSecond.set(periodic.in_samples_per_sec.publication_period_metrics.mean);
+        sessionInBytesPerSecond.set(periodic.in_bytes_per_sec.publication_period_metrics.mean);
+        sessionOutSamplesPerSecond.set(periodic.out_samples_per_sec.publication_period_metrics.mean);
+        sessionOutBytesPerSecond.set(periodic.out_bytes_per_sec.publication_period_metrics.mean);
+        sessionLatencyMilliseconds.set(periodic.latency_millisec.publication_period_metrics.mean);
+      }
 
-    // update gauges
-    ddsRoutingServiceSessionState.labels(labelValues)
-      .set(event.state.value());
-    ddsRoutingServiceSessionInSamplesPerSecond.labels(labelValues)
-      .set(periodic.in_samples_per_sec.publication_period_metrics.mean);
-    ddsRoutingServiceSessionInBytesPerSecond.labels(labelValues)
-      .set(periodic.in_bytes_per_sec.publication_period_metrics.mean);
-    ddsRoutingServiceSessionOutSamplesPerSecond.labels(labelValues)
-      .set(periodic.out_samples_per_sec.publication_period_metrics.mean);
-    ddsRoutingServiceSessionOutBytesPerSecond.labels(labelValues)
-      .set(periodic.out_bytes_per_sec.publication_period_metrics.mean);
-    ddsRoutingServiceSessionLatencyMilliseconds.labels(labelValues)
-      .set(periodic.latency_millisec.publication_period_metrics.mean);
-  }
-
-  void processRemove(
-    InstanceHandle_t instanceHandle
-  ) {
-    // check if remove is necessary
-    if (!instanceHandleHashMap.containsKey(instanceHandle)) {
-      return;
-    }
-
-    // get and remove label values
-    final String[] labelValues = instanceHandleHashMap.remove(instanceHandle);
-
-    // remove labels
-    ddsRoutingServiceSessionState.remove(labelValues);
-    ddsRoutingServiceSessionInSamplesPerSecond.remove(labelValues);
-    ddsRoutingServiceSessionInBytesPerSecond.remove(labelValues);
-    ddsRoutingServiceSessionOutSamplesPerSecond.remove(labelValues);
-    ddsRoutingServiceSessionOutBytesPerSecond.remove(labelValues);
-    ddsRoutingServiceSessionLatencyMilliseconds.remove(labelValues);
+      @Override
+      public void remove() {
+        ddsRoutingServiceSessionState.remove(labelValues);
+        ddsRoutingServiceSessionInSamplesPerSecond.remove(labelValues);
+        ddsRoutingServiceSessionInBytesPerSecond.remove(labelValues);
+        ddsRoutingServiceSessionOutSamplesPerSecond.remove(labelValues);
+        ddsRoutingServiceSessionOutBytesPerSecond.remove(labelValues);
+        ddsRoutingServiceSessionLatencyMilliseconds.remove(labelValues);
+      }
+    };
   }
 
   private String[] getLabelNames() {
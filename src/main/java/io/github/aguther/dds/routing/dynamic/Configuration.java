@@ -32,6 +32,10 @@ import java.util.regex.Pattern;
  */
 public class Configuration {
 
+  private static final ConfigurationTemplate TOPIC_ROUTE_TEMPLATE = new ConfigurationTemplate(
+    "<topic_route name=\"{0}\" enabled=\"true\">{4}<input participant=\"{1}\"><topic_name>{2}</topic_name><registered_type_name>{3}</registered_type_name>{5}</input><output><topic_name>{2}</topic_name><registered_type_name>{3}</registered_type_name>{6}</output></topic_route>"
+  );
+
   private Pattern allowTopicNameFilter;
   private Pattern denyTopicNameFilter;
   private Pattern allowPartitionNameFilter;
@@ -41,6 +45,8 @@ public class Configuration {
   private String outputQos = "";
   private String partitionTransformationRegex = "";
   private String partitionTransformationReplacement = "";
+  private Pattern partitionTransformationPattern;
+  private volatile ConfigurationTemplate topicRouteTemplate;
 
   public Pattern getAllowTopicNameFilter() {
     return allowTopicNameFilter;
@@ -90,6 +96,7 @@ public class Configuration {
     String topicRouteQos
   ) {
     this.topicRouteQos = topicRouteQos;
+    this.topicRouteTemplate = null;
   }
 
   public String getQosInput() {
@@ -100,6 +107,7 @@ public class Configuration {
     String inputQos
   ) {
     this.inputQos = inputQos;
+    this.topicRouteTemplate = null;
   }
 
   public String getQosOutput() {
@@ -110,6 +118,7 @@ public class Configuration {
     String outputQos
   ) {
     this.outputQos = outputQos;
+    this.topicRouteTemplate = null;
   }
 
   public String getPartitionTransformationRegex() {
@@ -120,6 +129,8 @@ public class Configuration {
     String partitionTransformationRegex
   ) {
     this.partitionTransformationRegex = partitionTransformationRegex;
+    this.partitionTransformationPattern = partitionTransformationRegex == null || partitionTransformationRegex.isEmpty()
+      ? null : Pattern.compile(partitionTransformationRegex);
   }
 
   public String getPartitionTransformationReplacement() {
@@ -132,6 +143,33 @@ public class Configuration {
     this.partitionTransformationReplacement = partitionTransformationReplacement;
   }
 
+  /**
+   * Returns the compiled partition transformation regex.
+   *
+   * @return compiled pattern, null if no regex is set
+   */
+  public Pattern getPartitionTransformationPattern() {
+    return partitionTransformationPattern;
+  }
+
+  /**
+   * Returns the template of the topic route configuration with the QoS of this configuration already bound. The
+   * parameters are name (0), participant (1), topic (2) and type (3).
+   *
+   * @return template of topic route configuration
+   */
+  ConfigurationTemplate getTopicRouteTemplate() {
+    ConfigurationTemplate template = topicRouteTemplate;
+    if (template == null) {
+      template = TOPIC_ROUTE_TEMPLATE
+        .bind(4, topicRouteQos)
+        .bind(5, inputQos)
+        .bind(6, outputQos);
+      topicRouteTemplate = template;
+    }
+    return template;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
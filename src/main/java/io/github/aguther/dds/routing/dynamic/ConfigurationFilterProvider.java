@@ -57,16 +57,28 @@ import org.apache.logging.log4j.Logger;
  * <p>
  * WARNING: It must be ensured that the configuration filters are disjoint (combination of allow and deny filters)
  * otherwise the results are unpredictable.
+ * <p>
+ * Decisions are cached per topic and per topic and partition, the caches are invalidated when the configuration is
+ * updated.
  */
 public class ConfigurationFilterProvider implements DynamicPartitionObserverFilter, DynamicPartitionCommandProvider {
 
   private static final String PROPERTY_DOMAIN_ROUTE_NAME = "configuration.domain_route_name";
+  private static final String PROPERTY_CACHE_SIZE = "configuration.cache_size";
+  private static final String DEFAULT_PROPERTY_CACHE_SIZE = "10000";
 
   private static final Logger LOGGER = LogManager.getLogger(ConfigurationFilterProvider.class);
 
-  private final Map<String, Configuration> configurations;
+  private static final ConfigurationTemplate SESSION_TEMPLATE = new ConfigurationTemplate(
+    "<session name=\"{0}\" enabled=\"true\"><publisher_qos><partition><name><element>{1}</element></name></partition></publisher_qos><subscriber_qos><partition><name><element>{2}</element></name></partition></subscriber_qos></session>"
+  );
+
   private final Pattern patternConfigurationItem;
   private final String domainRouteName;
+  private final long cacheSize;
+
+  private volatile Map<String, Configuration> configurations;
+  private volatile ConfigurationMatcher configurationMatcher;
 
   /**
    * Instantiates a new configuration filter provider.
@@ -89,7 +101,6 @@ public class ConfigurationFilterProvider implements DynamicPartitionObserverFilt
     final String prefix,
     final Properties properties
   ) {
-    configurations = new HashMap<>();
     patternConfigurationItem = Pattern.compile(String.format(
       "%sconfiguration\\.([A-Za-z0-9_]*)\\.([A-Za-z0-9._]*)",
       prefix
@@ -103,6 +114,30 @@ public class ConfigurationFilterProvider implements DynamicPartitionObserverFilt
       )),
       System.getenv()
     );
+    cacheSize = Long.parseLong(StringSubstitutor.replace(
+      properties.getProperty(
+        String.format(
+          "%s%s",
+          prefix,
+          PROPERTY_CACHE_SIZE
+        ),
+        DEFAULT_PROPERTY_CACHE_SIZE
+      ),
+      System.getenv()
+    ));
+    loadConfiguration(properties);
+  }
+
+  /**
+   * Updates the configuration from the properties and invalidates cached decisions. Already created sessions and topic
+   * routes are not changed.
+   *
+   * @param properties the properties to load
+   */
+  public synchronized void update(
+    final Properties properties
+  ) {
+    checkNotNull(properties, "Properties must not be null");
     loadConfiguration(properties);
   }
 
@@ -114,6 +149,8 @@ public class ConfigurationFilterProvider implements DynamicPartitionObserverFilt
   private void loadConfiguration(
     final Properties properties
   ) {
+    Map<String, Configuration> loadedConfigurations = new HashMap<>();
+
     for (Entry<Object, Object> entry : properties.entrySet()) {
       // run the matcher
       Matcher entryMatch = patternConfigurationItem.matcher(entry.getKey().toString());
@@ -125,12 +162,17 @@ public class ConfigurationFilterProvider implements DynamicPartitionObserverFilt
 
       // load property
       loadProperty(
+        loadedConfigurations,
         entryMatch.group(1),
         entryMatch.group(2),
         entry.getValue().toString()
       );
     }
 
+    // activate configuration (matcher is created from the same map to keep the order)
+    configurations = loadedConfigurations;
+    configurationMatcher = new ConfigurationMatcher(loadedConfigurations.values(), cacheSize);
+
     // log configuration
     logConfiguration();
   }
@@ -138,11 +180,13 @@ public class ConfigurationFilterProvider implements DynamicPartitionObserverFilt
   /**
    * Loads a configuration group from the properties.
    *
-   * @param identifier    identifier of the group
-   * @param propertyName  property name
-   * @param propertyValue property value
+   * @param configurations configurations to add the property to
+   * @param identifier     identifier of the group
+   * @param propertyName   property name
+   * @param propertyValue  property value
    */
   private void loadProperty(
+    final Map<String, Configuration> configurations,
     final String identifier,
     final String propertyName,
     final String propertyValue) {
@@ -279,8 +323,28 @@ public class ConfigurationFilterProvider implements DynamicPartitionObserverFilt
     final String topicName,
     final String partition
   ) {
-    // get matching configuration
-    Configuration configuration = getMatchingConfiguration(topicName);
+    // use one matcher for the decision and its cache
+    ConfigurationMatcher matcher = configurationMatcher;
+    return matcher.ignorePartition(
+      topicName,
+      partition,
+      (t, p) -> ignorePartition(matcher.getMatchingConfiguration(t), t, p)
+    );
+  }
+
+  /**
+   * Returns if a partition should be ignored based on the configuration of the topic.
+   *
+   * @param configuration configuration of the topic, null if not found
+   * @param topicName     topic name
+   * @param partition     partition
+   * @return true if partition should be ignored, false if not
+   */
+  private boolean ignorePartition(
+    final Configuration configuration,
+    final String topicName,
+    final String partition
+  ) {
 
     // if we do not find a matching configuration we should ignore the partition
     if (configuration == null) {
@@ -352,22 +416,10 @@ public class ConfigurationFilterProvider implements DynamicPartitionObserverFilt
    * @param topicName topic name
    * @return configuration if found, otherwise null
    */
-  private Configuration getMatchingConfiguration(
+  Configuration getMatchingConfiguration(
     final String topicName
   ) {
-    for (Configuration configuration : configurations.values()) {
-      // when a deny filter is available check if it matches
-      if (configuration.getDenyTopicNameFilter() != null
-        && configuration.getDenyTopicNameFilter().matcher(topicName).matches()) {
-        continue;
-      }
-      // when no allow filter is available allow all topics, otherwise check if it matches
-      if (configuration.getAllowTopicNameFilter() == null
-        || configuration.getAllowTopicNameFilter().matcher(topicName).matches()) {
-        return configuration;
-      }
-    }
-    return null;
+    return configurationMatcher.getMatchingConfiguration(topicName);
   }
 
   @Override
@@ -381,12 +433,7 @@ public class ConfigurationFilterProvider implements DynamicPartitionObserverFilt
   public String getSessionName(
     final Session session
   ) {
-    return String.format(
-      "%s(%s)-%s",
-      session.getTopic(),
-      session.getPartition(),
-      session.getDirection()
-    );
+    return session.getTopic() + '(' + session.getPartition() + ")-" + session.getDirection();
   }
 
   @Override
@@ -411,13 +458,12 @@ public class ConfigurationFilterProvider implements DynamicPartitionObserverFilt
     // get matching configuration
     Configuration configuration = getMatchingConfiguration(session.getTopic());
     if (configuration != null
-      && !Strings.isNullOrEmpty(configuration.getPartitionTransformationRegex())
+      && configuration.getPartitionTransformationPattern() != null
       && !Strings.isNullOrEmpty(configuration.getPartitionTransformationReplacement())) {
       // generate transformed partition
-      String transformedPartition = session.getPartition().replaceAll(
-        configuration.getPartitionTransformationRegex(),
-        configuration.getPartitionTransformationReplacement()
-      );
+      String transformedPartition = configuration.getPartitionTransformationPattern()
+        .matcher(session.getPartition())
+        .replaceAll(configuration.getPartitionTransformationReplacement());
 
       // depending on direction, replace partition
       if (session.getDirection() == Direction.OUT) {
@@ -427,8 +473,7 @@ public class ConfigurationFilterProvider implements DynamicPartitionObserverFilt
       }
     }
 
-    return String.format(
-      "<session name=\"%1$s\" enabled=\"true\"><publisher_qos><partition><name><element>%2$s</element></name></partition></publisher_qos><subscriber_qos><partition><name><element>%3$s</element></name></partition></subscriber_qos></session>",
+    return SESSION_TEMPLATE.render(
       getSessionName(session),
       publisherPartition,
       subscriberPartition
@@ -463,15 +508,11 @@ public class ConfigurationFilterProvider implements DynamicPartitionObserverFilt
     Configuration configuration = getMatchingConfiguration(session.getTopic());
     checkNotNull(configuration);
 
-    return String.format(
-      "<topic_route name=\"%1$s\" enabled=\"true\">%5$s<input participant=\"%2$d\"><topic_name>%3$s</topic_name><registered_type_name>%4$s</registered_type_name>%6$s</input><output><topic_name>%3$s</topic_name><registered_type_name>%4$s</registered_type_name>%7$s</output></topic_route>",
+    return configuration.getTopicRouteTemplate().render(
       getTopicRouteName(session, topicRoute),
-      topicRoute.getDirection() == Direction.OUT ? 1 : 2,
+      topicRoute.getDirection() == Direction.OUT ? "1" : "2",
       session.getTopic(),
-      topicRoute.getType(),
-      configuration.getQosTopicRoute(),
-      configuration.getQosInput(),
-      configuration.getQosOutput()
+      topicRoute.getType()
     );
   }
 }
@@ -0,0 +1,199 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.routing.dynamic;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.BiPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * This class determines the configuration of a topic and caches the decisions.
+ * <p>
+ * The allow topic name filters of all configurations are combined into one pattern, so a topic is checked against all
+ * configurations in one pass. Only when the deny filter of the first matching configuration matches, the remaining
+ * configurations are checked one after another. Decisions are cached per topic and per topic and partition with a
+ * bounded size; a new instance needs to be created when the configurations change.
+ */
+class ConfigurationMatcher {
+
+  private static final String GROUP_NAME_FORMAT = "configuration%d";
+  private static final Pattern PATTERN_BACK_REFERENCE = Pattern.compile("\\\\[1-9]");
+
+  private final ImmutableList<Configuration> configurations;
+  private final Pattern combinedAllowTopicNameFilter;
+  private final Cache<String, Optional<Configuration>> topicCache;
+  private final Cache<SimpleEntry<String, String>, Boolean> partitionCache;
+
+  /**
+   * Instantiates a new configuration matcher.
+   *
+   * @param configurations configurations in the order they should be checked
+   * @param cacheSize      maximum number of cached decisions per cache
+   */
+  ConfigurationMatcher(
+    final Collection<Configuration> configurations,
+    final long cacheSize
+  ) {
+    checkNotNull(configurations, "Configurations must not be null");
+    checkArgument(cacheSize >= 0, "Cache size is expected >= 0");
+
+    this.configurations = ImmutableList.copyOf(configurations);
+    combinedAllowTopicNameFilter = combineAllowTopicNameFilters(this.configurations);
+    topicCache = CacheBuilder.newBuilder()
+      .maximumSize(cacheSize)
+      .build();
+    partitionCache = CacheBuilder.newBuilder()
+      .maximumSize(cacheSize)
+      .build();
+  }
+
+  /**
+   * Returns the first matching configuration. Deny filter takes precedence.
+   *
+   * @param topicName topic name
+   * @return configuration if found, otherwise null
+   */
+  Configuration getMatchingConfiguration(
+    final String topicName
+  ) {
+    Optional<Configuration> configuration = topicCache.getIfPresent(topicName);
+    if (configuration == null) {
+      configuration = Optional.ofNullable(findMatchingConfiguration(topicName));
+      topicCache.put(topicName, configuration);
+    }
+    return configuration.orElse(null);
+  }
+
+  /**
+   * Returns if a partition should be ignored, the decision is only made when not yet cached.
+   *
+   * @param topicName topic name
+   * @param partition partition
+   * @param decision  decision to make when not cached
+   * @return true if partition should be ignored, false if not
+   */
+  boolean ignorePartition(
+    final String topicName,
+    final String partition,
+    final BiPredicate<String, String> decision
+  ) {
+    SimpleEntry<String, String> key = new SimpleEntry<>(topicName, partition);
+    Boolean ignore = partitionCache.getIfPresent(key);
+    if (ignore == null) {
+      ignore = decision.test(topicName, partition);
+      partitionCache.put(key, ignore);
+    }
+    return ignore;
+  }
+
+  /**
+   * Finds the first matching configuration without using the cache.
+   *
+   * @param topicName topic name
+   * @return configuration if found, otherwise null
+   */
+  private Configuration findMatchingConfiguration(
+    final String topicName
+  ) {
+    // determine first configuration with matching allow filter
+    int startIndex = 0;
+    if (combinedAllowTopicNameFilter != null) {
+      Matcher matcher = combinedAllowTopicNameFilter.matcher(topicName);
+      if (!matcher.matches()) {
+        return null;
+      }
+      while (matcher.start(String.format(GROUP_NAME_FORMAT, startIndex)) < 0) {
+        startIndex++;
+      }
+    }
+
+    // check configurations starting with the first one that matched
+    for (int i = startIndex; i < configurations.size(); i++) {
+      Configuration configuration = configurations.get(i);
+      // when a deny filter is available check if it matches
+      if (configuration.getDenyTopicNameFilter() != null
+        && configuration.getDenyTopicNameFilter().matcher(topicName).matches()) {
+        continue;
+      }
+      // when no allow filter is available allow all topics, otherwise check if it matches
+      if (configuration.getAllowTopicNameFilter() == null
+        || configuration.getAllowTopicNameFilter().matcher(topicName).matches()) {
+        return configuration;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Combines the allow topic name filters into one pattern with a named group per configuration.
+   *
+   * @param configurations configurations
+   * @return combined pattern, null if the filters cannot be combined (e.g. because of back references)
+   */
+  private static Pattern combineAllowTopicNameFilters(
+    final ImmutableList<Configuration> configurations
+  ) {
+    if (configurations.isEmpty()) {
+      return null;
+    }
+
+    StringBuilder combinedPattern = new StringBuilder();
+    for (int i = 0; i < configurations.size(); i++) {
+      Pattern allowTopicNameFilter = configurations.get(i).getAllowTopicNameFilter();
+
+      // numbered back references would refer to the wrong groups
+      if (allowTopicNameFilter != null
+        && PATTERN_BACK_REFERENCE.matcher(allowTopicNameFilter.pattern()).find()) {
+        return null;
+      }
+
+      if (i > 0) {
+        combinedPattern.append('|');
+      }
+      combinedPattern
+        .append("(?<")
+        .append(String.format(GROUP_NAME_FORMAT, i))
+        .append(">(?:")
+        .append(allowTopicNameFilter != null ? allowTopicNameFilter.pattern() : "(?s:.*)")
+        .append("))");
+    }
+
+    try {
+      return Pattern.compile(combinedPattern.toString());
+    } catch (PatternSyntaxException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.routing.dynamic;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class renders configuration strings from a template that is tokenized once.
+ * <p>
+ * Parameters are written as '{n}' with n being the index of the value provided when rendering. Parameters can be bound
+ * to a fixed value in advance, e.g. with the QoS of a configuration, so only the varying values are inserted when
+ * rendering.
+ * <p>
+ * Like String.format a value of null is rendered as 'null'.
+ */
+class ConfigurationTemplate {
+
+  private final String[] fragments;
+  private final int[] parameters;
+  private final int fragmentsLength;
+
+  /**
+   * Instantiates a new configuration template.
+   *
+   * @param template template with parameters '{n}'
+   */
+  ConfigurationTemplate(
+    final String template
+  ) {
+    checkNotNull(template, "Template must not be null");
+
+    List<String> fragmentList = new ArrayList<>();
+    List<Integer> parameterList = new ArrayList<>();
+
+    // split template into fragments and parameters
+    int fragmentStart = 0;
+    int index = template.indexOf('{');
+    while (index >= 0) {
+      int end = template.indexOf('}', index);
+      checkArgument(end > index + 1, "Parameter at position %s is not closed", index);
+      fragmentList.add(template.substring(fragmentStart, index));
+      parameterList.add(Integer.parseInt(template.substring(index + 1, end)));
+      fragmentStart = end + 1;
+      index = template.indexOf('{', fragmentStart);
+    }
+    fragmentList.add(template.substring(fragmentStart));
+
+    fragments = fragmentList.toArray(new String[0]);
+    parameters = parameterList.stream().mapToInt(Integer::intValue).toArray();
+    fragmentsLength = fragmentList.stream().mapToInt(String::length).sum();
+  }
+
+  /**
+   * Instantiates a new configuration template from already tokenized data.
+   *
+   * @param fragments  fragments between parameters
+   * @param parameters parameters between fragments
+   */
+  private ConfigurationTemplate(
+    final String[] fragments,
+    final int[] parameters
+  ) {
+    this.fragments = fragments;
+    this.parameters = parameters;
+    int length = 0;
+    for (String fragment : fragments) {
+      length += fragment.length();
+    }
+    this.fragmentsLength = length;
+  }
+
+  /**
+   * Returns a new template with a parameter bound to a fixed value.
+   *
+   * @param parameter index of the parameter
+   * @param value     value of the parameter
+   * @return new template without the parameter
+   */
+  ConfigurationTemplate bind(
+    final int parameter,
+    final String value
+  ) {
+    List<String> fragmentList = new ArrayList<>();
+    List<Integer> parameterList = new ArrayList<>();
+
+    // merge bound parameters into the surrounding fragments
+    StringBuilder fragment = new StringBuilder(fragments[0]);
+    for (int i = 0; i < parameters.length; i++) {
+      if (parameters[i] == parameter) {
+        fragment.append(toString(value));
+      } else {
+        fragmentList.add(fragment.toString());
+        parameterList.add(parameters[i]);
+        fragment.setLength(0);
+      }
+      fragment.append(fragments[i + 1]);
+    }
+    fragmentList.add(fragment.toString());
+
+    return new ConfigurationTemplate(
+      fragmentList.toArray(new String[0]),
+      parameterList.stream().mapToInt(Integer::intValue).toArray()
+    );
+  }
+
+  /**
+   * Renders the template.
+   *
+   * @param values values of the parameters
+   * @return rendered string
+   */
+  String render(
+    final String... values
+  ) {
+    // determine length to avoid resizing
+    int length = fragmentsLength;
+    for (int parameter : parameters) {
+      length += toString(values[parameter]).length();
+    }
+
+    // render string
+    StringBuilder result = new StringBuilder(length);
+    result.append(fragments[0]);
+    for (int i = 0; i < parameters.length; i++) {
+      result.append(toString(values[parameters[i]]));
+      result.append(fragments[i + 1]);
+    }
+    return result.toString();
+  }
+
+  private static String toString(
+    final String value
+  ) {
+    return value != null ? value : "null";
+  }
+}
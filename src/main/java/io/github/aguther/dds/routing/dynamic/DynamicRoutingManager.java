@@ -37,7 +37,9 @@ import com.rti.routingservice.RoutingService;
 import io.github.aguther.dds.discovery.observer.PublicationObserver;
 import io.github.aguther.dds.discovery.observer.SubscriptionObserver;
 import io.github.aguther.dds.routing.dynamic.command.remote.DynamicPartitionCommander;
+import io.github.aguther.dds.routing.dynamic.observer.AsynchronousDynamicPartitionObserverListener;
 import io.github.aguther.dds.routing.dynamic.observer.DynamicPartitionObserver;
+import io.github.aguther.dds.routing.dynamic.observer.DynamicPartitionObserverListener;
 import io.github.aguther.dds.routing.dynamic.observer.filter.RoutingServiceGroupEntitiesFilter;
 import io.github.aguther.dds.routing.dynamic.observer.filter.RtiTopicFilter;
 import io.github.aguther.dds.routing.util.RoutingServiceCommandInterface;
@@ -82,9 +84,38 @@ public class DynamicRoutingManager implements Closeable {
   private static final String DEFAULT_PROPERTY_ADMINISTRATION_REQUEST_RETRY_DELAY
     = "45000";
 
+  private static final String PROPERTY_ADMINISTRATION_REQUEST_MAX_OUTSTANDING
+    = "administration.request.max_outstanding";
+  private static final String DEFAULT_PROPERTY_ADMINISTRATION_REQUEST_MAX_OUTSTANDING
+    = "4";
+
+  private static final String PROPERTY_ADMINISTRATION_REQUEST_COALESCING_DELAY
+    = "administration.request.coalescing_delay";
+  private static final String DEFAULT_PROPERTY_ADMINISTRATION_REQUEST_COALESCING_DELAY
+    = "0";
+
   private static final String PROPERTY_DISCOVERY_DOMAIN_ID
     = "discovery.domain_id";
 
+  private static final String PROPERTY_DISCOVERY_LANES
+    = "discovery.lanes";
+  private static final String DEFAULT_PROPERTY_DISCOVERY_LANES
+    = "1";
+
+  private static final String PROPERTY_DISCOVERY_COMPACT_SAMPLE_CACHE
+    = "discovery.compact_sample_cache";
+  private static final String DEFAULT_PROPERTY_DISCOVERY_COMPACT_SAMPLE_CACHE
+    = "false";
+  private static final String PROPERTY_DISCOVERY_BATCH_SIZE
+    = "discovery.batch_size";
+  private static final String DEFAULT_PROPERTY_DISCOVERY_BATCH_SIZE
+    = "0";
+
+  private static final String PROPERTY_DISCOVERY_LISTENER_QUEUE_CAPACITY
+    = "discovery.listener_queue_capacity";
+  private static final String DEFAULT_PROPERTY_DISCOVERY_LISTENER_QUEUE_CAPACITY
+    = "0";
+
   private static final Logger LOGGER = LogManager.getLogger(DynamicRoutingManager.class);
 
   private final String propertiesPrefix;
@@ -97,6 +128,7 @@ public class DynamicRoutingManager implements Closeable {
   private final SubscriptionObserver subscriptionObserver;
 
   private final DynamicPartitionObserver dynamicPartitionObserver;
+  private AsynchronousDynamicPartitionObserverListener asynchronousDynamicPartitionObserverListener;
 
   private DynamicPartitionCommander dynamicPartitionCommanderRemote;
   private RoutingServiceCommandInterface routingServiceCommandInterface;
@@ -174,7 +206,12 @@ public class DynamicRoutingManager implements Closeable {
       propertiesPrefix, properties);
 
     // create dynamic partition observer
-    dynamicPartitionObserver = new DynamicPartitionObserver();
+    dynamicPartitionObserver = new DynamicPartitionObserver(
+      Integer.parseInt(StringSubstitutor.replace(
+        getProperty(PROPERTY_DISCOVERY_LANES, DEFAULT_PROPERTY_DISCOVERY_LANES),
+        System.getenv()
+      ))
+    );
     // filter out RTI topics
     dynamicPartitionObserver.addFilter(new RtiTopicFilter());
     // filter out entities belonging to the same routing service group
@@ -187,12 +224,24 @@ public class DynamicRoutingManager implements Closeable {
       Integer.parseInt(StringSubstitutor.replace(getProperty(PROPERTY_DISCOVERY_DOMAIN_ID), System.getenv()))
     );
 
+    // determine if observers should only cache the fields needed
+    boolean compactSampleCache = Boolean.parseBoolean(StringSubstitutor.replace(
+      getProperty(PROPERTY_DISCOVERY_COMPACT_SAMPLE_CACHE, DEFAULT_PROPERTY_DISCOVERY_COMPACT_SAMPLE_CACHE),
+      System.getenv()
+    ));
+
+    // determine how many discovery samples are read at once (0 reads sample by sample)
+    int batchSize = Integer.parseInt(StringSubstitutor.replace(
+      getProperty(PROPERTY_DISCOVERY_BATCH_SIZE, DEFAULT_PROPERTY_DISCOVERY_BATCH_SIZE),
+      System.getenv()
+    ));
+
     // create new publication observer
-    publicationObserver = new PublicationObserver(domainParticipantDiscovery);
+    publicationObserver = new PublicationObserver(domainParticipantDiscovery, compactSampleCache, batchSize);
     publicationObserver.addListener(dynamicPartitionObserver, false);
 
     // create new subscription observer
-    subscriptionObserver = new SubscriptionObserver(domainParticipantDiscovery);
+    subscriptionObserver = new SubscriptionObserver(domainParticipantDiscovery, compactSampleCache, batchSize);
     subscriptionObserver.addListener(dynamicPartitionObserver, false);
 
     // depending on provided property start either local or remote administration interface
@@ -218,6 +267,9 @@ public class DynamicRoutingManager implements Closeable {
     if (dynamicPartitionObserver != null) {
       dynamicPartitionObserver.close();
     }
+    if (asynchronousDynamicPartitionObserverListener != null) {
+      asynchronousDynamicPartitionObserverListener.close();
+    }
     if (dynamicPartitionCommanderRemote != null) {
       dynamicPartitionCommanderRemote.close();
     }
@@ -306,12 +358,12 @@ public class DynamicRoutingManager implements Closeable {
     );
 
     // add listener to dynamic partition observer
-    dynamicPartitionObserver.addListener(
+    dynamicPartitionObserver.addListener(decouple(
       new io.github.aguther.dds.routing.dynamic.command.local.DynamicPartitionCommander(
         routingService,
         configurationFilterProvider
       )
-    );
+    ));
   }
 
   /**
@@ -340,8 +392,17 @@ public class DynamicRoutingManager implements Closeable {
     domainParticipantAdministration.enable();
 
     // create routing service administration
+    int maxOutstandingRequests = Integer.parseInt(StringSubstitutor.replace(
+      getProperty(
+        PROPERTY_ADMINISTRATION_REQUEST_MAX_OUTSTANDING,
+        DEFAULT_PROPERTY_ADMINISTRATION_REQUEST_MAX_OUTSTANDING
+      ),
+      System.getenv()
+    ));
     routingServiceCommandInterface = new RoutingServiceCommandInterface(
-      domainParticipantAdministration);
+      domainParticipantAdministration,
+      maxOutstandingRequests
+    );
 
     // wait for routing service to be discovered
     LOGGER.info("Waiting for remote administration interface of routing service to be discovered");
@@ -380,11 +441,46 @@ public class DynamicRoutingManager implements Closeable {
         ),
         System.getenv()
       )),
+      TimeUnit.MILLISECONDS,
+      Long.parseLong(StringSubstitutor.replace(
+        getProperty(
+          PROPERTY_ADMINISTRATION_REQUEST_COALESCING_DELAY,
+          DEFAULT_PROPERTY_ADMINISTRATION_REQUEST_COALESCING_DELAY
+        ),
+        System.getenv()
+      )),
       TimeUnit.MILLISECONDS
     );
 
     // add listener to dynamic partition observer
-    dynamicPartitionObserver.addListener(dynamicPartitionCommanderRemote);
+    dynamicPartitionObserver.addListener(decouple(dynamicPartitionCommanderRemote));
+  }
+
+  /**
+   * Decouples the listener from the dynamic partition observer when a listener queue capacity is configured, so a slow
+   * commander does not stall discovery.
+   *
+   * @param listener listener to decouple
+   * @return asynchronous listener if a capacity is configured, otherwise the provided listener
+   */
+  private DynamicPartitionObserverListener decouple(
+    final DynamicPartitionObserverListener listener
+  ) {
+    int capacity = Integer.parseInt(StringSubstitutor.replace(
+      getProperty(
+        PROPERTY_DISCOVERY_LISTENER_QUEUE_CAPACITY,
+        DEFAULT_PROPERTY_DISCOVERY_LISTENER_QUEUE_CAPACITY
+      ),
+      System.getenv()
+    ));
+    if (capacity <= 0) {
+      return listener;
+    }
+    asynchronousDynamicPartitionObserverListener = new AsynchronousDynamicPartitionObserverListener(
+      listener,
+      capacity
+    );
+    return asynchronousDynamicPartitionObserverListener;
   }
 
   /**
@@ -26,12 +26,18 @@ package io.github.aguther.dds.routing.dynamic.command;
 
 import io.github.aguther.dds.routing.dynamic.observer.Session;
 import io.github.aguther.dds.routing.dynamic.observer.TopicRoute;
+import java.util.Collection;
 
 /**
  * Callback interface to get information and configuration for the creation and deletion of sessions and topic routes.
  */
 public interface DynamicPartitionCommandProvider {
 
+  /**
+   * Closing tag of a session configuration.
+   */
+  String SESSION_CLOSING_TAG = "</session>";
+
   /**
    * Invoked to get the parent entity name of a session.
    *
@@ -73,6 +79,40 @@ public interface DynamicPartitionCommandProvider {
     final Session session
   );
 
+  /**
+   * Invoked to get the configuration of a session including the configuration of topic routes to be created with it.
+   * <p>
+   * The default implementation inserts the topic route configurations before the closing tag of the session
+   * configuration.
+   *
+   * @param session     session for which the configuration is needed
+   * @param topicRoutes topic routes of the session to be created with it
+   * @apiNote "<session name=\"ExampleSession(Partition)\">[...]<topic_route name=\"ExampleTopicRoute\">[...]</topic_route></session>"
+   */
+  default String getSessionConfiguration(
+    final Session session,
+    final Collection<TopicRoute> topicRoutes
+  ) {
+    // get configuration of session
+    String sessionConfiguration = getSessionConfiguration(session);
+    int index = sessionConfiguration.lastIndexOf(SESSION_CLOSING_TAG);
+    if (index < 0) {
+      throw new IllegalStateException(String.format(
+        "Configuration of session '%s' has no closing tag",
+        getSessionName(session)
+      ));
+    }
+
+    // insert configuration of topic routes
+    StringBuilder configuration = new StringBuilder(sessionConfiguration.length() * (topicRoutes.size() + 1));
+    configuration.append(sessionConfiguration, 0, index);
+    for (TopicRoute topicRoute : topicRoutes) {
+      configuration.append(getTopicRouteConfiguration(session, topicRoute));
+    }
+    configuration.append(sessionConfiguration, index, sessionConfiguration.length());
+    return configuration.toString();
+  }
+
   /**
    * Invoked to get the name of a topic route.
    *
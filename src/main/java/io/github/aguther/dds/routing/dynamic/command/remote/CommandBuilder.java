@@ -30,6 +30,7 @@ import io.github.aguther.dds.routing.dynamic.command.DynamicPartitionCommandProv
 import io.github.aguther.dds.routing.dynamic.observer.Session;
 import io.github.aguther.dds.routing.dynamic.observer.TopicRoute;
 import io.github.aguther.dds.routing.util.RoutingServiceCommandInterface;
+import java.util.List;
 
 class CommandBuilder {
 
@@ -77,6 +78,38 @@ class CommandBuilder {
     );
   }
 
+  Command buildCreateSessionCommand(
+    Session session,
+    List<TopicRoute> topicRoutes
+  ) {
+    // create request
+    CommandRequest commandRequest = routingServiceCommandInterface.createCommandRequest();
+    commandRequest.action = CommandActionKind.CREATE_ACTION;
+    commandRequest.resource_identifier = String.format(
+      "/routing_services/%s/domain_routes/%s",
+      targetRoutingService,
+      provider.getSessionParent(session)
+    );
+    commandRequest.string_body = String.format(
+      "str://\"%s\"",
+      provider.getSessionConfiguration(session, topicRoutes)
+    );
+
+    // create and return command
+    return new Command(
+      CommandType.COMMAND_TYPE_CREATE,
+      session,
+      null,
+      commandRequest,
+      String.format(
+        "entity='Session', topic='%s', partition='%s', topic_routes='%d'",
+        session.getTopic(),
+        session.getPartition(),
+        topicRoutes.size()
+      )
+    );
+  }
+
   Command buildDeleteSessionCommand(
     Session session
   ) {
@@ -28,6 +28,8 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 import idl.RTI.Service.Admin.CommandReply;
 import idl.RTI.Service.Admin.CommandReplyRetcode;
 import idl.RTI.Service.Admin.CommandRequest;
@@ -38,14 +40,23 @@ import io.github.aguther.dds.routing.dynamic.observer.TopicRoute;
 import io.github.aguther.dds.routing.util.RoutingServiceCommandInterface;
 import java.io.Closeable;
 import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import net.jodah.failsafe.Failsafe;
-import net.jodah.failsafe.FailsafeFuture;
 import net.jodah.failsafe.RetryPolicy;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -58,11 +69,22 @@ import org.apache.logging.log4j.Logger;
  * <p>
  * When a command is not successful, it retries the command after the retry delay until it worked or a converse request
  * (e.g. session creation vs. session deletion).
+ * <p>
+ * Commands are sent in order without waiting for the reply of the previous one, the number of commands waiting for a
+ * reply at the same time is limited by the routing service command interface. Commands of the same session depend on
+ * each other (e.g. the creation of a topic route on the creation of its session), so a command is only sent after the
+ * first attempt of the previous command of its session has been answered or timed out. Commands of different sessions
+ * do not wait for each other.
+ * <p>
+ * Before being sent, commands are queued for a coalescing delay: converse commands for the same session or topic route
+ * cancel out each other, and the creation of a session is combined with the creation of its topic routes into one
+ * command with a single configuration.
  */
 public class DynamicPartitionCommander implements Closeable, DynamicPartitionObserverListener {
 
   private static final int DEFAULT_REQUEST_TIMEOUT_SECONDS = 10;
   private static final int DEFAULT_RETRY_DELAY_SECONDS = 10;
+  private static final int DEFAULT_COALESCING_DELAY_MILLISECONDS = 0;
 
   private static final Logger LOGGER = LogManager.getLogger(DynamicPartitionCommander.class);
 
@@ -71,7 +93,10 @@ public class DynamicPartitionCommander implements Closeable, DynamicPartitionObs
   private final CommandBuilder commandBuilder;
 
   private final ScheduledExecutorService executorService;
-  private final Map<SimpleEntry<Session, TopicRoute>, SimpleEntry<FailsafeFuture, Command>> scheduledCommands;
+  private final Map<SimpleEntry<Session, TopicRoute>, ScheduledCommand> scheduledCommands;
+  private final Map<SimpleEntry<Session, TopicRoute>, SimpleEntry<Command, Boolean>> queuedCommands;
+  private final Map<Session, CompletableFuture<Void>> lastFirstAttempts;
+  private boolean flushScheduled;
 
   private final RetryPolicy retryPolicy;
   private final RetryPolicy retryPolicyAfterRetry;
@@ -80,6 +105,8 @@ public class DynamicPartitionCommander implements Closeable, DynamicPartitionObs
   private final TimeUnit requestTimeoutTimeUnit;
   private final long retryDelay;
   private final TimeUnit retryDelayTimeUnit;
+  private final long coalescingDelay;
+  private final TimeUnit coalescingDelayTimeUnit;
 
   /**
    * Instantiates a new Dynamic partition commander.
@@ -150,6 +177,43 @@ public class DynamicPartitionCommander implements Closeable, DynamicPartitionObs
     final TimeUnit retryDelayTimeUnit,
     final long requestTimeout,
     final TimeUnit requestTimeoutTimeUnit
+  ) {
+    this(
+      routingServiceCommandInterface,
+      dynamicPartitionCommandProvider,
+      targetRoutingService,
+      retryDelay,
+      retryDelayTimeUnit,
+      requestTimeout,
+      requestTimeoutTimeUnit,
+      DEFAULT_COALESCING_DELAY_MILLISECONDS,
+      TimeUnit.MILLISECONDS
+    );
+  }
+
+  /**
+   * Instantiates a new Dynamic partition commander.
+   *
+   * @param routingServiceCommandInterface  the routing service command helper
+   * @param dynamicPartitionCommandProvider the dynamic partition commander provider
+   * @param targetRoutingService            the target routing service
+   * @param retryDelay                      the retry delay
+   * @param retryDelayTimeUnit              the retry delay time unit
+   * @param requestTimeout                  the request timeout
+   * @param requestTimeoutTimeUnit          the request timeout time unit
+   * @param coalescingDelay                 the delay commands are queued for coalescing
+   * @param coalescingDelayTimeUnit         the coalescing delay time unit
+   */
+  public DynamicPartitionCommander(
+    final RoutingServiceCommandInterface routingServiceCommandInterface,
+    final DynamicPartitionCommandProvider dynamicPartitionCommandProvider,
+    final String targetRoutingService,
+    final long retryDelay,
+    final TimeUnit retryDelayTimeUnit,
+    final long requestTimeout,
+    final TimeUnit requestTimeoutTimeUnit,
+    final long coalescingDelay,
+    final TimeUnit coalescingDelayTimeUnit
   ) {
     checkNotNull(routingServiceCommandInterface, "Command interface must not be null.");
     checkNotNull(dynamicPartitionCommandProvider, "Provider must not be null.");
@@ -158,12 +222,16 @@ public class DynamicPartitionCommander implements Closeable, DynamicPartitionObs
     checkNotNull(retryDelayTimeUnit, "Retry time unit must not be null.");
     checkArgument(requestTimeout > 0, "Timeout is expected > 0");
     checkNotNull(requestTimeoutTimeUnit, "Request timeout unit must not be null.");
+    checkArgument(coalescingDelay >= 0, "Coalescing delay is expected >= 0");
+    checkNotNull(coalescingDelayTimeUnit, "Coalescing delay unit must not be null.");
 
     this.routingServiceCommandInterface = routingServiceCommandInterface;
     this.retryDelay = retryDelay;
     this.retryDelayTimeUnit = retryDelayTimeUnit;
     this.requestTimeout = requestTimeout;
     this.requestTimeoutTimeUnit = requestTimeoutTimeUnit;
+    this.coalescingDelay = coalescingDelay;
+    this.coalescingDelayTimeUnit = coalescingDelayTimeUnit;
 
     commandBuilder = new CommandBuilder(
       routingServiceCommandInterface,
@@ -172,6 +240,8 @@ public class DynamicPartitionCommander implements Closeable, DynamicPartitionObs
     );
 
     scheduledCommands = Collections.synchronizedMap(new HashMap<>());
+    queuedCommands = new LinkedHashMap<>();
+    lastFirstAttempts = new ConcurrentHashMap<>();
 
     executorService = Executors.newSingleThreadScheduledExecutor();
 
@@ -259,74 +329,297 @@ public class DynamicPartitionCommander implements Closeable, DynamicPartitionObs
    * Case 3: A -> run -> failed -> wait retry -> B -> abort (A) -> restart (B=>A)
    * Case 4: A -> run -> B -> abort (A) -> success (A) -> restart (B=>A)
    * Case 5: A -> run -> B -> abort (A) -> failed (A) -> end
+   *
+   * Before being sent, commands are queued for the coalescing delay:
+   *
+   * Case 6: A -> queued -> B -> A and B are dropped (when A is not a restart)
+   * Case 7: A -> queued -> A -> A is sent once
+   * Case 8: create session -> queued -> create topic route(s) -> sent as one command
+   *
+   * When a batched command is aborted, the other commands it contains are queued again as restart. Restarts are not
+   * combined: the session may already exist in the routing service, so its creation may fail and must not take the
+   * creation of its topic routes with it.
    */
 
   /**
-   * Schedules a command.
+   * Queues a command to be sent after the coalescing delay.
    *
-   * @param command command to be scheduled
+   * @param command command to be queued
    */
   private void scheduleCommand(
-    Command command
+    final Command command
+  ) {
+    queueCommand(command, false);
+  }
+
+  /**
+   * Queues a command to be sent after the coalescing delay, coalescing it with a command queued for the same session
+   * and topic route.
+   *
+   * @param command command to be queued
+   * @param restart true if the command restarts an aborted command
+   */
+  private void queueCommand(
+    final Command command,
+    final boolean restart
   ) {
     // create entry for command
     SimpleEntry<Session, TopicRoute> commandKey = new SimpleEntry<>(
       command.getSession(), command.getTopicRoute());
 
-    // select default retry policy
-    RetryPolicy appliedRetryPolicy = retryPolicy;
+    synchronized (queuedCommands) {
+      // get previous queued command
+      SimpleEntry<Command, Boolean> previousQueuedCommand = queuedCommands.remove(commandKey);
+
+      if (previousQueuedCommand != null) {
+        // converse commands cancel out each other, as long as the previous command is no restart
+        if (previousQueuedCommand.getKey().getType() != command.getType()
+          && !previousQueuedCommand.getValue()) {
+          LOGGER.debug(
+            "Dropped converse commands, {}",
+            command.getLoggingFormat()
+          );
+          return;
+        }
+        // otherwise the new command replaces the previous one
+        queuedCommands.put(commandKey, new SimpleEntry<>(command, restart || previousQueuedCommand.getValue()));
+      } else {
+        queuedCommands.put(commandKey, new SimpleEntry<>(command, restart));
+      }
+
+      // ensure queued commands are sent
+      if (!flushScheduled) {
+        flushScheduled = true;
+        executorService.schedule(this::flushQueuedCommands, coalescingDelay, coalescingDelayTimeUnit);
+      }
+    }
+  }
+
+  /**
+   * Sends the queued commands, combines the creation of a session with the creation of its topic routes.
+   */
+  private void flushQueuedCommands() {
+    // take queued commands
+    List<SimpleEntry<Command, Boolean>> commands;
+    synchronized (queuedCommands) {
+      commands = new ArrayList<>(queuedCommands.values());
+      queuedCommands.clear();
+      flushScheduled = false;
+    }
+
+    // determine sessions that are created (restarts are never combined)
+    Set<Session> createdSessions = new HashSet<>();
+    for (SimpleEntry<Command, Boolean> entry : commands) {
+      if (isCombinable(entry) && entry.getKey().getTopicRoute() == null) {
+        createdSessions.add(entry.getKey().getSession());
+      }
+    }
+
+    // collect creation of topic routes of sessions that are created
+    ListMultimap<Session, Command> createdTopicRoutes = ArrayListMultimap.create();
+    for (SimpleEntry<Command, Boolean> entry : commands) {
+      if (isCombinable(entry)
+        && entry.getKey().getTopicRoute() != null
+        && createdSessions.contains(entry.getKey().getSession())) {
+        createdTopicRoutes.put(entry.getKey().getSession(), entry.getKey());
+      }
+    }
+
+    // send commands in the order they were queued
+    for (SimpleEntry<Command, Boolean> entry : commands) {
+      Command command = entry.getKey();
+
+      // creation of topic route is part of session creation
+      if (isCombinable(entry)
+        && command.getTopicRoute() != null
+        && createdSessions.contains(command.getSession())) {
+        continue;
+      }
+
+      // creation of session without topic routes or any other command
+      if (!isCombinable(entry)
+        || command.getTopicRoute() != null
+        || !createdTopicRoutes.containsKey(command.getSession())) {
+        sendCommand(command, Collections.singletonList(command), entry.getValue());
+        continue;
+      }
+
+      // combine creation of session and its topic routes
+      List<Command> members = new ArrayList<>();
+      List<TopicRoute> topicRoutes = new ArrayList<>();
+      members.add(command);
+      for (Command topicRouteCommand : createdTopicRoutes.get(command.getSession())) {
+        members.add(topicRouteCommand);
+        topicRoutes.add(topicRouteCommand.getTopicRoute());
+      }
+      sendCommand(
+        commandBuilder.buildCreateSessionCommand(command.getSession(), topicRoutes),
+        members,
+        false
+      );
+    }
+  }
+
+  /**
+   * Checks if a queued command can be combined with others, only creations that are no restarts can be combined.
+   *
+   * @param entry queued command and its restart flag
+   * @return true if the command can be combined
+   */
+  private static boolean isCombinable(
+    final SimpleEntry<Command, Boolean> entry
+  ) {
+    return entry.getKey().getType() == CommandType.COMMAND_TYPE_CREATE && !entry.getValue();
+  }
 
-    // get previous entry
-    SimpleEntry<FailsafeFuture, Command> previousCommandEntry = scheduledCommands.remove(commandKey);
+  /**
+   * Sends a command and retries it until successful or aborted.
+   *
+   * @param command command to be sent
+   * @param members commands contained in the command (the command itself when not combined)
+   * @param restart true if the command restarts an aborted command
+   */
+  private void sendCommand(
+    final Command command,
+    final List<Command> members,
+    final boolean restart
+  ) {
+    // select default retry policy
+    RetryPolicy appliedRetryPolicy = restart ? retryPolicyAfterRetry : retryPolicy;
+
+    // get previous commands that are still active
+    Set<ScheduledCommand> previousScheduledCommands = new LinkedHashSet<>();
+    for (Command member : members) {
+      ScheduledCommand previousScheduledCommand = scheduledCommands.get(
+        new SimpleEntry<>(member.getSession(), member.getTopicRoute()));
+      if (previousScheduledCommand != null) {
+        previousScheduledCommands.add(previousScheduledCommand);
+      }
+    }
 
-    // check if previous command is still active
-    if (previousCommandEntry != null) {
-      // abort previous command
-      previousCommandEntry.getKey().cancel(false);
+    // abort previous commands
+    for (ScheduledCommand previousScheduledCommand : previousScheduledCommands) {
+      abortScheduledCommand(previousScheduledCommand, members);
       // override retry policy
       appliedRetryPolicy = retryPolicyAfterRetry;
     }
 
-    // schedule creation of session
-    FailsafeFuture commandFuture = Failsafe
+    // send command after the first attempt of the previous command of its session
+    ScheduledCommand scheduledCommand = new ScheduledCommand(members);
+    CompletableFuture<Void> previousFirstAttempt = lastFirstAttempts.put(
+      command.getSession(), scheduledCommand.firstAttempt);
+    CompletableFuture<Void> awaitedFirstAttempt = previousFirstAttempt != null
+      ? previousFirstAttempt
+      : CompletableFuture.completedFuture(null);
+    scheduledCommand.firstAttempt.whenComplete(
+      (result, throwable) -> lastFirstAttempts.remove(command.getSession(), scheduledCommand.firstAttempt));
+
+    // schedule command
+    scheduledCommand.future = Failsafe
       .with(appliedRetryPolicy)
       .with(executorService)
-      .onSuccess(result -> scheduledCommands.remove(commandKey))
-      .get(() -> sendRequest(command));
+      .onSuccess(result -> removeScheduledCommand(scheduledCommand))
+      .future(() -> awaitedFirstAttempt.thenComposeAsync(
+        ignored -> sendRequest(scheduledCommand, command),
+        executorService));
 
     // add command to scheduled commands
     synchronized (scheduledCommands) {
-      if (!commandFuture.isDone()) {
-        scheduledCommands.put(commandKey, new SimpleEntry<>(commandFuture, command));
+      if (!scheduledCommand.future.isDone()) {
+        for (Command member : members) {
+          scheduledCommands.put(new SimpleEntry<>(member.getSession(), member.getTopicRoute()), scheduledCommand);
+        }
       }
     }
   }
 
   /**
-   * Sends a request, waits for the result and checks it.
+   * Aborts a scheduled command, contained commands not being replaced are queued again.
    *
-   * @param command command to send
-   * @return true if request was successful, false if not
+   * @param scheduledCommand scheduled command to abort
+   * @param replacements     commands replacing the scheduled command
+   */
+  private void abortScheduledCommand(
+    final ScheduledCommand scheduledCommand,
+    final List<Command> replacements
+  ) {
+    // abort command, a command that has not been sent yet no longer delays the next command of its session
+    boolean sent;
+    synchronized (scheduledCommand) {
+      scheduledCommand.aborted = true;
+      sent = scheduledCommand.sent;
+    }
+    if (!sent) {
+      scheduledCommand.firstAttempt.complete(null);
+    }
+    scheduledCommand.future.cancel(false);
+    removeScheduledCommand(scheduledCommand);
+
+    // restart contained commands that are not replaced
+    for (Command member : scheduledCommand.members) {
+      boolean replaced = false;
+      for (Command replacement : replacements) {
+        if (Objects.equals(member.getSession(), replacement.getSession())
+          && Objects.equals(member.getTopicRoute(), replacement.getTopicRoute())) {
+          replaced = true;
+          break;
+        }
+      }
+      if (!replaced) {
+        queueCommand(member, true);
+      }
+    }
+  }
+
+  /**
+   * Removes a scheduled command.
+   *
+   * @param scheduledCommand scheduled command to remove
+   */
+  private void removeScheduledCommand(
+    final ScheduledCommand scheduledCommand
+  ) {
+    for (Command member : scheduledCommand.members) {
+      scheduledCommands.remove(new SimpleEntry<>(member.getSession(), member.getTopicRoute()), scheduledCommand);
+    }
+  }
+
+  /**
+   * Sends a request and checks the result when received.
+   *
+   * @param scheduledCommand scheduled command the request is sent for
+   * @param command          command to send
+   * @return future completed with true if request was successful or aborted, false if not
    */
-  private boolean sendRequest(
+  private CompletableFuture<Boolean> sendRequest(
+    final ScheduledCommand scheduledCommand,
     final Command command
   ) {
+    // an aborted command must not be sent after the command replacing it
+    synchronized (scheduledCommand) {
+      if (scheduledCommand.aborted) {
+        return CompletableFuture.completedFuture(true);
+      }
+      scheduledCommand.sent = true;
+    }
+
     // get command request (this needs to be done, otherwise this function is somehow called twice)
     CommandRequest commandRequest = command.getCommandRequest();
 
-    // send request and get response
-    CommandReply commandResponse = routingServiceCommandInterface.sendRequest(
+    // send request and check response (no response in case of an exception, e.g. timeout)
+    return routingServiceCommandInterface.sendRequestAsync(
       commandRequest,
       requestTimeout,
       requestTimeoutTimeUnit
-    );
-
-    // check response
-    return checkResponse(
-      command.getCommandRequest(),
-      commandResponse,
-      command.getLoggingFormat()
-    );
+    ).handle((commandResponse, throwable) -> {
+      // the next command of the session waits for the first attempt only
+      scheduledCommand.firstAttempt.complete(null);
+      return checkResponse(
+        command.getCommandRequest(),
+        commandResponse,
+        command.getLoggingFormat()
+      );
+    });
   }
 
   /**
@@ -379,4 +672,23 @@ public class DynamicPartitionCommander implements Closeable, DynamicPartitionObs
     );
     return false;
   }
+
+  /**
+   * A command that has been scheduled, it contains one or more commands when combined.
+   */
+  private static class ScheduledCommand {
+
+    private final List<Command> members;
+    private final CompletableFuture<Void> firstAttempt;
+    private Future<?> future;
+    private boolean aborted;
+    private boolean sent;
+
+    private ScheduledCommand(
+      final List<Command> members
+    ) {
+      this.members = members;
+      firstAttempt = new CompletableFuture<>();
+    }
+  }
 }
@@ -0,0 +1,99 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.routing.dynamic.observer;
+
+import io.github.aguther.dds.util.AsynchronousListener;
+import java.util.AbstractMap.SimpleImmutableEntry;
+
+/**
+ * This class decouples a dynamic partition observer listener from the observer, so a slow listener does not stall the
+ * lanes of the observer. Notifications of the same session or topic route are coalesced when the queue is full, see
+ * {@link AsynchronousListener}.
+ * <p>
+ * The order of the notifications is preserved, even when they originate from different lanes.
+ */
+public class AsynchronousDynamicPartitionObserverListener
+  extends AsynchronousListener<DynamicPartitionObserverListener>
+  implements DynamicPartitionObserverListener {
+
+  /**
+   * Instantiates a new asynchronous dynamic partition observer listener.
+   *
+   * @param listener listener to invoke asynchronously
+   * @param capacity number of queued notifications from which on notifications are coalesced
+   */
+  public AsynchronousDynamicPartitionObserverListener(
+    final DynamicPartitionObserverListener listener,
+    final int capacity
+  ) {
+    super(listener, capacity);
+  }
+
+  @Override
+  public void createSession(
+    final Session session
+  ) {
+    dispatch(
+      session,
+      NotificationKind.CREATION,
+      listener -> listener.createSession(session)
+    );
+  }
+
+  @Override
+  public void deleteSession(
+    final Session session
+  ) {
+    dispatch(
+      session,
+      NotificationKind.DELETION,
+      listener -> listener.deleteSession(session)
+    );
+  }
+
+  @Override
+  public void createTopicRoute(
+    final Session session,
+    final TopicRoute topicRoute
+  ) {
+    dispatch(
+      new SimpleImmutableEntry<>(session, topicRoute),
+      NotificationKind.CREATION,
+      listener -> listener.createTopicRoute(session, topicRoute)
+    );
+  }
+
+  @Override
+  public void deleteTopicRoute(
+    final Session session,
+    final TopicRoute topicRoute
+  ) {
+    dispatch(
+      new SimpleImmutableEntry<>(session, topicRoute),
+      NotificationKind.DELETION,
+      listener -> listener.deleteTopicRoute(session, topicRoute)
+    );
+  }
+}
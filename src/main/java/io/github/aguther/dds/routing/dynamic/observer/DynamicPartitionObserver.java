@@ -24,12 +24,12 @@
 
 package io.github.aguther.dds.routing.dynamic.observer;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
 import com.rti.dds.domain.DomainParticipant;
 import com.rti.dds.infrastructure.InstanceHandle_t;
 import com.rti.dds.infrastructure.StringSeq;
@@ -39,15 +39,16 @@ import io.github.aguther.dds.discovery.observer.PublicationObserverListener;
 import io.github.aguther.dds.discovery.observer.SubscriptionObserverListener;
 import java.io.Closeable;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -59,6 +60,11 @@ import org.apache.logging.log4j.Logger;
  * <p>
  * This can be used to provide a function to dynamically route topics based on their partition without loosing their
  * origin (this happens when using asterisk or multiple partitions).
+ * <p>
+ * Sessions are distributed by the hash of their topic and partition to lanes. With a single lane (default) the mapping
+ * is computed on the calling thread and the listeners are invoked by one thread. With multiple lanes, each lane
+ * computes its part of the mapping and invokes the listeners on its own thread: the order of events for a session is
+ * preserved while independent sessions are handled concurrently. In this case listeners need to be thread-safe.
  */
 public class DynamicPartitionObserver implements Closeable, PublicationObserverListener, SubscriptionObserverListener {
 
@@ -66,27 +72,51 @@ public class DynamicPartitionObserver implements Closeable, PublicationObserverL
 
   private static final String DEFAULT_PARTITION = "";
 
-  private final Map<Session, Multimap<TopicRoute, InstanceHandle_t>> mapping;
-  private final Multimap<InstanceHandle_t, Session> mappingReverse;
+  private final Lane[] lanes;
+  private final boolean sharded;
   private final Set<DynamicPartitionObserverFilter> filters;
   private final Set<DynamicPartitionObserverListener> listeners;
-  private final ExecutorService listenerExecutor;
 
   /**
-   * Instantiates a new Dynamic partition observer.
+   * Instantiates a new Dynamic partition observer with a single lane.
    */
   public DynamicPartitionObserver() {
-    mapping = Collections.synchronizedMap(new HashMap<>());
-    mappingReverse = Multimaps.synchronizedMultimap(ArrayListMultimap.create());
-    filters = Collections.synchronizedSet(new LinkedHashSet<>());
-    listeners = Collections.synchronizedSet(new HashSet<>());
-    listenerExecutor = Executors.newSingleThreadExecutor();
+    this(1);
+  }
+
+  /**
+   * Instantiates a new Dynamic partition observer.
+   *
+   * @param lanes number of lanes the sessions are distributed to (1 disables sharding)
+   */
+  public DynamicPartitionObserver(
+    final int lanes
+  ) {
+    checkArgument(lanes > 0, "Number of lanes is expected > 0");
+
+    this.lanes = new Lane[lanes];
+    for (int i = 0; i < lanes; i++) {
+      this.lanes[i] = new Lane();
+    }
+    sharded = lanes > 1;
+    filters = new CopyOnWriteArraySet<>();
+    listeners = new CopyOnWriteArraySet<>();
   }
 
   @Override
   public void close() {
     listeners.clear();
-    listenerExecutor.shutdownNow();
+    for (Lane lane : lanes) {
+      lane.executor.shutdownNow();
+    }
+    // ensure no lane is still changing the mapping or invoking a listener
+    for (Lane lane : lanes) {
+      try {
+        lane.executor.awaitTermination(60, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
   }
 
   /**
@@ -279,24 +309,28 @@ public class DynamicPartitionObserver implements Closeable, PublicationObserverL
     final String typeName,
     final List<String> partitions
   ) {
-    synchronized (mapping) {
-      for (String partition : partitions) {
+    for (String partition : partitions) {
+      Session session = new Session(direction, topicName, partition);
+      Lane lane = getLane(session);
+      lane.process(() -> {
         // ignore partition?
         if (ignorePartition(topicName, partition)) {
-          continue;
+          return;
         }
         // add instance handle to map
-        addInstanceHandleToMap(
+        lane.addInstanceHandleToMap(
           instanceHandle,
-          new Session(direction, topicName, partition),
+          session,
           new TopicRoute(direction, topicName, typeName)
         );
-      }
+      });
     }
   }
 
   /**
    * Handles the modification of a publication/subscription.
+   * <p>
+   * The previous partitions are unknown, hence every lane checks the sessions it owns for the instance handle.
    *
    * @param instanceHandle instance handle for identification
    * @param direction      direction (OUT for publications, IN for subscriptions)
@@ -311,38 +345,44 @@ public class DynamicPartitionObserver implements Closeable, PublicationObserverL
     final String typeName,
     final List<String> partitions
   ) {
-    synchronized (mapping) {
-      // remove routes for partitions that no longer exist
-      for (Session session : ImmutableList.copyOf(mappingReverse.get(instanceHandle))) {
-        // determine if partition of session is still active
-        if (!partitions.contains(session.getPartition())) {
-          // remove instance handles from map
-          removeInstanceHandleFromMap(
+    for (Lane lane : lanes) {
+      lane.process(() -> {
+        // remove routes for partitions that no longer exist
+        for (Session session : ImmutableList.copyOf(lane.mappingReverse.get(instanceHandle))) {
+          // determine if partition of session is still active
+          if (!partitions.contains(session.getPartition())) {
+            // remove instance handles from map
+            lane.removeInstanceHandleFromMap(
+              instanceHandle,
+              session,
+              new TopicRoute(direction, topicName, typeName)
+            );
+          }
+        }
+        // add routes for partitions that are new
+        for (String partition : partitions) {
+          Session session = new Session(direction, topicName, partition);
+          // session of other lane, ignore partition or already known?
+          if (getLane(session) != lane
+            || ignorePartition(topicName, partition)
+            || lane.mappingReverse.containsEntry(instanceHandle, session)) {
+            continue;
+          }
+          // add instance handle to map
+          lane.addInstanceHandleToMap(
             instanceHandle,
             session,
             new TopicRoute(direction, topicName, typeName)
           );
         }
-      }
-      // add routes for partitions that are new
-      for (String partition : partitions) {
-        // ignore partition?
-        if (ignorePartition(topicName, partition)
-          || mappingReverse.containsEntry(instanceHandle, new Session(direction, topicName, partition))) {
-          continue;
-        }
-        // add instance handle to map
-        addInstanceHandleToMap(
-          instanceHandle,
-          new Session(direction, topicName, partition),
-          new TopicRoute(direction, topicName, typeName)
-        );
-      }
+      });
     }
   }
 
   /**
    * Handles the loss of a publication/subscription.
+   * <p>
+   * Like on discovery, an ignored partition only skips itself, so the routes of the remaining partitions are deleted.
    *
    * @param instanceHandle instance handle for identification
    * @param direction      direction (OUT for publications, IN for subscriptions)
@@ -357,21 +397,38 @@ public class DynamicPartitionObserver implements Closeable, PublicationObserverL
     final String typeName,
     final List<String> partitions
   ) {
-    synchronized (mapping) {
-      // delete routes for all partitions we lost
-      for (String partition : partitions) {
+    // delete routes for all partitions we lost
+    for (String partition : partitions) {
+      Session session = new Session(direction, topicName, partition);
+      Lane lane = getLane(session);
+      lane.process(() -> {
         // ignore partition?
         if (ignorePartition(topicName, partition)) {
           return;
         }
         // remove instance handle from map
-        removeInstanceHandleFromMap(
+        lane.removeInstanceHandleFromMap(
           instanceHandle,
-          new Session(direction, topicName, partition),
+          session,
           new TopicRoute(direction, topicName, typeName)
         );
-      }
+      });
+    }
+  }
+
+  /**
+   * Returns the lane of a session determined by the hash of its topic and partition.
+   *
+   * @param session session
+   * @return lane responsible for the session
+   */
+  private Lane getLane(
+    final Session session
+  ) {
+    if (!sharded) {
+      return lanes[0];
     }
+    return lanes[Math.floorMod(Objects.hash(session.getTopic(), session.getPartition()), lanes.length)];
   }
 
   /**
@@ -386,19 +443,17 @@ public class DynamicPartitionObserver implements Closeable, PublicationObserverL
     final InstanceHandle_t instanceHandle,
     final PublicationBuiltinTopicData data
   ) {
-    synchronized (filters) {
-      for (DynamicPartitionObserverFilter filter : filters) {
-        if (filter.ignorePublication(domainParticipant, instanceHandle, data)) {
-          if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug(
-              "Ignoring publication topic='{}', type='{}', instance='{}' through filter '{}'",
-              data.topic_name,
-              data.type_name,
-              instanceHandle,
-              filter.getClass().getCanonicalName());
-          }
-          return true;
+    for (DynamicPartitionObserverFilter filter : filters) {
+      if (filter.ignorePublication(domainParticipant, instanceHandle, data)) {
+        if (LOGGER.isDebugEnabled()) {
+          LOGGER.debug(
+            "Ignoring publication topic='{}', type='{}', instance='{}' through filter '{}'",
+            data.topic_name,
+            data.type_name,
+            instanceHandle,
+            filter.getClass().getCanonicalName());
         }
+        return true;
       }
     }
     return false;
@@ -416,19 +471,17 @@ public class DynamicPartitionObserver implements Closeable, PublicationObserverL
     final InstanceHandle_t instanceHandle,
     final SubscriptionBuiltinTopicData data
   ) {
-    synchronized (filters) {
-      for (DynamicPartitionObserverFilter filter : filters) {
-        if (filter.ignoreSubscription(domainParticipant, instanceHandle, data)) {
-          if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug(
-              "Ignoring subscription topic='{}', type='{}', instance='{}' through filter '{}'",
-              data.topic_name,
-              data.type_name,
-              instanceHandle,
-              filter.getClass().getCanonicalName());
-          }
-          return true;
+    for (DynamicPartitionObserverFilter filter : filters) {
+      if (filter.ignoreSubscription(domainParticipant, instanceHandle, data)) {
+        if (LOGGER.isDebugEnabled()) {
+          LOGGER.debug(
+            "Ignoring subscription topic='{}', type='{}', instance='{}' through filter '{}'",
+            data.topic_name,
+            data.type_name,
+            instanceHandle,
+            filter.getClass().getCanonicalName());
         }
+        return true;
       }
     }
     return false;
@@ -445,94 +498,29 @@ public class DynamicPartitionObserver implements Closeable, PublicationObserverL
     final String topicName,
     final String partition
   ) {
-    synchronized (filters) {
-      for (DynamicPartitionObserverFilter filter : filters) {
-        if (filter.ignorePartition(topicName, partition)) {
-          if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug(
-              "Ignoring partition topic='{}', name='{}' through filter '{}'",
-              topicName,
-              partition,
-              filter.getClass().getCanonicalName());
-          }
-          return true;
+    for (DynamicPartitionObserverFilter filter : filters) {
+      if (filter.ignorePartition(topicName, partition)) {
+        if (LOGGER.isDebugEnabled()) {
+          LOGGER.debug(
+            "Ignoring partition topic='{}', name='{}' through filter '{}'",
+            topicName,
+            partition,
+            filter.getClass().getCanonicalName());
         }
+        return true;
       }
     }
     return false;
   }
 
-  /**
-   * Adds a instance handle to the mapping, triggers creation of sessions and routes if needed.
-   *
-   * @param instanceHandle instance handle for identification
-   * @param session        session
-   * @param topicRoute     topic route
-   */
-  private void addInstanceHandleToMap(
-    final InstanceHandle_t instanceHandle,
-    final Session session,
-    final TopicRoute topicRoute
-  ) {
-    // create topic session if first item discovered
-    if (!mapping.containsKey(session)) {
-      mapping.put(session, ArrayListMultimap.create());
-      mappingReverse.put(instanceHandle, session);
-      createSession(session);
-    }
-
-    // check if topic route is about to be created
-    if (!mapping.get(session).containsKey(topicRoute)) {
-      createTopicRoute(session, topicRoute);
-    }
-
-    // add instance handle to topic route
-    if (!mapping.get(session).get(topicRoute).contains(instanceHandle)) {
-      mapping.get(session).put(topicRoute, instanceHandle);
-    }
-  }
-
-  /**
-   * Removes a instance handle from the mapping, triggers deletion of sessions and routes if needed.
-   *
-   * @param instanceHandle instance handle for identification
-   * @param session        session
-   * @param topicRoute     topic route
-   */
-  private void removeInstanceHandleFromMap(
-    final InstanceHandle_t instanceHandle,
-    final Session session,
-    final TopicRoute topicRoute
-  ) {
-    // ensure session and topic route are existing
-    // otherwise we have nothing do to
-    if (!mapping.containsKey(session)
-      || !mapping.get(session).containsKey(topicRoute)) {
-      return;
-    }
-
-    // remove instance handle from topic route
-    mapping.get(session).remove(topicRoute, instanceHandle);
-
-    // check if route was deleted
-    if (!mapping.get(session).containsKey(topicRoute)) {
-      deleteTopicRoute(session, topicRoute);
-    }
-
-    // delete topic session if last items was removed
-    if (mapping.get(session).isEmpty()) {
-      mapping.remove(session);
-      mappingReverse.remove(instanceHandle, session);
-      deleteSession(session);
-    }
-  }
-
   /**
    * Triggers the creation of a session by invoking the corresponding listener interface.
    *
+   * @param lane    lane of the session
    * @param session session that should be created
    */
   private void createSession(
+    final Lane lane,
     final Session session
   ) {
     if (LOGGER.isDebugEnabled()) {
@@ -543,11 +531,9 @@ public class DynamicPartitionObserver implements Closeable, PublicationObserverL
       );
     }
     // invoke listener
-    listenerExecutor.submit(() -> {
-      synchronized (listeners) {
-        for (DynamicPartitionObserverListener listener : listeners) {
-          listener.createSession(session);
-        }
+    lane.dispatch(() -> {
+      for (DynamicPartitionObserverListener listener : listeners) {
+        listener.createSession(session);
       }
     });
   }
@@ -555,9 +541,11 @@ public class DynamicPartitionObserver implements Closeable, PublicationObserverL
   /**
    * Triggers the deletion of a session by invoking the corresponding listener interface.
    *
+   * @param lane    lane of the session
    * @param session session that should be deleted
    */
   private void deleteSession(
+    final Lane lane,
     final Session session
   ) {
     if (LOGGER.isDebugEnabled()) {
@@ -568,11 +556,9 @@ public class DynamicPartitionObserver implements Closeable, PublicationObserverL
       );
     }
     // invoke listener
-    listenerExecutor.submit(() -> {
-      synchronized (listeners) {
-        for (DynamicPartitionObserverListener listener : listeners) {
-          listener.deleteSession(session);
-        }
+    lane.dispatch(() -> {
+      for (DynamicPartitionObserverListener listener : listeners) {
+        listener.deleteSession(session);
       }
     });
   }
@@ -580,10 +566,12 @@ public class DynamicPartitionObserver implements Closeable, PublicationObserverL
   /**
    * Triggers the creation of a topic route by invoking the corresponding listener interface.
    *
+   * @param lane       lane of the session
    * @param session    session belonging to the topic route
    * @param topicRoute topic route that should be created
    */
   private void createTopicRoute(
+    final Lane lane,
     final Session session,
     final TopicRoute topicRoute
   ) {
@@ -597,11 +585,9 @@ public class DynamicPartitionObserver implements Closeable, PublicationObserverL
       );
     }
     // invoke listener
-    listenerExecutor.submit(() -> {
-      synchronized (listeners) {
-        for (DynamicPartitionObserverListener listener : listeners) {
-          listener.createTopicRoute(session, topicRoute);
-        }
+    lane.dispatch(() -> {
+      for (DynamicPartitionObserverListener listener : listeners) {
+        listener.createTopicRoute(session, topicRoute);
       }
     });
   }
@@ -609,10 +595,12 @@ public class DynamicPartitionObserver implements Closeable, PublicationObserverL
   /**
    * Triggers the deletion of a topic route by invoking the corresponding listener interface.
    *
+   * @param lane       lane of the session
    * @param session    session belonging to the topic route
    * @param topicRoute topic route that should be deleted
    */
   private void deleteTopicRoute(
+    final Lane lane,
     final Session session,
     final TopicRoute topicRoute
   ) {
@@ -626,11 +614,9 @@ public class DynamicPartitionObserver implements Closeable, PublicationObserverL
       );
     }
     // invoke listener
-    listenerExecutor.submit(() -> {
-      synchronized (listeners) {
-        for (DynamicPartitionObserverListener listener : listeners) {
-          listener.deleteTopicRoute(session, topicRoute);
-        }
+    lane.dispatch(() -> {
+      for (DynamicPartitionObserverListener listener : listeners) {
+        listener.deleteTopicRoute(session, topicRoute);
       }
     });
   }
@@ -663,4 +649,134 @@ public class DynamicPartitionObserver implements Closeable, PublicationObserverL
     // return result
     return list;
   }
+
+  /**
+   * A lane owns the mapping of the sessions assigned to it and a single thread to handle them in order.
+   */
+  private class Lane {
+
+    private final Map<Session, Multimap<TopicRoute, InstanceHandle_t>> mapping;
+    private final Multimap<InstanceHandle_t, Session> mappingReverse;
+    private final ExecutorService executor;
+
+    private Lane() {
+      mapping = new HashMap<>();
+      mappingReverse = ArrayListMultimap.create();
+      executor = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Processes a change of the mapping, when sharded on the thread of the lane, otherwise on the calling thread.
+     *
+     * @param task task that changes the mapping
+     */
+    private void process(
+      final Runnable task
+    ) {
+      if (sharded) {
+        execute(task);
+      } else {
+        synchronized (this) {
+          task.run();
+        }
+      }
+    }
+
+    /**
+     * Invokes the listeners, when sharded directly (we are already on the thread of the lane), otherwise on the thread
+     * of the lane.
+     *
+     * @param task task that invokes the listeners
+     */
+    private void dispatch(
+      final Runnable task
+    ) {
+      if (sharded) {
+        task.run();
+      } else {
+        execute(task);
+      }
+    }
+
+    /**
+     * Executes a task on the thread of the lane, it is dropped when the observer has been closed.
+     *
+     * @param task task to execute
+     */
+    private void execute(
+      final Runnable task
+    ) {
+      try {
+        executor.execute(task);
+      } catch (RejectedExecutionException e) {
+        // discovery callbacks may still arrive after close, they must not fail on the DDS listener thread
+        LOGGER.debug("Observer is closed, dropping task");
+      }
+    }
+
+    /**
+     * Adds a instance handle to the mapping, triggers creation of sessions and routes if needed.
+     *
+     * @param instanceHandle instance handle for identification
+     * @param session        session
+     * @param topicRoute     topic route
+     */
+    private void addInstanceHandleToMap(
+      final InstanceHandle_t instanceHandle,
+      final Session session,
+      final TopicRoute topicRoute
+    ) {
+      // create topic session if first item discovered
+      if (!mapping.containsKey(session)) {
+        mapping.put(session, ArrayListMultimap.create());
+        mappingReverse.put(instanceHandle, session);
+        createSession(this, session);
+      }
+
+      // check if topic route is about to be created
+      if (!mapping.get(session).containsKey(topicRoute)) {
+        createTopicRoute(this, session, topicRoute);
+      }
+
+      // add instance handle to topic route
+      if (!mapping.get(session).get(topicRoute).contains(instanceHandle)) {
+        mapping.get(session).put(topicRoute, instanceHandle);
+      }
+    }
+
+    /**
+     * Removes a instance handle from the mapping, triggers deletion of sessions and routes if needed.
+     *
+     * @param instanceHandle instance handle for identification
+     * @param session        session
+     * @param topicRoute     topic route
+     */
+    private void removeInstanceHandleFromMap(
+      final InstanceHandle_t instanceHandle,
+      final Session session,
+      final TopicRoute topicRoute
+    ) {
+      // ensure session and topic route are existing
+      // otherwise we have nothing do to
+      if (!mapping.containsKey(session)
+        || !mapping.get(session).containsKey(topicRoute)) {
+        return;
+      }
+
+      // remove instance handle from topic route
+      mapping.get(session).remove(topicRoute, instanceHandle);
+
+      // check if route was deleted
+      if (!mapping.get(session).containsKey(topicRoute)) {
+        deleteTopicRoute(this, session, topicRoute);
+      }
+
+      // delete topic session if last items was removed
+      if (mapping.get(session).isEmpty()) {
+        mapping.remove(session);
+        mappingReverse.remove(instanceHandle, session);
+        deleteSession(this, session);
+      }
+    }
+  }
 }
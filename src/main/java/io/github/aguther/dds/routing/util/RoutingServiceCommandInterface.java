@@ -24,16 +24,18 @@
 
 package io.github.aguther.dds.routing.util;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.rti.connext.infrastructure.Sample;
+import com.rti.connext.infrastructure.WriteSample;
 import com.rti.connext.requestreply.Requester;
 import com.rti.connext.requestreply.RequesterParams;
 import com.rti.dds.domain.DomainParticipant;
-import com.rti.dds.domain.DomainParticipantQos;
 import com.rti.dds.domain.builtin.ParticipantBuiltinTopicData;
 import com.rti.dds.infrastructure.InstanceHandleSeq;
 import com.rti.dds.infrastructure.InstanceHandle_t;
+import com.rti.dds.infrastructure.SampleIdentity_t;
 import com.rti.dds.infrastructure.ServiceQosPolicyKind;
 import idl.RTI.Service.Admin.COMMAND_REPLY_TOPIC_NAME;
 import idl.RTI.Service.Admin.COMMAND_REQUEST_TOPIC_NAME;
@@ -43,19 +45,49 @@ import idl.RTI.Service.Admin.CommandRequest;
 import idl.RTI.Service.Admin.CommandRequestTypeSupport;
 import io.github.aguther.dds.util.DurationFactory;
 import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
  * This class provides helpers to easily interact with a routing service using the topics defined by RTI.
+ * <p>
+ * Replies are correlated to their requests using the sample identity of the request. This allows to have multiple
+ * requests outstanding at the same time; requests exceeding the configured maximum are queued and sent in order as
+ * soon as replies are received or requests time out.
+ * <p>
+ * With more than one outstanding request, a request may be processed by the routing service before an earlier one
+ * that is still outstanding or retried. Requests that depend on each other (e.g. the creation of a session and of its
+ * topic routes) need to be sent after the reply of the earlier one, as the DynamicPartitionCommander does.
  */
 public class RoutingServiceCommandInterface implements Closeable {
 
   private static final Logger LOGGER = LogManager.getLogger(RoutingServiceCommandInterface.class);
 
+  private static final int DEFAULT_MAX_OUTSTANDING_REQUESTS = 1;
+  private static final long RECEIVE_WAIT_TIME_MILLISECONDS = 250L;
+
   private final Requester<CommandRequest, CommandReply> requester;
 
+  private final int maxOutstandingRequests;
+  private final Queue<PendingRequest> queuedRequests;
+  private final Map<Long, PendingRequest> outstandingRequests;
+  private final Map<Long, CommandReply> earlyReplies;
+  private final ExecutorService receiveExecutor;
+  private boolean sending;
+  private boolean closed;
+
   /**
    * Instantiates a new routing service command helper.
    *
@@ -63,32 +95,100 @@ public class RoutingServiceCommandInterface implements Closeable {
    */
   public RoutingServiceCommandInterface(
     final DomainParticipant domainParticipant
+  ) {
+    this(domainParticipant, DEFAULT_MAX_OUTSTANDING_REQUESTS);
+  }
+
+  /**
+   * Instantiates a new routing service command helper.
+   *
+   * @param domainParticipant      domain participant to send and receive commands
+   * @param maxOutstandingRequests maximum number of requests waiting for a reply at the same time (see class
+   *                               description for requests depending on each other)
+   */
+  public RoutingServiceCommandInterface(
+    final DomainParticipant domainParticipant,
+    final int maxOutstandingRequests
+  ) {
+    this(
+      createRequester(checkNotNull(domainParticipant, "DomainParticipant must not be null")),
+      maxOutstandingRequests
+    );
+  }
+
+  /**
+   * Instantiates a new routing service command helper with an existing requester.
+   *
+   * @param requester              requester to send and receive commands, it is closed with this object
+   * @param maxOutstandingRequests maximum number of requests waiting for a reply at the same time
+   */
+  RoutingServiceCommandInterface(
+    final Requester<CommandRequest, CommandReply> requester,
+    final int maxOutstandingRequests
   ) {
     // check input parameters
-    checkNotNull(domainParticipant, "DomainParticipant must not be null");
+    checkNotNull(requester, "Requester must not be null");
+    checkArgument(maxOutstandingRequests > 0, "Maximum outstanding requests is expected > 0");
 
-    // get host and app id from wire protocol of domain participant
-    DomainParticipantQos domainParticipantQos = new DomainParticipantQos();
-    domainParticipant.get_qos(domainParticipantQos);
+    this.requester = requester;
 
-    // create parameters for requester
-    RequesterParams requesterParams = new RequesterParams(
-      domainParticipant,
-      CommandRequestTypeSupport.get_instance(),
-      CommandReplyTypeSupport.get_instance()
-    );
-    requesterParams.setRequestTopicName(COMMAND_REQUEST_TOPIC_NAME.VALUE);
-    requesterParams.setReplyTopicName(COMMAND_REPLY_TOPIC_NAME.VALUE);
+    // create structures to track requests
+    this.maxOutstandingRequests = maxOutstandingRequests;
+    queuedRequests = new ArrayDeque<>();
+    outstandingRequests = new HashMap<>();
+    earlyReplies = new HashMap<>();
 
-    // create requester for routing service administration
-    requester = new Requester<>(requesterParams);
+    // start receiving replies
+    receiveExecutor = Executors.newSingleThreadExecutor();
+    receiveExecutor.execute(this::receiveReplies);
   }
 
-
+  /**
+   * Stops receiving replies and closes the requester, requests that are queued or outstanding complete exceptionally.
+   */
   @Override
   public void close() {
-    if (requester != null) {
-      requester.close();
+    // stop sending requests
+    List<PendingRequest> pendingRequests;
+    synchronized (outstandingRequests) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      pendingRequests = new ArrayList<>(queuedRequests);
+      pendingRequests.addAll(outstandingRequests.values());
+      queuedRequests.clear();
+
+      // wait for a request being sent, the requester must not be closed while a request is written
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RECEIVE_WAIT_TIME_MILLISECONDS * 4);
+      try {
+        while (sending) {
+          long remaining = deadline - System.nanoTime();
+          if (remaining <= 0) {
+            LOGGER.warn("Sending a request did not finish in time");
+            break;
+          }
+          TimeUnit.NANOSECONDS.timedWait(outstandingRequests, remaining);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    // stop receiving replies, the requester must not be closed while a reply is taken
+    receiveExecutor.shutdownNow();
+    try {
+      if (!receiveExecutor.awaitTermination(RECEIVE_WAIT_TIME_MILLISECONDS * 4, TimeUnit.MILLISECONDS)) {
+        LOGGER.warn("Receiving replies did not stop in time");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    requester.close();
+
+    // complete pending requests
+    for (PendingRequest pendingRequest : pendingRequests) {
+      pendingRequest.future.completeExceptionally(new IllegalStateException("Command interface has been closed"));
     }
   }
 
@@ -197,27 +297,251 @@ public class RoutingServiceCommandInterface implements Closeable {
     final CommandRequest commandRequest,
     final long timeOut,
     final TimeUnit timeUnit
+  ) {
+    try {
+      return sendRequestAsync(commandRequest, timeOut, timeUnit).get();
+    } catch (ExecutionException e) {
+      // timeout or request could not be sent
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+  }
+
+  /**
+   * Sends a request to a target routing service without waiting for the response.
+   * <p>
+   * The request is sent immediately when less than the maximum number of requests are outstanding, otherwise it is
+   * queued. The timeout includes the time the request is queued.
+   *
+   * @param commandRequest request to send
+   * @param timeOut        timeout
+   * @param timeUnit       time unit of timeout
+   * @return future completed with the response, or exceptionally when not received within timeout
+   */
+  public CompletableFuture<CommandReply> sendRequestAsync(
+    final CommandRequest commandRequest,
+    final long timeOut,
+    final TimeUnit timeUnit
+  ) {
+    checkNotNull(commandRequest, "Command request must not be null");
+    checkNotNull(timeUnit, "Time unit must not be null");
+
+    // create pending request and ensure it is cleaned up when completed
+    PendingRequest pendingRequest = new PendingRequest(commandRequest);
+    pendingRequest.future
+      .orTimeout(timeOut, timeUnit)
+      .whenComplete((reply, throwable) -> completeRequest(pendingRequest));
+
+    // queue request and send as many requests as allowed
+    synchronized (outstandingRequests) {
+      if (closed) {
+        pendingRequest.future.completeExceptionally(new IllegalStateException("Command interface has been closed"));
+        return pendingRequest.future;
+      }
+      queuedRequests.add(pendingRequest);
+    }
+    sendQueuedRequests();
+
+    return pendingRequest.future;
+  }
+
+  /**
+   * Sends queued requests as long as the maximum of outstanding requests is not reached.
+   * <p>
+   * Requests are written without holding the lock, so receiving replies does not wait for a blocking write. Only one
+   * thread sends at a time to keep the requests in order, other threads only queue their requests.
+   */
+  private void sendQueuedRequests() {
+    PendingRequest pendingRequest;
+    synchronized (outstandingRequests) {
+      if (sending) {
+        return;
+      }
+      pendingRequest = pollSendableRequest();
+      if (pendingRequest == null) {
+        return;
+      }
+      sending = true;
+    }
+
+    while (pendingRequest != null) {
+      // logging
+      logCommandRequest(pendingRequest.commandRequest);
+
+      // send request
+      RuntimeException failure = null;
+      long identity = 0;
+      try {
+        WriteSample<CommandRequest> request = requester.createRequestSample();
+        request.getData().copy_from(pendingRequest.commandRequest);
+        requester.sendRequest(request);
+        identity = toKey(request.getIdentity());
+      } catch (RuntimeException e) {
+        failure = e;
+      }
+
+      // track request until reply received or timeout, the reply may have been received already
+      PendingRequest sentRequest = pendingRequest;
+      CommandReply earlyReply = null;
+      synchronized (outstandingRequests) {
+        if (failure == null) {
+          sentRequest.identity = identity;
+          outstandingRequests.put(identity, sentRequest);
+          sentRequest.sent.set(true);
+          earlyReply = earlyReplies.remove(identity);
+
+          // request timed out while being sent?
+          if (sentRequest.future.isDone() && sentRequest.sent.compareAndSet(true, false)) {
+            outstandingRequests.remove(identity);
+          }
+        }
+
+        // get next request or stop sending
+        pendingRequest = pollSendableRequest();
+        if (pendingRequest == null) {
+          sending = false;
+          earlyReplies.clear();
+          outstandingRequests.notifyAll();
+        }
+      }
+
+      // complete request without holding the lock
+      if (failure != null) {
+        sentRequest.future.completeExceptionally(failure);
+      } else if (earlyReply != null) {
+        sentRequest.future.complete(earlyReply);
+      }
+    }
+  }
+
+  /**
+   * Takes the next queued request that can be sent, skipping requests that timed out while queued.
+   *
+   * @return request to send or null if no request can be sent
+   */
+  private PendingRequest pollSendableRequest() {
+    while (!closed && outstandingRequests.size() < maxOutstandingRequests && !queuedRequests.isEmpty()) {
+      PendingRequest pendingRequest = queuedRequests.poll();
+      if (!pendingRequest.future.isDone()) {
+        return pendingRequest;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Cleans up a completed request and sends queued requests in case it was outstanding.
+   *
+   * @param pendingRequest request that completed
+   */
+  private void completeRequest(
+    final PendingRequest pendingRequest
+  ) {
+    if (pendingRequest.sent.compareAndSet(true, false)) {
+      synchronized (outstandingRequests) {
+        outstandingRequests.remove(pendingRequest.identity);
+      }
+      sendQueuedRequests();
+    }
+  }
+
+  /**
+   * Receives replies and completes the corresponding requests until this object is closed.
+   */
+  private void receiveReplies() {
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        // wait for replies
+        if (!requester.waitForReplies(
+          1,
+          DurationFactory.from(RECEIVE_WAIT_TIME_MILLISECONDS, TimeUnit.MILLISECONDS)
+        )) {
+          continue;
+        }
+
+        // take all available replies
+        Sample<CommandReply> reply = requester.createReplySample();
+        while (requester.takeReply(reply)) {
+          if (reply.getInfo().valid_data) {
+            handleReply(reply);
+          }
+          reply = requester.createReplySample();
+        }
+      } catch (RuntimeException e) {
+        if (Thread.currentThread().isInterrupted()) {
+          return;
+        }
+        LOGGER.error("Error receiving replies; {}", e.getMessage(), e);
+      }
+    }
+  }
+
+  /**
+   * Completes the request a reply belongs to.
+   *
+   * @param reply received reply
+   */
+  private void handleReply(
+    final Sample<CommandReply> reply
   ) {
     // logging
-    logCommandRequest(commandRequest);
+    logCommandResponse(reply, true);
 
-    // send request
-    requester.sendRequest(commandRequest);
+    // get request related to reply, a reply of a request being sent is kept until the request is tracked
+    long identity = toKey(reply.getInfo().related_original_publication_virtual_sample_identity);
+    PendingRequest pendingRequest;
+    synchronized (outstandingRequests) {
+      pendingRequest = outstandingRequests.get(identity);
+      if (pendingRequest == null && sending) {
+        earlyReplies.put(identity, reply.getData());
+        return;
+      }
+    }
 
-    // create reply
-    Sample<CommandReply> reply = requester.createReplySample();
+    // complete request or ignore reply (e.g. request timed out already)
+    if (pendingRequest != null) {
+      pendingRequest.future.complete(reply.getData());
+    } else {
+      LOGGER.trace("Ignoring reply without outstanding request");
+    }
+  }
 
-    // wait for reply
-    boolean replyReceived = requester.receiveReply(
-      reply,
-      DurationFactory.from(timeOut, timeUnit)
+  /**
+   * Creates the requester for the routing service administration.
+   *
+   * @param domainParticipant domain participant to send and receive commands
+   * @return requester
+   */
+  private static Requester<CommandRequest, CommandReply> createRequester(
+    final DomainParticipant domainParticipant
+  ) {
+    // create parameters for requester
+    RequesterParams requesterParams = new RequesterParams(
+      domainParticipant,
+      CommandRequestTypeSupport.get_instance(),
+      CommandReplyTypeSupport.get_instance()
     );
+    requesterParams.setRequestTopicName(COMMAND_REQUEST_TOPIC_NAME.VALUE);
+    requesterParams.setReplyTopicName(COMMAND_REPLY_TOPIC_NAME.VALUE);
 
-    // logging
-    logCommandResponse(reply, replyReceived);
+    // create requester for routing service administration
+    return new Requester<>(requesterParams);
+  }
 
-    // return result
-    return replyReceived ? reply.getData() : null;
+  /**
+   * Converts a sample identity of a request to a key. All requests are sent by the same writer, hence the sequence
+   * number is sufficient.
+   *
+   * @param sampleIdentity sample identity
+   * @return key for the sample identity
+   */
+  private static long toKey(
+    final SampleIdentity_t sampleIdentity
+  ) {
+    return ((long) sampleIdentity.sequence_number.high << 32)
+      | (sampleIdentity.sequence_number.low & 0xFFFFFFFFL);
   }
 
   /**
@@ -262,4 +586,23 @@ public class RoutingServiceCommandInterface implements Closeable {
       );
     }
   }
+
+  /**
+   * A request that is queued or waiting for its reply.
+   */
+  private static class PendingRequest {
+
+    private final CommandRequest commandRequest;
+    private final CompletableFuture<CommandReply> future;
+    private final AtomicBoolean sent;
+    private long identity;
+
+    private PendingRequest(
+      final CommandRequest commandRequest
+    ) {
+      this.commandRequest = commandRequest;
+      future = new CompletableFuture<>();
+      sent = new AtomicBoolean();
+    }
+  }
 }
@@ -24,48 +24,43 @@
 
 package io.github.aguther.dds.support.publication;
 
-import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.rti.dds.infrastructure.InstanceHandle_t;
 import com.rti.dds.publication.DataWriter;
 import com.rti.dds.publication.DataWriterQos;
+import io.github.aguther.dds.util.TimingWheel;
 import java.io.Closeable;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Data writer that unregisters instances automatically when they have not been written for their lifespan.
+ * <p>
+ * The last write of every instance is tracked with a timing wheel, so a write only overwrites the time of the last
+ * write instead of rescheduling a task. The wheel is swept once per tick and the expired instances are unregistered
+ * in a batch. Writes and the sweep can happen concurrently: the expired instances are determined while holding the
+ * lock and unregistered after it has been released, a write of an instance that is being unregistered waits until
+ * the instance has been unregistered.
+ */
 public class DataWriterAutomaticUnregisterDecorator extends DataWriterDecorator implements Closeable {
 
+  private static final Logger LOGGER = LogManager.getLogger(DataWriterAutomaticUnregisterDecorator.class);
+  private static final long TICKS_PER_TIMEOUT = 64;
+
+  private final Object lock = new Object();
+  private final Set<InstanceHandle_t> unregisteringInstanceHandles = new HashSet<>();
   private long unregisterTimeout;
+  private TimingWheel<InstanceHandle_t> timingWheel;
   private ScheduledExecutorService scheduledExecutorService;
-  private HashMap<InstanceHandle_t, Future> futureHashMap;
-
-  private static class UnregisterRunnable implements Runnable {
-
-    private DataWriter dataWriter;
-    private InstanceHandle_t instanceHandle;
-
-    private UnregisterRunnable(
-      DataWriter dataWriter,
-      InstanceHandle_t instanceHandle
-    ) {
-      checkNotNull(dataWriter);
-      checkArgument(instanceHandle != InstanceHandle_t.HANDLE_NIL);
-
-      this.dataWriter = dataWriter;
-      this.instanceHandle = instanceHandle;
-    }
-
-    @Override
-    public void run() {
-      // unregister the instance
-      dataWriter.unregister_instance_untyped(null, instanceHandle);
-    }
-  }
 
   public DataWriterAutomaticUnregisterDecorator(
     DataWriter dataWriter
@@ -79,12 +74,20 @@ public class DataWriterAutomaticUnregisterDecorator extends DataWriterDecorator
     unregisterTimeout = TimeUnit.SECONDS.toMillis(dataWriterQos.lifespan.duration.sec);
     unregisterTimeout += TimeUnit.NANOSECONDS.toMillis(dataWriterQos.lifespan.duration.nanosec);
     unregisterTimeout *= 1.05;
+    unregisterTimeout = Math.max(1, unregisterTimeout);
 
-    // create executor service
-    scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+    // create timing wheel to track the last write of the instances
+    long tickDuration = Math.max(1, unregisterTimeout / TICKS_PER_TIMEOUT);
+    timingWheel = new TimingWheel<>(Math.max(unregisterTimeout, tickDuration), tickDuration, TimeUnit.MILLISECONDS);
 
-    // create map for futures
-    futureHashMap = new HashMap<>();
+    // create executor service to sweep the timing wheel once per tick
+    scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+    scheduledExecutorService.scheduleAtFixedRate(
+      this::unregisterExpiredInstances,
+      tickDuration,
+      tickDuration,
+      TimeUnit.MILLISECONDS
+    );
   }
 
   /**
@@ -103,6 +106,12 @@ public class DataWriterAutomaticUnregisterDecorator extends DataWriterDecorator
   public void close() throws IOException {
     if (scheduledExecutorService != null) {
       scheduledExecutorService.shutdownNow();
+      try {
+        // ensure no sweep unregisters instances after the decorator has been closed
+        scheduledExecutorService.awaitTermination(1, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
       scheduledExecutorService = null;
     }
   }
@@ -115,8 +124,10 @@ public class DataWriterAutomaticUnregisterDecorator extends DataWriterDecorator
     // unregister the instance
     super.unregister_instance_untyped(o, instanceHandle);
 
-    // remove any future
-    futureHashMap.remove(instanceHandle);
+    // stop tracking the instance
+    synchronized (lock) {
+      timingWheel.remove(instanceHandle);
+    }
   }
 
   @Override
@@ -133,22 +144,66 @@ public class DataWriterAutomaticUnregisterDecorator extends DataWriterDecorator
       instanceHandle = register_instance_untyped(o);
     }
 
-    // check if an unregister was already scheduled
-    if (futureHashMap.containsKey(instanceHandle)) {
-      futureHashMap.remove(instanceHandle).cancel(false);
+    // track the last write, the instance handle is copied when it is added because it is kept
+    synchronized (lock) {
+      awaitUnregistered(instanceHandle);
+      timingWheel.touch(
+        timingWheel.contains(instanceHandle) ? instanceHandle : new InstanceHandle_t(instanceHandle),
+        System.nanoTime()
+      );
     }
 
     // write sample
     super.write_untyped(o, instanceHandle);
+  }
 
-    // schedule unregister
-    Future future = scheduledExecutorService.schedule(
-      new UnregisterRunnable(this, instanceHandle),
-      unregisterTimeout,
-      TimeUnit.MILLISECONDS
-    );
+  private void unregisterExpiredInstances() {
+    // determine the expired instances, writes of them wait until they have been unregistered
+    List<InstanceHandle_t> expiredInstanceHandles = new ArrayList<>();
+    synchronized (lock) {
+      timingWheel.expire(System.nanoTime(), expiredInstanceHandles::add);
+      unregisteringInstanceHandles.addAll(expiredInstanceHandles);
+    }
+
+    // unregister the expired instances without holding the lock
+    for (InstanceHandle_t instanceHandle : expiredInstanceHandles) {
+      try {
+        // stop unregistering when the decorator is closed
+        if (!Thread.currentThread().isInterrupted()) {
+          super.unregister_instance_untyped(null, instanceHandle);
+        }
+      } catch (RuntimeException e) {
+        // a failed instance must not stop the sweeps
+        LOGGER.warn("Failed to unregister instance '{}'", instanceHandle, e);
+      } finally {
+        synchronized (lock) {
+          unregisteringInstanceHandles.remove(instanceHandle);
+          lock.notifyAll();
+        }
+      }
+    }
+  }
 
-    // store instance handle in keymap
-    futureHashMap.put(instanceHandle, future);
+  /**
+   * Waits until an instance that is being unregistered by the sweep has been unregistered. Must be invoked while
+   * holding the lock.
+   *
+   * @param instanceHandle instance handle
+   */
+  private void awaitUnregistered(
+    InstanceHandle_t instanceHandle
+  ) {
+    boolean interrupted = false;
+    while (unregisteringInstanceHandles.contains(instanceHandle)) {
+      try {
+        lock.wait();
+      } catch (InterruptedException e) {
+        // the write must not overtake the unregister, hence keep waiting
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
   }
 }
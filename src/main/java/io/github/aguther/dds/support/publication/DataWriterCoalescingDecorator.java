@@ -0,0 +1,240 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.support.publication;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.rti.dds.infrastructure.Copyable;
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import com.rti.dds.infrastructure.Time_t;
+import com.rti.dds.infrastructure.WriteParams_t;
+import com.rti.dds.publication.DataWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Data writer that coalesces the writes of an instance, so only the latest value of an instance is written.
+ * <p>
+ * A write only copies the sample into the slot of its instance. The pending samples are written with {@link
+ * #write_untyped(Object, InstanceHandle_t)} of the decorated data writer followed by {@link #flush()} periodically, or
+ * as soon as the number of pending instances reaches a threshold. This is meant for publishers with a high rate whose
+ * subscribers only need the latest state of an instance.
+ * <p>
+ * Writes with a timestamp or parameters, disposes and unregisters are not coalesced, they discard the pending sample
+ * of the instance so it is not written after them. A write that races with an unregister, a dispose or a write
+ * discarding the pending sample of its instance is discarded. Writes can happen concurrently.
+ */
+public class DataWriterCoalescingDecorator extends DataWriterDecorator implements Closeable {
+
+  private static final Logger LOGGER = LogManager.getLogger(DataWriterCoalescingDecorator.class);
+
+  private final int flushThreshold;
+  private final PendingSamples pendingSamples;
+  private volatile ScheduledExecutorService scheduledExecutorService;
+
+  /**
+   * Instantiates a new coalescing data writer.
+   *
+   * @param dataWriter     data writer to decorate
+   * @param clazz          class of the samples (they are copied when written)
+   * @param flushPeriod    period the pending samples are written with
+   * @param timeUnit       unit of the period
+   * @param flushThreshold number of pending instances that causes the pending samples to be written immediately
+   */
+  public DataWriterCoalescingDecorator(
+    DataWriter dataWriter,
+    Class<? extends Copyable> clazz,
+    long flushPeriod,
+    TimeUnit timeUnit,
+    int flushThreshold
+  ) {
+    // initialize super class
+    super(dataWriter);
+
+    checkNotNull(clazz);
+    checkNotNull(timeUnit);
+    checkArgument(flushPeriod > 0, "Flush period is expected > 0");
+    checkArgument(flushThreshold > 0, "Flush threshold is expected > 0");
+
+    this.flushThreshold = flushThreshold;
+    pendingSamples = new PendingSamples(clazz);
+
+    // create executor service to write the pending samples periodically
+    scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+    scheduledExecutorService.scheduleAtFixedRate(
+      this::flushPeriodically,
+      flushPeriod,
+      flushPeriod,
+      timeUnit
+    );
+  }
+
+  /**
+   * Writes the pending samples and stops to write them periodically, samples written afterwards are passed through.
+   *
+   * @throws IOException if an I/O error occurs
+   */
+  @Override
+  public void close() throws IOException {
+    if (scheduledExecutorService != null) {
+      scheduledExecutorService.shutdownNow();
+      scheduledExecutorService = null;
+    }
+    flushPending();
+  }
+
+  @Override
+  public void flush() {
+    flushPending();
+  }
+
+  @Override
+  public void write_untyped(
+    Object o,
+    InstanceHandle_t instanceHandle
+  ) {
+    // ensure parameters are not null
+    checkNotNull(o);
+    checkNotNull(instanceHandle);
+
+    // write directly when closed
+    if (scheduledExecutorService == null) {
+      super.write_untyped(o, instanceHandle);
+      return;
+    }
+
+    // register or get handle if not provided
+    if (instanceHandle == InstanceHandle_t.HANDLE_NIL) {
+      instanceHandle = register_instance_untyped(o);
+    }
+
+    // overwrite the pending sample of the instance
+    if (pendingSamples.keep(o, instanceHandle, false) == PendingSamples.KeepResult.ADDED
+      && pendingSamples.getPendingCount() >= flushThreshold) {
+      flushPending();
+    }
+  }
+
+  @Override
+  public void write_w_timestamp_untyped(
+    Object o,
+    InstanceHandle_t instanceHandle,
+    Time_t time
+  ) {
+    pendingSamples.discard(instanceHandle);
+    super.write_w_timestamp_untyped(o, instanceHandle, time);
+  }
+
+  @Override
+  public void write_w_params_untyped(
+    Object o,
+    WriteParams_t writeParams
+  ) {
+    pendingSamples.discard(writeParams.handle);
+    super.write_w_params_untyped(o, writeParams);
+  }
+
+  @Override
+  public void unregister_instance_untyped(
+    Object o,
+    InstanceHandle_t instanceHandle
+  ) {
+    pendingSamples.remove(instanceHandle);
+    super.unregister_instance_untyped(o, instanceHandle);
+  }
+
+  @Override
+  public void unregister_instance_w_timestamp_untyped(
+    Object o,
+    InstanceHandle_t instanceHandle,
+    Time_t time
+  ) {
+    pendingSamples.remove(instanceHandle);
+    super.unregister_instance_w_timestamp_untyped(o, instanceHandle, time);
+  }
+
+  @Override
+  public void unregister_instance_w_params_untyped(
+    Object o,
+    WriteParams_t writeParams
+  ) {
+    pendingSamples.remove(writeParams.handle);
+    super.unregister_instance_w_params_untyped(o, writeParams);
+  }
+
+  @Override
+  public void dispose_untyped(
+    Object o,
+    InstanceHandle_t instanceHandle
+  ) {
+    pendingSamples.discard(instanceHandle);
+    super.dispose_untyped(o, instanceHandle);
+  }
+
+  @Override
+  public void dispose_w_timestamp_untyped(
+    Object o,
+    InstanceHandle_t instanceHandle,
+    Time_t time
+  ) {
+    pendingSamples.discard(instanceHandle);
+    super.dispose_w_timestamp_untyped(o, instanceHandle, time);
+  }
+
+  @Override
+  public void dispose_w_params_untyped(
+    Object o,
+    WriteParams_t writeParams
+  ) {
+    pendingSamples.discard(writeParams.handle);
+    super.dispose_w_params_untyped(o, writeParams);
+  }
+
+  private void flushPeriodically() {
+    try {
+      flushPending();
+    } catch (RuntimeException e) {
+      // a failed flush must not stop the periodic flushes
+      LOGGER.warn("Failed to write pending samples", e);
+    }
+  }
+
+  private void flushPending() {
+    // write the latest sample of every pending instance
+    pendingSamples.drain((sample, instanceHandle) -> {
+      super.write_untyped(sample, instanceHandle);
+      return PendingSamples.DrainDecision.WRITTEN;
+    });
+
+    // send the samples
+    super.flush();
+  }
+}
@@ -374,7 +374,7 @@ public class DataWriterDecorator implements DataWriter {
     Object o,
     WriteParams_t writeParams
   ) {
-    dataWriter.register_instance_w_params_untyped(o, writeParams);
+    dataWriter.unregister_instance_w_params_untyped(o, writeParams);
   }
 
   @Override
@@ -0,0 +1,363 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.support.publication;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import com.rti.dds.infrastructure.Time_t;
+import com.rti.dds.infrastructure.WriteParams_t;
+import com.rti.dds.publication.DataWriter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Data writer that caches the instance handles of keys, so writes with {@link InstanceHandle_t#HANDLE_NIL} reuse the
+ * handle instead of calculating the key hash and looking up the instance natively on every write.
+ * <p>
+ * The key of a sample is determined by a key extractor, it must return an object with value semantics for the key
+ * fields of the type (e.g. the color for ShapeType). The cache keeps the most recently used keys up to its capacity,
+ * an instance is removed from the cache when it is unregistered or disposed. The keys are also mapped by their handle,
+ * so an unregister or dispose without a sample removes the instance without searching the cache. Decorators that
+ * register instances themselves (e.g. {@link DataWriterAutomaticUnregisterDecorator}) benefit when they decorate this
+ * data writer.
+ * <p>
+ * The cache keeps private copies of the handles and returns copies, so a caller modifying a returned handle does not
+ * corrupt the cache. A registration racing with an unregister or dispose of the same instance must not cache the handle
+ * of the removed instance: the registration is tracked per key while the native call is in progress and a removal
+ * marks it, the handle is only cached when no removal of the key overlapped the registration.
+ */
+public class DataWriterInstanceHandleCacheDecorator extends DataWriterDecorator {
+
+  private final Function<Object, Object> keyExtractor;
+  private final LinkedHashMap<Object, InstanceHandle_t> instanceHandles;
+  private final HashMap<InstanceHandle_t, Object> keys;
+  private final HashMap<Object, KeyState> keyStates;
+  private int removalsOfUnknownKeys;
+
+  /**
+   * Instantiates a new data writer caching instance handles.
+   *
+   * @param dataWriter   data writer to decorate
+   * @param keyExtractor function returning the key of a sample
+   * @param capacity     maximum number of cached instance handles
+   */
+  public DataWriterInstanceHandleCacheDecorator(
+    DataWriter dataWriter,
+    Function<Object, Object> keyExtractor,
+    int capacity
+  ) {
+    // initialize super class
+    super(dataWriter);
+
+    checkNotNull(keyExtractor, "Key extractor must not be null");
+    checkArgument(capacity > 0, "Capacity is expected > 0");
+
+    this.keyExtractor = keyExtractor;
+    keys = new HashMap<>();
+    keyStates = new HashMap<>();
+    instanceHandles = new LinkedHashMap<Object, InstanceHandle_t>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(
+        Map.Entry<Object, InstanceHandle_t> eldest
+      ) {
+        if (size() > capacity) {
+          keys.remove(eldest.getValue());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  @Override
+  public InstanceHandle_t register_instance_untyped(
+    Object o
+  ) {
+    // ensure parameters are not null
+    checkNotNull(o);
+
+    // the cached handle is private, hence a copy is returned
+    InstanceHandle_t instanceHandle = getInstanceHandle(o);
+    if (instanceHandle == null || InstanceHandle_t.HANDLE_NIL.equals(instanceHandle)) {
+      return instanceHandle;
+    }
+    return new InstanceHandle_t(instanceHandle);
+  }
+
+  @Override
+  public void unregister_instance_untyped(
+    Object o,
+    InstanceHandle_t instanceHandle
+  ) {
+    Object key = beginRemoval(o, instanceHandle);
+    try {
+      super.unregister_instance_untyped(o, instanceHandle);
+    } finally {
+      endRemoval(key);
+    }
+  }
+
+  @Override
+  public void unregister_instance_w_timestamp_untyped(
+    Object o,
+    InstanceHandle_t instanceHandle,
+    Time_t time
+  ) {
+    Object key = beginRemoval(o, instanceHandle);
+    try {
+      super.unregister_instance_w_timestamp_untyped(o, instanceHandle, time);
+    } finally {
+      endRemoval(key);
+    }
+  }
+
+  @Override
+  public void unregister_instance_w_params_untyped(
+    Object o,
+    WriteParams_t writeParams
+  ) {
+    Object key = beginRemoval(o, writeParams.handle);
+    try {
+      super.unregister_instance_w_params_untyped(o, writeParams);
+    } finally {
+      endRemoval(key);
+    }
+  }
+
+  @Override
+  public void write_untyped(
+    Object o,
+    InstanceHandle_t instanceHandle
+  ) {
+    // ensure parameters are not null
+    checkNotNull(o);
+    checkNotNull(instanceHandle);
+
+    // register or get handle if not provided
+    if (instanceHandle == InstanceHandle_t.HANDLE_NIL) {
+      instanceHandle = getInstanceHandle(o);
+    }
+
+    // write sample
+    super.write_untyped(o, instanceHandle);
+  }
+
+  @Override
+  public void write_w_timestamp_untyped(
+    Object o,
+    InstanceHandle_t instanceHandle,
+    Time_t time
+  ) {
+    // ensure parameters are not null
+    checkNotNull(o);
+    checkNotNull(instanceHandle);
+
+    // register or get handle if not provided
+    if (instanceHandle == InstanceHandle_t.HANDLE_NIL) {
+      instanceHandle = getInstanceHandle(o);
+    }
+
+    // write sample
+    super.write_w_timestamp_untyped(o, instanceHandle, time);
+  }
+
+  @Override
+  public void write_w_params_untyped(
+    Object o,
+    WriteParams_t writeParams
+  ) {
+    // ensure parameters are not null
+    checkNotNull(o);
+    checkNotNull(writeParams);
+
+    // write sample directly if the handle is provided
+    InstanceHandle_t instanceHandle = writeParams.handle;
+    if (instanceHandle != null && !InstanceHandle_t.HANDLE_NIL.equals(instanceHandle)) {
+      super.write_w_params_untyped(o, writeParams);
+      return;
+    }
+
+    // write sample with the registered handle, the handle of the parameters is restored afterwards
+    writeParams.handle = register_instance_untyped(o);
+    try {
+      super.write_w_params_untyped(o, writeParams);
+    } finally {
+      writeParams.handle = instanceHandle;
+    }
+  }
+
+  @Override
+  public void dispose_untyped(
+    Object o,
+    InstanceHandle_t instanceHandle
+  ) {
+    Object key = beginRemoval(o, instanceHandle);
+    try {
+      super.dispose_untyped(o, instanceHandle);
+    } finally {
+      endRemoval(key);
+    }
+  }
+
+  @Override
+  public void dispose_w_timestamp_untyped(
+    Object o,
+    InstanceHandle_t instanceHandle,
+    Time_t time
+  ) {
+    Object key = beginRemoval(o, instanceHandle);
+    try {
+      super.dispose_w_timestamp_untyped(o, instanceHandle, time);
+    } finally {
+      endRemoval(key);
+    }
+  }
+
+  @Override
+  public void dispose_w_params_untyped(
+    Object o,
+    WriteParams_t writeParams
+  ) {
+    Object key = beginRemoval(o, writeParams.handle);
+    try {
+      super.dispose_w_params_untyped(o, writeParams);
+    } finally {
+      endRemoval(key);
+    }
+  }
+
+  private InstanceHandle_t getInstanceHandle(
+    Object o
+  ) {
+    // the returned handle may be the cached one, it must only be passed to the decorated data writer
+
+    // return cached handle if available, otherwise track the registration of the key
+    Object key = keyExtractor.apply(o);
+    KeyState keyState;
+    long removalCount;
+    boolean cacheable;
+    synchronized (instanceHandles) {
+      InstanceHandle_t instanceHandle = instanceHandles.get(key);
+      if (instanceHandle != null) {
+        return instanceHandle;
+      }
+      keyState = keyStates.computeIfAbsent(key, k -> new KeyState());
+      keyState.users++;
+      removalCount = keyState.removalCount;
+      cacheable = keyState.removalsInProgress == 0 && removalsOfUnknownKeys == 0;
+    }
+
+    // register instance and cache its handle unless it has been removed concurrently
+    InstanceHandle_t instanceHandle = null;
+    try {
+      instanceHandle = super.register_instance_untyped(o);
+    } finally {
+      synchronized (instanceHandles) {
+        if (cacheable
+          && keyState.removalCount == removalCount
+          && instanceHandle != null
+          && !InstanceHandle_t.HANDLE_NIL.equals(instanceHandle)) {
+          InstanceHandle_t instanceHandleCopy = new InstanceHandle_t(instanceHandle);
+          InstanceHandle_t previousInstanceHandle = instanceHandles.put(key, instanceHandleCopy);
+          if (previousInstanceHandle != null) {
+            keys.remove(previousInstanceHandle);
+          }
+          keys.put(instanceHandleCopy, key);
+        }
+        release(key, keyState);
+      }
+    }
+    return instanceHandle;
+  }
+
+  private Object beginRemoval(
+    Object o,
+    InstanceHandle_t instanceHandle
+  ) {
+    synchronized (instanceHandles) {
+      // without a sample the key is taken from the handle
+      Object key = o != null ? keyExtractor.apply(o) : keys.get(instanceHandle);
+
+      // an unknown key may belong to any registration in progress
+      if (key == null) {
+        removalsOfUnknownKeys++;
+        for (KeyState keyState : keyStates.values()) {
+          keyState.removalCount++;
+        }
+        return null;
+      }
+
+      InstanceHandle_t removedInstanceHandle = instanceHandles.remove(key);
+      if (removedInstanceHandle != null) {
+        keys.remove(removedInstanceHandle);
+      }
+
+      // mark the key, so registrations in progress or starting before the removal ended do not cache the handle
+      KeyState keyState = keyStates.computeIfAbsent(key, k -> new KeyState());
+      keyState.users++;
+      keyState.removalsInProgress++;
+      keyState.removalCount++;
+      return key;
+    }
+  }
+
+  private void endRemoval(
+    Object key
+  ) {
+    synchronized (instanceHandles) {
+      if (key == null) {
+        removalsOfUnknownKeys--;
+        return;
+      }
+      KeyState keyState = keyStates.get(key);
+      keyState.removalsInProgress--;
+      release(key, keyState);
+    }
+  }
+
+  private void release(
+    Object key,
+    KeyState keyState
+  ) {
+    keyState.users--;
+    if (keyState.users == 0) {
+      keyStates.remove(key);
+    }
+  }
+
+  /**
+   * Registrations and removals of a key in progress.
+   */
+  private static class KeyState {
+
+    private int users;
+    private int removalsInProgress;
+    private long removalCount;
+  }
+}
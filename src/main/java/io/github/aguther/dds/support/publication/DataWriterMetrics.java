@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.support.publication;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+
+/**
+ * Metrics of instrumented data writers, see {@link DataWriterInstrumentingDecorator}.
+ * <p>
+ * The metrics are registered once and shared by all instrumented data writers, they are labeled with the topic and
+ * the operation. The latency is recorded in a histogram with exponential buckets from 1 microsecond to about 8
+ * seconds, the buckets are updated without locks.
+ */
+public class DataWriterMetrics {
+
+  static final String OPERATION_WRITE = "write";
+  static final String OPERATION_WRITE_W_TIMESTAMP = "write_w_timestamp";
+  static final String OPERATION_WRITE_W_PARAMS = "write_w_params";
+  static final String OPERATION_REGISTER_INSTANCE = "register_instance";
+  static final String OPERATION_DISPOSE = "dispose";
+
+  private static final String[] LABEL_NAMES = new String[]{"topic_name", "type_name", "operation"};
+
+  final Histogram ddsDataWriterCallDuration;
+  final Counter ddsDataWriterCallFailures;
+  final Counter ddsDataWriterSamples;
+  final Counter ddsDataWriterSerializedBytes;
+
+  /**
+   * Instantiates the metrics and registers them.
+   *
+   * @param collectorRegistry registry to register the metrics with
+   */
+  public DataWriterMetrics(
+    CollectorRegistry collectorRegistry
+  ) {
+    checkNotNull(collectorRegistry, "Collector registry must not be null");
+
+    ddsDataWriterCallDuration = Histogram.build()
+      .name("dds_data_writer_call_duration_seconds")
+      .labelNames(LABEL_NAMES)
+      .help("Time in seconds the application thread spent in a call of the data writer.")
+      .exponentialBuckets(0.000001, 2, 24)
+      .register(collectorRegistry);
+    ddsDataWriterCallFailures = Counter.build()
+      .name("dds_data_writer_call_failures_total")
+      .labelNames(LABEL_NAMES)
+      .help("Number of calls of the data writer that threw an exception.")
+      .register(collectorRegistry);
+    ddsDataWriterSamples = Counter.build()
+      .name("dds_data_writer_samples_total")
+      .labelNames(LABEL_NAMES)
+      .help("Number of samples written or disposed by the application.")
+      .register(collectorRegistry);
+    ddsDataWriterSerializedBytes = Counter.build()
+      .name("dds_data_writer_serialized_bytes_total")
+      .labelNames(LABEL_NAMES)
+      .help("Number of bytes of the written samples when serialized to CDR.")
+      .register(collectorRegistry);
+  }
+}
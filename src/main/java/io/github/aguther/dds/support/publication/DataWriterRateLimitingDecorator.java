@@ -0,0 +1,638 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.support.publication;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.rti.dds.infrastructure.Copyable;
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import com.rti.dds.infrastructure.ReliabilityQosPolicyKind;
+import com.rti.dds.infrastructure.ResourceLimitsQosPolicy;
+import com.rti.dds.infrastructure.Time_t;
+import com.rti.dds.infrastructure.WriteParams_t;
+import com.rti.dds.publication.DataWriter;
+import com.rti.dds.publication.DataWriterCacheStatus;
+import com.rti.dds.publication.DataWriterQos;
+import com.rti.dds.publication.ReliableWriterCacheChangedStatus;
+import io.github.aguther.dds.support.publication.PendingSamples.DrainDecision;
+import io.github.aguther.dds.support.publication.PendingSamples.KeepResult;
+import io.github.aguther.dds.util.TokenBucket;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Data writer that limits the rate of writes with token buckets, per data writer and optionally per instance.
+ * <p>
+ * Besides the rate, writes are only admitted while the decorated data writer is not congested: its cache is below 90%
+ * of its maximum number of samples. So the application is not blocked by a full writer cache. The cache statuses are
+ * checked at most once per {@value #STATUS_CHECK_PERIOD_MICROSECONDS} microseconds, without locking the writing
+ * threads.
+ * <p>
+ * For a reliable data writer, writes can optionally also be limited while the number of unacknowledged samples is
+ * above the high watermark. This is disabled by default: the number is only available from the reliable writer cache
+ * changed status, and reading it resets the change counts and the changed flag of that status. Enable it only if the
+ * application does not use that status with a listener or status condition.
+ * <p>
+ * Writes that are not admitted are handled according to the {@link OverloadPolicy}. Writes with a timestamp or
+ * parameters are never kept, with {@link OverloadPolicy#NEWEST_WINS} they discard the kept sample of their instance
+ * and wait like with {@link OverloadPolicy#BLOCK}. Disposes and unregisters discard the kept sample of their
+ * instance. The number of admitted, dropped and replaced samples is counted.
+ */
+public class DataWriterRateLimitingDecorator extends DataWriterDecorator implements Closeable {
+
+  private static final Logger LOGGER = LogManager.getLogger(DataWriterRateLimitingDecorator.class);
+
+  private static final long STATUS_CHECK_PERIOD_MICROSECONDS = 1000;
+  private static final double CACHE_LIMIT_RATIO = 0.9;
+
+  /**
+   * Policy applied when a write is not admitted.
+   */
+  public enum OverloadPolicy {
+    /**
+     * The calling thread waits until the write is admitted.
+     */
+    BLOCK,
+    /**
+     * The sample is dropped.
+     */
+    DROP,
+    /**
+     * The sample is kept until the write is admitted, it is replaced by newer samples of the same instance.
+     */
+    NEWEST_WINS
+  }
+
+  private enum Admission {
+    ADMITTED,
+    INSTANCE_LIMITED,
+    WRITER_LIMITED
+  }
+
+  private final OverloadPolicy overloadPolicy;
+  private final TokenBucket writerTokenBucket;
+  private final double instanceRate;
+  private final double instanceBurst;
+  private final ConcurrentHashMap<InstanceHandle_t, TokenBucket> instanceTokenBuckets;
+
+  private final long cacheLimit;
+  private final int unacknowledgedLimit;
+  private final AtomicLong lastStatusCheck;
+  private volatile boolean congested;
+
+  private final PendingSamples pendingSamples;
+  private final AtomicBoolean drainScheduled;
+  private volatile ScheduledExecutorService scheduledExecutorService;
+
+  private final LongAdder admittedSampleCount;
+  private final LongAdder droppedSampleCount;
+  private final LongAdder replacedSampleCount;
+
+  /**
+   * Instantiates a new rate limiting data writer with a limit per data writer.
+   *
+   * @param dataWriter     data writer to decorate
+   * @param rate           samples per second admitted for the data writer
+   * @param burst          samples admitted for the data writer at once
+   * @param overloadPolicy policy when a write is not admitted
+   * @param clazz          class of the samples, needed to copy them for {@link OverloadPolicy#NEWEST_WINS}
+   */
+  public DataWriterRateLimitingDecorator(
+    DataWriter dataWriter,
+    double rate,
+    double burst,
+    OverloadPolicy overloadPolicy,
+    Class<? extends Copyable> clazz
+  ) {
+    this(dataWriter, rate, burst, 0, 0, overloadPolicy, clazz, false);
+  }
+
+  /**
+   * Instantiates a new rate limiting data writer with a limit per data writer and per instance.
+   *
+   * @param dataWriter     data writer to decorate
+   * @param rate           samples per second admitted for the data writer
+   * @param burst          samples admitted for the data writer at once
+   * @param instanceRate   samples per second admitted for every instance, 0 to not limit instances
+   * @param instanceBurst  samples admitted for every instance at once
+   * @param overloadPolicy policy when a write is not admitted
+   * @param clazz          class of the samples, needed to copy them for {@link OverloadPolicy#NEWEST_WINS}
+   */
+  public DataWriterRateLimitingDecorator(
+    DataWriter dataWriter,
+    double rate,
+    double burst,
+    double instanceRate,
+    double instanceBurst,
+    OverloadPolicy overloadPolicy,
+    Class<? extends Copyable> clazz
+  ) {
+    this(dataWriter, rate, burst, instanceRate, instanceBurst, overloadPolicy, clazz, false);
+  }
+
+  /**
+   * Instantiates a new rate limiting data writer with a limit per data writer and per instance.
+   *
+   * @param dataWriter                 data writer to decorate
+   * @param rate                       samples per second admitted for the data writer
+   * @param burst                      samples admitted for the data writer at once
+   * @param instanceRate               samples per second admitted for every instance, 0 to not limit instances
+   * @param instanceBurst              samples admitted for every instance at once
+   * @param overloadPolicy             policy when a write is not admitted
+   * @param clazz                      class of the samples, needed to copy them for {@link
+   *                                   OverloadPolicy#NEWEST_WINS}
+   * @param limitUnacknowledgedSamples true to not admit writes while the number of unacknowledged samples is above the
+   *                                   high watermark (resets the reliable writer cache changed status)
+   */
+  public DataWriterRateLimitingDecorator(
+    DataWriter dataWriter,
+    double rate,
+    double burst,
+    double instanceRate,
+    double instanceBurst,
+    OverloadPolicy overloadPolicy,
+    Class<? extends Copyable> clazz,
+    boolean limitUnacknowledgedSamples
+  ) {
+    // initialize super class
+    super(dataWriter);
+
+    checkNotNull(overloadPolicy, "Overload policy must not be null");
+    checkArgument(instanceRate >= 0, "Instance rate must not be negative");
+    checkArgument(instanceRate == 0 || instanceBurst >= 1, "Instance burst is expected >= 1");
+    checkArgument(overloadPolicy != OverloadPolicy.NEWEST_WINS || clazz != null,
+      "Class of the samples is needed for policy %s", overloadPolicy);
+
+    this.overloadPolicy = overloadPolicy;
+    writerTokenBucket = new TokenBucket(rate, burst);
+    this.instanceRate = instanceRate;
+    this.instanceBurst = instanceBurst;
+    instanceTokenBuckets = new ConcurrentHashMap<>();
+
+    // detect limits of the writer cache
+    DataWriterQos dataWriterQos = new DataWriterQos();
+    dataWriter.get_qos(dataWriterQos);
+    cacheLimit = dataWriterQos.resource_limits.max_samples == ResourceLimitsQosPolicy.LENGTH_UNLIMITED
+      ? Long.MAX_VALUE
+      : (long) (dataWriterQos.resource_limits.max_samples * CACHE_LIMIT_RATIO);
+    unacknowledgedLimit = limitUnacknowledgedSamples
+      && dataWriterQos.reliability.kind == ReliabilityQosPolicyKind.RELIABLE_RELIABILITY_QOS
+      ? dataWriterQos.protocol.rtps_reliable_writer.high_watermark
+      : Integer.MAX_VALUE;
+    lastStatusCheck = new AtomicLong();
+
+    // samples are only kept for the newest wins policy, they are drained only while some are kept
+    pendingSamples = overloadPolicy == OverloadPolicy.NEWEST_WINS ? new PendingSamples(clazz) : null;
+    drainScheduled = new AtomicBoolean();
+    if (pendingSamples != null) {
+      scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    admittedSampleCount = new LongAdder();
+    droppedSampleCount = new LongAdder();
+    replacedSampleCount = new LongAdder();
+  }
+
+  /**
+   * Stops to write kept samples, they are dropped.
+   *
+   * @throws IOException if an I/O error occurs
+   */
+  @Override
+  public void close() throws IOException {
+    ScheduledExecutorService executorService = scheduledExecutorService;
+    if (executorService != null) {
+      scheduledExecutorService = null;
+      executorService.shutdownNow();
+      try {
+        // ensure no drain reaches the data writer after it has been closed
+        executorService.awaitTermination(1, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Returns the number of samples that have been written.
+   *
+   * @return number of samples
+   */
+  public long getAdmittedSampleCount() {
+    return admittedSampleCount.sum();
+  }
+
+  /**
+   * Returns the number of samples that have been dropped.
+   *
+   * @return number of samples
+   */
+  public long getDroppedSampleCount() {
+    return droppedSampleCount.sum();
+  }
+
+  /**
+   * Returns the number of kept samples that have been replaced by a newer sample of the same instance.
+   *
+   * @return number of samples
+   */
+  public long getReplacedSampleCount() {
+    return replacedSampleCount.sum();
+  }
+
+  @Override
+  public void write_untyped(
+    Object o,
+    InstanceHandle_t instanceHandle
+  ) {
+    // ensure parameters are not null
+    checkNotNull(o);
+    checkNotNull(instanceHandle);
+
+    // register or get handle if needed to identify the instance
+    instanceHandle = resolveInstanceHandle(o, instanceHandle, true);
+
+    // a newer sample replaces a kept one, so samples of an instance are not reordered
+    if (pendingSamples != null && handleKeepResult(pendingSamples.keep(o, instanceHandle, true))) {
+      return;
+    }
+
+    // write sample if admitted, otherwise apply policy
+    if (acquire(instanceHandle, overloadPolicy)) {
+      super.write_untyped(o, instanceHandle);
+    } else if (pendingSamples != null) {
+      keep(o, instanceHandle);
+    }
+  }
+
+  @Override
+  public void write_w_timestamp_untyped(
+    Object o,
+    InstanceHandle_t instanceHandle,
+    Time_t time
+  ) {
+    // ensure parameters are not null
+    checkNotNull(o);
+    checkNotNull(instanceHandle);
+
+    // the timestamp can not be kept, so the sample is written instead of a kept one
+    InstanceHandle_t resolvedInstanceHandle = resolveInstanceHandle(o, instanceHandle, true);
+    discardReplaced(resolvedInstanceHandle);
+    if (acquire(resolvedInstanceHandle, getNotKeepingOverloadPolicy())) {
+      super.write_w_timestamp_untyped(o, instanceHandle, time);
+    }
+  }
+
+  @Override
+  public void write_w_params_untyped(
+    Object o,
+    WriteParams_t writeParams
+  ) {
+    // ensure parameters are not null
+    checkNotNull(o);
+    checkNotNull(writeParams);
+
+    // the parameters can not be kept, so the sample is written instead of a kept one
+    InstanceHandle_t resolvedInstanceHandle = resolveInstanceHandle(o, writeParams.handle, true);
+    discardReplaced(resolvedInstanceHandle);
+    if (acquire(resolvedInstanceHandle, getNotKeepingOverloadPolicy())) {
+      super.write_w_params_untyped(o, writeParams);
+    }
+  }
+
+  @Override
+  public void unregister_instance_untyped(
+    Object o,
+    InstanceHandle_t instanceHandle
+  ) {
+    remove(resolveInstanceHandle(o, instanceHandle, false));
+    super.unregister_instance_untyped(o, instanceHandle);
+  }
+
+  @Override
+  public void unregister_instance_w_timestamp_untyped(
+    Object o,
+    InstanceHandle_t instanceHandle,
+    Time_t time
+  ) {
+    remove(resolveInstanceHandle(o, instanceHandle, false));
+    super.unregister_instance_w_timestamp_untyped(o, instanceHandle, time);
+  }
+
+  @Override
+  public void unregister_instance_w_params_untyped(
+    Object o,
+    WriteParams_t writeParams
+  ) {
+    remove(resolveInstanceHandle(o, writeParams.handle, false));
+    super.unregister_instance_w_params_untyped(o, writeParams);
+  }
+
+  @Override
+  public void dispose_untyped(
+    Object o,
+    InstanceHandle_t instanceHandle
+  ) {
+    discard(resolveInstanceHandle(o, instanceHandle, false));
+    super.dispose_untyped(o, instanceHandle);
+  }
+
+  @Override
+  public void dispose_w_timestamp_untyped(
+    Object o,
+    InstanceHandle_t instanceHandle,
+    Time_t time
+  ) {
+    discard(resolveInstanceHandle(o, instanceHandle, false));
+    super.dispose_w_timestamp_untyped(o, instanceHandle, time);
+  }
+
+  @Override
+  public void dispose_w_params_untyped(
+    Object o,
+    WriteParams_t writeParams
+  ) {
+    discard(resolveInstanceHandle(o, writeParams.handle, false));
+    super.dispose_w_params_untyped(o, writeParams);
+  }
+
+  private InstanceHandle_t resolveInstanceHandle(
+    Object o,
+    InstanceHandle_t instanceHandle,
+    boolean register
+  ) {
+    // the handle is only needed when instances are limited or kept
+    if (o == null
+      || (instanceHandle != null && !InstanceHandle_t.HANDLE_NIL.equals(instanceHandle))
+      || (instanceRate <= 0 && pendingSamples == null)) {
+      return instanceHandle;
+    }
+    return register ? register_instance_untyped(o) : lookup_instance_untyped(o);
+  }
+
+  private OverloadPolicy getNotKeepingOverloadPolicy() {
+    return overloadPolicy == OverloadPolicy.NEWEST_WINS ? OverloadPolicy.BLOCK : overloadPolicy;
+  }
+
+  private boolean acquire(
+    InstanceHandle_t instanceHandle,
+    OverloadPolicy policy
+  ) {
+    boolean admitted = admit(instanceHandle, System.nanoTime()) == Admission.ADMITTED;
+    if (!admitted) {
+      switch (policy) {
+        case BLOCK:
+          admitted = waitForAdmission(instanceHandle);
+          break;
+        case DROP:
+          droppedSampleCount.increment();
+          break;
+        case NEWEST_WINS:
+        default:
+          // the sample is kept by the caller
+          break;
+      }
+    }
+    if (admitted) {
+      admittedSampleCount.increment();
+    }
+    return admitted;
+  }
+
+  private Admission admit(
+    InstanceHandle_t instanceHandle,
+    long now
+  ) {
+    // do not admit writes while the writer is congested
+    if (isCongested(now)) {
+      return Admission.WRITER_LIMITED;
+    }
+
+    // take a token of the instance first, it is returned when the data writer has no token
+    TokenBucket instanceTokenBucket = getInstanceTokenBucket(instanceHandle);
+    if (instanceTokenBucket != null && !instanceTokenBucket.tryAcquire(now)) {
+      return Admission.INSTANCE_LIMITED;
+    }
+    if (!writerTokenBucket.tryAcquire(now)) {
+      if (instanceTokenBucket != null) {
+        instanceTokenBucket.release();
+      }
+      return Admission.WRITER_LIMITED;
+    }
+    return Admission.ADMITTED;
+  }
+
+  private boolean isCongested(
+    long now
+  ) {
+    // the statuses are only checked periodically, as getting them is expensive compared to a write; only the thread
+    // that advances the time of the last check gets them, the others use the last result
+    long last = lastStatusCheck.get();
+    if ((last == 0 || now - last >= TimeUnit.MICROSECONDS.toNanos(STATUS_CHECK_PERIOD_MICROSECONDS))
+      && lastStatusCheck.compareAndSet(last, now)) {
+      // the statuses are not shared, as a slow check may overlap with the next one
+      DataWriterCacheStatus dataWriterCacheStatus = new DataWriterCacheStatus();
+      get_datawriter_cache_status(dataWriterCacheStatus);
+      boolean congestedNow = dataWriterCacheStatus.sample_count >= cacheLimit;
+      if (!congestedNow && unacknowledgedLimit != Integer.MAX_VALUE) {
+        ReliableWriterCacheChangedStatus reliableWriterCacheChangedStatus = new ReliableWriterCacheChangedStatus();
+        get_reliable_writer_cache_changed_status(reliableWriterCacheChangedStatus);
+        congestedNow = reliableWriterCacheChangedStatus.unacknowledged_sample_count >= unacknowledgedLimit;
+      }
+      congested = congestedNow;
+    }
+    return congested;
+  }
+
+  private TokenBucket getInstanceTokenBucket(
+    InstanceHandle_t instanceHandle
+  ) {
+    if (instanceRate <= 0 || instanceHandle == null || InstanceHandle_t.HANDLE_NIL.equals(instanceHandle)) {
+      return null;
+    }
+    TokenBucket tokenBucket = instanceTokenBuckets.get(instanceHandle);
+    if (tokenBucket == null) {
+      // the instance handle is copied because it is kept
+      tokenBucket = instanceTokenBuckets.computeIfAbsent(
+        new InstanceHandle_t(instanceHandle),
+        key -> new TokenBucket(instanceRate, instanceBurst)
+      );
+    }
+    return tokenBucket;
+  }
+
+  private long getNanosUntilAdmission(
+    InstanceHandle_t instanceHandle
+  ) {
+    // wait until a token is expected, but at least until the statuses are checked again
+    long now = System.nanoTime();
+    long waitNanos = writerTokenBucket.nanosUntilAvailable(now);
+    TokenBucket instanceTokenBucket = getInstanceTokenBucket(instanceHandle);
+    if (instanceTokenBucket != null) {
+      waitNanos = Math.max(waitNanos, instanceTokenBucket.nanosUntilAvailable(now));
+    }
+    return Math.max(waitNanos, TimeUnit.MICROSECONDS.toNanos(STATUS_CHECK_PERIOD_MICROSECONDS));
+  }
+
+  private boolean waitForAdmission(
+    InstanceHandle_t instanceHandle
+  ) {
+    while (true) {
+      LockSupport.parkNanos(getNanosUntilAdmission(instanceHandle));
+
+      if (Thread.currentThread().isInterrupted()) {
+        LOGGER.warn("Interrupted while waiting for the write to be admitted, dropping sample");
+        droppedSampleCount.increment();
+        return false;
+      }
+      if (admit(instanceHandle, System.nanoTime()) == Admission.ADMITTED) {
+        return true;
+      }
+    }
+  }
+
+  private boolean handleKeepResult(
+    KeepResult keepResult
+  ) {
+    switch (keepResult) {
+      case REPLACED:
+        replacedSampleCount.increment();
+        return true;
+      case DISCARDED:
+        droppedSampleCount.increment();
+        return true;
+      case ADDED:
+        scheduleDrain(0);
+        return true;
+      case NOT_KEPT:
+      default:
+        return false;
+    }
+  }
+
+  private void keep(
+    Object o,
+    InstanceHandle_t instanceHandle
+  ) {
+    // kept samples are dropped after close, as they are not written anymore
+    if (scheduledExecutorService == null) {
+      droppedSampleCount.increment();
+      return;
+    }
+    handleKeepResult(pendingSamples.keep(o, instanceHandle, false));
+  }
+
+  private void scheduleDrain(
+    long delayNanos
+  ) {
+    // only one drain is scheduled at a time, none while nothing is kept
+    ScheduledExecutorService executorService = scheduledExecutorService;
+    if (executorService == null || !drainScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      executorService.schedule(
+        this::drainPeriodically,
+        Math.max(delayNanos, getNanosUntilAdmission(null)),
+        TimeUnit.NANOSECONDS
+      );
+    } catch (RejectedExecutionException e) {
+      // closed concurrently
+      drainScheduled.set(false);
+    }
+  }
+
+  private void drainPeriodically() {
+    try {
+      pendingSamples.drain(this::writeKept);
+    } catch (RuntimeException e) {
+      // a failed write must not stop to write the kept samples
+      LOGGER.warn("Failed to write kept samples", e);
+    }
+
+    // schedule the next drain if samples are still kept, also if one was kept concurrently
+    drainScheduled.set(false);
+    if (pendingSamples.getPendingCount() > 0) {
+      scheduleDrain(0);
+    }
+  }
+
+  private DrainDecision writeKept(
+    Copyable sample,
+    InstanceHandle_t instanceHandle
+  ) {
+    // keep the order while the data writer is limited, only instances that are limited are skipped
+    switch (admit(instanceHandle, System.nanoTime())) {
+      case ADMITTED:
+        super.write_untyped(sample, instanceHandle);
+        admittedSampleCount.increment();
+        return DrainDecision.WRITTEN;
+      case INSTANCE_LIMITED:
+        return DrainDecision.SKIPPED;
+      case WRITER_LIMITED:
+      default:
+        return DrainDecision.STOPPED;
+    }
+  }
+
+  private void discardReplaced(
+    InstanceHandle_t instanceHandle
+  ) {
+    if (pendingSamples != null && pendingSamples.discard(instanceHandle)) {
+      replacedSampleCount.increment();
+    }
+  }
+
+  private void discard(
+    InstanceHandle_t instanceHandle
+  ) {
+    if (pendingSamples != null && pendingSamples.discard(instanceHandle)) {
+      droppedSampleCount.increment();
+    }
+  }
+
+  private void remove(
+    InstanceHandle_t instanceHandle
+  ) {
+    if (pendingSamples != null && pendingSamples.remove(instanceHandle)) {
+      droppedSampleCount.increment();
+    }
+    if (instanceHandle != null) {
+      instanceTokenBuckets.remove(instanceHandle);
+    }
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.support.publication;
+
+import com.esotericsoftware.reflectasm.ConstructorAccess;
+import com.rti.dds.infrastructure.Copyable;
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latest samples of instances that are kept to be written later by a decorator.
+ * <p>
+ * Every instance has a slot with a copy of its latest sample, the slot is queued when it becomes pending and newer
+ * samples replace the pending one. Discarded slots stay in the queue until it is drained, they are skipped as they
+ * are not pending anymore. A removed slot is marked, so a concurrent keep that got the slot before it was removed
+ * does not make it pending again. Likewise the discards of a slot are counted, so a keep that got the slot before a
+ * concurrent discard (e.g. of a dispose) does not make it pending again after the discard and the instance is not
+ * written after the dispose. Samples can be kept concurrently, drains are serialized.
+ */
+class PendingSamples {
+
+  /**
+   * Result of keeping a sample.
+   */
+  enum KeepResult {
+    /**
+     * The sample has not been kept, as the instance has no pending sample.
+     */
+    NOT_KEPT,
+    /**
+     * The sample is pending now.
+     */
+    ADDED,
+    /**
+     * The sample replaced the pending sample of the instance.
+     */
+    REPLACED,
+    /**
+     * The sample has been discarded, as the instance has been removed or its pending sample discarded concurrently.
+     */
+    DISCARDED
+  }
+
+  /**
+   * Decision of the writer of a drain.
+   */
+  enum DrainDecision {
+    /**
+     * The sample has been written, it is not pending anymore.
+     */
+    WRITTEN,
+    /**
+     * The sample stays pending, the drain continues with the next one.
+     */
+    SKIPPED,
+    /**
+     * The sample stays pending, the drain stops.
+     */
+    STOPPED
+  }
+
+  /**
+   * Writer of the pending samples of a drain, it is called with the lock of the slot held.
+   */
+  @FunctionalInterface
+  interface SampleWriter {
+
+    DrainDecision write(
+      Copyable sample,
+      InstanceHandle_t instanceHandle
+    );
+  }
+
+  private final ConstructorAccess<? extends Copyable> constructorAccess;
+  private final ConcurrentHashMap<InstanceHandle_t, Slot> slots;
+  private final ConcurrentLinkedQueue<Slot> pendingSlots;
+  private final AtomicInteger pendingCount;
+  private final Object drainLock = new Object();
+
+  PendingSamples(
+    Class<? extends Copyable> clazz
+  ) {
+    constructorAccess = ConstructorAccess.get(clazz);
+    slots = new ConcurrentHashMap<>();
+    pendingSlots = new ConcurrentLinkedQueue<>();
+    pendingCount = new AtomicInteger();
+  }
+
+  /**
+   * Returns the number of queued slots, including discarded ones that have not been drained yet.
+   *
+   * @return number of slots
+   */
+  int getPendingCount() {
+    return pendingCount.get();
+  }
+
+  /**
+   * Keeps a copy of the sample as the pending sample of its instance.
+   *
+   * @param o              sample
+   * @param instanceHandle handle of the instance
+   * @param onlyIfPending  true to only replace a pending sample
+   * @return result
+   */
+  KeepResult keep(
+    Object o,
+    InstanceHandle_t instanceHandle,
+    boolean onlyIfPending
+  ) {
+    // get slot of instance, the instance handle is copied because it is kept
+    Slot slot = slots.get(instanceHandle);
+    if (slot == null) {
+      if (onlyIfPending) {
+        return KeepResult.NOT_KEPT;
+      }
+      Slot newSlot = new Slot(new InstanceHandle_t(instanceHandle), constructorAccess.newInstance());
+      slot = slots.putIfAbsent(newSlot.instanceHandle, newSlot);
+      if (slot == null) {
+        slot = newSlot;
+      }
+    }
+    long discardCount = slot.discardCount;
+
+    // overwrite the pending sample of the instance, unless it has been removed or discarded since getting the slot
+    synchronized (slot) {
+      if (slot.removed || slot.discardCount != discardCount) {
+        return KeepResult.DISCARDED;
+      }
+      if (onlyIfPending && !slot.pending) {
+        return KeepResult.NOT_KEPT;
+      }
+      slot.sample.copy_from(o);
+      if (slot.pending) {
+        return KeepResult.REPLACED;
+      }
+      slot.pending = true;
+    }
+    pendingSlots.add(slot);
+    pendingCount.incrementAndGet();
+    return KeepResult.ADDED;
+  }
+
+  /**
+   * Passes the pending samples to the writer in the order they became pending.
+   *
+   * @param sampleWriter writer of the samples
+   */
+  void drain(
+    SampleWriter sampleWriter
+  ) {
+    synchronized (drainLock) {
+      Iterator<Slot> iterator = pendingSlots.iterator();
+      while (iterator.hasNext()) {
+        Slot slot = iterator.next();
+        synchronized (slot) {
+          if (slot.pending) {
+            DrainDecision drainDecision = sampleWriter.write(slot.sample, slot.instanceHandle);
+            if (drainDecision == DrainDecision.STOPPED) {
+              return;
+            }
+            if (drainDecision == DrainDecision.SKIPPED) {
+              continue;
+            }
+            slot.pending = false;
+          }
+        }
+        iterator.remove();
+        pendingCount.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Discards the pending sample of an instance.
+   *
+   * @param instanceHandle handle of the instance
+   * @return true if a pending sample has been discarded
+   */
+  boolean discard(
+    InstanceHandle_t instanceHandle
+  ) {
+    Slot slot = instanceHandle == null ? null : slots.get(instanceHandle);
+    if (slot == null) {
+      return false;
+    }
+    synchronized (slot) {
+      boolean discarded = slot.pending;
+      slot.pending = false;
+      slot.discardCount++;
+      return discarded;
+    }
+  }
+
+  /**
+   * Removes the slot of an instance and discards its pending sample.
+   *
+   * @param instanceHandle handle of the instance
+   * @return true if a pending sample has been discarded
+   */
+  boolean remove(
+    InstanceHandle_t instanceHandle
+  ) {
+    Slot slot = instanceHandle == null ? null : slots.remove(instanceHandle);
+    if (slot == null) {
+      return false;
+    }
+    synchronized (slot) {
+      boolean discarded = slot.pending;
+      slot.pending = false;
+      slot.removed = true;
+      return discarded;
+    }
+  }
+
+  private static class Slot {
+
+    private final InstanceHandle_t instanceHandle;
+    private final Copyable sample;
+    private boolean pending;
+    private boolean removed;
+    private volatile long discardCount;
+
+    Slot(
+      InstanceHandle_t instanceHandle,
+      Copyable sample
+    ) {
+      this.instanceHandle = instanceHandle;
+      this.sample = sample;
+    }
+  }
+}
@@ -0,0 +1,280 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.support.subscription;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.rti.dds.infrastructure.Condition;
+import com.rti.dds.infrastructure.ConditionSeq;
+import com.rti.dds.infrastructure.Duration_t;
+import com.rti.dds.infrastructure.GuardCondition;
+import com.rti.dds.infrastructure.WaitSet;
+import com.rti.dds.subscription.DataReader;
+import com.rti.dds.subscription.ReadCondition;
+import com.rti.dds.subscription.ReadConditionParams;
+import java.io.Closeable;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Watches many data readers with a single wait set and thread.
+ * <p>
+ * In contrast to the {@link DataReaderWatcher} that needs a wait set and thread per data reader, the read conditions
+ * of all data readers are attached to one wait set. Triggered data readers are dispatched to a small pool of
+ * workers, every data reader is assigned to one worker so its samples are processed in order. While a data reader is
+ * processed its read condition is detached from the wait set, so a condition that is still triggered does not wake
+ * up the wait set again. The read condition is attached again by the waiting thread when the worker has finished, so
+ * the wait set is only modified by the waiting thread.
+ * <p>
+ * The number of threads is the number of workers plus one and does not depend on the number of data readers.
+ */
+public class MultiplexingDataReaderWatcher implements Closeable, Runnable {
+
+  private static final Logger LOGGER = LogManager.getLogger(MultiplexingDataReaderWatcher.class);
+
+  private final CopyOnWriteArrayList<Entry<?>> entries;
+  private final Queue<Entry<?>> attachQueue;
+  private final Map<Condition, Entry<?>> attachedEntries;
+
+  private GuardCondition guardCondition;
+  private WaitSet waitSet;
+
+  private ExecutorService executorService;
+  private final ExecutorService[] workers;
+  private int nextWorker;
+
+  private volatile boolean closed;
+
+  public MultiplexingDataReaderWatcher(
+    int workerCount
+  ) {
+    checkArgument(workerCount > 0, "Worker count must be greater than zero");
+
+    entries = new CopyOnWriteArrayList<>();
+    attachQueue = new ConcurrentLinkedQueue<>();
+    attachedEntries = new IdentityHashMap<>();
+
+    guardCondition = new GuardCondition();
+    checkNotNull(guardCondition);
+
+    // create wait set and attach condition
+    waitSet = new WaitSet();
+    checkNotNull(waitSet);
+    waitSet.attach_condition(guardCondition);
+
+    // create workers
+    workers = new ExecutorService[workerCount];
+    for (int i = 0; i < workerCount; i++) {
+      workers[i] = Executors.newSingleThreadExecutor();
+    }
+
+    // create executor and start execution
+    executorService = Executors.newSingleThreadExecutor();
+    executorService.submit(this);
+  }
+
+  /**
+   * Adds a data reader to be watched.
+   *
+   * @param dataReader          data reader
+   * @param readConditionParams parameters of the read condition
+   * @param executor            reads or takes the samples
+   * @param listener            listener the samples are delivered to
+   * @param <T>                 type of the samples
+   */
+  public synchronized <T> void watch(
+    DataReader dataReader,
+    ReadConditionParams readConditionParams,
+    DataReaderWatcherExecutor<T> executor,
+    OnDataAvailableListener<T> listener
+  ) {
+    checkNotNull(dataReader);
+    checkNotNull(readConditionParams);
+    checkNotNull(executor);
+    checkNotNull(listener);
+
+    if (closed) {
+      throw new IllegalStateException("Watcher has been closed");
+    }
+
+    ReadCondition readCondition = dataReader.create_readcondition_w_params(readConditionParams);
+    checkNotNull(readCondition);
+
+    // assign worker round robin, the condition is attached by the waiting thread
+    Entry<T> entry = new Entry<>(dataReader, readCondition, executor, listener, workers[nextWorker]);
+    nextWorker = (nextWorker + 1) % workers.length;
+    entries.add(entry);
+    scheduleAttach(entry);
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+
+    if (executorService != null) {
+      executorService.shutdownNow();
+      guardCondition.set_trigger_value(true);
+      try {
+        executorService.awaitTermination(60, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      executorService = null;
+    }
+
+    // let workers finish the data readers they are processing
+    for (ExecutorService worker : workers) {
+      worker.shutdown();
+    }
+    for (ExecutorService worker : workers) {
+      try {
+        worker.awaitTermination(60, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    if (waitSet != null) {
+      for (Entry<?> entry : entries) {
+        if (attachedEntries.remove(entry.readCondition) != null) {
+          waitSet.detach_condition(entry.readCondition);
+        }
+        entry.dataReader.delete_readcondition(entry.readCondition);
+      }
+      entries.clear();
+      if (guardCondition != null) {
+        waitSet.detach_condition(guardCondition);
+        guardCondition.delete();
+        guardCondition = null;
+      }
+      waitSet.delete();
+      waitSet = null;
+    }
+  }
+
+  @Override
+  public void run() {
+    // only allocate native sequence once
+    var conditionSeq = new ConditionSeq();
+
+    while (!closed) {
+      // reset trigger before attaching, so a trigger of a worker finishing in between is not lost
+      guardCondition.set_trigger_value(false);
+
+      // attach conditions of new data readers and of data readers that have been processed
+      Entry<?> entry;
+      while ((entry = attachQueue.poll()) != null) {
+        waitSet.attach_condition(entry.readCondition);
+        attachedEntries.put(entry.readCondition, entry);
+      }
+      if (conditionSeq.getMaximum() < attachedEntries.size() + 1) {
+        conditionSeq.setMaximum(attachedEntries.size() + 1);
+      }
+
+      // wait until condition is triggered
+      waitSet.wait(conditionSeq, Duration_t.DURATION_INFINITE);
+
+      // check if we shutdown was triggered -> early exit
+      if (closed) {
+        return;
+      }
+
+      // dispatch triggered data readers to their workers
+      for (int i = 0; i < conditionSeq.size(); i++) {
+        entry = attachedEntries.remove((Condition) conditionSeq.get(i));
+        if (entry != null) {
+          waitSet.detach_condition(entry.readCondition);
+          dispatch(entry);
+        }
+      }
+    }
+  }
+
+  private void dispatch(
+    Entry<?> entry
+  ) {
+    try {
+      entry.worker.execute(() -> {
+        try {
+          entry.execute();
+        } catch (RuntimeException e) {
+          LOGGER.error("Failed to process samples of data reader", e);
+        } finally {
+          scheduleAttach(entry);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // workers have been shut down
+      LOGGER.debug("Dispatch rejected, watcher is closing", e);
+    }
+  }
+
+  private void scheduleAttach(
+    Entry<?> entry
+  ) {
+    if (closed) {
+      return;
+    }
+    attachQueue.add(entry);
+    guardCondition.set_trigger_value(true);
+  }
+
+  private static class Entry<T> {
+
+    private final DataReader dataReader;
+    private final ReadCondition readCondition;
+    private final DataReaderWatcherExecutor<T> executor;
+    private final OnDataAvailableListener<T> listener;
+    private final ExecutorService worker;
+
+    Entry(
+      DataReader dataReader,
+      ReadCondition readCondition,
+      DataReaderWatcherExecutor<T> executor,
+      OnDataAvailableListener<T> listener,
+      ExecutorService worker
+    ) {
+      this.dataReader = dataReader;
+      this.readCondition = readCondition;
+      this.executor = executor;
+      this.listener = listener;
+      this.worker = worker;
+    }
+
+    void execute() {
+      executor.execute(dataReader, readCondition, listener);
+    }
+  }
+}
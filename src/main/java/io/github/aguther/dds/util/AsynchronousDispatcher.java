@@ -0,0 +1,164 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * This class executes tasks in order on a single thread with a bounded queue. It is used to decouple a (potentially
+ * slow) listener from the thread invoking it.
+ * <p>
+ * When the queue is full, the overflow policy decides if the calling thread waits for free space or if a task is
+ * discarded. Discarding is only suitable for tasks that do not depend on each other; tasks carrying state changes
+ * (e.g. creation and deletion of an entity) need {@link OverflowPolicy#BLOCK}. Discarded tasks are counted.
+ */
+public class AsynchronousDispatcher implements Closeable, Executor {
+
+  private static final Logger LOGGER = LogManager.getLogger(AsynchronousDispatcher.class);
+
+  /**
+   * Policy applied when a task is submitted while the queue is full.
+   */
+  public enum OverflowPolicy {
+    /**
+     * The calling thread waits until the task can be queued.
+     */
+    BLOCK,
+    /**
+     * The submitted task is discarded.
+     */
+    DISCARD_NEWEST,
+    /**
+     * The oldest queued task is discarded to make room for the submitted task.
+     */
+    DISCARD_OLDEST
+  }
+
+  private final ThreadPoolExecutor executor;
+  private final LongAdder discardedTaskCount;
+
+  /**
+   * Instantiates a new asynchronous dispatcher.
+   *
+   * @param capacity       maximum number of queued tasks
+   * @param overflowPolicy policy when the queue is full
+   */
+  public AsynchronousDispatcher(
+    final int capacity,
+    final OverflowPolicy overflowPolicy
+  ) {
+    checkArgument(capacity > 0, "Capacity is expected > 0");
+    checkNotNull(overflowPolicy, "Overflow policy must not be null");
+
+    discardedTaskCount = new LongAdder();
+    executor = new ThreadPoolExecutor(
+      1,
+      1,
+      0L,
+      TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(capacity),
+      createRejectedExecutionHandler(overflowPolicy)
+    );
+  }
+
+  /**
+   * Stops the thread, queued tasks are not executed anymore.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Returns the number of tasks that have been discarded, because the queue was full or the calling thread has been
+   * interrupted while waiting for free space.
+   *
+   * @return number of tasks
+   */
+  public long getDiscardedTaskCount() {
+    return discardedTaskCount.sum();
+  }
+
+  /**
+   * Queues a task for execution, see {@link OverflowPolicy} for the behavior when the queue is full.
+   *
+   * @param task task to execute
+   */
+  @Override
+  public void execute(
+    final Runnable task
+  ) {
+    checkNotNull(task, "Task must not be null");
+    executor.execute(task);
+  }
+
+  private RejectedExecutionHandler createRejectedExecutionHandler(
+    final OverflowPolicy overflowPolicy
+  ) {
+    switch (overflowPolicy) {
+      case DISCARD_NEWEST:
+        return (task, executor) -> {
+          if (!executor.isShutdown()) {
+            discardedTaskCount.increment();
+            LOGGER.warn("Queue is full, discarding newest task");
+          }
+        };
+      case DISCARD_OLDEST:
+        return (task, executor) -> {
+          if (!executor.isShutdown()) {
+            LOGGER.warn("Queue is full, discarding oldest task");
+            if (executor.getQueue().poll() != null) {
+              discardedTaskCount.increment();
+            }
+            executor.execute(task);
+          }
+        };
+      case BLOCK:
+      default:
+        return (task, executor) -> {
+          if (!executor.isShutdown()) {
+            try {
+              executor.getQueue().put(task);
+            } catch (InterruptedException ex) {
+              Thread.currentThread().interrupt();
+              discardedTaskCount.increment();
+              LOGGER.warn("Interrupted while waiting for free space in queue, discarding task");
+            }
+          }
+        };
+    }
+  }
+}
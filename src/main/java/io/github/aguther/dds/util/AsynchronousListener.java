@@ -0,0 +1,292 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.github.aguther.dds.util.AsynchronousDispatcher.OverflowPolicy;
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * This class decouples a listener from the thread notifying it: notifications are queued and the listener is invoked in
+ * order on the thread of an {@link AsynchronousDispatcher}, so a slow listener does not stall the notifying thread.
+ * <p>
+ * Each notification creates, modifies or deletes an entity identified by a key. When the queue is full, a notification
+ * is coalesced with the queued notifications of the same entity instead of blocking the notifying thread: a deletion
+ * cancels a queued creation together with the modification following it, and a modification replaces a queued
+ * modification. The listener therefore still ends up with the latest state of every entity, it only misses entities
+ * that have been created and deleted while it was busy.
+ * <p>
+ * A notification that cannot be coalesced is queued beyond the capacity, as discarding it would desynchronize the
+ * listener. This is bounded as well: at most a deletion, a creation and a modification are queued per entity.
+ *
+ * @param <L> type of the listener
+ */
+public class AsynchronousListener<L> implements Closeable {
+
+  private static final Logger LOGGER = LogManager.getLogger(AsynchronousListener.class);
+
+  /**
+   * Kind of a notification, used to coalesce the notifications of an entity.
+   */
+  protected enum NotificationKind {
+    CREATION,
+    MODIFICATION,
+    DELETION
+  }
+
+  private final L listener;
+  private final int capacity;
+  private final AsynchronousDispatcher dispatcher;
+  private final Map<Object, Deque<Notification<L>>> queuedNotifications;
+  private final LongAdder coalescedNotificationCount;
+
+  private Notification<L> head;
+  private Notification<L> tail;
+  private int size;
+  private boolean draining;
+  private boolean closed;
+
+  /**
+   * Instantiates a new asynchronous listener.
+   *
+   * @param listener listener to invoke asynchronously
+   * @param capacity number of queued notifications from which on notifications are coalesced
+   */
+  protected AsynchronousListener(
+    final L listener,
+    final int capacity
+  ) {
+    checkNotNull(listener, "Listener must not be null");
+    checkArgument(capacity > 0, "Capacity is expected > 0");
+
+    this.listener = listener;
+    this.capacity = capacity;
+    queuedNotifications = new HashMap<>();
+    coalescedNotificationCount = new LongAdder();
+
+    // at most one drain task is queued at any time, hence the dispatcher never blocks
+    dispatcher = new AsynchronousDispatcher(1, OverflowPolicy.BLOCK);
+  }
+
+  /**
+   * Stops the thread, queued notifications are not delivered anymore.
+   */
+  @Override
+  public void close() {
+    synchronized (queuedNotifications) {
+      closed = true;
+      queuedNotifications.clear();
+      head = null;
+      tail = null;
+      size = 0;
+    }
+    dispatcher.close();
+  }
+
+  /**
+   * Returns the number of notifications that have not been delivered, because they have been coalesced with a later
+   * notification of the same entity.
+   *
+   * @return number of notifications
+   */
+  public long getCoalescedNotificationCount() {
+    return coalescedNotificationCount.sum();
+  }
+
+  /**
+   * Queues a notification of the listener.
+   *
+   * @param key        key identifying the entity (must implement equals and hashCode and must not be modified)
+   * @param kind       kind of the notification
+   * @param invocation invocation of the listener
+   */
+  protected void dispatch(
+    final Object key,
+    final NotificationKind kind,
+    final Consumer<L> invocation
+  ) {
+    checkNotNull(key, "Key must not be null");
+
+    boolean startDraining;
+    synchronized (queuedNotifications) {
+      if (closed) {
+        return;
+      }
+      if (size < capacity || !coalesce(key, kind, invocation)) {
+        enqueue(new Notification<>(key, kind, invocation));
+      }
+      startDraining = !draining && size > 0;
+      draining |= startDraining;
+    }
+    if (startDraining) {
+      dispatcher.execute(this::drain);
+    }
+  }
+
+  private boolean coalesce(
+    final Object key,
+    final NotificationKind kind,
+    final Consumer<L> invocation
+  ) {
+    Deque<Notification<L>> notifications = queuedNotifications.get(key);
+    if (notifications == null) {
+      return false;
+    }
+
+    Notification<L> last = notifications.peekLast();
+    switch (kind) {
+      case DELETION:
+        // a deletion makes a queued modification obsolete
+        if (last.kind == NotificationKind.MODIFICATION) {
+          cancelLast(notifications);
+          last = notifications.peekLast();
+        }
+        // a deletion cancels out with a queued creation
+        if (last != null && last.kind == NotificationKind.CREATION) {
+          cancelLast(notifications);
+          coalescedNotificationCount.increment();
+          return true;
+        }
+        return false;
+      case MODIFICATION:
+        // a modification replaces a queued modification
+        if (last.kind == NotificationKind.MODIFICATION) {
+          last.invocation = invocation;
+          coalescedNotificationCount.increment();
+          return true;
+        }
+        return false;
+      case CREATION:
+      default:
+        return false;
+    }
+  }
+
+  private void enqueue(
+    final Notification<L> notification
+  ) {
+    queuedNotifications.computeIfAbsent(notification.key, key -> new ArrayDeque<>()).addLast(notification);
+    notification.previous = tail;
+    if (tail == null) {
+      head = notification;
+    } else {
+      tail.next = notification;
+    }
+    tail = notification;
+    size++;
+  }
+
+  private void cancelLast(
+    final Deque<Notification<L>> notifications
+  ) {
+    Notification<L> notification = notifications.pollLast();
+    if (notifications.isEmpty()) {
+      queuedNotifications.remove(notification.key);
+    }
+    unlink(notification);
+    coalescedNotificationCount.increment();
+  }
+
+  private Notification<L> poll() {
+    Notification<L> notification = head;
+    if (notification != null) {
+      Deque<Notification<L>> notifications = queuedNotifications.get(notification.key);
+      notifications.pollFirst();
+      if (notifications.isEmpty()) {
+        queuedNotifications.remove(notification.key);
+      }
+      unlink(notification);
+    }
+    return notification;
+  }
+
+  private void unlink(
+    final Notification<L> notification
+  ) {
+    if (notification.previous == null) {
+      head = notification.next;
+    } else {
+      notification.previous.next = notification.next;
+    }
+    if (notification.next == null) {
+      tail = notification.previous;
+    } else {
+      notification.next.previous = notification.previous;
+    }
+    notification.previous = null;
+    notification.next = null;
+    size--;
+  }
+
+  private void drain() {
+    while (true) {
+      Consumer<L> invocation;
+      synchronized (queuedNotifications) {
+        Notification<L> notification = closed ? null : poll();
+        if (notification == null) {
+          draining = false;
+          return;
+        }
+        invocation = notification.invocation;
+      }
+
+      // invoke listener outside of the lock, a failing listener must not stop the delivery
+      try {
+        invocation.accept(listener);
+      } catch (RuntimeException e) {
+        LOGGER.error("Error notifying listener; {}", e.getMessage(), e);
+      }
+    }
+  }
+
+  private static class Notification<L> {
+
+    private final Object key;
+    private final NotificationKind kind;
+    private Consumer<L> invocation;
+    private Notification<L> previous;
+    private Notification<L> next;
+
+    private Notification(
+      final Object key,
+      final NotificationKind kind,
+      final Consumer<L> invocation
+    ) {
+      this.key = key;
+      this.kind = kind;
+      this.invocation = invocation;
+    }
+  }
+}
@@ -0,0 +1,252 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.rti.dds.infrastructure.InstanceHandle_t;
+
+/**
+ * This class implements a map with instance handles as keys and primitive int values using open addressing.
+ * <p>
+ * It works like {@link InstanceHandleMap}, but the values are stored in a primitive array, so they are not boxed. As
+ * there is no null value, used slots are marked in a separate array and a default value is returned for missing keys.
+ */
+public class InstanceHandleIntMap {
+
+  private static final int MINIMUM_CAPACITY = 16;
+
+  private long[] keys;
+  private int[] values;
+  private boolean[] used;
+  private int mask;
+  private int size;
+  private final int initialCapacity;
+
+  /**
+   * Instantiates a new instance handle int map.
+   */
+  public InstanceHandleIntMap() {
+    this(MINIMUM_CAPACITY);
+  }
+
+  /**
+   * Instantiates a new instance handle int map.
+   *
+   * @param expectedSize expected number of entries
+   */
+  public InstanceHandleIntMap(
+    final int expectedSize
+  ) {
+    checkArgument(expectedSize >= 0, "Expected size is expected >= 0");
+    initialCapacity = InstanceHandleMap.capacityFor(expectedSize);
+    allocate(initialCapacity);
+  }
+
+  /**
+   * Returns the number of entries.
+   *
+   * @return number of entries
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns if an entry for the instance handle exists.
+   *
+   * @param instanceHandle instance handle
+   * @return true if an entry exists, false if not
+   */
+  public boolean containsKey(
+    final InstanceHandle_t instanceHandle
+  ) {
+    return find(InstanceHandleMap.high(instanceHandle), InstanceHandleMap.low(instanceHandle)) >= 0;
+  }
+
+  /**
+   * Returns the value of an instance handle.
+   *
+   * @param instanceHandle instance handle
+   * @param defaultValue   value returned when no entry exists
+   * @return value if found, otherwise the default value
+   */
+  public int get(
+    final InstanceHandle_t instanceHandle,
+    final int defaultValue
+  ) {
+    int index = find(InstanceHandleMap.high(instanceHandle), InstanceHandleMap.low(instanceHandle));
+    return index >= 0 ? values[index] : defaultValue;
+  }
+
+  /**
+   * Stores the value of an instance handle.
+   *
+   * @param instanceHandle instance handle
+   * @param value          value
+   */
+  public void put(
+    final InstanceHandle_t instanceHandle,
+    final int value
+  ) {
+    long high = InstanceHandleMap.high(instanceHandle);
+    long low = InstanceHandleMap.low(instanceHandle);
+
+    // search slot of the handle or the first free one
+    int index = InstanceHandleMap.hash(high, low) & mask;
+    while (used[index]) {
+      if (keys[2 * index] == high && keys[2 * index + 1] == low) {
+        values[index] = value;
+        return;
+      }
+      index = (index + 1) & mask;
+    }
+
+    // insert new entry
+    keys[2 * index] = high;
+    keys[2 * index + 1] = low;
+    values[index] = value;
+    used[index] = true;
+    size++;
+
+    // grow when filled by more than 3/4
+    if (size > (mask + 1) - ((mask + 1) >>> 2)) {
+      resize((mask + 1) << 1);
+    }
+  }
+
+  /**
+   * Removes the value of an instance handle.
+   *
+   * @param instanceHandle instance handle
+   * @param defaultValue   value returned when no entry exists
+   * @return removed value if found, otherwise the default value
+   */
+  public int remove(
+    final InstanceHandle_t instanceHandle,
+    final int defaultValue
+  ) {
+    int index = find(InstanceHandleMap.high(instanceHandle), InstanceHandleMap.low(instanceHandle));
+    if (index < 0) {
+      return defaultValue;
+    }
+
+    int previous = values[index];
+    shiftBack(index);
+    size--;
+
+    // shrink when filled by less than 1/8
+    if (mask + 1 > initialCapacity && size < (mask + 1) >>> 3) {
+      resize((mask + 1) >>> 1);
+    }
+    return previous;
+  }
+
+  /**
+   * Removes all entries.
+   */
+  public void clear() {
+    allocate(initialCapacity);
+    size = 0;
+  }
+
+  /**
+   * Returns the number of slots currently allocated.
+   *
+   * @return capacity
+   */
+  int capacity() {
+    return mask + 1;
+  }
+
+  private int find(
+    final long high,
+    final long low
+  ) {
+    int index = InstanceHandleMap.hash(high, low) & mask;
+    while (used[index]) {
+      if (keys[2 * index] == high && keys[2 * index + 1] == low) {
+        return index;
+      }
+      index = (index + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Closes the gap of a removed entry by moving following entries of the same probe sequence back.
+   *
+   * @param index index of the removed entry
+   */
+  private void shiftBack(
+    final int index
+  ) {
+    int gap = index;
+    int next = (gap + 1) & mask;
+    while (used[next]) {
+      int home = InstanceHandleMap.hash(keys[2 * next], keys[2 * next + 1]) & mask;
+      // move entry when its home slot is not located cyclically in (gap, next]
+      if (((next - home) & mask) >= ((next - gap) & mask)) {
+        keys[2 * gap] = keys[2 * next];
+        keys[2 * gap + 1] = keys[2 * next + 1];
+        values[gap] = values[next];
+        gap = next;
+      }
+      next = (next + 1) & mask;
+    }
+    used[gap] = false;
+  }
+
+  private void resize(
+    final int capacity
+  ) {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    boolean[] oldUsed = used;
+    allocate(capacity);
+
+    for (int i = 0; i < oldUsed.length; i++) {
+      if (oldUsed[i]) {
+        int index = InstanceHandleMap.hash(oldKeys[2 * i], oldKeys[2 * i + 1]) & mask;
+        while (used[index]) {
+          index = (index + 1) & mask;
+        }
+        keys[2 * index] = oldKeys[2 * i];
+        keys[2 * index + 1] = oldKeys[2 * i + 1];
+        values[index] = oldValues[i];
+        used[index] = true;
+      }
+    }
+  }
+
+  private void allocate(
+    final int capacity
+  ) {
+    keys = new long[2 * capacity];
+    values = new int[capacity];
+    used = new boolean[capacity];
+    mask = capacity - 1;
+  }
+}
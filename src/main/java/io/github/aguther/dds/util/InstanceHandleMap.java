@@ -0,0 +1,334 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import java.util.function.BiConsumer;
+
+/**
+ * This class implements a map with instance handles as keys using open addressing.
+ * <p>
+ * The 16 bytes of an instance handle are stored as two primitive longs in one array and the values in a second array,
+ * so no objects are allocated for the keys or the entries. Collisions are resolved with linear probing, removed entries
+ * are closed by shifting the following entries back, so no tombstones accumulate. The capacity is doubled when the map
+ * gets filled by more than 3/4 and halved again when it gets filled by less than 1/8.
+ *
+ * @param <V> type of the values
+ */
+public class InstanceHandleMap<V> {
+
+  private static final int HANDLE_LENGTH = 16;
+  private static final int MINIMUM_CAPACITY = 16;
+
+  private long[] keys;
+  private Object[] values;
+  private int mask;
+  private int size;
+  private final int initialCapacity;
+
+  /**
+   * Instantiates a new instance handle map.
+   */
+  public InstanceHandleMap() {
+    this(MINIMUM_CAPACITY);
+  }
+
+  /**
+   * Instantiates a new instance handle map.
+   *
+   * @param expectedSize expected number of entries
+   */
+  public InstanceHandleMap(
+    final int expectedSize
+  ) {
+    checkArgument(expectedSize >= 0, "Expected size is expected >= 0");
+    initialCapacity = capacityFor(expectedSize);
+    allocate(initialCapacity);
+  }
+
+  /**
+   * Returns the number of entries.
+   *
+   * @return number of entries
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns if an entry for the instance handle exists.
+   *
+   * @param instanceHandle instance handle
+   * @return true if an entry exists, false if not
+   */
+  public boolean containsKey(
+    final InstanceHandle_t instanceHandle
+  ) {
+    return get(instanceHandle) != null;
+  }
+
+  /**
+   * Returns the value of an instance handle.
+   *
+   * @param instanceHandle instance handle
+   * @return value if found, otherwise null
+   */
+  @SuppressWarnings("unchecked")
+  public V get(
+    final InstanceHandle_t instanceHandle
+  ) {
+    long high = high(instanceHandle);
+    long low = low(instanceHandle);
+    int index = find(high, low);
+    return index >= 0 ? (V) values[index] : null;
+  }
+
+  /**
+   * Stores the value of an instance handle.
+   *
+   * @param instanceHandle instance handle
+   * @param value          value (must not be null)
+   * @return previous value if available, otherwise null
+   */
+  @SuppressWarnings("unchecked")
+  public V put(
+    final InstanceHandle_t instanceHandle,
+    final V value
+  ) {
+    checkNotNull(value, "Value must not be null");
+
+    long high = high(instanceHandle);
+    long low = low(instanceHandle);
+
+    // search slot of the handle or the first free one
+    int index = hash(high, low) & mask;
+    while (values[index] != null) {
+      if (keys[2 * index] == high && keys[2 * index + 1] == low) {
+        V previous = (V) values[index];
+        values[index] = value;
+        return previous;
+      }
+      index = (index + 1) & mask;
+    }
+
+    // insert new entry
+    keys[2 * index] = high;
+    keys[2 * index + 1] = low;
+    values[index] = value;
+    size++;
+
+    // grow when filled by more than 3/4
+    if (size > (mask + 1) - ((mask + 1) >>> 2)) {
+      resize((mask + 1) << 1);
+    }
+    return null;
+  }
+
+  /**
+   * Removes the value of an instance handle.
+   *
+   * @param instanceHandle instance handle
+   * @return removed value if available, otherwise null
+   */
+  @SuppressWarnings("unchecked")
+  public V remove(
+    final InstanceHandle_t instanceHandle
+  ) {
+    int index = find(high(instanceHandle), low(instanceHandle));
+    if (index < 0) {
+      return null;
+    }
+
+    V previous = (V) values[index];
+    shiftBack(index);
+    size--;
+
+    // shrink when filled by less than 1/8
+    if (mask + 1 > initialCapacity && size < (mask + 1) >>> 3) {
+      resize((mask + 1) >>> 1);
+    }
+    return previous;
+  }
+
+  /**
+   * Invokes the action for all entries. The instance handles are created on demand for the action.
+   *
+   * @param action action to invoke
+   */
+  @SuppressWarnings("unchecked")
+  public void forEach(
+    final BiConsumer<InstanceHandle_t, V> action
+  ) {
+    for (int i = 0; i <= mask; i++) {
+      if (values[i] != null) {
+        action.accept(toInstanceHandle(keys[2 * i], keys[2 * i + 1]), (V) values[i]);
+      }
+    }
+  }
+
+  /**
+   * Removes all entries.
+   */
+  public void clear() {
+    allocate(initialCapacity);
+    size = 0;
+  }
+
+  /**
+   * Returns the number of slots currently allocated.
+   *
+   * @return capacity
+   */
+  int capacity() {
+    return mask + 1;
+  }
+
+  private int find(
+    final long high,
+    final long low
+  ) {
+    int index = hash(high, low) & mask;
+    while (values[index] != null) {
+      if (keys[2 * index] == high && keys[2 * index + 1] == low) {
+        return index;
+      }
+      index = (index + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Closes the gap of a removed entry by moving following entries of the same probe sequence back.
+   *
+   * @param index index of the removed entry
+   */
+  private void shiftBack(
+    final int index
+  ) {
+    int gap = index;
+    int next = (gap + 1) & mask;
+    while (values[next] != null) {
+      int home = hash(keys[2 * next], keys[2 * next + 1]) & mask;
+      // move entry when its home slot is not located cyclically in (gap, next]
+      if (((next - home) & mask) >= ((next - gap) & mask)) {
+        keys[2 * gap] = keys[2 * next];
+        keys[2 * gap + 1] = keys[2 * next + 1];
+        values[gap] = values[next];
+        gap = next;
+      }
+      next = (next + 1) & mask;
+    }
+    values[gap] = null;
+  }
+
+  private void resize(
+    final int capacity
+  ) {
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    allocate(capacity);
+
+    for (int i = 0; i < oldValues.length; i++) {
+      if (oldValues[i] != null) {
+        int index = hash(oldKeys[2 * i], oldKeys[2 * i + 1]) & mask;
+        while (values[index] != null) {
+          index = (index + 1) & mask;
+        }
+        keys[2 * index] = oldKeys[2 * i];
+        keys[2 * index + 1] = oldKeys[2 * i + 1];
+        values[index] = oldValues[i];
+      }
+    }
+  }
+
+  private void allocate(
+    final int capacity
+  ) {
+    keys = new long[2 * capacity];
+    values = new Object[capacity];
+    mask = capacity - 1;
+  }
+
+  static int capacityFor(
+    final int expectedSize
+  ) {
+    int capacity = MINIMUM_CAPACITY;
+    while (capacity - (capacity >>> 2) < expectedSize) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  static int hash(
+    final long high,
+    final long low
+  ) {
+    // mix both halves (the handle is already a hash, but the leading bytes are often equal)
+    long hash = (high * 0x9E3779B97F4A7C15L) ^ low;
+    hash ^= hash >>> 32;
+    hash *= 0xC2B2AE3D27D4EB4FL;
+    return (int) (hash ^ (hash >>> 29));
+  }
+
+  static long high(
+    final InstanceHandle_t instanceHandle
+  ) {
+    return toLong(instanceHandle.value, 0);
+  }
+
+  static long low(
+    final InstanceHandle_t instanceHandle
+  ) {
+    return toLong(instanceHandle.value, 8);
+  }
+
+  private static long toLong(
+    final byte[] bytes,
+    final int offset
+  ) {
+    long result = 0;
+    for (int i = offset; i < offset + 8; i++) {
+      result = (result << 8) | (bytes[i] & 0xFF);
+    }
+    return result;
+  }
+
+  private static InstanceHandle_t toInstanceHandle(
+    final long high,
+    final long low
+  ) {
+    InstanceHandle_t instanceHandle = new InstanceHandle_t();
+    for (int i = 0; i < 8; i++) {
+      instanceHandle.value[7 - i] = (byte) (high >>> (8 * i));
+      instanceHandle.value[15 - i] = (byte) (low >>> (8 * i));
+    }
+    instanceHandle.length = HANDLE_LENGTH;
+    instanceHandle.isValid = true;
+    return instanceHandle;
+  }
+}
@@ -0,0 +1,231 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * This class implements a hashed timing wheel to expire keys that have not been touched for a time to live.
+ * <p>
+ * The wheel consists of buckets that each cover one tick, a key is put into the bucket of the tick it would expire
+ * at. Touching a known key only updates its last update time and does not move it, when its bucket is swept it is
+ * either expired or put into the bucket of its new deadline. So touching and sweeping are constant in time per key
+ * and a sweep only visits the keys of the buckets that have elapsed. Removed keys are dropped lazily when their bucket
+ * is swept.
+ * <p>
+ * Times are given by the caller in nanoseconds (e.g. {@link System#nanoTime()}), this class is not thread-safe.
+ *
+ * @param <K> type of the keys, they must not be modified while they are contained
+ */
+public class TimingWheel<K> {
+
+  private final long timeToLive;
+  private final long tickDuration;
+  private final ArrayDeque<Entry<K>>[] buckets;
+  private final HashMap<K, Entry<K>> entries;
+
+  private long currentTick;
+  private boolean started;
+
+  /**
+   * Instantiates a new timing wheel.
+   *
+   * @param timeToLive   time a key is kept without being touched
+   * @param tickDuration duration of one tick, the granularity keys are expired with
+   * @param timeUnit     unit of the time to live and the tick duration
+   */
+  @SuppressWarnings("unchecked")
+  public TimingWheel(
+    final long timeToLive,
+    final long tickDuration,
+    final TimeUnit timeUnit
+  ) {
+    checkNotNull(timeUnit);
+    checkArgument(tickDuration > 0, "Tick duration is expected > 0");
+    checkArgument(timeToLive >= tickDuration, "Time to live is expected >= tick duration");
+
+    this.timeToLive = timeUnit.toNanos(timeToLive);
+    this.tickDuration = timeUnit.toNanos(tickDuration);
+
+    // one bucket more than ticks fit into the time to live, so a deadline never maps to the current bucket
+    long ticks = (this.timeToLive + this.tickDuration - 1) / this.tickDuration;
+    checkArgument(ticks < Integer.MAX_VALUE, "Time to live is expected to fit into %s ticks", Integer.MAX_VALUE);
+    int bucketCount = (int) ticks + 1;
+    buckets = new ArrayDeque[bucketCount];
+    for (int i = 0; i < bucketCount; i++) {
+      buckets[i] = new ArrayDeque<>();
+    }
+    entries = new HashMap<>();
+  }
+
+  /**
+   * Returns the number of keys.
+   *
+   * @return number of keys
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns if a key is contained, i.e. it has been touched and neither removed nor expired since.
+   *
+   * @param key key
+   * @return true if the key is contained
+   */
+  public boolean contains(
+    final K key
+  ) {
+    return entries.containsKey(key);
+  }
+
+  /**
+   * Touches a key, an unknown key is added.
+   *
+   * @param key key
+   * @param now current time in nanoseconds
+   */
+  public void touch(
+    final K key,
+    final long now
+  ) {
+    checkNotNull(key);
+
+    Entry<K> entry = entries.get(key);
+    if (entry != null) {
+      entry.lastUpdate = now;
+      return;
+    }
+
+    start(now);
+    entry = new Entry<>(key, now);
+    entries.put(key, entry);
+    schedule(entry);
+  }
+
+  /**
+   * Removes a key.
+   *
+   * @param key key
+   */
+  public void remove(
+    final K key
+  ) {
+    Entry<K> entry = entries.remove(key);
+    if (entry != null) {
+      entry.removed = true;
+    }
+  }
+
+  /**
+   * Removes all keys that have not been touched for the time to live.
+   *
+   * @param now      current time in nanoseconds
+   * @param consumer invoked for every expired key after it has been removed
+   * @return number of expired keys
+   */
+  public int expire(
+    final long now,
+    final Consumer<K> consumer
+  ) {
+    checkNotNull(consumer);
+
+    if (!started) {
+      return 0;
+    }
+
+    // sweep every bucket at most once, even if more time than a whole round has elapsed
+    long nowTick = Math.floorDiv(now, tickDuration);
+    if (nowTick - currentTick > buckets.length) {
+      currentTick = nowTick - buckets.length;
+    }
+
+    int expired = 0;
+    while (currentTick < nowTick) {
+      currentTick++;
+      ArrayDeque<Entry<K>> bucket = buckets[bucketIndex(currentTick)];
+      for (int i = bucket.size(); i > 0; i--) {
+        Entry<K> entry = bucket.poll();
+        if (entry.removed) {
+          continue;
+        }
+        if (now - entry.lastUpdate >= timeToLive) {
+          entries.remove(entry.key);
+          entry.removed = true;
+          expired++;
+          consumer.accept(entry.key);
+        } else {
+          schedule(entry);
+        }
+      }
+    }
+    return expired;
+  }
+
+  private void start(
+    final long now
+  ) {
+    if (!started) {
+      currentTick = Math.floorDiv(now, tickDuration);
+      started = true;
+    }
+  }
+
+  private void schedule(
+    final Entry<K> entry
+  ) {
+    // the deadline is rounded up to the next tick and never put into the current bucket
+    long deadlineTick = Math.floorDiv(entry.lastUpdate + timeToLive + tickDuration - 1, tickDuration);
+    deadlineTick = Math.max(currentTick + 1, Math.min(deadlineTick, currentTick + buckets.length - 1));
+    buckets[bucketIndex(deadlineTick)].add(entry);
+  }
+
+  private int bucketIndex(
+    final long tick
+  ) {
+    return (int) Math.floorMod(tick, (long) buckets.length);
+  }
+
+  private static class Entry<K> {
+
+    private final K key;
+    private long lastUpdate;
+    private boolean removed;
+
+    Entry(
+      final K key,
+      final long lastUpdate
+    ) {
+      this.key = key;
+      this.lastUpdate = lastUpdate;
+    }
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class implements a token bucket to limit the rate of events.
+ * <p>
+ * The bucket is refilled with a constant rate up to its capacity, every event takes one token. So events can be
+ * admitted in bursts up to the capacity, but not faster than the rate on average.
+ * <p>
+ * Times are given by the caller in nanoseconds (e.g. {@link System#nanoTime()}), this class is thread-safe.
+ */
+public class TokenBucket {
+
+  private final double tokensPerNano;
+  private final double capacity;
+
+  private double tokens;
+  private long lastRefill;
+  private boolean started;
+
+  /**
+   * Instantiates a new token bucket, it is full initially.
+   *
+   * @param rate     number of tokens added per second
+   * @param capacity maximum number of tokens
+   */
+  public TokenBucket(
+    final double rate,
+    final double capacity
+  ) {
+    checkArgument(rate > 0, "Rate is expected > 0");
+    checkArgument(capacity >= 1, "Capacity is expected >= 1");
+
+    this.tokensPerNano = rate / TimeUnit.SECONDS.toNanos(1);
+    this.capacity = capacity;
+    tokens = capacity;
+  }
+
+  /**
+   * Takes a token if one is available.
+   *
+   * @param now current time in nanoseconds
+   * @return true if a token has been taken
+   */
+  public synchronized boolean tryAcquire(
+    final long now
+  ) {
+    refill(now);
+    if (tokens < 1) {
+      return false;
+    }
+    tokens -= 1;
+    return true;
+  }
+
+  /**
+   * Returns a token that has been taken but not used.
+   */
+  public synchronized void release() {
+    tokens = Math.min(capacity, tokens + 1);
+  }
+
+  /**
+   * Returns the time until the next token is available.
+   *
+   * @param now current time in nanoseconds
+   * @return time in nanoseconds, 0 if a token is available
+   */
+  public synchronized long nanosUntilAvailable(
+    final long now
+  ) {
+    refill(now);
+    if (tokens >= 1) {
+      return 0;
+    }
+    return (long) Math.ceil((1 - tokens) / tokensPerNano);
+  }
+
+  private void refill(
+    final long now
+  ) {
+    if (!started) {
+      lastRefill = now;
+      started = true;
+      return;
+    }
+    long elapsed = now - lastRefill;
+    if (elapsed > 0) {
+      tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+      lastRefill = now;
+    }
+  }
+}
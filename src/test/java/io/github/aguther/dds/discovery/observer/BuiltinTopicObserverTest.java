@@ -24,6 +24,8 @@
 
 package io.github.aguther.dds.discovery.observer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockConstruction;
@@ -79,10 +81,13 @@ public class BuiltinTopicObserverTest {
 
   @Test
   void testOnDataAvailable() {
-    // call on_data_available
+    // call on_data_available twice (executor is mocked, hence the scheduled run never starts)
     builtinTopicObserver.on_data_available(dataReader);
-    // verify that executor was triggered
-    verify(executorService.constructed().get(1), times(1)).submit(builtinTopicObserver);
+    builtinTopicObserver.on_data_available(dataReader);
+    // verify that executor was triggered once and the second trigger was coalesced
+    verify(executorService.constructed().get(1), times(1)).execute(any(Runnable.class));
+    assertEquals(2, builtinTopicObserver.getTriggerCount());
+    assertEquals(1, builtinTopicObserver.getCoalescedTriggerCount());
   }
 
   @Test
@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.examples.prometheus.monitoring.exposition;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class ExpositionFilterTest {
+
+  private static final List<String> LABEL_NAMES = Arrays.asList("topic", "partition");
+
+  @Test
+  void testWithoutQueryIncludesAll() {
+    assertSame(ExpositionFilter.includeAll(), ExpositionFilter.fromQuery(null));
+    assertSame(ExpositionFilter.includeAll(), ExpositionFilter.fromQuery(""));
+
+    ExpositionFilter filter = ExpositionFilter.includeAll();
+    assertTrue(filter.includesFamily("dds_samples"));
+    assertFalse(filter.filtersLabels());
+  }
+
+  @Test
+  void testNamesAndPrefixesAreCombinedWithOr() {
+    ExpositionFilter filter = ExpositionFilter.fromQuery("name[]=dds_a&name%5B%5D=dds_b&prefix=dds_writer_");
+
+    assertTrue(filter.includesFamily("dds_a"));
+    assertTrue(filter.includesFamily("dds_b"));
+    assertTrue(filter.includesFamily("dds_writer_samples"));
+    assertFalse(filter.includesFamily("dds_c"));
+    assertFalse(filter.includesFamily("dds_reader_samples"));
+    assertFalse(filter.filtersLabels());
+  }
+
+  @Test
+  void testLabelsAreCombinedWithAnd() {
+    ExpositionFilter filter = ExpositionFilter.fromQuery("label=topic%3DSquare&label=partition=A%2FB");
+
+    assertTrue(filter.includesFamily("dds_samples"));
+    assertTrue(filter.filtersLabels());
+    assertTrue(filter.includesSample(LABEL_NAMES, new String[]{"Square", "A/B"}));
+    assertFalse(filter.includesSample(LABEL_NAMES, new String[]{"Square", "A"}));
+    assertFalse(filter.includesSample(LABEL_NAMES, new String[]{"Circle", "A/B"}));
+    assertFalse(filter.includesSample(Arrays.asList("topic"), new String[]{"Square"}));
+  }
+
+  @Test
+  void testIgnoresMalformedParameters() {
+    ExpositionFilter filter = ExpositionFilter.fromQuery("name[]&label=topic&label==x&other=1&prefix=%zz");
+
+    assertFalse(filter.filtersLabels());
+    assertTrue(filter.includesFamily("%zz_samples"));
+    assertFalse(filter.includesFamily("dds_samples"));
+  }
+}
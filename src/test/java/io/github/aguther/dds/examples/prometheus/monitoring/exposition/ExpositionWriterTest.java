@@ -0,0 +1,261 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.examples.prometheus.monitoring.exposition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.prometheus.client.Collector.MetricFamilySamples;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+import io.prometheus.client.Collector.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ExpositionWriterTest {
+
+  private static final List<String> LABEL_NAMES = Arrays.asList("topic", "partition");
+
+  private ExpositionWriter writer;
+
+  @BeforeEach
+  public void setUp() {
+    // small capacity, so the buffer is grown
+    writer = new ExpositionWriter(8);
+  }
+
+  @Test
+  void testWritesGaugeInTextFormat() {
+    writer.reset(ExpositionFilter.includeAll(), false);
+    assertTrue(writer.family("dds_samples", "Number of samples.", Type.GAUGE));
+    writer.sample("dds_samples", LABEL_NAMES, new String[]{"Square", "A"}, 3);
+    writer.sample("dds_samples", Collections.emptyList(), new String[0], 4);
+
+    assertEquals(
+      "# HELP dds_samples Number of samples.\n"
+        + "# TYPE dds_samples gauge\n"
+        + "dds_samples{topic=\"Square\",partition=\"A\"} 3\n"
+        + "dds_samples 4\n",
+      finish()
+    );
+  }
+
+  @Test
+  void testWritesCounterInTextFormat() {
+    writer.reset(ExpositionFilter.includeAll(), false);
+    writer.write(counter());
+    writer.write(gauge("dds_other"));
+
+    // the created samples are written as separate gauge family at the end
+    assertEquals(
+      "# HELP dds_requests_total Number of requests.\n"
+        + "# TYPE dds_requests_total counter\n"
+        + "dds_requests_total{topic=\"Square\"} 5\n"
+        + "dds_requests_total{topic=\"Circle\"} 6\n"
+        + "# HELP dds_other Other.\n"
+        + "# TYPE dds_other gauge\n"
+        + "dds_other 1\n"
+        + "# HELP dds_requests_created Number of requests.\n"
+        + "# TYPE dds_requests_created gauge\n"
+        + "dds_requests_created{topic=\"Square\"} 1700000000\n"
+        + "dds_requests_created{topic=\"Circle\"} 1700000001\n",
+      finish()
+    );
+  }
+
+  @Test
+  void testWritesCounterInOpenMetricsFormat() {
+    writer.reset(ExpositionFilter.includeAll(), true);
+    writer.write(counter());
+
+    assertEquals(
+      "# HELP dds_requests Number of requests.\n"
+        + "# TYPE dds_requests counter\n"
+        + "dds_requests_total{topic=\"Square\"} 5\n"
+        + "dds_requests_created{topic=\"Square\"} 1700000000\n"
+        + "dds_requests_total{topic=\"Circle\"} 6\n"
+        + "dds_requests_created{topic=\"Circle\"} 1700000001\n"
+        + "# EOF\n",
+      finish()
+    );
+  }
+
+  @Test
+  void testWritesTypesInBothFormats() {
+    writer.reset(ExpositionFilter.includeAll(), false);
+    writer.family("dds_info", "Info.", Type.INFO);
+    writer.family("dds_state", "State.", Type.STATE_SET);
+    writer.family("dds_unknown", "Unknown.", Type.UNKNOWN);
+    assertEquals(
+      "# HELP dds_info_info Info.\n"
+        + "# TYPE dds_info_info gauge\n"
+        + "# HELP dds_state State.\n"
+        + "# TYPE dds_state gauge\n"
+        + "# HELP dds_unknown Unknown.\n"
+        + "# TYPE dds_unknown untyped\n",
+      finish()
+    );
+
+    writer.reset(ExpositionFilter.includeAll(), true);
+    writer.family("dds_info", "Info.", Type.INFO);
+    writer.family("dds_state", "State.", Type.STATE_SET);
+    writer.family("dds_unknown", "Unknown.", Type.UNKNOWN);
+    assertEquals(
+      "# HELP dds_info Info.\n"
+        + "# TYPE dds_info info\n"
+        + "# HELP dds_state State.\n"
+        + "# TYPE dds_state stateset\n"
+        + "# HELP dds_unknown Unknown.\n"
+        + "# TYPE dds_unknown unknown\n"
+        + "# EOF\n",
+      finish()
+    );
+  }
+
+  @Test
+  void testEscapesHelpAndLabelValues() {
+    writer.reset(ExpositionFilter.includeAll(), false);
+    writer.family("dds_samples", "Help with \\, \" and\nnewline.", Type.GAUGE);
+    writer.sample("dds_samples", LABEL_NAMES, new String[]{"a\\b\"c\nd", "Grüße \"x\""}, 1);
+
+    // quotes in the help are only escaped by OpenMetrics
+    assertEquals(
+      "# HELP dds_samples Help with \\\\, \" and\\nnewline.\n"
+        + "# TYPE dds_samples gauge\n"
+        + "dds_samples{topic=\"a\\\\b\\\"c\\nd\",partition=\"Grüße \\\"x\\\"\"} 1\n",
+      finish()
+    );
+
+    writer.reset(ExpositionFilter.includeAll(), true);
+    writer.family("dds_samples", "Help with \" and é.", Type.GAUGE);
+    assertEquals(
+      "# HELP dds_samples Help with \\\" and é.\n"
+        + "# TYPE dds_samples gauge\n"
+        + "# EOF\n",
+      finish()
+    );
+  }
+
+  @Test
+  void testFormatsNumbers() {
+    writer.reset(ExpositionFilter.includeAll(), false);
+    writer.family("n", "", Type.GAUGE);
+    double[] values = {0, -0.0, 1.0, -3, 0.5, -1.25, 123456789012345.0, 1e15, 1e20, Double.NaN,
+      Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+    for (double value : values) {
+      writer.sample("n", Collections.emptyList(), new String[0], value);
+    }
+
+    assertEquals(
+      "# HELP n \n"
+        + "# TYPE n gauge\n"
+        + "n 0\n"
+        + "n 0\n"
+        + "n 1\n"
+        + "n -3\n"
+        + "n 0.5\n"
+        + "n -1.25\n"
+        + "n 123456789012345\n"
+        + "n 1.0E15\n"
+        + "n 1.0E20\n"
+        + "n NaN\n"
+        + "n +Inf\n"
+        + "n -Inf\n",
+      finish()
+    );
+  }
+
+  @Test
+  void testFiltersFamiliesAndSamples() {
+    writer.reset(ExpositionFilter.fromQuery("name[]=dds_requests&label=topic=Circle"), false);
+    writer.write(counter());
+    assertFalse(writer.family("dds_other", "Other.", Type.GAUGE));
+    writer.sample("dds_other", Collections.emptyList(), new String[0], 1);
+
+    assertEquals(
+      "# HELP dds_requests_total Number of requests.\n"
+        + "# TYPE dds_requests_total counter\n"
+        + "dds_requests_total{topic=\"Circle\"} 6\n"
+        + "# HELP dds_requests_created Number of requests.\n"
+        + "# TYPE dds_requests_created gauge\n"
+        + "dds_requests_created{topic=\"Circle\"} 1700000001\n",
+      finish()
+    );
+  }
+
+  @Test
+  void testResetDiscardsPreviousScrape() {
+    writer.reset(ExpositionFilter.includeAll(), false);
+    writer.write(counter());
+
+    writer.reset(ExpositionFilter.includeAll(), false);
+    writer.write(gauge("dds_other"));
+
+    assertEquals(
+      "# HELP dds_other Other.\n"
+        + "# TYPE dds_other gauge\n"
+        + "dds_other 1\n",
+      finish()
+    );
+  }
+
+  private String finish() {
+    ByteBuffer buffer = writer.finish();
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static MetricFamilySamples counter() {
+    List<String> labelNames = Collections.singletonList("topic");
+    return new MetricFamilySamples(
+      "dds_requests",
+      Type.COUNTER,
+      "Number of requests.",
+      Arrays.asList(
+        new Sample("dds_requests_total", labelNames, Collections.singletonList("Square"), 5),
+        new Sample("dds_requests_created", labelNames, Collections.singletonList("Square"), 1700000000),
+        new Sample("dds_requests_total", labelNames, Collections.singletonList("Circle"), 6),
+        new Sample("dds_requests_created", labelNames, Collections.singletonList("Circle"), 1700000001)
+      )
+    );
+  }
+
+  private static MetricFamilySamples gauge(
+    String name
+  ) {
+    return new MetricFamilySamples(
+      name,
+      Type.GAUGE,
+      "Other.",
+      Collections.singletonList(new Sample(name, Collections.emptyList(), Collections.emptyList(), 1))
+    );
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.routing.dynamic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ConfigurationMatcherTest {
+
+  private Configuration shape;
+  private Configuration square;
+  private Configuration fallback;
+  private ConfigurationMatcher configurationMatcher;
+
+  @BeforeEach
+  public void setUp() {
+    square = new Configuration();
+    square.setAllowTopicNameFilter(Pattern.compile("Square"));
+    square.setDenyTopicNameFilter(Pattern.compile("Square"));
+
+    shape = new Configuration();
+    shape.setAllowTopicNameFilter(Pattern.compile("Square|Circle|Triangle"));
+
+    fallback = new Configuration();
+    fallback.setDenyTopicNameFilter(Pattern.compile("rti/.*"));
+
+    configurationMatcher = new ConfigurationMatcher(Arrays.asList(square, shape, fallback), 100);
+  }
+
+  @Test
+  void testFirstMatchingConfiguration() {
+    assertSame(shape, configurationMatcher.getMatchingConfiguration("Circle"));
+    assertSame(fallback, configurationMatcher.getMatchingConfiguration("Other"));
+  }
+
+  @Test
+  void testDenyFilterTakesPrecedence() {
+    assertSame(shape, configurationMatcher.getMatchingConfiguration("Square"));
+    assertNull(configurationMatcher.getMatchingConfiguration("rti/distlog"));
+  }
+
+  @Test
+  void testBackReferenceFallsBackToSequentialCheck() {
+    Configuration backReference = new Configuration();
+    backReference.setAllowTopicNameFilter(Pattern.compile("(A)\\1"));
+
+    ConfigurationMatcher matcher = new ConfigurationMatcher(Arrays.asList(shape, backReference), 100);
+
+    assertSame(backReference, matcher.getMatchingConfiguration("AA"));
+    assertNull(matcher.getMatchingConfiguration("AB"));
+  }
+
+  @Test
+  void testPartitionDecisionIsCached() {
+    AtomicInteger decisions = new AtomicInteger();
+
+    assertTrue(configurationMatcher.ignorePartition("Circle", "A", (t, p) -> decisions.incrementAndGet() > 0));
+    assertTrue(configurationMatcher.ignorePartition("Circle", "A", (t, p) -> decisions.incrementAndGet() < 0));
+    assertFalse(configurationMatcher.ignorePartition("Circle", "B", (t, p) -> decisions.incrementAndGet() < 0));
+
+    assertEquals(2, decisions.get());
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.routing.dynamic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+public class ConfigurationTemplateTest {
+
+  @Test
+  void testRendersParameters() {
+    ConfigurationTemplate template = new ConfigurationTemplate("<a name=\"{0}\">{1}</a>{0}");
+
+    assertEquals("<a name=\"X\">Y</a>X", template.render("X", "Y"));
+    assertEquals("<a name=\"\"></a>", template.render("", ""));
+  }
+
+  @Test
+  void testRendersTemplateWithoutParameters() {
+    assertEquals("<a/>", new ConfigurationTemplate("<a/>").render());
+    assertEquals("", new ConfigurationTemplate("").render());
+  }
+
+  @Test
+  void testRendersAdjacentParameters() {
+    ConfigurationTemplate template = new ConfigurationTemplate("{0}{1}{0}");
+
+    assertEquals("ABA", template.render("A", "B"));
+  }
+
+  @Test
+  void testRejectsUnclosedParameter() {
+    assertThrows(IllegalArgumentException.class, () -> new ConfigurationTemplate("<a>{0</a>"));
+    assertThrows(IllegalArgumentException.class, () -> new ConfigurationTemplate("<a>{}</a>"));
+  }
+
+  @Test
+  void testBindsParameter() {
+    ConfigurationTemplate template = new ConfigurationTemplate("<a name=\"{0}\">{2}<b>{1}</b>{2}</a>");
+    ConfigurationTemplate bound = template.bind(2, "<qos/>");
+
+    assertEquals("<a name=\"X\"><qos/><b>Y</b><qos/></a>", bound.render("X", "Y"));
+    // binding does not change the original template
+    assertEquals("<a name=\"X\">Z<b>Y</b>Z</a>", template.render("X", "Y", "Z"));
+  }
+
+  @Test
+  void testBindsAllParameters() {
+    ConfigurationTemplate template = new ConfigurationTemplate("{0}-{1}")
+      .bind(0, "A")
+      .bind(1, "B");
+
+    assertEquals("A-B", template.render());
+  }
+
+  @Test
+  void testRendersNullLikeStringFormat() {
+    ConfigurationTemplate template = new ConfigurationTemplate("<a>{0}</a><b>{1}</b>");
+
+    assertEquals(String.format("<a>%s</a><b>%s</b>", null, "B"), template.render(null, "B"));
+    assertEquals(String.format("<a>%s</a><b>%s</b>", "A", null), template.bind(1, null).render("A"));
+  }
+
+  @Test
+  void testTopicRouteTemplateMatchesFormat() {
+    Configuration configuration = new Configuration();
+    configuration.setTopicRouteQosQos("<route_types>true</route_types>");
+    configuration.setQosInput(null);
+    configuration.setQosOutput("<creation_mode>IMMEDIATE</creation_mode>");
+
+    assertEquals(
+      String.format(
+        "<topic_route name=\"%1$s\" enabled=\"true\">%5$s<input participant=\"%2$s\"><topic_name>%3$s</topic_name><registered_type_name>%4$s</registered_type_name>%6$s</input><output><topic_name>%3$s</topic_name><registered_type_name>%4$s</registered_type_name>%7$s</output></topic_route>",
+        "OUT",
+        "1",
+        "Square",
+        "ShapeType",
+        configuration.getQosTopicRoute(),
+        configuration.getQosInput(),
+        configuration.getQosOutput()
+      ),
+      configuration.getTopicRouteTemplate().render("OUT", "1", "Square", "ShapeType")
+    );
+  }
+}
@@ -0,0 +1,278 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.routing.dynamic.command.remote;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import idl.RTI.Service.Admin.CommandActionKind;
+import idl.RTI.Service.Admin.CommandReply;
+import idl.RTI.Service.Admin.CommandRequest;
+import io.github.aguther.dds.routing.dynamic.command.DynamicPartitionCommandProvider;
+import io.github.aguther.dds.routing.dynamic.observer.Direction;
+import io.github.aguther.dds.routing.dynamic.observer.Session;
+import io.github.aguther.dds.routing.dynamic.observer.TopicRoute;
+import io.github.aguther.dds.routing.util.RoutingServiceCommandInterface;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class DynamicPartitionCommanderTest {
+
+  private static final long COALESCING_DELAY_MILLISECONDS = 100;
+
+  private static final Session SESSION = new Session(Direction.OUT, "Square", "A");
+  private static final Session OTHER_SESSION = new Session(Direction.OUT, "Square", "B");
+  private static final TopicRoute TOPIC_ROUTE_1 = new TopicRoute(Direction.OUT, "Square", "ShapeType");
+  private static final TopicRoute TOPIC_ROUTE_2 = new TopicRoute(Direction.OUT, "Square", "ShapeTypeExtended");
+
+  private List<CommandRequest> requests;
+  private List<CompletableFuture<CommandReply>> replies;
+  private volatile boolean holdReplies;
+  private DynamicPartitionCommander dynamicPartitionCommander;
+
+  @BeforeEach
+  public void setUp() {
+    // the replies time out immediately unless they are held, so sent commands stay active until they are aborted
+    requests = new CopyOnWriteArrayList<>();
+    replies = new CopyOnWriteArrayList<>();
+    RoutingServiceCommandInterface routingServiceCommandInterface = mock(RoutingServiceCommandInterface.class);
+    when(routingServiceCommandInterface.createCommandRequest()).thenAnswer(invocation -> new CommandRequest());
+    when(routingServiceCommandInterface.sendRequestAsync(any(CommandRequest.class), anyLong(), any(TimeUnit.class)))
+      .thenAnswer(invocation -> {
+        requests.add(invocation.getArgument(0));
+        CompletableFuture<CommandReply> reply = new CompletableFuture<>();
+        replies.add(reply);
+        if (!holdReplies) {
+          reply.completeExceptionally(new TimeoutException());
+        }
+        return reply;
+      });
+
+    dynamicPartitionCommander = new DynamicPartitionCommander(
+      routingServiceCommandInterface,
+      new TestCommandProvider(),
+      "RoutingService",
+      10,
+      TimeUnit.SECONDS,
+      10,
+      TimeUnit.SECONDS,
+      COALESCING_DELAY_MILLISECONDS,
+      TimeUnit.MILLISECONDS
+    );
+  }
+
+  @AfterEach
+  public void tearDown() {
+    dynamicPartitionCommander.close();
+  }
+
+  @Test
+  void testConverseCommandsCancelOut() throws InterruptedException {
+    dynamicPartitionCommander.createSession(SESSION);
+    dynamicPartitionCommander.createTopicRoute(SESSION, TOPIC_ROUTE_1);
+    dynamicPartitionCommander.deleteTopicRoute(SESSION, TOPIC_ROUTE_1);
+    dynamicPartitionCommander.deleteSession(SESSION);
+
+    Thread.sleep(3 * COALESCING_DELAY_MILLISECONDS);
+    assertTrue(requests.isEmpty());
+  }
+
+  @Test
+  void testSessionCreationCombinedWithTopicRoutes() throws InterruptedException {
+    createSessionWithTopicRoutes();
+
+    Thread.sleep(2 * COALESCING_DELAY_MILLISECONDS);
+    assertEquals(1, requests.size());
+  }
+
+  @Test
+  void testAbortedCombinedCreationRestartsMembersSeparately() throws InterruptedException {
+    createSessionWithTopicRoutes();
+
+    // deleting a topic route aborts the combined creation, the other members are restarted
+    dynamicPartitionCommander.deleteTopicRoute(SESSION, TOPIC_ROUTE_1);
+    waitFor(() -> requests.size() >= 4);
+    assertRequest(requests.get(1), CommandActionKind.DELETE_ACTION, "/sessions/A/routes/ShapeType", null);
+
+    // the session may exist already, so its creation is not combined with the topic route again
+    assertRequest(requests.get(2), CommandActionKind.CREATE_ACTION, "/domain_routes/DomainRoute",
+      "str://\"<session name='A'></session>\"");
+    assertRequest(requests.get(3), CommandActionKind.CREATE_ACTION, "/sessions/A",
+      "str://\"<topic_route name='ShapeTypeExtended'/>\"");
+
+    Thread.sleep(2 * COALESCING_DELAY_MILLISECONDS);
+    assertEquals(4, requests.size());
+  }
+
+  @Test
+  void testRestartIsNotCancelledByConverseCommand() throws InterruptedException {
+    createSessionWithTopicRoutes();
+
+    // the deletion of the session arrives while the restart of its creation is queued
+    dynamicPartitionCommander.deleteTopicRoute(SESSION, TOPIC_ROUTE_1);
+    waitFor(() -> requests.size() >= 2);
+    dynamicPartitionCommander.deleteSession(SESSION);
+
+    // the deletion is sent, as the aborted creation may have reached the routing service
+    waitFor(() -> requests.size() >= 4);
+    assertRequest(requests.get(2), CommandActionKind.CREATE_ACTION, "/sessions/A",
+      "str://\"<topic_route name='ShapeTypeExtended'/>\"");
+    assertRequest(requests.get(3), CommandActionKind.DELETE_ACTION, "/sessions/A", null);
+  }
+
+  @Test
+  void testTopicRouteCreationWaitsForSessionCreation() throws InterruptedException {
+    holdReplies = true;
+    dynamicPartitionCommander.createSession(SESSION);
+    waitFor(() -> requests.size() >= 1);
+
+    // the creation of the topic route is sent after the reply of the creation of its session
+    dynamicPartitionCommander.createTopicRoute(SESSION, TOPIC_ROUTE_1);
+    Thread.sleep(3 * COALESCING_DELAY_MILLISECONDS);
+    assertEquals(1, requests.size());
+
+    replies.get(0).completeExceptionally(new TimeoutException());
+    waitFor(() -> requests.size() >= 2);
+    assertRequest(requests.get(1), CommandActionKind.CREATE_ACTION, "/sessions/A",
+      "str://\"<topic_route name='ShapeType'/>\"");
+  }
+
+  @Test
+  void testCommandsOfOtherSessionsDoNotWait() throws InterruptedException {
+    holdReplies = true;
+    dynamicPartitionCommander.createSession(SESSION);
+    dynamicPartitionCommander.createSession(OTHER_SESSION);
+
+    // both creations are sent without a reply
+    waitFor(() -> requests.size() >= 2);
+    assertRequest(requests.get(0), CommandActionKind.CREATE_ACTION, "/domain_routes/DomainRoute",
+      "str://\"<session name='A'></session>\"");
+    assertRequest(requests.get(1), CommandActionKind.CREATE_ACTION, "/domain_routes/DomainRoute",
+      "str://\"<session name='B'></session>\"");
+  }
+
+  private void createSessionWithTopicRoutes() throws InterruptedException {
+    dynamicPartitionCommander.createSession(SESSION);
+    dynamicPartitionCommander.createTopicRoute(SESSION, TOPIC_ROUTE_1);
+    dynamicPartitionCommander.createTopicRoute(SESSION, TOPIC_ROUTE_2);
+
+    waitFor(() -> requests.size() >= 1);
+    assertRequest(requests.get(0), CommandActionKind.CREATE_ACTION, "/domain_routes/DomainRoute",
+      "str://\"<session name='A'><topic_route name='ShapeType'/><topic_route name='ShapeTypeExtended'/></session>\"");
+  }
+
+  private static void assertRequest(
+    CommandRequest commandRequest,
+    CommandActionKind action,
+    String resourceIdentifierSuffix,
+    String body
+  ) {
+    assertSame(action, commandRequest.action);
+    assertTrue(
+      commandRequest.resource_identifier.endsWith(resourceIdentifierSuffix),
+      commandRequest.resource_identifier
+    );
+    if (body != null) {
+      assertEquals(body, commandRequest.string_body);
+    }
+  }
+
+  private static void waitFor(
+    BooleanSupplier condition
+  ) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+    while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertTrue(condition.getAsBoolean());
+  }
+
+  private static class TestCommandProvider implements DynamicPartitionCommandProvider {
+
+    @Override
+    public String getSessionParent(
+      final Session session
+    ) {
+      return "DomainRoute";
+    }
+
+    @Override
+    public String getSessionName(
+      final Session session
+    ) {
+      return session.getPartition();
+    }
+
+    @Override
+    public String getSessionEntityName(
+      final Session session
+    ) {
+      return getSessionName(session);
+    }
+
+    @Override
+    public String getSessionConfiguration(
+      final Session session
+    ) {
+      return String.format("<session name='%s'></session>", getSessionName(session));
+    }
+
+    @Override
+    public String getTopicRouteName(
+      final Session session,
+      final TopicRoute topicRoute
+    ) {
+      return topicRoute.getType();
+    }
+
+    @Override
+    public String getTopicRouteEntityName(
+      final Session session,
+      final TopicRoute topicRoute
+    ) {
+      return getTopicRouteName(session, topicRoute);
+    }
+
+    @Override
+    public String getTopicRouteConfiguration(
+      final Session session,
+      final TopicRoute topicRoute
+    ) {
+      return String.format("<topic_route name='%s'/>", getTopicRouteName(session, topicRoute));
+    }
+  }
+}
@@ -0,0 +1,266 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.routing.dynamic.observer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import com.rti.dds.publication.builtin.PublicationBuiltinTopicData;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class DynamicPartitionObserverTest {
+
+  private DynamicPartitionObserver dynamicPartitionObserver;
+  private RecordingListener listener;
+
+  @AfterEach
+  public void tearDown() {
+    dynamicPartitionObserver.close();
+  }
+
+  @Test
+  void testCreatesAndDeletesSessionsAndRoutes() throws InterruptedException {
+    createObserver(1);
+    InstanceHandle_t instanceHandle = createInstanceHandle(1);
+    PublicationBuiltinTopicData data = createPublicationData("A", "B");
+
+    dynamicPartitionObserver.publicationDiscovered(null, instanceHandle, data);
+    dynamicPartitionObserver.publicationLost(null, instanceHandle, data);
+
+    waitFor(() -> listener.getEventCount() == 8);
+    for (String partition : new String[]{"A", "B"}) {
+      assertEquals(
+        List.of("createSession", "createTopicRoute", "deleteTopicRoute", "deleteSession"),
+        listener.getEvents(new Session(Direction.OUT, "Square", partition))
+      );
+    }
+  }
+
+  @Test
+  void testLostSkipsOnlyIgnoredPartitions() throws InterruptedException {
+    DynamicPartitionObserverFilter filter = mock(DynamicPartitionObserverFilter.class);
+    when(filter.ignorePartition(any(), eq("X"))).thenReturn(true);
+    createObserver(1);
+    dynamicPartitionObserver.addFilter(filter);
+    InstanceHandle_t instanceHandle = createInstanceHandle(1);
+    PublicationBuiltinTopicData data = createPublicationData("X", "A");
+
+    dynamicPartitionObserver.publicationDiscovered(null, instanceHandle, data);
+    dynamicPartitionObserver.publicationLost(null, instanceHandle, data);
+
+    // the ignored partition must not prevent the deletion of the following one
+    waitFor(() -> listener.getEventCount() == 4);
+    assertEquals(
+      List.of("createSession", "createTopicRoute", "deleteTopicRoute", "deleteSession"),
+      listener.getEvents(new Session(Direction.OUT, "Square", "A"))
+    );
+    assertEquals(List.of(), listener.getEvents(new Session(Direction.OUT, "Square", "X")));
+  }
+
+  @Test
+  void testShardedLanesKeepOrderPerSession() throws InterruptedException {
+    createObserver(4);
+    String[] partitions = new String[32];
+    for (int i = 0; i < partitions.length; i++) {
+      partitions[i] = "P" + i;
+    }
+    PublicationBuiltinTopicData data = createPublicationData(partitions);
+
+    int repetitions = 50;
+    for (int i = 0; i < repetitions; i++) {
+      InstanceHandle_t instanceHandle = createInstanceHandle(i);
+      dynamicPartitionObserver.publicationDiscovered(null, instanceHandle, data);
+      dynamicPartitionObserver.publicationLost(null, instanceHandle, data);
+    }
+
+    waitFor(() -> listener.getEventCount() == partitions.length * repetitions * 4);
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < repetitions; i++) {
+      expected.addAll(List.of("createSession", "createTopicRoute", "deleteTopicRoute", "deleteSession"));
+    }
+    for (String partition : partitions) {
+      Session session = new Session(Direction.OUT, "Square", partition);
+      assertEquals(expected, listener.getEvents(session));
+      // all events of a session are handled by the thread of its lane
+      assertEquals(1, listener.getThreads(session).size());
+    }
+    assertTrue(listener.getThreadCount() > 1);
+  }
+
+  @Test
+  void testShardedLanesHandleModification() throws InterruptedException {
+    createObserver(4);
+    InstanceHandle_t instanceHandle = createInstanceHandle(1);
+
+    dynamicPartitionObserver.publicationDiscovered(null, instanceHandle, createPublicationData("A", "B"));
+    dynamicPartitionObserver.publicationModified(null, instanceHandle, createPublicationData("B", "C"));
+
+    waitFor(() -> listener.getEventCount() == 8);
+    assertEquals(
+      List.of("createSession", "createTopicRoute", "deleteTopicRoute", "deleteSession"),
+      listener.getEvents(new Session(Direction.OUT, "Square", "A"))
+    );
+    assertEquals(
+      List.of("createSession", "createTopicRoute"),
+      listener.getEvents(new Session(Direction.OUT, "Square", "B"))
+    );
+    assertEquals(
+      List.of("createSession", "createTopicRoute"),
+      listener.getEvents(new Session(Direction.OUT, "Square", "C"))
+    );
+  }
+
+  @Test
+  void testCallbacksAfterCloseAreDropped() {
+    for (int lanes : new int[]{1, 4}) {
+      createObserver(lanes);
+      dynamicPartitionObserver.close();
+
+      // a late discovery callback must not throw on the DDS listener thread
+      dynamicPartitionObserver.publicationDiscovered(null, createInstanceHandle(1), createPublicationData("A"));
+      assertEquals(0, listener.getEventCount());
+    }
+  }
+
+  private void createObserver(
+    int lanes
+  ) {
+    dynamicPartitionObserver = new DynamicPartitionObserver(lanes);
+    listener = new RecordingListener();
+    dynamicPartitionObserver.addListener(listener);
+  }
+
+  private static PublicationBuiltinTopicData createPublicationData(
+    String... partitions
+  ) {
+    PublicationBuiltinTopicData data = new PublicationBuiltinTopicData();
+    data.topic_name = "Square";
+    data.type_name = "ShapeType";
+    for (String partition : partitions) {
+      data.partition.name.add(partition);
+    }
+    return data;
+  }
+
+  private static InstanceHandle_t createInstanceHandle(
+    int id
+  ) {
+    InstanceHandle_t instanceHandle = new InstanceHandle_t();
+    instanceHandle.value[0] = (byte) id;
+    instanceHandle.value[1] = (byte) (id >> 8);
+    return instanceHandle;
+  }
+
+  private static void waitFor(
+    BooleanSupplier condition
+  ) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+    while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertTrue(condition.getAsBoolean());
+  }
+
+  private static class RecordingListener implements DynamicPartitionObserverListener {
+
+    private final Map<Session, List<String>> events = new ConcurrentHashMap<>();
+    private final Map<Session, Set<Thread>> threads = new ConcurrentHashMap<>();
+
+    @Override
+    public void createSession(
+      Session session
+    ) {
+      record(session, "createSession");
+    }
+
+    @Override
+    public void deleteSession(
+      Session session
+    ) {
+      record(session, "deleteSession");
+    }
+
+    @Override
+    public void createTopicRoute(
+      Session session,
+      TopicRoute topicRoute
+    ) {
+      record(session, "createTopicRoute");
+    }
+
+    @Override
+    public void deleteTopicRoute(
+      Session session,
+      TopicRoute topicRoute
+    ) {
+      record(session, "deleteTopicRoute");
+    }
+
+    private void record(
+      Session session,
+      String event
+    ) {
+      events.computeIfAbsent(session, key -> Collections.synchronizedList(new ArrayList<>())).add(event);
+      threads.computeIfAbsent(session, key -> ConcurrentHashMap.newKeySet()).add(Thread.currentThread());
+    }
+
+    private List<String> getEvents(
+      Session session
+    ) {
+      List<String> sessionEvents = events.getOrDefault(session, Collections.emptyList());
+      synchronized (sessionEvents) {
+        return new ArrayList<>(sessionEvents);
+      }
+    }
+
+    private Set<Thread> getThreads(
+      Session session
+    ) {
+      return threads.getOrDefault(session, Collections.emptySet());
+    }
+
+    private int getEventCount() {
+      return events.values().stream().mapToInt(List::size).sum();
+    }
+
+    private int getThreadCount() {
+      return (int) threads.values().stream().flatMap(Set::stream).distinct().count();
+    }
+  }
+}
@@ -0,0 +1,248 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.routing.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.rti.connext.infrastructure.Sample;
+import com.rti.connext.infrastructure.WriteSample;
+import com.rti.connext.requestreply.Requester;
+import com.rti.dds.infrastructure.Duration_t;
+import com.rti.dds.infrastructure.SampleIdentity_t;
+import com.rti.dds.subscription.SampleInfo;
+import idl.RTI.Service.Admin.CommandReply;
+import idl.RTI.Service.Admin.CommandRequest;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class RoutingServiceCommandInterfaceTest {
+
+  private Requester<CommandRequest, CommandReply> requester;
+  private List<CommandRequest> sentRequests;
+  private BlockingQueue<Integer> replies;
+  private AtomicBoolean requesterClosed;
+  private AtomicBoolean usedAfterClose;
+  private AtomicBoolean replyWhileSending;
+  private AtomicInteger takenReplies;
+  private RoutingServiceCommandInterface routingServiceCommandInterface;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    requester = mock(Requester.class);
+    sentRequests = new CopyOnWriteArrayList<>();
+    replies = new LinkedBlockingQueue<>();
+    requesterClosed = new AtomicBoolean();
+    usedAfterClose = new AtomicBoolean();
+    replyWhileSending = new AtomicBoolean();
+    takenReplies = new AtomicInteger();
+
+    // requests get consecutive sequence numbers when sent
+    AtomicInteger sequenceNumber = new AtomicInteger();
+    when(requester.createRequestSample()).thenAnswer(invocation -> {
+      WriteSample<CommandRequest> request = mock(WriteSample.class);
+      CommandRequest data = new CommandRequest();
+      SampleIdentity_t identity = new SampleIdentity_t();
+      when(request.getData()).thenReturn(data);
+      when(request.getIdentity()).thenReturn(identity);
+      return request;
+    });
+    doAnswer(invocation -> {
+      WriteSample<CommandRequest> request = invocation.getArgument(0);
+      request.getIdentity().sequence_number.low = sequenceNumber.incrementAndGet();
+      sentRequests.add(request.getData());
+
+      // deliver the reply before the request is tracked
+      if (replyWhileSending.get()) {
+        replies.add(request.getIdentity().sequence_number.low);
+        waitFor(() -> takenReplies.get() == sequenceNumber.get());
+        Thread.sleep(50);
+      }
+      return null;
+    }).when(requester).sendRequest(any());
+
+    // replies are delivered for the sequence numbers put into the queue
+    AtomicReference<Integer> nextReply = new AtomicReference<>();
+    when(requester.waitForReplies(anyInt(), any(Duration_t.class))).thenAnswer(invocation -> {
+      usedAfterClose.compareAndSet(false, requesterClosed.get());
+      try {
+        Integer reply = replies.poll(20, TimeUnit.MILLISECONDS);
+        nextReply.set(reply);
+        return reply != null;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    });
+    when(requester.createReplySample()).thenAnswer(invocation -> {
+      Sample<CommandReply> reply = mock(Sample.class);
+      SampleInfo info = new SampleInfo();
+      CommandReply data = new CommandReply();
+      when(reply.getInfo()).thenReturn(info);
+      when(reply.getData()).thenReturn(data);
+      return reply;
+    });
+    when(requester.takeReply(any())).thenAnswer(invocation -> {
+      usedAfterClose.compareAndSet(false, requesterClosed.get());
+      Integer sequenceNumberOfReply = nextReply.getAndSet(null);
+      if (sequenceNumberOfReply == null) {
+        return false;
+      }
+      Sample<CommandReply> reply = invocation.getArgument(0);
+      reply.getInfo().valid_data = true;
+      reply.getInfo().related_original_publication_virtual_sample_identity.sequence_number.low = sequenceNumberOfReply;
+      reply.getData().string_body = "reply-" + sequenceNumberOfReply;
+      takenReplies.incrementAndGet();
+      return true;
+    });
+    doAnswer(invocation -> {
+      requesterClosed.set(true);
+      return null;
+    }).when(requester).close();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    routingServiceCommandInterface.close();
+  }
+
+  @Test
+  void testCorrelatesRepliesBySequenceNumber() throws Exception {
+    routingServiceCommandInterface = new RoutingServiceCommandInterface(requester, 2);
+
+    CompletableFuture<CommandReply> first = sendRequest("first", 5000);
+    CompletableFuture<CommandReply> second = sendRequest("second", 5000);
+    assertEquals(2, sentRequests.size());
+
+    // replies arrive in reverse order
+    replies.add(2);
+    replies.add(1);
+    assertEquals("reply-1", first.get(1, TimeUnit.SECONDS).string_body);
+    assertEquals("reply-2", second.get(1, TimeUnit.SECONDS).string_body);
+  }
+
+  @Test
+  void testReplyReceivedWhileSending() throws Exception {
+    routingServiceCommandInterface = new RoutingServiceCommandInterface(requester, 1);
+    replyWhileSending.set(true);
+
+    // the reply is kept until the request is tracked
+    CompletableFuture<CommandReply> first = sendRequest("first", 5000);
+    assertEquals("reply-1", first.get(1, TimeUnit.SECONDS).string_body);
+  }
+
+  @Test
+  void testLimitsOutstandingRequests() throws Exception {
+    routingServiceCommandInterface = new RoutingServiceCommandInterface(requester, 1);
+
+    CompletableFuture<CommandReply> first = sendRequest("first", 5000);
+    CompletableFuture<CommandReply> second = sendRequest("second", 5000);
+    assertEquals(1, sentRequests.size());
+
+    // the queued request is sent when the reply of the outstanding one is received
+    replies.add(1);
+    first.get(1, TimeUnit.SECONDS);
+    waitFor(() -> sentRequests.size() == 2);
+    assertEquals("second", sentRequests.get(1).string_body);
+    assertFalse(second.isDone());
+  }
+
+  @Test
+  void testTimeoutSendsQueuedRequest() throws Exception {
+    routingServiceCommandInterface = new RoutingServiceCommandInterface(requester, 1);
+
+    CompletableFuture<CommandReply> first = sendRequest("first", 50);
+    CompletableFuture<CommandReply> second = sendRequest("second", 5000);
+
+    ExecutionException exception = assertThrows(ExecutionException.class, () -> first.get(1, TimeUnit.SECONDS));
+    assertInstanceOf(TimeoutException.class, exception.getCause());
+    waitFor(() -> sentRequests.size() == 2);
+
+    // a late reply of the timed out request is ignored
+    replies.add(1);
+    replies.add(2);
+    assertEquals("reply-2", second.get(1, TimeUnit.SECONDS).string_body);
+  }
+
+  @Test
+  void testCloseCompletesPendingRequests() {
+    routingServiceCommandInterface = new RoutingServiceCommandInterface(requester, 1);
+
+    CompletableFuture<CommandReply> first = sendRequest("first", 5000);
+    CompletableFuture<CommandReply> second = sendRequest("second", 5000);
+    routingServiceCommandInterface.close();
+
+    assertTrue(first.isCompletedExceptionally());
+    assertTrue(second.isCompletedExceptionally());
+    assertTrue(sendRequest("third", 5000).isCompletedExceptionally());
+    assertEquals(1, sentRequests.size());
+
+    // the receive loop stopped before the requester has been closed
+    verify(requester).close();
+    assertFalse(usedAfterClose.get());
+  }
+
+  private CompletableFuture<CommandReply> sendRequest(
+    String body,
+    long timeoutMilliseconds
+  ) {
+    CommandRequest commandRequest = routingServiceCommandInterface.createCommandRequest();
+    commandRequest.string_body = body;
+    return routingServiceCommandInterface.sendRequestAsync(commandRequest, timeoutMilliseconds, TimeUnit.MILLISECONDS);
+  }
+
+  private static void waitFor(
+    BooleanSupplier condition
+  ) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+    while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertTrue(condition.getAsBoolean());
+  }
+}
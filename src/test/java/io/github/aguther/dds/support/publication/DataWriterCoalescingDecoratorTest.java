@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.support.publication;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import com.rti.dds.infrastructure.Time_t;
+import com.rti.dds.publication.DataWriter;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+public class DataWriterCoalescingDecoratorTest {
+
+  private DataWriter dataWriter;
+  private DataWriterCoalescingDecorator coalescingDecorator;
+
+  @BeforeEach
+  public void setUp() {
+    dataWriter = mock(DataWriter.class);
+    // the period is long, so only the threshold and explicit flushes write
+    coalescingDecorator = new DataWriterCoalescingDecorator(dataWriter, TestSample.class, 1, TimeUnit.HOURS, 2);
+  }
+
+  @AfterEach
+  public void tearDown() throws IOException {
+    coalescingDecorator.close();
+  }
+
+  @Test
+  void testWritesLatestSampleOfInstance() {
+    InstanceHandle_t instanceHandle = createInstanceHandle(1);
+    coalescingDecorator.write_untyped(new TestSample(1), instanceHandle);
+    coalescingDecorator.write_untyped(new TestSample(2), instanceHandle);
+    coalescingDecorator.write_untyped(new TestSample(3), instanceHandle);
+    verify(dataWriter, never()).write_untyped(any(), any());
+
+    coalescingDecorator.flush();
+
+    ArgumentCaptor<Object> sample = ArgumentCaptor.forClass(Object.class);
+    verify(dataWriter, times(1)).write_untyped(sample.capture(), eq(instanceHandle));
+    assertEquals(3, ((TestSample) sample.getValue()).value);
+    verify(dataWriter, times(1)).flush();
+  }
+
+  @Test
+  void testFlushesAtThreshold() {
+    coalescingDecorator.write_untyped(new TestSample(1), createInstanceHandle(1));
+    verify(dataWriter, never()).write_untyped(any(), any());
+
+    coalescingDecorator.write_untyped(new TestSample(2), createInstanceHandle(2));
+    verify(dataWriter, times(2)).write_untyped(any(), any());
+    verify(dataWriter, times(1)).flush();
+  }
+
+  @Test
+  void testUnregisterDiscardsPendingSample() {
+    InstanceHandle_t instanceHandle = createInstanceHandle(1);
+    coalescingDecorator.write_untyped(new TestSample(1), instanceHandle);
+    coalescingDecorator.unregister_instance_w_timestamp_untyped(null, instanceHandle, new Time_t(0, 0));
+
+    coalescingDecorator.flush();
+    verify(dataWriter, never()).write_untyped(any(), any());
+
+    // a later write of the instance is coalesced again
+    coalescingDecorator.write_untyped(new TestSample(2), instanceHandle);
+    coalescingDecorator.flush();
+    verify(dataWriter, times(1)).write_untyped(any(), eq(instanceHandle));
+  }
+
+  @Test
+  void testDisposeDiscardsPendingSample() {
+    InstanceHandle_t instanceHandle = createInstanceHandle(1);
+    coalescingDecorator.write_untyped(new TestSample(1), instanceHandle);
+    coalescingDecorator.dispose_untyped(null, instanceHandle);
+
+    coalescingDecorator.flush();
+    verify(dataWriter, never()).write_untyped(any(), any());
+    verify(dataWriter, times(1)).dispose_untyped(null, instanceHandle);
+  }
+
+  static InstanceHandle_t createInstanceHandle(
+    int id
+  ) {
+    InstanceHandle_t instanceHandle = new InstanceHandle_t();
+    instanceHandle.value[0] = (byte) id;
+    instanceHandle.value[1] = (byte) (id >> 8);
+    return instanceHandle;
+  }
+}
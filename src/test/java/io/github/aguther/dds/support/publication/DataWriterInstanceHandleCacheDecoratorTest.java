@@ -0,0 +1,157 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.support.publication;
+
+import static io.github.aguther.dds.support.publication.DataWriterCoalescingDecoratorTest.createInstanceHandle;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import com.rti.dds.infrastructure.Time_t;
+import com.rti.dds.infrastructure.WriteParams_t;
+import com.rti.dds.publication.DataWriter;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class DataWriterInstanceHandleCacheDecoratorTest {
+
+  private DataWriter dataWriter;
+  private DataWriterInstanceHandleCacheDecorator cacheDecorator;
+
+  @BeforeEach
+  public void setUp() {
+    dataWriter = mock(DataWriter.class);
+
+    // every registration returns a new handle
+    AtomicInteger registrationCount = new AtomicInteger();
+    when(dataWriter.register_instance_untyped(any()))
+      .thenAnswer(invocation -> createInstanceHandle(registrationCount.incrementAndGet()));
+
+    cacheDecorator = new DataWriterInstanceHandleCacheDecorator(
+      dataWriter,
+      sample -> ((TestSample) sample).value,
+      2
+    );
+  }
+
+  @Test
+  void testReusesHandle() {
+    cacheDecorator.write_untyped(new TestSample(1), InstanceHandle_t.HANDLE_NIL);
+    cacheDecorator.write_untyped(new TestSample(1), InstanceHandle_t.HANDLE_NIL);
+    cacheDecorator.write_w_timestamp_untyped(new TestSample(1), InstanceHandle_t.HANDLE_NIL, new Time_t(0, 0));
+
+    verify(dataWriter, times(1)).register_instance_untyped(any());
+    verify(dataWriter, times(2)).write_untyped(any(), eq(createInstanceHandle(1)));
+    verify(dataWriter, times(1)).write_w_timestamp_untyped(any(), eq(createInstanceHandle(1)), any());
+  }
+
+  @Test
+  void testWriteWithParamsUsesCachedHandle() {
+    cacheDecorator.write_untyped(new TestSample(1), InstanceHandle_t.HANDLE_NIL);
+
+    WriteParams_t writeParams = new WriteParams_t();
+    InstanceHandle_t instanceHandle = writeParams.handle;
+    doAnswer(invocation -> {
+      assertEquals(createInstanceHandle(1), ((WriteParams_t) invocation.getArgument(1)).handle);
+      return null;
+    }).when(dataWriter).write_w_params_untyped(any(), any());
+    cacheDecorator.write_w_params_untyped(new TestSample(1), writeParams);
+
+    verify(dataWriter, times(1)).register_instance_untyped(any());
+    verify(dataWriter, times(1)).write_w_params_untyped(any(), eq(writeParams));
+    assertSame(instanceHandle, writeParams.handle);
+  }
+
+  @Test
+  void testEvictsLeastRecentlyUsed() {
+    cacheDecorator.write_untyped(new TestSample(1), InstanceHandle_t.HANDLE_NIL);
+    cacheDecorator.write_untyped(new TestSample(2), InstanceHandle_t.HANDLE_NIL);
+    cacheDecorator.write_untyped(new TestSample(1), InstanceHandle_t.HANDLE_NIL);
+    cacheDecorator.write_untyped(new TestSample(3), InstanceHandle_t.HANDLE_NIL);
+    verify(dataWriter, times(3)).register_instance_untyped(any());
+
+    // instance 2 has been evicted, instance 1 has been used more recently
+    cacheDecorator.write_untyped(new TestSample(1), InstanceHandle_t.HANDLE_NIL);
+    verify(dataWriter, times(3)).register_instance_untyped(any());
+    cacheDecorator.write_untyped(new TestSample(2), InstanceHandle_t.HANDLE_NIL);
+    verify(dataWriter, times(4)).register_instance_untyped(any());
+  }
+
+  @Test
+  void testUnregisterInvalidatesHandle() {
+    cacheDecorator.write_untyped(new TestSample(1), InstanceHandle_t.HANDLE_NIL);
+    cacheDecorator.unregister_instance_w_timestamp_untyped(null, createInstanceHandle(1), new Time_t(0, 0));
+
+    cacheDecorator.write_untyped(new TestSample(1), InstanceHandle_t.HANDLE_NIL);
+    verify(dataWriter, times(2)).register_instance_untyped(any());
+    verify(dataWriter, times(1)).write_untyped(any(), eq(createInstanceHandle(2)));
+  }
+
+  @Test
+  void testDisposeInvalidatesHandle() {
+    cacheDecorator.write_untyped(new TestSample(1), InstanceHandle_t.HANDLE_NIL);
+    cacheDecorator.write_untyped(new TestSample(2), InstanceHandle_t.HANDLE_NIL);
+    cacheDecorator.dispose_w_timestamp_untyped(new TestSample(1), InstanceHandle_t.HANDLE_NIL, new Time_t(0, 0));
+    cacheDecorator.dispose_untyped(null, createInstanceHandle(2));
+
+    cacheDecorator.write_untyped(new TestSample(1), InstanceHandle_t.HANDLE_NIL);
+    cacheDecorator.write_untyped(new TestSample(2), InstanceHandle_t.HANDLE_NIL);
+    verify(dataWriter, times(4)).register_instance_untyped(any());
+  }
+
+  @Test
+  void testRegisterReturnsCopyOfCachedHandle() {
+    InstanceHandle_t instanceHandle = cacheDecorator.register_instance_untyped(new TestSample(1));
+    instanceHandle.value[0] = 42;
+
+    assertEquals(createInstanceHandle(1), cacheDecorator.register_instance_untyped(new TestSample(1)));
+    verify(dataWriter, times(1)).register_instance_untyped(any());
+  }
+
+  @Test
+  void testUnregisterDuringRegistrationIsNotCached() {
+    // the instance is unregistered while it is registered natively
+    AtomicInteger registrationCount = new AtomicInteger();
+    when(dataWriter.register_instance_untyped(any())).thenAnswer(invocation -> {
+      if (registrationCount.incrementAndGet() == 1) {
+        cacheDecorator.unregister_instance_untyped(invocation.getArgument(0), InstanceHandle_t.HANDLE_NIL);
+      }
+      return createInstanceHandle(registrationCount.get());
+    });
+    cacheDecorator.write_untyped(new TestSample(1), InstanceHandle_t.HANDLE_NIL);
+
+    cacheDecorator.write_untyped(new TestSample(1), InstanceHandle_t.HANDLE_NIL);
+    verify(dataWriter, times(2)).register_instance_untyped(any());
+    verify(dataWriter, times(1)).write_untyped(any(), eq(createInstanceHandle(2)));
+  }
+}
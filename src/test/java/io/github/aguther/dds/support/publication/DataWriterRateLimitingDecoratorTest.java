@@ -0,0 +1,254 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.support.publication;
+
+import static io.github.aguther.dds.support.publication.DataWriterCoalescingDecoratorTest.createInstanceHandle;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import com.rti.dds.infrastructure.ReliabilityQosPolicyKind;
+import com.rti.dds.infrastructure.Time_t;
+import com.rti.dds.publication.DataWriter;
+import com.rti.dds.publication.DataWriterCacheStatus;
+import com.rti.dds.publication.DataWriterQos;
+import com.rti.dds.publication.ReliableWriterCacheChangedStatus;
+import io.github.aguther.dds.support.publication.DataWriterRateLimitingDecorator.OverloadPolicy;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+public class DataWriterRateLimitingDecoratorTest {
+
+  private static final int MAX_SAMPLES = 10;
+
+  private DataWriter dataWriter;
+  private AtomicInteger cacheSampleCount;
+  private AtomicInteger cacheStatusCheckCount;
+  private DataWriterRateLimitingDecorator rateLimitingDecorator;
+
+  @BeforeEach
+  public void setUp() {
+    dataWriter = mock(DataWriter.class);
+    cacheSampleCount = new AtomicInteger();
+    cacheStatusCheckCount = new AtomicInteger();
+
+    // best effort writer with a limited cache, the cache fill level is controlled by the tests
+    doAnswer(invocation -> {
+      DataWriterQos dataWriterQos = invocation.getArgument(0);
+      dataWriterQos.resource_limits.max_samples = MAX_SAMPLES;
+      dataWriterQos.reliability.kind = ReliabilityQosPolicyKind.BEST_EFFORT_RELIABILITY_QOS;
+      return null;
+    }).when(dataWriter).get_qos(any(DataWriterQos.class));
+    doAnswer(invocation -> {
+      cacheStatusCheckCount.incrementAndGet();
+      ((DataWriterCacheStatus) invocation.getArgument(0)).sample_count = cacheSampleCount.get();
+      return null;
+    }).when(dataWriter).get_datawriter_cache_status(any(DataWriterCacheStatus.class));
+  }
+
+  @AfterEach
+  public void tearDown() throws IOException {
+    if (rateLimitingDecorator != null) {
+      rateLimitingDecorator.close();
+    }
+  }
+
+  @Test
+  void testDropPolicy() {
+    rateLimitingDecorator = new DataWriterRateLimitingDecorator(dataWriter, 1, 2, OverloadPolicy.DROP, null);
+    InstanceHandle_t instanceHandle = createInstanceHandle(1);
+
+    for (int i = 0; i < 5; i++) {
+      rateLimitingDecorator.write_untyped(new TestSample(i), instanceHandle);
+    }
+    rateLimitingDecorator.write_w_timestamp_untyped(new TestSample(5), instanceHandle, new Time_t(0, 0));
+
+    verify(dataWriter, times(2)).write_untyped(any(), eq(instanceHandle));
+    verify(dataWriter, never()).write_w_timestamp_untyped(any(), any(), any());
+    assertEquals(2, rateLimitingDecorator.getAdmittedSampleCount());
+    assertEquals(4, rateLimitingDecorator.getDroppedSampleCount());
+  }
+
+  @Test
+  void testInstanceLimit() {
+    rateLimitingDecorator = new DataWriterRateLimitingDecorator(
+      dataWriter, 1000, 1000, 1, 1, OverloadPolicy.DROP, null);
+
+    rateLimitingDecorator.write_untyped(new TestSample(1), createInstanceHandle(1));
+    rateLimitingDecorator.write_untyped(new TestSample(2), createInstanceHandle(1));
+    rateLimitingDecorator.write_untyped(new TestSample(3), createInstanceHandle(2));
+
+    verify(dataWriter, times(1)).write_untyped(any(), eq(createInstanceHandle(1)));
+    verify(dataWriter, times(1)).write_untyped(any(), eq(createInstanceHandle(2)));
+    assertEquals(1, rateLimitingDecorator.getDroppedSampleCount());
+  }
+
+  @Test
+  void testDropWhileCongested() throws InterruptedException {
+    rateLimitingDecorator = new DataWriterRateLimitingDecorator(dataWriter, 1000, 1000, OverloadPolicy.DROP, null);
+    InstanceHandle_t instanceHandle = createInstanceHandle(1);
+
+    // 90% of the cache is filled
+    cacheSampleCount.set(9);
+    rateLimitingDecorator.write_untyped(new TestSample(1), instanceHandle);
+    verify(dataWriter, never()).write_untyped(any(), any());
+    assertEquals(1, rateLimitingDecorator.getDroppedSampleCount());
+
+    // the status is checked again after the check period
+    cacheSampleCount.set(8);
+    Thread.sleep(2);
+    rateLimitingDecorator.write_untyped(new TestSample(2), instanceHandle);
+    verify(dataWriter, times(1)).write_untyped(any(), eq(instanceHandle));
+  }
+
+  @Test
+  void testBlockPolicy() {
+    rateLimitingDecorator = new DataWriterRateLimitingDecorator(dataWriter, 500, 1, OverloadPolicy.BLOCK, null);
+    InstanceHandle_t instanceHandle = createInstanceHandle(1);
+
+    long start = System.nanoTime();
+    for (int i = 0; i < 3; i++) {
+      rateLimitingDecorator.write_untyped(new TestSample(i), instanceHandle);
+    }
+    rateLimitingDecorator.write_w_timestamp_untyped(new TestSample(3), instanceHandle, new Time_t(0, 0));
+
+    // a token every 2 milliseconds after the first one
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(6));
+    verify(dataWriter, times(3)).write_untyped(any(), eq(instanceHandle));
+    verify(dataWriter, times(1)).write_w_timestamp_untyped(any(), eq(instanceHandle), any());
+    assertEquals(4, rateLimitingDecorator.getAdmittedSampleCount());
+    assertEquals(0, rateLimitingDecorator.getDroppedSampleCount());
+  }
+
+  @Test
+  void testBlockWhileCongested() {
+    rateLimitingDecorator = new DataWriterRateLimitingDecorator(dataWriter, 1000, 1000, OverloadPolicy.BLOCK, null);
+
+    // the cache drains after the third check
+    cacheSampleCount.set(MAX_SAMPLES);
+    doAnswer(invocation -> {
+      if (cacheStatusCheckCount.incrementAndGet() >= 3) {
+        cacheSampleCount.set(0);
+      }
+      ((DataWriterCacheStatus) invocation.getArgument(0)).sample_count = cacheSampleCount.get();
+      return null;
+    }).when(dataWriter).get_datawriter_cache_status(any(DataWriterCacheStatus.class));
+
+    rateLimitingDecorator.write_untyped(new TestSample(1), createInstanceHandle(1));
+
+    verify(dataWriter, times(1)).write_untyped(any(), any());
+    assertTrue(cacheStatusCheckCount.get() >= 3);
+    assertEquals(1, rateLimitingDecorator.getAdmittedSampleCount());
+  }
+
+  @Test
+  void testUnacknowledgedSamplesOnlyLimitedWhenEnabled() {
+    // reliable writer with more unacknowledged samples than its high watermark
+    doAnswer(invocation -> {
+      DataWriterQos dataWriterQos = invocation.getArgument(0);
+      dataWriterQos.resource_limits.max_samples = MAX_SAMPLES;
+      dataWriterQos.reliability.kind = ReliabilityQosPolicyKind.RELIABLE_RELIABILITY_QOS;
+      dataWriterQos.protocol.rtps_reliable_writer.high_watermark = 1;
+      return null;
+    }).when(dataWriter).get_qos(any(DataWriterQos.class));
+    doAnswer(invocation -> {
+      ((ReliableWriterCacheChangedStatus) invocation.getArgument(0)).unacknowledged_sample_count = 2;
+      return null;
+    }).when(dataWriter).get_reliable_writer_cache_changed_status(any(ReliableWriterCacheChangedStatus.class));
+
+    // by default the status is not read, as reading it resets it for the application
+    rateLimitingDecorator = new DataWriterRateLimitingDecorator(dataWriter, 1000, 1000, OverloadPolicy.DROP, null);
+    rateLimitingDecorator.write_untyped(new TestSample(1), createInstanceHandle(1));
+    verify(dataWriter, times(1)).write_untyped(any(), any());
+    verify(dataWriter, never()).get_reliable_writer_cache_changed_status(any());
+
+    rateLimitingDecorator = new DataWriterRateLimitingDecorator(
+      dataWriter, 1000, 1000, 0, 0, OverloadPolicy.DROP, null, true);
+    rateLimitingDecorator.write_untyped(new TestSample(2), createInstanceHandle(1));
+    verify(dataWriter, times(1)).write_untyped(any(), any());
+    assertEquals(1, rateLimitingDecorator.getDroppedSampleCount());
+  }
+
+  @Test
+  void testNewestWinsPolicy() throws InterruptedException {
+    rateLimitingDecorator = new DataWriterRateLimitingDecorator(
+      dataWriter, 20, 1, OverloadPolicy.NEWEST_WINS, TestSample.class);
+    InstanceHandle_t instanceHandle = createInstanceHandle(1);
+
+    // the first sample is admitted, the others replace each other until the next token
+    for (int i = 1; i <= 4; i++) {
+      rateLimitingDecorator.write_untyped(new TestSample(i), instanceHandle);
+    }
+    assertEquals(2, rateLimitingDecorator.getReplacedSampleCount());
+
+    waitFor(() -> rateLimitingDecorator.getAdmittedSampleCount() == 2);
+    ArgumentCaptor<Object> sample = ArgumentCaptor.forClass(Object.class);
+    verify(dataWriter, times(2)).write_untyped(sample.capture(), eq(instanceHandle));
+    assertEquals(1, ((TestSample) sample.getAllValues().get(0)).value);
+    assertEquals(4, ((TestSample) sample.getAllValues().get(1)).value);
+    assertEquals(0, rateLimitingDecorator.getDroppedSampleCount());
+  }
+
+  @Test
+  void testNewestWinsDiscardsKeptSample() throws InterruptedException {
+    rateLimitingDecorator = new DataWriterRateLimitingDecorator(
+      dataWriter, 20, 1, OverloadPolicy.NEWEST_WINS, TestSample.class);
+
+    // kept samples are not written after a dispose or unregister of their instance
+    rateLimitingDecorator.write_untyped(new TestSample(1), createInstanceHandle(1));
+    rateLimitingDecorator.write_untyped(new TestSample(2), createInstanceHandle(1));
+    rateLimitingDecorator.dispose_w_timestamp_untyped(null, createInstanceHandle(1), new Time_t(0, 0));
+    rateLimitingDecorator.write_untyped(new TestSample(3), createInstanceHandle(2));
+    rateLimitingDecorator.unregister_instance_w_timestamp_untyped(null, createInstanceHandle(2), new Time_t(0, 0));
+    assertEquals(2, rateLimitingDecorator.getDroppedSampleCount());
+
+    Thread.sleep(200);
+    verify(dataWriter, times(1)).write_untyped(any(), any());
+    assertEquals(1, rateLimitingDecorator.getAdmittedSampleCount());
+  }
+
+  private static void waitFor(
+    BooleanSupplier condition
+  ) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+    while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertTrue(condition.getAsBoolean());
+  }
+}
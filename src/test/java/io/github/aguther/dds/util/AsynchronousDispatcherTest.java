@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.aguther.dds.util.AsynchronousDispatcher.OverflowPolicy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class AsynchronousDispatcherTest {
+
+  @Test
+  void testDiscardNewestIsCounted() throws InterruptedException {
+    try (AsynchronousDispatcher dispatcher = new AsynchronousDispatcher(1, OverflowPolicy.DISCARD_NEWEST)) {
+      List<Integer> executed = new CopyOnWriteArrayList<>();
+      CountDownLatch started = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      CountDownLatch finished = new CountDownLatch(1);
+
+      // the first task occupies the thread, the second one the queue
+      dispatcher.execute(() -> {
+        started.countDown();
+        awaitQuietly(release);
+        executed.add(1);
+      });
+      assertTrue(started.await(1, TimeUnit.SECONDS));
+      dispatcher.execute(() -> {
+        executed.add(2);
+        finished.countDown();
+      });
+      dispatcher.execute(() -> executed.add(3));
+
+      release.countDown();
+      assertTrue(finished.await(1, TimeUnit.SECONDS));
+      assertEquals(List.of(1, 2), executed);
+      assertEquals(1, dispatcher.getDiscardedTaskCount());
+    }
+  }
+
+  @Test
+  void testBlockKeepsAllTasksInOrder() throws InterruptedException {
+    try (AsynchronousDispatcher dispatcher = new AsynchronousDispatcher(1, OverflowPolicy.BLOCK)) {
+      List<Integer> executed = new CopyOnWriteArrayList<>();
+      CountDownLatch finished = new CountDownLatch(1);
+
+      for (int i = 0; i < 100; i++) {
+        int value = i;
+        dispatcher.execute(() -> executed.add(value));
+      }
+      dispatcher.execute(finished::countDown);
+
+      assertTrue(finished.await(1, TimeUnit.SECONDS));
+      assertEquals(100, executed.size());
+      for (int i = 0; i < 100; i++) {
+        assertEquals(i, executed.get(i));
+      }
+      assertEquals(0, dispatcher.getDiscardedTaskCount());
+    }
+  }
+
+  private static void awaitQuietly(
+    CountDownLatch latch
+  ) {
+    try {
+      latch.await(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
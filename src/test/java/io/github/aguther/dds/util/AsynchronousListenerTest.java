@@ -0,0 +1,135 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class AsynchronousListenerTest {
+
+  @Test
+  void testDeliversAllNotificationsInOrderBelowCapacity() throws InterruptedException {
+    List<String> delivered = new CopyOnWriteArrayList<>();
+    CountDownLatch finished = new CountDownLatch(1);
+
+    try (TestListener listener = new TestListener(delivered::add, 10)) {
+      listener.created("a");
+      listener.modified("a", 1);
+      listener.deleted("a");
+      listener.dispatch("b", AsynchronousListener.NotificationKind.CREATION, ignored -> finished.countDown());
+
+      assertTrue(finished.await(1, TimeUnit.SECONDS));
+      assertEquals(List.of("created a", "modified a 1", "deleted a"), delivered);
+      assertEquals(0, listener.getCoalescedNotificationCount());
+    }
+  }
+
+  @Test
+  void testCoalescesNotificationsOfSameEntityWhenFull() throws InterruptedException {
+    List<String> delivered = new CopyOnWriteArrayList<>();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch finished = new CountDownLatch(1);
+
+    try (TestListener listener = new TestListener(delivered::add, 1)) {
+      // the first notification occupies the thread, the second one fills the queue
+      listener.dispatch("busy", AsynchronousListener.NotificationKind.CREATION, ignored -> {
+        started.countDown();
+        awaitQuietly(release);
+      });
+      assertTrue(started.await(1, TimeUnit.SECONDS));
+      listener.created("a");
+
+      // a creation and a deletion cancel out, also with a modification in between
+      listener.modified("a", 1);
+      listener.deleted("a");
+      // an entity without queued notifications is queued beyond the capacity
+      listener.modified("b", 1);
+      // a modification replaces a queued modification
+      listener.modified("b", 2);
+      // a deletion makes a queued modification obsolete
+      listener.modified("c", 1);
+      listener.deleted("c");
+      listener.dispatch("end", AsynchronousListener.NotificationKind.CREATION, ignored -> finished.countDown());
+
+      release.countDown();
+      assertTrue(finished.await(1, TimeUnit.SECONDS));
+      assertEquals(List.of("modified b 2", "deleted c"), delivered);
+      assertEquals(5, listener.getCoalescedNotificationCount());
+    }
+  }
+
+  private static void awaitQuietly(
+    CountDownLatch latch
+  ) {
+    try {
+      latch.await(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private interface EntityListener {
+
+    void handle(
+      String notification
+    );
+  }
+
+  private static class TestListener extends AsynchronousListener<EntityListener> {
+
+    TestListener(
+      EntityListener listener,
+      int capacity
+    ) {
+      super(listener, capacity);
+    }
+
+    void created(
+      String entity
+    ) {
+      dispatch(entity, NotificationKind.CREATION, listener -> listener.handle("created " + entity));
+    }
+
+    void modified(
+      String entity,
+      int value
+    ) {
+      dispatch(entity, NotificationKind.MODIFICATION, listener -> listener.handle("modified " + entity + " " + value));
+    }
+
+    void deleted(
+      String entity
+    ) {
+      dispatch(entity, NotificationKind.DELETION, listener -> listener.handle("deleted " + entity));
+    }
+  }
+}
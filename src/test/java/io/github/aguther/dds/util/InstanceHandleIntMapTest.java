@@ -0,0 +1,157 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class InstanceHandleIntMapTest {
+
+  private static final int MISSING = -1;
+
+  private InstanceHandleIntMap instanceHandleIntMap;
+
+  @BeforeEach
+  public void setUp() {
+    instanceHandleIntMap = new InstanceHandleIntMap();
+  }
+
+  @Test
+  void testPutGetRemove() {
+    InstanceHandle_t instanceHandle = createInstanceHandle(1);
+
+    // zero is a regular value
+    instanceHandleIntMap.put(instanceHandle, 0);
+    assertEquals(0, instanceHandleIntMap.get(createInstanceHandle(1), MISSING));
+    instanceHandleIntMap.put(instanceHandle, 7);
+    assertEquals(7, instanceHandleIntMap.get(instanceHandle, MISSING));
+    assertTrue(instanceHandleIntMap.containsKey(instanceHandle));
+    assertFalse(instanceHandleIntMap.containsKey(createInstanceHandle(2)));
+    assertEquals(MISSING, instanceHandleIntMap.get(createInstanceHandle(2), MISSING));
+    assertEquals(1, instanceHandleIntMap.size());
+
+    assertEquals(7, instanceHandleIntMap.remove(instanceHandle, MISSING));
+    assertEquals(MISSING, instanceHandleIntMap.remove(instanceHandle, MISSING));
+    assertEquals(0, instanceHandleIntMap.size());
+  }
+
+  @Test
+  void testRemoveInsideProbeChain() {
+    List<InstanceHandle_t> instanceHandles = findCollidingHandles(instanceHandleIntMap.capacity() - 1, 3);
+    for (int i = 0; i < instanceHandles.size(); i++) {
+      instanceHandleIntMap.put(instanceHandles.get(i), i);
+    }
+
+    assertEquals(0, instanceHandleIntMap.remove(instanceHandles.get(0), MISSING));
+    assertEquals(1, instanceHandleIntMap.get(instanceHandles.get(1), MISSING));
+    assertEquals(2, instanceHandleIntMap.get(instanceHandles.get(2), MISSING));
+    assertEquals(1, instanceHandleIntMap.remove(instanceHandles.get(1), MISSING));
+    assertEquals(2, instanceHandleIntMap.get(instanceHandles.get(2), MISSING));
+    assertEquals(1, instanceHandleIntMap.size());
+  }
+
+  @Test
+  void testGrowsAndShrinks() {
+    int initialCapacity = instanceHandleIntMap.capacity();
+
+    for (int i = 0; i < 1000; i++) {
+      instanceHandleIntMap.put(createInstanceHandle(i), i);
+    }
+    assertTrue(instanceHandleIntMap.capacity() >= 1000 * 4 / 3);
+
+    for (int i = 0; i < 998; i++) {
+      assertEquals(i, instanceHandleIntMap.remove(createInstanceHandle(i), MISSING));
+    }
+    assertEquals(initialCapacity, instanceHandleIntMap.capacity());
+    assertEquals(998, instanceHandleIntMap.get(createInstanceHandle(998), MISSING));
+    assertEquals(999, instanceHandleIntMap.get(createInstanceHandle(999), MISSING));
+  }
+
+  @Test
+  void testBehavesLikeHashMap() {
+    Map<Integer, Integer> expected = new HashMap<>();
+    Random random = new Random(42);
+
+    for (int i = 0; i < 20000; i++) {
+      int id = random.nextInt(200);
+      if (random.nextInt(3) == 0) {
+        assertEquals(
+          expected.getOrDefault(id, MISSING).intValue(),
+          instanceHandleIntMap.remove(createInstanceHandle(id), MISSING)
+        );
+        expected.remove(id);
+      } else {
+        expected.put(id, i);
+        instanceHandleIntMap.put(createInstanceHandle(id), i);
+      }
+      assertEquals(expected.size(), instanceHandleIntMap.size());
+    }
+    for (int id = 0; id < 200; id++) {
+      assertEquals(
+        expected.getOrDefault(id, MISSING).intValue(),
+        instanceHandleIntMap.get(createInstanceHandle(id), MISSING)
+      );
+    }
+  }
+
+  private List<InstanceHandle_t> findCollidingHandles(
+    int slot,
+    int count
+  ) {
+    int mask = instanceHandleIntMap.capacity() - 1;
+    List<InstanceHandle_t> instanceHandles = new ArrayList<>();
+    for (int id = 0; instanceHandles.size() < count; id++) {
+      InstanceHandle_t instanceHandle = createInstanceHandle(id);
+      long high = InstanceHandleMap.high(instanceHandle);
+      long low = InstanceHandleMap.low(instanceHandle);
+      if ((InstanceHandleMap.hash(high, low) & mask) == slot) {
+        instanceHandles.add(instanceHandle);
+      }
+    }
+    return instanceHandles;
+  }
+
+  private static InstanceHandle_t createInstanceHandle(
+    int id
+  ) {
+    InstanceHandle_t instanceHandle = new InstanceHandle_t();
+    instanceHandle.value[0] = 1;
+    instanceHandle.value[12] = (byte) (id >> 24);
+    instanceHandle.value[13] = (byte) (id >> 16);
+    instanceHandle.value[14] = (byte) (id >> 8);
+    instanceHandle.value[15] = (byte) id;
+    return instanceHandle;
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.rti.dds.infrastructure.InstanceHandle_t;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class InstanceHandleMapTest {
+
+  private InstanceHandleMap<String> instanceHandleMap;
+
+  @BeforeEach
+  public void setUp() {
+    instanceHandleMap = new InstanceHandleMap<>();
+  }
+
+  @Test
+  void testPutGetRemove() {
+    InstanceHandle_t instanceHandle = createInstanceHandle(1);
+
+    assertNull(instanceHandleMap.put(instanceHandle, "A"));
+    assertEquals("A", instanceHandleMap.put(instanceHandle, "B"));
+    assertEquals("B", instanceHandleMap.get(createInstanceHandle(1)));
+    assertTrue(instanceHandleMap.containsKey(instanceHandle));
+    assertFalse(instanceHandleMap.containsKey(createInstanceHandle(2)));
+    assertEquals(1, instanceHandleMap.size());
+
+    assertEquals("B", instanceHandleMap.remove(instanceHandle));
+    assertNull(instanceHandleMap.remove(instanceHandle));
+    assertNull(instanceHandleMap.get(instanceHandle));
+    assertEquals(0, instanceHandleMap.size());
+  }
+
+  @Test
+  void testCollidingHandles() {
+    List<InstanceHandle_t> instanceHandles = findCollidingHandles(0, 4);
+    for (int i = 0; i < instanceHandles.size(); i++) {
+      assertNull(instanceHandleMap.put(instanceHandles.get(i), "V" + i));
+    }
+
+    for (int i = 0; i < instanceHandles.size(); i++) {
+      assertEquals("V" + i, instanceHandleMap.get(instanceHandles.get(i)));
+    }
+    assertEquals("V2", instanceHandleMap.put(instanceHandles.get(2), "W2"));
+    assertEquals(4, instanceHandleMap.size());
+  }
+
+  @Test
+  void testRemoveInsideProbeChain() {
+    // chain wraps around the end of the table and contains an entry of the following home slot
+    int lastSlot = instanceHandleMap.capacity() - 1;
+    List<InstanceHandle_t> instanceHandles = new ArrayList<>(findCollidingHandles(lastSlot, 3));
+    instanceHandles.addAll(findCollidingHandles(0, 1));
+    for (int i = 0; i < instanceHandles.size(); i++) {
+      instanceHandleMap.put(instanceHandles.get(i), "V" + i);
+    }
+
+    // remove head and middle of the chain, the remaining entries must be moved back
+    assertEquals("V0", instanceHandleMap.remove(instanceHandles.get(0)));
+    assertEquals("V1", instanceHandleMap.get(instanceHandles.get(1)));
+    assertEquals("V2", instanceHandleMap.get(instanceHandles.get(2)));
+    assertEquals("V3", instanceHandleMap.get(instanceHandles.get(3)));
+
+    assertEquals("V2", instanceHandleMap.remove(instanceHandles.get(2)));
+    assertEquals("V1", instanceHandleMap.get(instanceHandles.get(1)));
+    assertEquals("V3", instanceHandleMap.get(instanceHandles.get(3)));
+    assertNull(instanceHandleMap.get(instanceHandles.get(0)));
+    assertNull(instanceHandleMap.get(instanceHandles.get(2)));
+    assertEquals(2, instanceHandleMap.size());
+
+    // removed handles can be inserted again
+    assertNull(instanceHandleMap.put(instanceHandles.get(0), "W0"));
+    assertEquals("W0", instanceHandleMap.get(instanceHandles.get(0)));
+    assertEquals("V3", instanceHandleMap.get(instanceHandles.get(3)));
+  }
+
+  @Test
+  void testGrowsAndShrinks() {
+    int initialCapacity = instanceHandleMap.capacity();
+
+    for (int i = 0; i < 1000; i++) {
+      instanceHandleMap.put(createInstanceHandle(i), "V" + i);
+    }
+    assertTrue(instanceHandleMap.capacity() >= 1000 * 4 / 3);
+    for (int i = 0; i < 1000; i++) {
+      assertEquals("V" + i, instanceHandleMap.get(createInstanceHandle(i)));
+    }
+
+    for (int i = 0; i < 998; i++) {
+      assertEquals("V" + i, instanceHandleMap.remove(createInstanceHandle(i)));
+    }
+    assertEquals(initialCapacity, instanceHandleMap.capacity());
+    assertEquals(2, instanceHandleMap.size());
+    for (int i = 998; i < 1000; i++) {
+      assertEquals("V" + i, instanceHandleMap.get(createInstanceHandle(i)));
+    }
+  }
+
+  @Test
+  void testDoesNotShrinkBelowExpectedSize() {
+    instanceHandleMap = new InstanceHandleMap<>(100);
+    int initialCapacity = instanceHandleMap.capacity();
+
+    for (int i = 0; i < 100; i++) {
+      instanceHandleMap.put(createInstanceHandle(i), "V" + i);
+    }
+    for (int i = 0; i < 100; i++) {
+      instanceHandleMap.remove(createInstanceHandle(i));
+    }
+    assertEquals(initialCapacity, instanceHandleMap.capacity());
+  }
+
+  @Test
+  void testBehavesLikeHashMap() {
+    Map<Integer, String> expected = new HashMap<>();
+    Random random = new Random(42);
+
+    for (int i = 0; i < 20000; i++) {
+      int id = random.nextInt(200);
+      if (random.nextInt(3) == 0) {
+        assertEquals(expected.remove(id), instanceHandleMap.remove(createInstanceHandle(id)));
+      } else {
+        assertEquals(expected.put(id, "V" + i), instanceHandleMap.put(createInstanceHandle(id), "V" + i));
+      }
+      assertEquals(expected.size(), instanceHandleMap.size());
+    }
+    for (int id = 0; id < 200; id++) {
+      assertEquals(expected.get(id), instanceHandleMap.get(createInstanceHandle(id)));
+    }
+  }
+
+  @Test
+  void testForEachAndClear() {
+    for (int i = 0; i < 20; i++) {
+      instanceHandleMap.put(createInstanceHandle(i), "V" + i);
+    }
+
+    Map<String, InstanceHandle_t> visited = new HashMap<>();
+    instanceHandleMap.forEach((instanceHandle, value) -> visited.put(value, instanceHandle));
+    assertEquals(20, visited.size());
+    visited.forEach((value, instanceHandle) -> assertEquals(value, instanceHandleMap.get(instanceHandle)));
+
+    instanceHandleMap.clear();
+    assertEquals(0, instanceHandleMap.size());
+    assertNull(instanceHandleMap.get(createInstanceHandle(0)));
+  }
+
+  private List<InstanceHandle_t> findCollidingHandles(
+    int slot,
+    int count
+  ) {
+    int mask = instanceHandleMap.capacity() - 1;
+    List<InstanceHandle_t> instanceHandles = new ArrayList<>();
+    for (int id = 0; instanceHandles.size() < count; id++) {
+      InstanceHandle_t instanceHandle = createInstanceHandle(id);
+      long high = InstanceHandleMap.high(instanceHandle);
+      long low = InstanceHandleMap.low(instanceHandle);
+      if ((InstanceHandleMap.hash(high, low) & mask) == slot) {
+        instanceHandles.add(instanceHandle);
+      }
+    }
+    return instanceHandles;
+  }
+
+  private static InstanceHandle_t createInstanceHandle(
+    int id
+  ) {
+    InstanceHandle_t instanceHandle = new InstanceHandle_t();
+    // leading bytes are equal as with handles of one writer
+    instanceHandle.value[0] = 1;
+    instanceHandle.value[12] = (byte) (id >> 24);
+    instanceHandle.value[13] = (byte) (id >> 16);
+    instanceHandle.value[14] = (byte) (id >> 8);
+    instanceHandle.value[15] = (byte) id;
+    return instanceHandle;
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TimingWheelTest {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private TimingWheel<String> timingWheel;
+  private List<String> expired;
+
+  @BeforeEach
+  public void setUp() {
+    timingWheel = new TimingWheel<>(10, 1, TimeUnit.SECONDS);
+    expired = new ArrayList<>();
+  }
+
+  @Test
+  void testExpireAfterTimeToLive() {
+    timingWheel.touch("A", 0);
+    timingWheel.touch("B", 5 * SECOND);
+
+    assertEquals(0, timingWheel.expire(9 * SECOND, expired::add));
+    assertEquals(1, timingWheel.expire(11 * SECOND, expired::add));
+    assertEquals(List.of("A"), expired);
+    assertEquals(1, timingWheel.size());
+
+    assertEquals(1, timingWheel.expire(16 * SECOND, expired::add));
+    assertEquals(List.of("A", "B"), expired);
+    assertEquals(0, timingWheel.size());
+  }
+
+  @Test
+  void testTouchPostponesExpiration() {
+    timingWheel.touch("A", 0);
+    timingWheel.touch("A", 8 * SECOND);
+
+    assertEquals(0, timingWheel.expire(12 * SECOND, expired::add));
+    assertEquals(1, timingWheel.expire(19 * SECOND, expired::add));
+    assertEquals(List.of("A"), expired);
+  }
+
+  @Test
+  void testRemovedKeyDoesNotExpire() {
+    timingWheel.touch("A", 0);
+    timingWheel.remove("A");
+
+    assertEquals(0, timingWheel.expire(20 * SECOND, expired::add));
+    assertTrue(expired.isEmpty());
+    assertEquals(0, timingWheel.size());
+  }
+
+  @Test
+  void testExpireAfterMoreThanOneRound() {
+    timingWheel.touch("A", 0);
+    timingWheel.touch("B", 3 * SECOND);
+
+    assertEquals(2, timingWheel.expire(100 * SECOND, expired::add));
+    assertEquals(0, timingWheel.size());
+  }
+
+  @Test
+  void testContainsUntilExpired() {
+    timingWheel.touch("A", 0);
+    assertTrue(timingWheel.contains("A"));
+
+    timingWheel.expire(11 * SECOND, expired::add);
+    assertFalse(timingWheel.contains("A"));
+
+    timingWheel.touch("A", 12 * SECOND);
+    assertTrue(timingWheel.contains("A"));
+  }
+}
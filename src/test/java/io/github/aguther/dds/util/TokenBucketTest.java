@@ -0,0 +1,83 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Andreas Guther
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.aguther.dds.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TokenBucketTest {
+
+  private static final long MILLISECOND = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private TokenBucket tokenBucket;
+
+  @BeforeEach
+  public void setUp() {
+    // one token every 10 milliseconds, bursts of 3
+    tokenBucket = new TokenBucket(100, 3);
+  }
+
+  @Test
+  void testBurstUpToCapacity() {
+    assertTrue(tokenBucket.tryAcquire(0));
+    assertTrue(tokenBucket.tryAcquire(0));
+    assertTrue(tokenBucket.tryAcquire(0));
+    assertFalse(tokenBucket.tryAcquire(0));
+    assertEquals(10 * MILLISECOND, tokenBucket.nanosUntilAvailable(0));
+  }
+
+  @Test
+  void testRefillWithRate() {
+    for (int i = 0; i < 3; i++) {
+      tokenBucket.tryAcquire(0);
+    }
+
+    assertFalse(tokenBucket.tryAcquire(5 * MILLISECOND));
+    assertTrue(tokenBucket.tryAcquire(10 * MILLISECOND));
+    assertFalse(tokenBucket.tryAcquire(10 * MILLISECOND));
+
+    // the bucket does not fill beyond its capacity
+    assertTrue(tokenBucket.tryAcquire(1000 * MILLISECOND));
+    assertTrue(tokenBucket.tryAcquire(1000 * MILLISECOND));
+    assertTrue(tokenBucket.tryAcquire(1000 * MILLISECOND));
+    assertFalse(tokenBucket.tryAcquire(1000 * MILLISECOND));
+  }
+
+  @Test
+  void testReleaseReturnsToken() {
+    for (int i = 0; i < 3; i++) {
+      tokenBucket.tryAcquire(0);
+    }
+    tokenBucket.release();
+
+    assertTrue(tokenBucket.tryAcquire(0));
+    assertFalse(tokenBucket.tryAcquire(0));
+  }
+}